@@ -0,0 +1,127 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd.bench;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.royall.jsondtd.CompiledSchema;
+import com.royall.jsondtd.JSONValidator;
+import com.royall.jsondtd.ValidationOptions;
+import com.royall.jsondtd.ValidationResult;
+
+/**
+ * Large arrays of structs, as json trees in each output mode and as json bytes.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ArrayBenchmark {
+
+	@Param( { Fixtures.SMALL, Fixtures.MEDIUM, Fixtures.LARGE } )
+	public String size;
+
+	private JSONValidator validator, copyOnWriteValidator, parallelValidator;
+	private CompiledSchema schema, copyOnWriteSchema, parallelSchema;
+	private List<Object> json;
+	private byte[] bytes;
+
+	@Setup
+	public void setup() throws Exception {
+		Map<String, Object> prototype = Fixtures.array( Fixtures.itemPrototype() );
+
+		int count = Fixtures.count( size, 10, 1000, 100000 );
+		json = new ArrayList<Object>( count );
+		StringBuilder text = new StringBuilder( "[" );
+		for ( int i = 0; i < count; i++ ) {
+			json.add( Fixtures.item( i ) );
+			text.append( ( i > 0 ) ? ", " : "" ).append( "{\"id\": " ).append( i + 1 ).append( ", \"name\": \"item " ).append( i ).append( "\", \"tags\": [\"tag" ).append( i % 7 ).append( "\", \"tag" ).append( i % 11 ).append( "\"]}" );
+		}
+		bytes = text.append( "]" ).toString().getBytes( Charset.forName( "UTF-8" ) );
+
+		validator = new JSONValidator();
+		schema = validator.compile( prototype );
+
+		Map<String, Object> options = new HashMap<String, Object>();
+		options.put( ValidationOptions.CopyOnWrite, true );
+		copyOnWriteValidator = new JSONValidator( options );
+		copyOnWriteSchema = copyOnWriteValidator.compile( prototype );
+
+		options = new HashMap<String, Object>();
+		options.put( ValidationOptions.ParallelThreshold, 1000 );
+		parallelValidator = new JSONValidator( options );
+		parallelSchema = parallelValidator.compile( prototype );
+	}
+
+	@Benchmark
+	public ValidationResult validate() throws Exception {
+		return validator.validateWithResult( json, schema );
+	}
+
+	@Benchmark
+	public ValidationResult check() throws Exception {
+		return validator.check( json, schema );
+	}
+
+	@Benchmark
+	public ValidationResult copyOnWrite() throws Exception {
+		return copyOnWriteValidator.validateWithResult( json, copyOnWriteSchema );
+	}
+
+	@Benchmark
+	public ValidationResult parallel() throws Exception {
+		return parallelValidator.validateWithResult( json, parallelSchema );
+	}
+
+	@Benchmark
+	public ValidationResult streamBytes() throws Exception {
+		return validator.validateStream( bytes, schema );
+	}
+
+	@Benchmark
+	public ValidationResult parseBytes() throws Exception {
+		return validator.parse( bytes, schema );
+	}
+
+}
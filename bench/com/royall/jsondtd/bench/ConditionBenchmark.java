@@ -0,0 +1,98 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd.bench;
+
+import static com.royall.jsondtd.bench.Fixtures.map;
+import static com.royall.jsondtd.bench.Fixtures.type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.royall.jsondtd.CompiledSchema;
+import com.royall.jsondtd.JSONValidator;
+import com.royall.jsondtd.ValidationResult;
+
+/**
+ * Fields whose req and err_on depend on conditions over their struct and the struct above.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ConditionBenchmark {
+
+	@Param( { Fixtures.SMALL, Fixtures.MEDIUM, Fixtures.LARGE } )
+	public String size;
+
+	private JSONValidator validator;
+	private CompiledSchema schema;
+	private Object json;
+
+	@Setup
+	public void setup() throws Exception {
+		validator = new JSONValidator();
+
+		// An address is required for kind "person", a company name is an error unless kind is
+		// "company", and the vat number is required for a company but an error outside of the
+		// country "NL" of the document, two levels up past the array
+		Map<String, Object> address = map( JSONValidator.KEY_REQ, map( "eq&kind", "person" ), JSONValidator.KEY_FIELD_DEFINITION, type( "string" ) );
+		Map<String, Object> company = map( JSONValidator.KEY_ERR_ON, map( "neq&kind", "company" ), JSONValidator.KEY_FIELD_DEFINITION, type( "string" ) );
+		Map<String, Object> vat = map( JSONValidator.KEY_REQ, map( "eq&kind", "company" ), JSONValidator.KEY_ERR_ON, map( "neq^^&country", "NL" ), JSONValidator.KEY_FIELD_DEFINITION, type( "string" ) );
+		Map<String, Object> party = Fixtures.struct( map( "kind", Fixtures.field( true, type( "string" ) ), "address", address, "company", company, "vat", vat ) );
+		schema = validator.compile( Fixtures.struct( map( "country", Fixtures.field( true, type( "string" ) ), "parties", Fixtures.field( true, Fixtures.array( party ) ) ) ) );
+
+		int count = Fixtures.count( size, 10, 1000, 100000 );
+		List<Object> parties = new ArrayList<Object>( count );
+		for ( int i = 0; i < count; i++ ) {
+			if ( i % 2 == 0 )
+				parties.add( map( "kind", "person", "address", "Street " + i ) );
+			else
+				parties.add( map( "kind", "company", "company", "Company " + i, "vat", "NL" + i ) );
+		}
+		json = map( "country", "NL", "parties", parties );
+	}
+
+	@Benchmark
+	public ValidationResult conditions() throws Exception {
+		return validator.validateWithResult( json, schema );
+	}
+
+}
@@ -0,0 +1,114 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd.bench;
+
+import static com.royall.jsondtd.bench.Fixtures.field;
+import static com.royall.jsondtd.bench.Fixtures.type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.royall.jsondtd.CompiledSchema;
+import com.royall.jsondtd.JSONValidator;
+import com.royall.jsondtd.ValidationOptions;
+import com.royall.jsondtd.ValidationResult;
+
+/**
+ * Date strings parsed with the datepattern option and checked against after and before bounds, and
+ * dates of mixed formats parsed with a list of patterns of the field.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class DateBenchmark {
+
+	@Param( { Fixtures.SMALL, Fixtures.MEDIUM, Fixtures.LARGE } )
+	public String size;
+
+	private JSONValidator validator;
+	private CompiledSchema schema, mixedSchema;
+	private List<Object> json, mixedJson;
+
+	@Setup
+	public void setup() throws Exception {
+		Map<String, Object> options = new HashMap<String, Object>();
+		options.put( ValidationOptions.DatePattern, "yyyy-MM-dd'T'HH:mm:ss" );
+		validator = new JSONValidator( options );
+
+		Map<String, Object> date = type( "date", JSONValidator.KEY_DATE_MUST_BE_AFTER, "1999-12-31T00:00:00", JSONValidator.KEY_DATE_MUST_BE_BEFORE, "2100-01-01T00:00:00" );
+		schema = validator.compile( Fixtures.array( Fixtures.struct( Fixtures.map( "created", field( true, date ) ) ) ) );
+
+		List<Object> patterns = new ArrayList<Object>();
+		patterns.add( "yyyy-MM-dd'T'HH:mm:ss.SSSZ" );
+		patterns.add( "yyyy-MM-dd" );
+		patterns.add( "MM/dd/yyyy" );
+		Map<String, Object> mixed = type( "date", JSONValidator.KEY_DATE_PATTERN, patterns );
+		mixedSchema = validator.compile( Fixtures.array( Fixtures.struct( Fixtures.map( "created", field( true, mixed ) ) ) ) );
+
+		int count = Fixtures.count( size, 10, 1000, 100000 );
+		json = new ArrayList<Object>( count );
+		mixedJson = new ArrayList<Object>( count );
+		for ( int i = 0; i < count; i++ ) {
+			json.add( Fixtures.map( "created", String.format( "20%02d-%02d-%02dT%02d:%02d:00", i % 100, i % 12 + 1, i % 28 + 1, i % 24, i % 60 ) ) );
+			String created;
+			if ( i % 3 == 0 )
+				created = String.format( "20%02d-%02d-%02dT%02d:%02d:00.000+0100", i % 100, i % 12 + 1, i % 28 + 1, i % 24, i % 60 );
+			else if ( i % 3 == 1 )
+				created = String.format( "20%02d-%02d-%02d", i % 100, i % 12 + 1, i % 28 + 1 );
+			else
+				created = String.format( "%02d/%02d/20%02d", i % 12 + 1, i % 28 + 1, i % 100 );
+			mixedJson.add( Fixtures.map( "created", created ) );
+		}
+	}
+
+	@Benchmark
+	public ValidationResult parseDates() throws Exception {
+		return validator.validateWithResult( json, schema );
+	}
+
+	@Benchmark
+	public ValidationResult mixedPatterns() throws Exception {
+		return validator.validateWithResult( mixedJson, mixedSchema );
+	}
+
+}
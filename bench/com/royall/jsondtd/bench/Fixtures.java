@@ -0,0 +1,103 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.royall.jsondtd.JSONValidator;
+
+/**
+ * Builders for the prototypes and documents of the benchmarks. Every benchmark runs on a small,
+ * medium and large fixture, see count().
+ */
+final class Fixtures {
+
+	static final String SMALL = "small", MEDIUM = "medium", LARGE = "large";
+
+	private Fixtures() {
+	}
+
+	/**
+	 * @return _small, _medium or _large depending on _size
+	 */
+	static int count( String _size, int _small, int _medium, int _large ) {
+		if ( SMALL.equals( _size ) )
+			return _small;
+		if ( MEDIUM.equals( _size ) )
+			return _medium;
+		if ( LARGE.equals( _size ) )
+			return _large;
+		throw new IllegalArgumentException( "Unknown fixture size " + _size );
+	}
+
+	/**
+	 * @return A Map of the keys and values in _keyValues
+	 */
+	static Map<String, Object> map( Object... _keyValues ) {
+		Map<String, Object> map = new HashMap<String, Object>();
+		for ( int i = 0; i < _keyValues.length; i += 2 )
+			map.put( (String) _keyValues[i], _keyValues[i + 1] );
+		return map;
+	}
+
+	static Map<String, Object> type( String _type, Object... _keyValues ) {
+		Map<String, Object> type = map( _keyValues );
+		type.put( JSONValidator.KEY_TYPE, _type );
+		return type;
+	}
+
+	static Map<String, Object> field( boolean _req, Object _definition ) {
+		return map( JSONValidator.KEY_REQ, _req, JSONValidator.KEY_FIELD_DEFINITION, _definition );
+	}
+
+	/**
+	 * @param _fields A Map of fields, or a List of them for several field patterns
+	 */
+	static Map<String, Object> struct( Object _fields ) {
+		return type( "struct", JSONValidator.KEY_FIELDS, _fields );
+	}
+
+	static Map<String, Object> array( Map<String, Object> _children ) {
+		return type( "array", JSONValidator.KEY_CHILDREN, _children );
+	}
+
+	/**
+	 * @return A struct of an id, a name and a list of tags, as found in most documents
+	 */
+	static Map<String, Object> itemPrototype() {
+		return struct( map( "id", field( true, type( "number", JSONValidator.KEY_NUM_MIN, 1 ) ), "name", field( true, type( "string", JSONValidator.KEY_STRING_ERR_ON_EMPTY, true ) ), "tags", field( false, array( type( "string" ) ) ) ) );
+	}
+
+	static Map<String, Object> item( int _id ) {
+		List<Object> tags = new ArrayList<Object>();
+		tags.add( "tag" + ( _id % 7 ) );
+		tags.add( "tag" + ( _id % 11 ) );
+		return map( "id", _id + 1, "name", "item " + _id, "tags", tags );
+	}
+
+}
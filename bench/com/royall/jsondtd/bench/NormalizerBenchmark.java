@@ -0,0 +1,91 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd.bench;
+
+import static com.royall.jsondtd.bench.Fixtures.field;
+import static com.royall.jsondtd.bench.Fixtures.map;
+import static com.royall.jsondtd.bench.Fixtures.type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.royall.jsondtd.CompiledSchema;
+import com.royall.jsondtd.JSONValidator;
+import com.royall.jsondtd.ValidationResult;
+
+/**
+ * Objects of a class that are normalized into a struct, validated and denormalized again.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class NormalizerBenchmark {
+
+	@Param( { Fixtures.SMALL, Fixtures.MEDIUM, Fixtures.LARGE } )
+	public String size;
+
+	private JSONValidator validator;
+	private CompiledSchema schema;
+	private List<Object> json;
+
+	@Setup
+	public void setup() throws Exception {
+		validator = new JSONValidator();
+
+		Map<String, Object> point = Fixtures.struct( map( "x", field( true, type( "number" ) ), "y", field( true, type( "number" ) ) ) );
+		point.put( JSONValidator.KEY_CLASS, Point.class.getName() );
+		point.put( JSONValidator.KEY_NORMALIZE, PointNormalizer.class.getName() );
+		point.put( JSONValidator.KEY_DENORMALIZE, true );
+		schema = validator.compile( Fixtures.array( point ) );
+
+		int count = Fixtures.count( size, 10, 1000, 100000 );
+		json = new ArrayList<Object>( count );
+		for ( int i = 0; i < count; i++ )
+			json.add( new Point( i, -i ) );
+	}
+
+	@Benchmark
+	public ValidationResult normalize() throws Exception {
+		return validator.validateWithResult( json, schema );
+	}
+
+}
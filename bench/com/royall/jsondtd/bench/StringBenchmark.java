@@ -0,0 +1,120 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd.bench;
+
+import static com.royall.jsondtd.bench.Fixtures.field;
+import static com.royall.jsondtd.bench.Fixtures.type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.royall.jsondtd.CompiledSchema;
+import com.royall.jsondtd.JSONValidator;
+import com.royall.jsondtd.ValidationResult;
+
+/**
+ * Strings checked against a regex and against enum and not lists, and numbers against an enum
+ * list. The size is both the number of values and the length of the enum lists.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class StringBenchmark {
+
+	@Param( { Fixtures.SMALL, Fixtures.MEDIUM, Fixtures.LARGE } )
+	public String size;
+
+	private JSONValidator validator;
+	private CompiledSchema regexSchema, enumSchema, numberEnumSchema;
+	private List<Object> regexJson, enumJson, numberEnumJson;
+
+	@Setup
+	public void setup() throws Exception {
+		validator = new JSONValidator();
+		int count = Fixtures.count( size, 10, 1000, 100000 );
+		int enumSize = Fixtures.count( size, 4, 64, 1024 );
+
+		Map<String, Object> regex = type( "string", JSONValidator.KEY_REGEX, "[a-z0-9._%+-]+@[a-z0-9.-]+\\.[a-z]{2,6}" );
+		regexSchema = validator.compile( Fixtures.array( Fixtures.struct( Fixtures.map( "email", field( true, regex ) ) ) ) );
+
+		List<Object> values = new ArrayList<Object>();
+		List<Object> excluded = new ArrayList<Object>();
+		List<Object> codes = new ArrayList<Object>();
+		for ( int i = 0; i < enumSize; i++ ) {
+			values.add( "value" + i );
+			excluded.add( "excluded" + i );
+			codes.add( i * 7 );
+		}
+		Map<String, Object> enumType = type( "string", JSONValidator.KEY_ENUM, values, JSONValidator.KEY_NOT_ENUM, excluded );
+		enumSchema = validator.compile( Fixtures.array( Fixtures.struct( Fixtures.map( "state", field( true, enumType ) ) ) ) );
+		Map<String, Object> numberEnumType = type( "number", JSONValidator.KEY_ENUM, codes );
+		numberEnumSchema = validator.compile( Fixtures.array( Fixtures.struct( Fixtures.map( "code", field( true, numberEnumType ) ) ) ) );
+
+		regexJson = new ArrayList<Object>( count );
+		enumJson = new ArrayList<Object>( count );
+		numberEnumJson = new ArrayList<Object>( count );
+		for ( int i = 0; i < count; i++ ) {
+			Map<String, Object> item = new HashMap<String, Object>();
+			item.put( "email", "user." + i + "@example.com" );
+			regexJson.add( item );
+			enumJson.add( Fixtures.map( "state", "value" + ( i % enumSize ) ) );
+			numberEnumJson.add( Fixtures.map( "code", ( i % enumSize ) * 7L ) );
+		}
+	}
+
+	@Benchmark
+	public ValidationResult regex() throws Exception {
+		return validator.validateWithResult( regexJson, regexSchema );
+	}
+
+	@Benchmark
+	public ValidationResult enumList() throws Exception {
+		return validator.validateWithResult( enumJson, enumSchema );
+	}
+
+	@Benchmark
+	public ValidationResult numberEnumList() throws Exception {
+		return validator.validateWithResult( numberEnumJson, numberEnumSchema );
+	}
+
+}
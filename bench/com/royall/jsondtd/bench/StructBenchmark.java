@@ -0,0 +1,163 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd.bench;
+
+import static com.royall.jsondtd.bench.Fixtures.field;
+import static com.royall.jsondtd.bench.Fixtures.map;
+import static com.royall.jsondtd.bench.Fixtures.struct;
+import static com.royall.jsondtd.bench.Fixtures.type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.royall.jsondtd.CompiledSchema;
+import com.royall.jsondtd.JSONValidator;
+import com.royall.jsondtd.ValidationResult;
+
+/**
+ * Structs: deep nesting, many fields, several field patterns and lists of definitions.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class StructBenchmark {
+
+	@Param( { Fixtures.SMALL, Fixtures.MEDIUM, Fixtures.LARGE } )
+	public String size;
+
+	private JSONValidator validator;
+
+	private Map<String, Object> deepPrototype, widePrototype, patternsPrototype, definitionsPrototype;
+	private CompiledSchema deepSchema, wideSchema, patternsSchema, definitionsSchema;
+	private Object deepJson, wideJson, patternsJson, definitionsJson;
+
+	@Setup
+	public void setup() throws Exception {
+		validator = new JSONValidator();
+
+		// Structs nested depth levels deep, each with a value next to the nested struct
+		int depth = Fixtures.count( size, 4, 32, 256 );
+		Map<String, Object> prototype = struct( map( "value", field( true, type( "number" ) ) ) );
+		Object json = map( "value", 0 );
+		for ( int i = 0; i < depth; i++ ) {
+			prototype = struct( map( "value", field( true, type( "number" ) ), "child", field( true, prototype ) ) );
+			json = map( "value", i, "child", json );
+		}
+		deepPrototype = prototype;
+		deepJson = json;
+
+		// One struct with many fields, half of them strings and half numbers
+		int width = Fixtures.count( size, 10, 200, 5000 );
+		Map<String, Object> fields = new HashMap<String, Object>();
+		Map<String, Object> wide = new HashMap<String, Object>();
+		for ( int i = 0; i < width; i++ ) {
+			boolean string = i % 2 == 0;
+			fields.put( "field" + i, field( i % 3 == 0, type( string ? "string" : "number" ) ) );
+			wide.put( "field" + i, string ? (Object) ( "value" + i ) : (Object) i );
+		}
+		widePrototype = struct( fields );
+		wideJson = wide;
+
+		// Field patterns that are tried in order, only the last one matches
+		int patterns = Fixtures.count( size, 2, 8, 32 );
+		List<Object> patternList = new ArrayList<Object>();
+		for ( int i = 0; i < patterns; i++ )
+			patternList.add( map( "kind", field( true, type( "string", JSONValidator.KEY_ENUM, list( "kind" + i ) ) ), "value", field( true, type( "number" ) ) ) );
+		patternsPrototype = struct( patternList );
+		patternsJson = map( "kind", "kind" + ( patterns - 1 ), "value", 1 );
+
+		// A field with a list of definitions, only the last one matches
+		int definitions = Fixtures.count( size, 2, 8, 32 );
+		List<Object> definitionList = new ArrayList<Object>();
+		for ( int i = 0; i < definitions - 1; i++ )
+			definitionList.add( type( "string", JSONValidator.KEY_ENUM, list( "value" + i ) ) );
+		definitionList.add( type( "number" ) );
+		definitionsPrototype = struct( map( "value", field( true, definitionList ) ) );
+		definitionsJson = map( "value", 1 );
+
+		deepSchema = validator.compile( deepPrototype );
+		wideSchema = validator.compile( widePrototype );
+		patternsSchema = validator.compile( patternsPrototype );
+		definitionsSchema = validator.compile( definitionsPrototype );
+	}
+
+	@Benchmark
+	public ValidationResult deepNesting() throws Exception {
+		return validator.validateWithResult( deepJson, deepSchema );
+	}
+
+	/**
+	 * Compiles the prototype on every call, as validate(Object, Map) does.
+	 */
+	@Benchmark
+	public ValidationResult deepNestingPrototype() throws Exception {
+		return validator.validateWithResult( deepJson, deepPrototype );
+	}
+
+	@Benchmark
+	public ValidationResult wideStruct() throws Exception {
+		return validator.validateWithResult( wideJson, wideSchema );
+	}
+
+	@Benchmark
+	public ValidationResult wideStructCheck() throws Exception {
+		return validator.check( wideJson, wideSchema );
+	}
+
+	@Benchmark
+	public ValidationResult fieldPatterns() throws Exception {
+		return validator.validateWithResult( patternsJson, patternsSchema );
+	}
+
+	@Benchmark
+	public ValidationResult definitionList() throws Exception {
+		return validator.validateWithResult( definitionsJson, definitionsSchema );
+	}
+
+	private static List<Object> list( Object _item ) {
+		List<Object> list = new ArrayList<Object>();
+		list.add( _item );
+		return list;
+	}
+
+}
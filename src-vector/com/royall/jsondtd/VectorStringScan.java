@@ -0,0 +1,56 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * String scan with the widest byte vectors of the CPU. Built only on JDK 16 and later, and only
+ * used when the JVM runs with --add-modules jdk.incubator.vector.
+ */
+final class VectorStringScan extends StringScan {
+
+	private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+	@Override
+	int skipPlain( byte[] _json, int _i, int _end ) {
+		int i = _i;
+		int bound = _end - SPECIES.length();
+		while ( i <= bound ) {
+			ByteVector bytes = ByteVector.fromArray( SPECIES, _json, i );
+			// Control characters are the bytes from 0 to 0x1f, bytes of UTF-8 sequences are negative
+			VectorMask<Byte> control = bytes.lt( (byte) 0x20 ).and( bytes.compare( VectorOperators.GE, (byte) 0 ) );
+			VectorMask<Byte> found = bytes.eq( (byte) '"' ).or( bytes.eq( (byte) '\\' ) ).or( control );
+			if ( found.anyTrue() )
+				return i + found.firstTrue();
+			i += SPECIES.length();
+		}
+		return i;
+	}
+
+}
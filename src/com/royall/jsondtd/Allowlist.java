@@ -0,0 +1,93 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * A large set of strings that a string type is checked against, referenced by name with the key
+ * JSONValidator.KEY_ALLOWLIST instead of holding the strings in an enum list. Allowlists are added
+ * to a JSONValidator with addAllowlist() and must be thread safe.
+ * 
+ * The allowlists made by map() and offHeap() keep their entries in UTF-8 outside of the heap, so
+ * millions of entries cost the garbage collector nothing, and look strings up without allocating.
+ * Either can have a Bloom filter in front, which rejects most strings that are not entries without
+ * looking at the entries at all.
+ */
+public abstract class Allowlist {
+
+	/**
+	 * @return Whether _value is an entry of the allowlist
+	 */
+	public abstract boolean contains( CharSequence _value );
+
+	/**
+	 * @return Number of entries
+	 */
+	public abstract long size();
+
+	/**
+	 * @see #map(File, double)
+	 */
+	public static Allowlist map( File _sortedFile ) throws IOException {
+		return new MappedAllowlist( _sortedFile, 0 );
+	}
+
+	/**
+	 * Maps a file of entries into memory and looks strings up with a binary search of its bytes. The
+	 * file is read once to check the order of the entries and to fill the Bloom filter, it is not
+	 * loaded.
+	 * 
+	 * @param _sortedFile UTF-8 entries, one per line, separated by '\n' and sorted by their bytes as
+	 *          LC_ALL=C sort does, without duplicates. At most 2GB
+	 * @param _falsePositiveRate Chance that the Bloom filter lets a string through that is not an
+	 *          entry, 0 for no Bloom filter
+	 * @throws IOException If the file cannot be read or is not sorted
+	 */
+	public static Allowlist map( File _sortedFile, double _falsePositiveRate ) throws IOException {
+		return new MappedAllowlist( _sortedFile, _falsePositiveRate );
+	}
+
+	/**
+	 * @see #offHeap(Collection, double)
+	 */
+	public static Allowlist offHeap( Collection<? extends CharSequence> _entries ) {
+		return new OffHeapAllowlist( _entries, 0 );
+	}
+
+	/**
+	 * Copies the entries into an open addressing hash table in direct memory.
+	 * 
+	 * @param _entries Entries of the allowlist in any order, duplicates are only kept once
+	 * @param _falsePositiveRate Chance that the Bloom filter lets a string through that is not an
+	 *          entry, 0 for no Bloom filter
+	 */
+	public static Allowlist offHeap( Collection<? extends CharSequence> _entries, double _falsePositiveRate ) {
+		return new OffHeapAllowlist( _entries, _falsePositiveRate );
+	}
+
+}
@@ -0,0 +1,49 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+
+final class AnyNode extends SchemaNode {
+
+	@Override
+	boolean validate( ValidationContext _ctx, Object _json, JSONBlock _parent ) {
+		_ctx.output = _json;
+		return true;
+	}
+
+	/**
+	 * Nothing looks into the value, so it is only kept as read by readRaw() if output is built.
+	 */
+	@Override
+	boolean validateStream( ValidationContext _ctx, JSONTokenizer _tokens, JSONBlock _parent ) throws JSONValidatorException {
+		if ( _ctx.buildOutput )
+			_ctx.output = _tokens.readRaw();
+		else
+			_tokens.skipValue();
+		return true;
+	}
+
+}
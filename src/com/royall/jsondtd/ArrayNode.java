@@ -0,0 +1,209 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+final class ArrayNode extends SchemaNode {
+
+	private final boolean hasMin, hasMax;
+	private final int min, max;
+	private final SchemaNode children;
+
+	// Lenient compilation only - raised once a list reaches the bound or its children
+	private final PrototypeException minError, maxError, childrenError;
+
+	private final int conditionReach;
+
+	ArrayNode( boolean _hasMin, int _min, PrototypeException _minError, boolean _hasMax, int _max, PrototypeException _maxError, SchemaNode _children, PrototypeException _childrenError ) {
+		hasMin = _hasMin;
+		min = _min;
+		minError = _minError;
+		hasMax = _hasMax;
+		max = _max;
+		maxError = _maxError;
+		children = _children;
+		childrenError = _childrenError;
+		conditionReach = parentReach( _children );
+	}
+
+	@Override
+	int getConditionReach() {
+		return conditionReach;
+	}
+
+	SchemaNode getChildren() {
+		return children;
+	}
+
+	@Override
+	boolean validate( ValidationContext _ctx, Object _json, JSONBlock _parent ) throws PrototypeException {
+		if ( !_ctx.checkNull( _json ) )
+			return false;
+
+		if ( !( _json instanceof List ) )
+			return _ctx.fail( FailureCode.NOT_A_LIST, _json.getClass() );
+
+		List<?> jsonList = (List<?>) _json;
+
+		// Min elements in array
+		if ( hasMin ) {
+			if ( minError != null )
+				throw minError;
+			if ( jsonList.size() < min )
+				return _ctx.fail( FailureCode.ARRAY_TOO_SHORT, min, jsonList.size() );
+		}
+
+		// Max elements in array
+		if ( hasMax ) {
+			if ( maxError != null )
+				throw maxError;
+			if ( jsonList.size() > max )
+				return _ctx.fail( FailureCode.ARRAY_TOO_LONG, max, jsonList.size() );
+		}
+
+		if ( childrenError != null )
+			throw childrenError;
+
+		JSONBlock block = new JSONBlock( jsonList, _parent );
+		if ( _ctx.parallelThreshold > 0 && jsonList.size() >= _ctx.parallelThreshold && jsonList instanceof RandomAccess )
+			return validateParallel( _ctx, jsonList, block );
+
+		// With copy-on-write the list is only copied once an item comes back changed, in place the
+		// changed item is staged instead
+		boolean copyOnWrite = _ctx.copyOnWrite;
+		List<Object> testBuildList = ( _ctx.buildOutput && !copyOnWrite ) ? new ArrayList<Object>( jsonList.size() ) : null;
+
+		int i = 0;
+		for ( Object jsonObject : jsonList ) {
+			if ( !children.validate( _ctx, jsonObject, block ) )
+				return _ctx.failAtIndex( i );
+			if ( testBuildList != null ) {
+				testBuildList.add( _ctx.output );
+			} else if ( copyOnWrite && _ctx.output != jsonObject ) {
+				if ( _ctx.inPlace ) {
+					_ctx.stagePut( jsonList, i, _ctx.output );
+				} else {
+					testBuildList = new ArrayList<Object>( jsonList.size() );
+					testBuildList.addAll( jsonList.subList( 0, i ) );
+					testBuildList.add( _ctx.output );
+				}
+			}
+			i++;
+		}
+
+		_ctx.output = ( testBuildList == null && copyOnWrite ) ? jsonList : testBuildList;
+		return true;
+	}
+
+	/**
+	 * Same as validate for a large list, validating its items as fork-join subtasks.
+	 */
+	private boolean validateParallel( ValidationContext _ctx, final List<?> _jsonList, final JSONBlock _block ) throws PrototypeException {
+		final Object[] outputs = _ctx.buildOutput ? new Object[_jsonList.size()] : null;
+		int failed = new ParallelValidation( _ctx, false ) {
+
+			@Override
+			boolean validate( ValidationContext _itemCtx, StructOutput _testBuild, int _index ) throws PrototypeException {
+				if ( !children.validate( _itemCtx, _jsonList.get( _index ), _block ) )
+					return false;
+				if ( outputs != null )
+					outputs[_index] = _itemCtx.output;
+				return true;
+			}
+		}.run( _jsonList.size() );
+		if ( failed >= 0 )
+			return _ctx.failAtIndex( failed );
+
+		if ( !_ctx.copyOnWrite ) {
+			_ctx.output = ( outputs == null ) ? null : new ArrayList<Object>( Arrays.asList( outputs ) );
+			return true;
+		}
+
+		boolean changed = false;
+		for ( int i = 0; i < outputs.length; i++ ) {
+			if ( outputs[i] == _jsonList.get( i ) )
+				continue;
+			if ( _ctx.inPlace )
+				_ctx.stagePut( _jsonList, i, outputs[i] );
+			else
+				changed = true;
+		}
+		_ctx.output = changed ? new ArrayList<Object>( Arrays.asList( outputs ) ) : _jsonList;
+		return true;
+	}
+
+	/**
+	 * Validates the items as they are read. The min length is only known to be violated at the end of
+	 * the list, after the items were validated.
+	 */
+	@Override
+	boolean validateStream( ValidationContext _ctx, JSONTokenizer _tokens, JSONBlock _parent ) throws PrototypeException, JSONValidatorException {
+		if ( conditionReach != NO_CONDITIONS || _tokens.peek() != JSONTokenizer.Token.START_ARRAY )
+			return super.validateStream( _ctx, _tokens, _parent );
+
+		if ( hasMin && minError != null )
+			throw minError;
+		if ( hasMax && maxError != null )
+			throw maxError;
+		if ( childrenError != null )
+			throw childrenError;
+
+		_tokens.next();
+		JSONBlock block = new JSONBlock( null, _parent );
+		List<Object> testBuildList = _ctx.buildOutput ? new ArrayList<Object>() : null;
+
+		int i = 0;
+		while ( _tokens.peek() != JSONTokenizer.Token.END_ARRAY ) {
+			if ( hasMax && i == max ) {
+				// Only the rest of this list is read to report its length
+				int size = i;
+				while ( _tokens.peek() != JSONTokenizer.Token.END_ARRAY ) {
+					_tokens.skipValue();
+					size++;
+				}
+				return _ctx.fail( FailureCode.ARRAY_TOO_LONG, max, size );
+			}
+			if ( !children.validateStream( _ctx, _tokens, block ) )
+				return _ctx.failAtIndex( i );
+			if ( testBuildList != null )
+				testBuildList.add( _ctx.output );
+			i++;
+		}
+		_tokens.next();
+
+		if ( hasMin && i < min )
+			return _ctx.fail( FailureCode.ARRAY_TOO_SHORT, min, i );
+		_ctx.output = testBuildList;
+		return true;
+	}
+
+}
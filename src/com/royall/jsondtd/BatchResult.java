@@ -0,0 +1,92 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of validating a batch of documents with JSONValidator.validateAll().
+ */
+public final class BatchResult {
+
+	private final List<ValidationResult> results;
+	private final BitSet valid;
+
+	BatchResult( List<ValidationResult> _results ) {
+		results = Collections.unmodifiableList( _results );
+		valid = new BitSet( _results.size() );
+		for ( int i = 0; i < _results.size(); i++ ) {
+			if ( _results.get( i ).isValid() )
+				valid.set( i );
+		}
+	}
+
+	/**
+	 * @return true if every document is valid
+	 */
+	public boolean isValid() {
+		return valid.cardinality() == results.size();
+	}
+
+	/**
+	 * @return Count of documents in the batch
+	 */
+	public int size() {
+		return results.size();
+	}
+
+	/**
+	 * @return The outcome of the document at _index of the batch
+	 */
+	public ValidationResult get( int _index ) {
+		return results.get( _index );
+	}
+
+	/**
+	 * @return The outcome of each document, in the order of the batch
+	 */
+	public List<ValidationResult> getResults() {
+		return results;
+	}
+
+	/**
+	 * @return The indexes of the valid documents
+	 */
+	public BitSet getValid() {
+		return (BitSet) valid.clone();
+	}
+
+	public int getValidCount() {
+		return valid.cardinality();
+	}
+
+	@Override
+	public String toString() {
+		return valid.cardinality() + " of " + results.size() + " documents valid";
+	}
+
+}
@@ -0,0 +1,125 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+/**
+ * Validates a batch of documents in parallel. The Spliterator of the documents is split until the
+ * parts are small enough; each split keeps the earlier documents on the left, so walking the tasks
+ * left to right gives the results in the order of the batch. Every leaf validates its documents
+ * with a single ValidationContext.
+ */
+final class BatchValidation extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	// Leaves per worker, so workers that finish early can take over the rest
+	private static final int LEAVES_PER_WORKER = 4;
+
+	private final JSONValidator validator;
+	private final CompiledSchema schema;
+	private final boolean buildOutput;
+	private final long threshold;
+
+	private Spliterator<?> documents;
+
+	// Either the two halves of the documents or, for a leaf, the outcome of its documents
+	private BatchValidation left, right;
+	private List<ValidationResult> results;
+	private Exception error;
+
+	private BatchValidation( JSONValidator _validator, CompiledSchema _schema, boolean _buildOutput, long _threshold, Spliterator<?> _documents ) {
+		validator = _validator;
+		schema = _schema;
+		buildOutput = _buildOutput;
+		threshold = _threshold;
+		documents = _documents;
+	}
+
+	static BatchResult validate( JSONValidator _validator, CompiledSchema _schema, Spliterator<?> _documents, ForkJoinPool _pool, boolean _buildOutput ) throws JSONValidatorException, PrototypeException {
+		long threshold = Math.max( _documents.estimateSize() / ( (long) _pool.getParallelism() * LEAVES_PER_WORKER ), 1 );
+		BatchValidation root = new BatchValidation( _validator, _schema, _buildOutput, threshold, _documents );
+		_pool.invoke( root );
+
+		List<ValidationResult> results = new ArrayList<ValidationResult>();
+		root.collect( results );
+		return new BatchResult( results );
+	}
+
+	@Override
+	protected void compute() {
+		Spliterator<?> prefix;
+		if ( documents.estimateSize() > threshold && ( prefix = documents.trySplit() ) != null ) {
+			left = new BatchValidation( validator, schema, buildOutput, threshold, prefix );
+			right = new BatchValidation( validator, schema, buildOutput, threshold, documents );
+			documents = null;
+			invokeAll( left, right );
+			return;
+		}
+
+		final ValidationContext ctx = validator.newContext( buildOutput );
+		results = new ArrayList<ValidationResult>();
+		documents.forEachRemaining( new Consumer<Object>() {
+
+			@Override
+			public void accept( Object _document ) {
+				if ( error != null )
+					return;
+				try {
+					results.add( validator.validateWithResult( ctx, _document, schema ) );
+				} catch ( Exception e ) {
+					error = e;
+				}
+			}
+		} );
+		documents = null;
+	}
+
+	/**
+	 * Adds the results of this task to _results, in order.
+	 */
+	private void collect( List<ValidationResult> _results ) throws JSONValidatorException, PrototypeException {
+		if ( left != null ) {
+			left.collect( _results );
+			right.collect( _results );
+			return;
+		}
+		if ( error instanceof PrototypeException )
+			throw (PrototypeException) error;
+		if ( error != null )
+			throw (JSONValidatorException) error;
+		_results.addAll( results );
+	}
+
+}
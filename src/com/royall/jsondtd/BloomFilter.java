@@ -0,0 +1,84 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bloom filter over the hashes of Utf8.hash(), with its bits in a direct buffer outside of the heap.
+ * The positions of the bits are combinations of the hash and its halves swapped, so a lookup
+ * hashes the value only once.
+ */
+final class BloomFilter {
+
+	private final ByteBuffer bits;
+	private final long bitCount;
+	private final int hashCount;
+
+	/**
+	 * @param _entries Number of entries that will be added
+	 * @param _falsePositiveRate Chance that mightContain() is true for a value that was not added,
+	 *          between 0 and 1
+	 */
+	BloomFilter( long _entries, double _falsePositiveRate ) {
+		if ( !( _falsePositiveRate > 0 && _falsePositiveRate < 1 ) )
+			throw new IllegalArgumentException( "The false positive rate must be between 0 and 1." );
+		long entries = Math.max( _entries, 1 );
+		long bitCount = (long) Math.ceil( -entries * Math.log( _falsePositiveRate ) / ( Math.log( 2 ) * Math.log( 2 ) ) );
+		bitCount = Math.max( ( bitCount + 63 ) & ~63L, 64 );
+		if ( bitCount / 8 > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "A Bloom filter of " + _entries + " entries would be too large." );
+		this.bitCount = bitCount;
+		hashCount = Math.max( 1, (int) Math.round( (double) bitCount / entries * Math.log( 2 ) ) );
+		bits = ByteBuffer.allocateDirect( (int) ( bitCount / 8 ) );
+	}
+
+	void add( long _hash ) {
+		long h2 = Long.rotateLeft( _hash, 32 );
+		for ( int i = 0; i < hashCount; i++ ) {
+			long bit = index( _hash + i * h2 );
+			int at = (int) ( bit >>> 3 );
+			bits.put( at, (byte) ( bits.get( at ) | ( 1 << ( bit & 7 ) ) ) );
+		}
+	}
+
+	/**
+	 * @return False if the value of _hash was surely not added
+	 */
+	boolean mightContain( long _hash ) {
+		long h2 = Long.rotateLeft( _hash, 32 );
+		for ( int i = 0; i < hashCount; i++ ) {
+			long bit = index( _hash + i * h2 );
+			if ( ( bits.get( (int) ( bit >>> 3 ) ) & ( 1 << ( bit & 7 ) ) ) == 0 )
+				return false;
+		}
+		return true;
+	}
+
+	private long index( long _combined ) {
+		return ( _combined & Long.MAX_VALUE ) % bitCount;
+	}
+
+}
@@ -0,0 +1,67 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Concurrent map of values that are expensive to create from a String, such as compiled regexes,
+ * shared by every prototype a JSONValidator compiles. It holds at most capacity values, once full
+ * an arbitrary value makes room for a new one.
+ */
+final class BoundedCache<V> {
+
+	private final int capacity;
+	private final ConcurrentMap<String, V> values = new ConcurrentHashMap<String, V>();
+
+	BoundedCache( int _capacity ) {
+		capacity = _capacity;
+	}
+
+	/**
+	 * @return The value of _key, null if it is not cached
+	 */
+	V get( String _key ) {
+		return values.get( _key );
+	}
+
+	/**
+	 * @return The value that is cached for _key, _value unless another thread cached one first
+	 */
+	V put( String _key, V _value ) {
+		if ( values.size() >= capacity ) {
+			Iterator<String> keys = values.keySet().iterator();
+			if ( keys.hasNext() ) {
+				keys.next();
+				keys.remove();
+			}
+		}
+		V existing = values.putIfAbsent( _key, _value );
+		return ( existing != null ) ? existing : _value;
+	}
+
+}
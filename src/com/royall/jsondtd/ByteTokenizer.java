@@ -0,0 +1,422 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+
+/**
+ * Tokenizer over UTF-8 json bytes, walking a StructuralIndex built up front. Field names, strings
+ * and numbers are only slices of the bytes until getString() or getNumber() decodes them, so
+ * skipValue() checks the grammar of a container without allocating anything for it.
+ */
+final class ByteTokenizer extends JSONTokenizer {
+
+	private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+	private final byte[] json;
+	private final int start, end;
+	private final StructuralIndex index;
+
+	// Next entry of the index and next byte to read
+	private int entry = 0;
+	private int cursor;
+
+	// Entry of the bracket of the last START_OBJECT or START_ARRAY
+	private int openEntry;
+
+	// Slice of the last STRING, FIELD_NAME or NUMBER token and its decoded value, if decoded
+	private int valueStart, valueEnd;
+	private boolean integral, isFieldName;
+	private String string;
+	private Number number;
+
+	// Field names decoded before, so repeated names are not decoded again
+	private final String[] names = new String[64];
+	private final int[] nameStarts = new int[64];
+
+	ByteTokenizer( byte[] _json, int _start, int _end ) throws JSONValidatorException {
+		json = _json;
+		start = _start;
+		end = _end;
+		cursor = _start;
+		index = StructuralIndex.build( _json, _start, _end );
+	}
+
+	/**
+	 * Reads the bytes between position and limit of _json. A buffer backed by an array is read in
+	 * place, the bytes of other buffers are copied once.
+	 */
+	static ByteTokenizer create( ByteBuffer _json ) throws JSONValidatorException {
+		if ( _json.hasArray() ) {
+			int start = _json.arrayOffset() + _json.position();
+			return new ByteTokenizer( _json.array(), start, start + _json.remaining() );
+		}
+		byte[] copy = new byte[_json.remaining()];
+		_json.duplicate().get( copy );
+		return new ByteTokenizer( copy, 0, copy.length );
+	}
+
+	@Override
+	String getString() {
+		if ( string == null )
+			string = isFieldName ? name( valueStart, valueEnd ) : decode( valueStart, valueEnd );
+		return string;
+	}
+
+	@Override
+	Number getNumber() {
+		if ( number == null )
+			number = parseNumber();
+		return number;
+	}
+
+	@Override
+	Token readToken() throws JSONValidatorException {
+		string = null;
+		number = null;
+		isFieldName = false;
+
+		int c = skipWhitespace();
+		switch ( states[depth] ) {
+			case ROOT_DONE:
+				if ( c != -1 )
+					throw syntax( "Unexpected character '" + (char) c + "' after the json" );
+				return Token.END;
+			case ROOT:
+				states[depth] = ROOT_DONE;
+				return value( c );
+			case ARRAY_FIRST:
+				if ( c == ']' )
+					return closeBracket( Token.END_ARRAY );
+				states[depth] = ARRAY_NEXT;
+				return value( c );
+			case ARRAY_NEXT:
+				if ( c == ']' )
+					return closeBracket( Token.END_ARRAY );
+				if ( c != ',' )
+					throw syntax( "Expected ',' or ']'" );
+				consumeStructural();
+				return value( skipWhitespace() );
+			case OBJECT_FIRST:
+				if ( c == '}' )
+					return closeBracket( Token.END_OBJECT );
+				return fieldName( c );
+			case OBJECT_NEXT:
+				if ( c == '}' )
+					return closeBracket( Token.END_OBJECT );
+				if ( c != ',' )
+					throw syntax( "Expected ',' or '}'" );
+				consumeStructural();
+				return fieldName( skipWhitespace() );
+			default:
+				states[depth] = OBJECT_NEXT;
+				return value( c );
+		}
+	}
+
+	/**
+	 * Containers are read like in skipValue() and returned as a slice of the bytes.
+	 */
+	@Override
+	Object readRaw() throws JSONValidatorException {
+		Token token = peek();
+		if ( token != Token.START_OBJECT && token != Token.START_ARRAY )
+			return readValue();
+		next();
+		int from = index.positions[openEntry];
+		skipContainer();
+		return new RawJson( json, from, cursor );
+	}
+
+	/**
+	 * Reads the tokens of the container whose start was just read up to its end, so it is checked
+	 * like the rest of the json.
+	 */
+	private void skipContainer() throws JSONValidatorException {
+		int level = depth;
+		while ( depth >= level )
+			readToken();
+	}
+
+	private Token fieldName( int _c ) throws JSONValidatorException {
+		if ( _c != '"' )
+			throw syntax( "Expected a field name" );
+		consumeString();
+		isFieldName = true;
+		if ( skipWhitespace() != ':' )
+			throw syntax( "Expected ':'" );
+		consumeStructural();
+		states[depth] = OBJECT_VALUE;
+		return Token.FIELD_NAME;
+	}
+
+	private Token value( int _c ) throws JSONValidatorException {
+		switch ( _c ) {
+			case '{':
+				openEntry = entry;
+				consumeStructural();
+				open( OBJECT_FIRST );
+				return Token.START_OBJECT;
+			case '[':
+				openEntry = entry;
+				consumeStructural();
+				open( ARRAY_FIRST );
+				return Token.START_ARRAY;
+			case '"':
+				consumeString();
+				return Token.STRING;
+			case -1:
+				throw syntax( "Unexpected end of the json" );
+			default:
+				return scalar( _c );
+		}
+	}
+
+	/**
+	 * Reads a literal or number, which ends at whitespace or the next structural character.
+	 */
+	private Token scalar( int _c ) throws JSONValidatorException {
+		int limit = ( entry < index.count ) ? index.positions[entry] : end;
+		int from = cursor;
+		int to = from;
+		while ( to < limit && !isWhitespace( json[to] ) )
+			to++;
+
+		// Errors are reported at the start of the scalar
+		Token token;
+		if ( _c == 't' && matches( from, to, "true" ) )
+			token = Token.TRUE;
+		else if ( _c == 'f' && matches( from, to, "false" ) )
+			token = Token.FALSE;
+		else if ( _c == 'n' && matches( from, to, "null" ) )
+			token = Token.NULL;
+		else if ( _c == '-' || ( _c >= '0' && _c <= '9' ) ) {
+			checkNumber( from, to );
+			valueStart = from;
+			valueEnd = to;
+			token = Token.NUMBER;
+		} else
+			throw syntax( "Unexpected character '" + (char) _c + "'" );
+		cursor = to;
+		return token;
+	}
+
+	/**
+	 * Checks the json grammar of a number and whether it is integral.
+	 */
+	private void checkNumber( int _from, int _to ) throws JSONValidatorException {
+		int i = _from;
+		if ( json[i] == '-' )
+			i++;
+		if ( i < _to && json[i] == '0' )
+			i++;
+		else if ( ( i = digits( i, _to ) ) < 0 )
+			throw syntax( "Invalid number" );
+
+		integral = true;
+		if ( i < _to && json[i] == '.' ) {
+			integral = false;
+			if ( ( i = digits( i + 1, _to ) ) < 0 )
+				throw syntax( "Invalid number" );
+		}
+		if ( i < _to && ( json[i] == 'e' || json[i] == 'E' ) ) {
+			integral = false;
+			i++;
+			if ( i < _to && ( json[i] == '+' || json[i] == '-' ) )
+				i++;
+			if ( ( i = digits( i, _to ) ) < 0 )
+				throw syntax( "Invalid number" );
+		}
+		if ( i != _to )
+			throw syntax( "Invalid number" );
+	}
+
+	/**
+	 * @return Position after one or more digits starting at _i, -1 if there is no digit at _i
+	 */
+	private int digits( int _i, int _to ) {
+		int i = _i;
+		while ( i < _to && json[i] >= '0' && json[i] <= '9' )
+			i++;
+		return ( i == _i ) ? -1 : i;
+	}
+
+	private Number parseNumber() {
+		if ( integral && valueEnd - valueStart < 19 ) {
+			// Fits a long, no text needed
+			int i = valueStart;
+			boolean negative = json[i] == '-';
+			if ( negative )
+				i++;
+			long value = 0;
+			for ( ; i < valueEnd; i++ )
+				value = value * 10 + ( json[i] - '0' );
+			return toNumber( negative ? -value : value );
+		}
+		return toNumber( decode( valueStart, valueEnd ), integral );
+	}
+
+	private boolean matches( int _from, int _to, String _literal ) {
+		if ( _to - _from != _literal.length() )
+			return false;
+		for ( int i = 0; i < _literal.length(); i++ ) {
+			if ( json[_from + i] != _literal.charAt( i ) )
+				return false;
+		}
+		return true;
+	}
+
+	private void consumeStructural() {
+		entry++;
+		cursor++;
+	}
+
+	/**
+	 * Takes the slice of the string at the cursor, its closing quote is the next entry.
+	 */
+	private void consumeString() {
+		valueStart = cursor + 1;
+		valueEnd = index.positions[entry + 1];
+		entry += 2;
+		cursor = valueEnd + 1;
+	}
+
+	private Token closeBracket( Token _token ) {
+		consumeStructural();
+		return close( _token );
+	}
+
+	private int skipWhitespace() {
+		while ( cursor < end ) {
+			byte b = json[cursor];
+			if ( !isWhitespace( b ) )
+				return b & 0xff;
+			cursor++;
+		}
+		return -1;
+	}
+
+	private static boolean isWhitespace( byte _b ) {
+		return _b == ' ' || _b == '\n' || _b == '\r' || _b == '\t';
+	}
+
+	/**
+	 * Decodes a field name, reusing the String of an earlier name with the same bytes.
+	 */
+	private String name( int _from, int _to ) {
+		int hash = _to - _from;
+		for ( int i = _from; i < _to; i++ )
+			hash = 31 * hash + json[i];
+		int slot = hash & ( names.length - 1 );
+
+		String cached = names[slot];
+		if ( cached != null && sameBytes( nameStarts[slot], _from, _to ) )
+			return cached;
+
+		String name = decode( _from, _to );
+		names[slot] = name;
+		nameStarts[slot] = _from;
+		return name;
+	}
+
+	private boolean sameBytes( int _other, int _from, int _to ) {
+		int length = _to - _from;
+		if ( _other + length > end || json[_other + length] != '"' )
+			return false;
+		for ( int i = 0; i < length; i++ ) {
+			if ( json[_other + i] != json[_from + i] )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Decodes the UTF-8 bytes of a slice, resolving escapes.
+	 */
+	private String decode( int _from, int _to ) {
+		int escape = _from;
+		while ( escape < _to && json[escape] != '\\' )
+			escape++;
+		if ( escape == _to )
+			return utf8( _from, _to );
+
+		StringBuilder text = new StringBuilder( _to - _from );
+		int i = _from;
+		while ( i < _to ) {
+			if ( json[i] != '\\' ) {
+				int run = i;
+				while ( run < _to && json[run] != '\\' )
+					run++;
+				text.append( utf8( i, run ) );
+				i = run;
+				continue;
+			}
+
+			// Escapes were checked by the index
+			byte c = json[i + 1];
+			switch ( c ) {
+				case 'b':
+					text.append( '\b' );
+					break;
+				case 'f':
+					text.append( '\f' );
+					break;
+				case 'n':
+					text.append( '\n' );
+					break;
+				case 'r':
+					text.append( '\r' );
+					break;
+				case 't':
+					text.append( '\t' );
+					break;
+				case 'u':
+					int value = 0;
+					for ( int j = i + 2; j < i + 6; j++ )
+						value = ( value << 4 ) | Character.digit( json[j], 16 );
+					text.append( (char) value );
+					i += 4;
+					break;
+				default:
+					text.append( (char) c );
+			}
+			i += 2;
+		}
+		return text.toString();
+	}
+
+	private String utf8( int _from, int _to ) {
+		return new String( json, _from, _to - _from, UTF_8 );
+	}
+
+	@Override
+	JSONValidatorException syntax( String _message ) {
+		return StructuralIndex.syntax( json, start, Math.min( cursor, end ), _message );
+	}
+
+}
@@ -0,0 +1,137 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+final class ClassNode extends SchemaNode {
+
+	private final String classExpectedValue;
+	private final String[] classesExpected;
+
+	// Optional type evaluated on the normalized value
+	private final SchemaNode type;
+
+	private final String normalizeName;
+	private final Constructor<?> normalizer;
+	private final Method normalize, denormalize;
+
+	// Lenient compilation only - raised once a value of the expected class is found
+	private final PrototypeException normalizeError, denormalizeError;
+
+	ClassNode( String _classExpectedValue, SchemaNode _type, String _normalizeName, Constructor<?> _normalizer, Method _normalize, PrototypeException _normalizeError, Method _denormalize, PrototypeException _denormalizeError ) {
+		classExpectedValue = _classExpectedValue;
+		classesExpected = _classExpectedValue.split( "\\s*,\\s*" );
+		type = _type;
+		normalizeName = _normalizeName;
+		normalizer = _normalizer;
+		normalize = _normalize;
+		normalizeError = _normalizeError;
+		denormalize = _denormalize;
+		denormalizeError = _denormalizeError;
+	}
+
+	@Override
+	int getConditionReach() {
+		return ( type == null ) ? NO_CONDITIONS : type.getConditionReach();
+	}
+
+	@Override
+	boolean validate( ValidationContext _ctx, Object _json, JSONBlock _parent ) throws PrototypeException {
+		String classFound = ( _json == null ) ? "null" : _json.getClass().getName();
+
+		// Check for valid class
+		boolean classCompare = false;
+		for ( String classExpected : classesExpected ) {
+			if ( checkClass( classExpected, classFound ) ) {
+				classCompare = true;
+				break;
+			}
+		}
+		if ( !classCompare )
+			return _ctx.fail( FailureCode.WRONG_CLASS, classExpectedValue, classFound );
+
+		Object json = _json;
+
+		// Evaluate Type
+		if ( type != null ) {
+			if ( normalizeError != null )
+				throw normalizeError;
+
+			// Normalize
+			Object instance = null;
+			if ( normalize != null ) {
+				try {
+					instance = normalizer.newInstance();
+					json = normalize.invoke( instance, json );
+				} catch ( Exception e ) {
+					throw new PrototypeException( "Failed to invoke " + normalizeName + "." + JSONValidator.KEY_NORMALIZE + "(Object _jsonValue) due to " + e.getClass().getName() + ": " + e.getMessage(), e );
+				}
+			}
+
+			// Evaluate the normalized Object by the type property
+			if ( !type.validate( _ctx, json, _parent ) )
+				return false;
+
+			// Now denormalize and save
+			if ( denormalizeError != null )
+				throw denormalizeError;
+			if ( denormalize != null && _ctx.buildOutput ) {
+				try {
+					json = denormalize.invoke( instance, _ctx.output );
+				} catch ( Exception e ) {
+					throw new PrototypeException( "Failed to invoke " + normalizeName + "." + JSONValidator.KEY_DENORMALIZE + "(Object _jsonValue) due to " + e.getClass().getName() + ": " + e.getMessage(), e );
+				}
+			} else {
+				json = _ctx.output;
+			}
+		}
+
+		_ctx.output = json;
+		return true;
+	}
+
+	/**
+	 * Compare classes. If they are not equal and the expected class name is a package-less class then
+	 * compare as java.util. and java.lang.
+	 * 
+	 * @param _classExpected
+	 * @param _classFound
+	 * @return
+	 */
+	private static boolean checkClass( String _classExpected, String _classFound ) {
+		if ( _classFound.equals( _classExpected ) )
+			return true;
+		if ( _classExpected.indexOf( "." ) == -1 ) {
+			if ( _classFound.equals( "java.util." + _classExpected ) || _classFound.equals( "java.lang." + _classExpected ) )
+				return true;
+		}
+		return false;
+	}
+
+}
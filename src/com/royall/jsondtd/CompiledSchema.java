@@ -0,0 +1,61 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A prototype compiled by JSONValidator.compile(). The prototype is checked once when it is
+ * compiled, validating json against the CompiledSchema then only performs the checks on the data.
+ * 
+ * A CompiledSchema is immutable and can be shared between threads. Validator options and custom
+ * types are captured when the schema is compiled; default items are looked up on the validator
+ * used for each validate() call.
+ */
+public final class CompiledSchema {
+
+	private final SchemaNode root;
+
+	private final List<String> warnings;
+
+	CompiledSchema( SchemaNode _root, List<String> _warnings ) {
+		root = _root;
+		warnings = Collections.unmodifiableList( _warnings );
+	}
+
+	SchemaNode getRoot() {
+		return root;
+	}
+
+	/**
+	 * @return Parts of the prototype that are valid but likely to cause trouble, such as a regex with
+	 *         nested quantifiers. Empty if there are none
+	 */
+	public List<String> getWarnings() {
+		return warnings;
+	}
+
+}
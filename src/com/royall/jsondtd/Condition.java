@@ -0,0 +1,548 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+/**
+ * A req or err_on condition of a prototype, compiled once from its map of conditions into a tree of
+ * groups and comparisons. Keys such as lt^^&price are parsed here, so evaluating a condition only
+ * walks up the json and compares.
+ *
+ * A condition the prototype gets wrong is compiled into a node that throws the PrototypeException
+ * once it is evaluated, so prototype errors are raised exactly when ConditionEvaluator used to raise
+ * them: not at all if an earlier condition of an or group already decided it.
+ *
+ * The conditions of the fields of a struct often repeat the same comparison. Compiled with the same
+ * Pool those are one Comparison with a slot in an array of results, filled in the first time the
+ * comparison is evaluated for a struct, and reused by the other fields of that struct. Comparisons
+ * that go up a level have their own array, kept by the JSONBlock of a list for all of the structs
+ * in it: those comparisons examine the same ancestors for each of them.
+ */
+abstract class Condition {
+
+	enum Operator {
+		EQI, NEQI, EQ, NEQ, GT, GTE, LT, LTE, EX, NEX;
+
+		/**
+		 * @return The operator of _name in any case, null if there is none
+		 */
+		static Operator forName( String _name ) {
+			for ( Operator operator : values() ) {
+				if ( operator.name().equalsIgnoreCase( _name ) )
+					return operator;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Comparisons shared by the conditions compiled with it, see Condition.
+	 */
+	static final class Pool {
+
+		private final Map<Comparison, Comparison> comparisons = new HashMap<Comparison, Comparison>();
+		private int structCount, ancestorCount;
+		private boolean shared;
+
+		private int nextSlot( int _levels ) {
+			return ( _levels > 0 ) ? ancestorCount : structCount;
+		}
+
+		private Comparison intern( Comparison _comparison ) {
+			Comparison comparison = comparisons.get( _comparison );
+			if ( comparison != null ) {
+				shared = true;
+				return comparison;
+			}
+			comparisons.put( _comparison, _comparison );
+			if ( _comparison.levels > 0 )
+				ancestorCount++;
+			else
+				structCount++;
+			return _comparison;
+		}
+
+		/**
+		 * @return Results of the comparisons on a struct itself, null if no comparison is shared and
+		 *         evaluating them without is as fast
+		 */
+		byte[] newResults() {
+			return ( shared && structCount > 0 ) ? new byte[structCount] : null;
+		}
+
+		/**
+		 * @return Results of the comparisons on the ancestors of _struct, the same for all structs of
+		 *         a list. Null if there are none to share
+		 */
+		byte[] ancestorResults( JSONBlock _struct ) {
+			if ( ancestorCount == 0 )
+				return null;
+			JSONBlock parent = _struct.getParent();
+			if ( parent == null || !( parent.getBlock() instanceof List ) )
+				return shared ? new byte[ancestorCount] : null;
+
+			// Another pattern of the structs may have put its own in the meantime
+			Results results = parent.getConditionResults();
+			if ( results == null || results.pool != this ) {
+				results = new Results( this, new byte[ancestorCount] );
+				parent.setConditionResults( results );
+			}
+			return results.values;
+		}
+	}
+
+	/**
+	 * Results of the comparisons on ancestors of the structs of a list, kept by its JSONBlock. The
+	 * structs of a list validated in parallel may see another one than they put, which is why the
+	 * Pool goes along and the fields are final.
+	 */
+	static final class Results {
+
+		private final Pool pool;
+		private final byte[] values;
+
+		private Results( Pool _pool, byte[] _values ) {
+			pool = _pool;
+			values = _values;
+		}
+	}
+
+	// Values of the array of results
+	private static final byte UNKNOWN = 0, TRUE = 1, FALSE = 2;
+
+	/**
+	 * Cheapest conditions first, see Group.
+	 */
+	private static final Comparator<Condition> BY_COST = new Comparator<Condition>() {
+
+		@Override
+		public int compare( Condition _a, Condition _b ) {
+			return Integer.compare( _a.getCost(), _b.getCost() );
+		}
+	};
+
+	/**
+	 * @param _json The struct the condition is evaluated on
+	 * @param _results Results of the comparisons on the struct of the Pool, see Pool.newResults().
+	 *          Null to evaluate each of them
+	 * @param _ancestorResults Results of the comparisons on its ancestors, see
+	 *          Pool.ancestorResults(). Null to evaluate each of them
+	 */
+	abstract boolean evaluate( JSONBlock _json, byte[] _results, byte[] _ancestorResults ) throws PrototypeException;
+
+	/**
+	 * @return The most levels the condition goes up from the struct it is evaluated on
+	 */
+	abstract int getReach();
+
+	/**
+	 * @return Relative cost of evaluating the condition
+	 */
+	abstract int getCost();
+
+	/**
+	 * @return Whether evaluating the condition can throw a PrototypeException
+	 */
+	abstract boolean canFail();
+
+	/**
+	 * @param _conditions The map of a req or err_on key, an or group
+	 */
+	static Condition compile( Map<?, ?> _conditions ) {
+		return compile( _conditions, new Pool() );
+	}
+
+	/**
+	 * @param _pool Pool of the conditions of the fields of the same struct
+	 */
+	static Condition compile( Map<?, ?> _conditions, Pool _pool ) {
+		return compileGroup( _conditions, false, _pool );
+	}
+
+	private static Condition compileGroup( Map<?, ?> _conditions, boolean _and, Pool _pool ) {
+		Condition[] conditions = new Condition[_conditions.size()];
+		int i = 0;
+		for ( Map.Entry<?, ?> entry : _conditions.entrySet() )
+			conditions[i++] = compileEntry( entry.getKey(), entry.getValue(), _pool );
+
+		// Conditions that cannot fail give the same result in any order, so each run of them is
+		// sorted to let the cheapest decide the group. Order is kept around the ones that can fail, so
+		// they still fail or are skipped as they are in the prototype
+		int start = 0;
+		for ( int end = 0; end <= conditions.length; end++ ) {
+			if ( end == conditions.length || conditions[end].canFail() ) {
+				Arrays.sort( conditions, start, end, BY_COST );
+				start = end + 1;
+			}
+		}
+		return new Group( conditions, _and );
+	}
+
+	private static Condition compileEntry( Object _key, Object _value, Pool _pool ) {
+		if ( !( _key instanceof String ) )
+			return new Invalid( new PrototypeException( "Keys for Struct must be a String in prototype" ), 0 );
+		String key = (String) _key;
+
+		if ( _value instanceof Map ) {
+			Map<?, ?> conditions = (Map<?, ?>) _value;
+			if ( key.length() >= 3 && key.regionMatches( true, 0, "and", 0, 3 ) )
+				return compileGroup( conditions, true, _pool );
+			if ( key.length() >= 2 && key.regionMatches( true, 0, "or", 0, 2 ) )
+				return compileGroup( conditions, false, _pool );
+			return new Invalid( new PrototypeException( "Conditional type '" + key + " contains a struct. Only an 'AND' or an 'OR' can contain a struct of dynamic conditions. Expect String, Number, or boolean." ), compileGroup( conditions, false, _pool ).getReach() );
+		}
+
+		/*
+		 * A key is of the form <condition>(^ x levels up to go)&field. For example lt^&key1 is a less
+		 * than comparison to key1 of the parent struct. Without a condition it is eqi, and a key
+		 * without & is the name of the field.
+		 */
+		String comparisonType = "eqi";
+		String field = key;
+		int levels = 0;
+		int ampIndex = key.indexOf( '&' );
+		if ( ampIndex >= 0 ) {
+			String condition = key.substring( 0, ampIndex );
+			int caretIndex = condition.indexOf( '^' );
+			if ( caretIndex < 0 && !condition.isEmpty() )
+				comparisonType = condition;
+			else if ( caretIndex > 0 ) {
+				comparisonType = condition.substring( 0, caretIndex );
+				for ( int i = caretIndex; i < condition.length(); i++ ) {
+					if ( condition.charAt( i ) == '^' )
+						levels++;
+				}
+			}
+			field = key.substring( ampIndex + 1 );
+		}
+		Comparison comparison = new Comparison( Operator.forName( comparisonType ), comparisonType, levels, field.intern(), _value, _pool.nextSlot( levels ) );
+		return comparison.isShareable() ? _pool.intern( comparison ) : comparison;
+	}
+
+	/**
+	 * And or or of conditions, evaluated in order until one decides it.
+	 */
+	private static final class Group extends Condition {
+
+		private final Condition[] conditions;
+		private final boolean and;
+		private final int reach, cost;
+		private final boolean canFail;
+
+		Group( Condition[] _conditions, boolean _and ) {
+			conditions = _conditions;
+			and = _and;
+			int reach = 0, cost = 0;
+			boolean canFail = false;
+			for ( Condition condition : _conditions ) {
+				reach = Math.max( reach, condition.getReach() );
+				cost += condition.getCost();
+				canFail |= condition.canFail();
+			}
+			this.reach = reach;
+			this.cost = cost;
+			this.canFail = canFail;
+		}
+
+		@Override
+		boolean evaluate( JSONBlock _json, byte[] _results, byte[] _ancestorResults ) throws PrototypeException {
+			for ( Condition condition : conditions ) {
+				if ( condition.evaluate( _json, _results, _ancestorResults ) != and )
+					return !and;
+			}
+			return and;
+		}
+
+		@Override
+		int getReach() {
+			return reach;
+		}
+
+		@Override
+		int getCost() {
+			return cost;
+		}
+
+		@Override
+		boolean canFail() {
+			return canFail;
+		}
+	}
+
+	/**
+	 * Comparison of a field of the struct, or of a struct above it, with a constant.
+	 */
+	private static final class Comparison extends Condition {
+
+		private final Operator operator;
+		private final int levels;
+		private final String field;
+
+		private final Object constant;
+		private final String string;
+		private final double number;
+		private final boolean bool;
+
+		// Of each char of a string constant: its upper case and the lower case of that, the two
+		// String.equalsIgnoreCase() compares. Null if the constant has surrogates
+		private final char[] upper, lower;
+
+		// Raised once the struct to compare is found, for an unknown operator or a constant the
+		// operator cannot compare with
+		private final PrototypeException error;
+
+		// Index in the array of results, -1 for a comparison that always fails
+		private final int slot;
+
+		Comparison( Operator _operator, String _comparisonType, int _levels, String _field, Object _constant, int _slot ) {
+			operator = _operator;
+			levels = _levels;
+			field = _field;
+			constant = _constant;
+			string = ( _constant instanceof String ) ? (String) _constant : null;
+			number = ( _constant instanceof Number ) ? ( (Number) _constant ).doubleValue() : 0;
+			bool = ( _constant instanceof Boolean ) && (Boolean) _constant;
+
+			char[] upper = null, lower = null;
+			if ( string != null && ( _operator == Operator.EQI || _operator == Operator.NEQI ) ) {
+				upper = new char[string.length()];
+				lower = new char[string.length()];
+				for ( int i = 0; upper != null && i < upper.length; i++ ) {
+					char c = string.charAt( i );
+					if ( Character.isSurrogate( c ) )
+						upper = lower = null;
+					else {
+						upper[i] = Character.toUpperCase( c );
+						lower[i] = Character.toLowerCase( upper[i] );
+					}
+				}
+			}
+			this.upper = upper;
+			this.lower = lower;
+
+			if ( _operator == null )
+				error = new PrototypeException( "Unrecognized comparison type: " + _comparisonType + " from dynamic Condition '" + _field + "'" );
+			else if ( isOrdering( _operator ) && !( _constant instanceof Number ) )
+				error = new PrototypeException( "Dynamic condition must be a Number when using comparisons 'gt', 'gte', 'lt', and 'lte'" );
+			else if ( isEquality( _operator ) && _constant != null && string == null && !( _constant instanceof Number ) && !( _constant instanceof Boolean ) )
+				error = new PrototypeException( "Dynamic condition '" + _field + "' contains a " + _constant.getClass().getName() + " Expected String, Number, or Boolean." );
+			else
+				error = null;
+			slot = ( error == null ) ? _slot : -1;
+		}
+
+		/**
+		 * A result is only stored once the comparison did not fail, so only the ones that always fail
+		 * have no slot.
+		 */
+		boolean isShareable() {
+			return slot >= 0;
+		}
+
+		private static boolean isOrdering( Operator _operator ) {
+			return _operator == Operator.GT || _operator == Operator.GTE || _operator == Operator.LT || _operator == Operator.LTE;
+		}
+
+		private static boolean isEquality( Operator _operator ) {
+			return _operator == Operator.EQI || _operator == Operator.NEQI || _operator == Operator.EQ || _operator == Operator.NEQ;
+		}
+
+		@Override
+		boolean evaluate( JSONBlock _json, byte[] _results, byte[] _ancestorResults ) throws PrototypeException {
+			byte[] results = ( levels > 0 ) ? _ancestorResults : _results;
+			if ( results == null || slot < 0 )
+				return compare( _json );
+
+			// Fields or structs validated in parallel may both compare, they store the same result
+			byte result = results[slot];
+			if ( result == UNKNOWN ) {
+				result = compare( _json ) ? TRUE : FALSE;
+				results[slot] = result;
+			}
+			return result == TRUE;
+		}
+
+		private boolean compare( JSONBlock _json ) throws PrototypeException {
+			JSONBlock levelToExamine = _json;
+			for ( int i = 0; i < levels; i++ ) {
+				levelToExamine = levelToExamine.getParent();
+				if ( levelToExamine == null )
+					throw new PrototypeException( "Dynamic conditions for " + field + " went beyond root" );
+			}
+
+			if ( !( levelToExamine.getBlock() instanceof Map ) )
+				throw new PrototypeException( "Conditions for " + field + " can only examine a Map. Found: " + levelToExamine.getBlock().getClass().getName() );
+			Map<?, ?> blockToExamine = (Map<?, ?>) levelToExamine.getBlock();
+
+			if ( error != null )
+				throw error;
+
+			switch ( operator ) {
+				case EX:
+					return blockToExamine.containsKey( field );
+				case NEX:
+					return !blockToExamine.containsKey( field );
+				default:
+			}
+
+			Object value = blockToExamine.get( field );
+			switch ( operator ) {
+				case EQI:
+					return equalsConstant( value, true );
+				case NEQI:
+					return !equalsConstant( value, true );
+				case EQ:
+					return equalsConstant( value, false );
+				case NEQ:
+					return !equalsConstant( value, false );
+				case GT:
+					return value instanceof Number && ( (Number) value ).doubleValue() > number;
+				case GTE:
+					return value instanceof Number && ( (Number) value ).doubleValue() >= number;
+				case LT:
+					return value instanceof Number && ( (Number) value ).doubleValue() < number;
+				default:
+					return value instanceof Number && ( (Number) value ).doubleValue() <= number;
+			}
+		}
+
+		/**
+		 * Strings, Numbers and Booleans only equal their own kind, Numbers by their double value.
+		 */
+		private boolean equalsConstant( Object _value, boolean _ignoreCase ) {
+			if ( constant == null )
+				return _value == null;
+			if ( string != null ) {
+				if ( !( _value instanceof String ) )
+					return false;
+				return _ignoreCase ? equalsIgnoreCase( (String) _value ) : string.equals( _value );
+			}
+			if ( constant instanceof Number )
+				return _value instanceof Number && ( (Number) _value ).doubleValue() == number;
+			return _value instanceof Boolean && (Boolean) _value == bool;
+		}
+
+		/**
+		 * Same as string.equalsIgnoreCase( _value ), with the case of the constant folded already.
+		 */
+		private boolean equalsIgnoreCase( String _value ) {
+			if ( upper == null )
+				return string.equalsIgnoreCase( _value );
+			if ( _value.length() != upper.length )
+				return false;
+			for ( int i = 0; i < upper.length; i++ ) {
+				char c = _value.charAt( i );
+				if ( c == string.charAt( i ) )
+					continue;
+				if ( Character.isSurrogate( c ) )
+					return string.equalsIgnoreCase( _value );
+				char u = Character.toUpperCase( c );
+				if ( u != upper[i] && Character.toLowerCase( u ) != lower[i] )
+					return false;
+			}
+			return true;
+		}
+
+		@Override
+		int getReach() {
+			return levels;
+		}
+
+		/**
+		 * A key lookup for ex and nex, plus a comparison for the others, the most for ignoring case.
+		 */
+		@Override
+		int getCost() {
+			if ( operator == Operator.EX || operator == Operator.NEX )
+				return 1;
+			if ( string != null && ( operator == Operator.EQI || operator == Operator.NEQI ) )
+				return 3;
+			return 2;
+		}
+
+		/**
+		 * The struct itself is always a Map, any level above it may not be there or be a list.
+		 */
+		@Override
+		boolean canFail() {
+			return error != null || levels > 0;
+		}
+
+		@Override
+		public boolean equals( Object _other ) {
+			if ( !( _other instanceof Comparison ) )
+				return false;
+			Comparison other = (Comparison) _other;
+			return operator == other.operator && levels == other.levels && field.equals( other.field ) && ( constant == null ? other.constant == null : constant.equals( other.constant ) );
+		}
+
+		@Override
+		public int hashCode() {
+			return ( ( operator.hashCode() * 31 + levels ) * 31 + field.hashCode() ) * 31 + ( constant == null ? 0 : constant.hashCode() );
+		}
+	}
+
+	/**
+	 * A condition the prototype got wrong.
+	 */
+	private static final class Invalid extends Condition {
+
+		private final PrototypeException error;
+		private final int reach;
+
+		Invalid( PrototypeException _error, int _reach ) {
+			error = _error;
+			reach = _reach;
+		}
+
+		@Override
+		boolean evaluate( JSONBlock _json, byte[] _results, byte[] _ancestorResults ) throws PrototypeException {
+			throw error;
+		}
+
+		@Override
+		int getReach() {
+			return reach;
+		}
+
+		@Override
+		int getCost() {
+			return 0;
+		}
+
+		@Override
+		boolean canFail() {
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+/**
+ * Reference to a custom type. The target is bound once the custom type itself has been compiled,
+ * which allows custom types to reference themselves.
+ */
+final class CustomNode extends SchemaNode {
+
+	private SchemaNode target;
+
+	void bind( SchemaNode _target ) {
+		target = _target;
+	}
+
+	SchemaNode getTarget() {
+		return target;
+	}
+
+	@Override
+	boolean validate( ValidationContext _ctx, Object _json, JSONBlock _parent ) throws PrototypeException {
+		return target.validate( _ctx, _json, _parent );
+	}
+
+	@Override
+	boolean validateStream( ValidationContext _ctx, JSONTokenizer _tokens, JSONBlock _parent ) throws PrototypeException, JSONValidatorException {
+		return target.validateStream( _ctx, _tokens, _parent );
+	}
+
+	/**
+	 * A reference from within the custom type itself is not bound yet and adds nothing to the reach
+	 * of the type.
+	 */
+	@Override
+	int getConditionReach() {
+		return ( target == null ) ? NO_CONDITIONS : target.getConditionReach();
+	}
+
+}
@@ -0,0 +1,94 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+final class DateNode extends SchemaNode {
+
+	private static final String DATE_TYPES = Date.class.getName() + ", " + String.class.getName() + ", " + Long.class.getName() + ", " + Instant.class.getName() + ", " + OffsetDateTime.class.getName() + ", " + ZonedDateTime.class.getName() + ", " + LocalDate.class.getName() + " or " + LocalDateTime.class.getName();
+
+	private final DatePatterns patterns;
+
+	// Bounds in milliseconds since the epoch, parsed when the prototype was compiled
+	private final boolean hasAfter, hasBefore;
+	private final long after, before;
+
+	// Lenient compilation only - raised once a date reaches the patterns or the bound
+	private final PrototypeException patternError, afterError, beforeError;
+
+	DateNode( DatePatterns _patterns, PrototypeException _patternError, boolean _hasAfter, long _after, PrototypeException _afterError, boolean _hasBefore, long _before, PrototypeException _beforeError ) {
+		patterns = _patterns;
+		patternError = _patternError;
+		hasAfter = _hasAfter;
+		after = _after;
+		afterError = _afterError;
+		hasBefore = _hasBefore;
+		before = _before;
+		beforeError = _beforeError;
+	}
+
+	@Override
+	boolean validate( ValidationContext _ctx, Object _json, JSONBlock _parent ) throws PrototypeException {
+		if ( !_ctx.checkNull( _json ) )
+			return false;
+
+		if ( patternError != null )
+			throw patternError;
+
+		long date;
+		if ( _json instanceof String ) {
+			if ( ( date = patterns.parse( (String) _json ) ) == DateParser.UNPARSEABLE )
+				return _ctx.fail( FailureCode.DATE_UNPARSEABLE, _json, patterns.getDescription() );
+		} else if ( ( date = patterns.toMillis( _json ) ) == DateParser.UNPARSEABLE ) {
+			return _ctx.fail( FailureCode.WRONG_TYPE, DATE_TYPES, _json.getClass() );
+		}
+
+		// Validate before & after
+		if ( hasAfter ) {
+			if ( afterError != null )
+				throw afterError;
+			if ( date <= after )
+				return _ctx.fail( FailureCode.DATE_NOT_AFTER, new Date( after ), new Date( date ) );
+		}
+		if ( hasBefore ) {
+			if ( beforeError != null )
+				throw beforeError;
+			if ( date >= before )
+				return _ctx.fail( FailureCode.DATE_NOT_BEFORE, new Date( before ), new Date( date ) );
+		}
+
+		_ctx.output = _json;
+		return true;
+	}
+
+}
@@ -0,0 +1,330 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Thread safe parser of date Strings of a SimpleDateFormat pattern, shared by all validations of a
+ * JSONValidator. A String is a date exactly when a non-lenient SimpleDateFormat of the pattern
+ * parses all of it, in the default time zone.
+ *
+ * ISO-8601 patterns first try the arithmetic parser of IsoDate, which only takes the dates it
+ * reads the same as SimpleDateFormat. Other Strings are parsed by a SimpleDateFormat of the thread:
+ * a java.time formatter can not take two digit years of any length, zone names that decide between
+ * standard and daylight time, or resolve the fields the way the Julian and Gregorian calendar of
+ * SimpleDateFormat does. Parsed Strings are kept in a small cache, as the same timestamps tend to
+ * occur many times.
+ *
+ * The shape of the pattern, its runs of digits and letters, offsets and the separators in between,
+ * lets DatePatterns choose between several patterns without parsing.
+ */
+final class DateParser {
+
+	/** Returned by parse() for a String that is not a date of the pattern. */
+	static final long UNPARSEABLE = Long.MIN_VALUE;
+
+	// Power of two
+	private static final int CACHE_SIZE = 1024;
+
+	// Shape symbols, all other characters of a shape are separators
+	private static final char DIGITS = 'd', LETTERS = 'a', OFFSET = 'o';
+
+	private final String pattern;
+	private final String shape;
+	private final ZoneId zone;
+	private final TimeZone timeZone;
+
+	// A SimpleDateFormat is not thread safe, each thread parses with its own copy of this one
+	private final SimpleDateFormat format;
+	private final ThreadLocal<SimpleDateFormat> formats = new ThreadLocal<SimpleDateFormat>() {
+
+		@Override
+		protected SimpleDateFormat initialValue() {
+			return (SimpleDateFormat) format.clone();
+		}
+	};
+
+	// Null unless the pattern is an ISO-8601 pattern
+	private final IsoDate iso;
+
+	// Entries are immutable, so a slot read while another thread replaces it is still consistent
+	private final CachedDate[] cache = new CachedDate[CACHE_SIZE];
+
+	private DateParser( String _pattern, String _shape, SimpleDateFormat _format ) {
+		pattern = _pattern;
+		shape = _shape;
+		format = _format;
+		timeZone = _format.getTimeZone();
+		zone = timeZone.toZoneId();
+		// The arithmetic of IsoDate is that of the Gregorian calendar, not the one of every locale
+		iso = ( _format.getCalendar().getClass() == GregorianCalendar.class ) ? IsoDate.forPattern( _pattern, zone ) : null;
+	}
+
+	/**
+	 * @param _pattern SimpleDateFormat pattern, null for the default pattern of SimpleDateFormat
+	 * @throws IllegalArgumentException If the pattern is invalid
+	 */
+	static DateParser create( String _pattern ) {
+		SimpleDateFormat format = ( _pattern != null ) ? new SimpleDateFormat( _pattern ) : new SimpleDateFormat();
+		format.setLenient( false );
+		String pattern = format.toPattern();
+		StringBuilder shape = new StringBuilder();
+		translate( pattern, shape );
+		return new DateParser( pattern, shape.toString(), format );
+	}
+
+	/**
+	 * @return The SimpleDateFormat pattern
+	 */
+	String getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * @param _text Date String, surrounding whitespace is ignored
+	 * @return Milliseconds since the epoch, UNPARSEABLE if _text is not a date of the pattern
+	 */
+	long parse( String _text ) {
+		if ( iso != null ) {
+			long millis = iso.parse( _text );
+			if ( millis != IsoDate.NO_MATCH )
+				return millis;
+		}
+
+		int hash = _text.hashCode();
+		int slot = ( hash ^ ( hash >>> 16 ) ) & ( CACHE_SIZE - 1 );
+		CachedDate cached = cache[slot];
+		if ( cached != null && cached.text.equals( _text ) )
+			return cached.millis;
+
+		long millis = parseUncached( _text.trim() );
+		cache[slot] = new CachedDate( _text, millis );
+		return millis;
+	}
+
+	/**
+	 * Checks the shape of _text against the shape of the pattern, without parsing it: every run of
+	 * digits or letters of the pattern has to be a run of digits or letters in _text, offsets have to
+	 * look like offsets and separators have to be the same. A date of the pattern always has its
+	 * shape, text of the shape is not always a date.
+	 */
+	boolean matchesShape( CharSequence _text ) {
+		int i = 0;
+		int to = _text.length();
+		while ( i < to && _text.charAt( i ) <= ' ' )
+			i++;
+		while ( to > i && _text.charAt( to - 1 ) <= ' ' )
+			to--;
+
+		for ( int s = 0; s < shape.length(); s++ ) {
+			char c = shape.charAt( s );
+			int start = i;
+			if ( c == DIGITS ) {
+				i = skipDigits( _text, i, to );
+			} else if ( c == LETTERS ) {
+				while ( i < to && Character.isLetter( _text.charAt( i ) ) )
+					i++;
+			} else if ( c == OFFSET ) {
+				// A zone name, a signed offset or both, as in GMT+01:00
+				while ( i < to && Character.isLetter( _text.charAt( i ) ) )
+					i++;
+				if ( i < to && ( _text.charAt( i ) == '+' || _text.charAt( i ) == '-' ) ) {
+					int digits = skipDigits( _text, i + 1, to );
+					if ( digits == i + 1 )
+						return false;
+					i = digits;
+					if ( i < to && _text.charAt( i ) == ':' && ( digits = skipDigits( _text, i + 1, to ) ) > i + 1 )
+						i = digits;
+				}
+			} else if ( i < to && _text.charAt( i ) == c ) {
+				i++;
+			}
+			if ( i == start )
+				return false;
+		}
+		return i == to;
+	}
+
+	private static int skipDigits( CharSequence _text, int _i, int _to ) {
+		int i = _i;
+		while ( i < _to && _text.charAt( i ) >= '0' && _text.charAt( i ) <= '9' )
+			i++;
+		return i;
+	}
+
+	/**
+	 * Converts the date objects that are not parsed: a Date, a Long of epoch millis, a java.time
+	 * value of an instant such as Instant, OffsetDateTime or ZonedDateTime, or a LocalDate or
+	 * LocalDateTime, which is taken in the default time zone like a String without an offset.
+	 * 
+	 * @return Milliseconds since the epoch, UNPARSEABLE if _date is none of these
+	 */
+	long toMillis( Object _date ) {
+		if ( _date instanceof Date )
+			return ( (Date) _date ).getTime();
+		if ( _date instanceof Long )
+			return (Long) _date;
+		if ( _date instanceof TemporalAccessor ) {
+			TemporalAccessor temporal = (TemporalAccessor) _date;
+			if ( temporal.isSupported( ChronoField.INSTANT_SECONDS ) )
+				return temporal.getLong( ChronoField.INSTANT_SECONDS ) * 1000 + temporal.get( ChronoField.MILLI_OF_SECOND );
+			if ( _date instanceof LocalDateTime )
+				return ( (LocalDateTime) _date ).atZone( zone ).toInstant().toEpochMilli();
+			if ( _date instanceof LocalDate )
+				return ( (LocalDate) _date ).atStartOfDay( zone ).toInstant().toEpochMilli();
+		}
+		return UNPARSEABLE;
+	}
+
+	private long parseUncached( String _text ) {
+		if ( _text.length() == 0 )
+			return UNPARSEABLE;
+		SimpleDateFormat format = formats.get();
+		// A zone name in the text leaves its zone in the format
+		format.setTimeZone( timeZone );
+		ParsePosition position = new ParsePosition( 0 );
+		Date date = format.parse( _text, position );
+		if ( date == null || position.getIndex() != _text.length() )
+			return UNPARSEABLE;
+		return date.getTime();
+	}
+
+	/**
+	 * Appends the shape of a SimpleDateFormat pattern to _shape.
+	 */
+	private static void translate( String _pattern, StringBuilder _shape ) {
+		int i = 0;
+		while ( i < _pattern.length() ) {
+			char c = _pattern.charAt( i );
+			if ( c == '\'' ) {
+				i = quoted( _pattern, i, _shape );
+				continue;
+			}
+			if ( !isLetter( c ) ) {
+				addLiteralShape( _shape, c );
+				i++;
+				continue;
+			}
+
+			int end = i;
+			while ( end < _pattern.length() && _pattern.charAt( end ) == c )
+				end++;
+			addShape( _shape, shapeOf( c, end - i ) );
+			i = end;
+		}
+	}
+
+	/**
+	 * @param _i Position of the opening quote
+	 * @return Position after the closing quote
+	 */
+	private static int quoted( String _pattern, int _i, StringBuilder _shape ) {
+		if ( _i + 1 < _pattern.length() && _pattern.charAt( _i + 1 ) == '\'' ) {
+			addLiteralShape( _shape, '\'' );
+			return _i + 2;
+		}
+
+		int i = _i + 1;
+		for ( ;; ) {
+			if ( i >= _pattern.length() )
+				throw new IllegalArgumentException( "Unterminated quote" );
+			char c = _pattern.charAt( i++ );
+			if ( c == '\'' ) {
+				if ( i >= _pattern.length() || _pattern.charAt( i ) != '\'' )
+					break;
+				i++;
+			}
+			addLiteralShape( _shape, c );
+		}
+		return i;
+	}
+
+	/**
+	 * @return The shape symbol of _count pattern letters _letter
+	 */
+	private static char shapeOf( char _letter, int _count ) {
+		switch ( _letter ) {
+			case 'G':
+			case 'E':
+			case 'a':
+				return LETTERS;
+			case 'M':
+			case 'L':
+				return ( _count >= 3 ) ? LETTERS : DIGITS;
+			case 'z':
+			case 'Z':
+			case 'X':
+				return OFFSET;
+			default:
+				return DIGITS;
+		}
+	}
+
+	/**
+	 * Adds a shape symbol, runs of digits or letters next to each other are one run.
+	 */
+	private static void addShape( StringBuilder _shape, char _symbol ) {
+		int last = _shape.length() - 1;
+		if ( ( _symbol == DIGITS || _symbol == LETTERS ) && last >= 0 && _shape.charAt( last ) == _symbol )
+			return;
+		_shape.append( _symbol );
+	}
+
+	private static void addLiteralShape( StringBuilder _shape, char _c ) {
+		if ( _c >= '0' && _c <= '9' )
+			addShape( _shape, DIGITS );
+		else if ( Character.isLetter( _c ) )
+			addShape( _shape, LETTERS );
+		else
+			addShape( _shape, _c );
+	}
+
+	private static boolean isLetter( char _c ) {
+		return ( _c >= 'a' && _c <= 'z' ) || ( _c >= 'A' && _c <= 'Z' );
+	}
+
+	private static final class CachedDate {
+
+		final String text;
+		final long millis;
+
+		CachedDate( String _text, long _millis ) {
+			text = _text;
+			millis = _millis;
+		}
+
+	}
+
+}
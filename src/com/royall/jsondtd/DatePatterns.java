@@ -0,0 +1,86 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+/**
+ * The date patterns of a date field. A String is parsed by the first pattern of its shape, see
+ * DateParser.matchesShape(), so each date is parsed once however many patterns the field has. The
+ * patterns of other shapes are only tried when no pattern of its shape parses it.
+ */
+final class DatePatterns {
+
+	private final DateParser[] parsers;
+	private final String description;
+
+	DatePatterns( DateParser... _parsers ) {
+		parsers = _parsers;
+		StringBuilder description = new StringBuilder();
+		for ( int i = 0; i < _parsers.length; i++ ) {
+			if ( i > 0 )
+				description.append( ( i == _parsers.length - 1 ) ? " or " : ", " );
+			description.append( _parsers[i].getPattern() );
+		}
+		this.description = description.toString();
+	}
+
+	/**
+	 * @return The patterns for messages, such as "yyyy-MM-dd or MM/dd/yyyy"
+	 */
+	String getDescription() {
+		return description;
+	}
+
+	/**
+	 * @return Milliseconds since the epoch, DateParser.UNPARSEABLE if no pattern parses _text
+	 */
+	long parse( String _text ) {
+		if ( parsers.length == 1 )
+			return parsers[0].parse( _text );
+
+		for ( DateParser parser : parsers ) {
+			if ( parser.matchesShape( _text ) ) {
+				long millis = parser.parse( _text );
+				if ( millis != DateParser.UNPARSEABLE )
+					return millis;
+			}
+		}
+		for ( DateParser parser : parsers ) {
+			if ( !parser.matchesShape( _text ) ) {
+				long millis = parser.parse( _text );
+				if ( millis != DateParser.UNPARSEABLE )
+					return millis;
+			}
+		}
+		return DateParser.UNPARSEABLE;
+	}
+
+	/**
+	 * @see DateParser#toMillis(Object)
+	 */
+	long toMillis( Object _date ) {
+		return parsers[0].toMillis( _date );
+	}
+
+}
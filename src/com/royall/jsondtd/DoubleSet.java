@@ -0,0 +1,182 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable set of numbers of an enum list, compared by value whatever their class, so that 2, 2L
+ * and 2.0 are the same. Whole numbers in the range of a long are kept exactly in a table of longs,
+ * so that longs above 2^53 that have the same double value stay apart. Other numbers are kept as
+ * the bits of their double value in a second table. A lookup in these open addressing tables
+ * neither boxes nor calls equals().
+ *
+ * A view of a list is not hashed, a lookup compares the numbers of the list one by one. It is for
+ * prototypes compiled for a single validation, which look up few values.
+ */
+final class DoubleSet {
+
+	// No double has these bits, doubleToLongBits() returns a single NaN for all of them
+	private static final long EMPTY = 0x7ff0000000000001L;
+
+	// Marks a free slot of the long table, whether the set has this long itself is kept apart
+	private static final long EMPTY_LONG = Long.MIN_VALUE;
+
+	private static final double TWO_POW_63 = 0x1p63;
+
+	private final long[] longs, doubles;
+	private final int longMask, longShift, doubleMask, doubleShift;
+	private final boolean hasEmptyLong;
+
+	// Only for a view
+	private final List<?> values;
+
+	private DoubleSet( List<?> _values ) {
+		longs = doubles = null;
+		longMask = longShift = doubleMask = doubleShift = 0;
+		hasEmptyLong = false;
+		values = _values;
+	}
+
+	private DoubleSet( int _longCount, int _doubleCount, boolean _hasEmptyLong ) {
+		values = null;
+		hasEmptyLong = _hasEmptyLong;
+		longs = table( _longCount, EMPTY_LONG );
+		longMask = longs.length - 1;
+		longShift = 64 - Integer.numberOfTrailingZeros( longs.length );
+		doubles = table( _doubleCount, EMPTY );
+		doubleMask = doubles.length - 1;
+		doubleShift = 64 - Integer.numberOfTrailingZeros( doubles.length );
+	}
+
+	private static long[] table( int _size, long _empty ) {
+		long[] table = new long[Integer.highestOneBit( Math.max( _size, 2 ) * 2 - 1 ) * 2];
+		Arrays.fill( table, _empty );
+		return table;
+	}
+
+	/**
+	 * @return The set of the numbers of _values, null if one of them is not a Number
+	 */
+	static DoubleSet of( List<?> _values ) {
+		int longCount = 0;
+		boolean hasEmptyLong = false;
+		for ( Object value : _values ) {
+			if ( !( value instanceof Number ) )
+				return null;
+			if ( isLong( (Number) value ) ) {
+				longCount++;
+				hasEmptyLong |= longValue( (Number) value ) == EMPTY_LONG;
+			}
+		}
+
+		DoubleSet set = new DoubleSet( longCount, _values.size() - longCount, hasEmptyLong );
+		for ( Object value : _values ) {
+			Number number = (Number) value;
+			if ( isLong( number ) )
+				set.addLong( longValue( number ) );
+			else
+				set.addDouble( Double.doubleToLongBits( number.doubleValue() ) );
+		}
+		return set;
+	}
+
+	/**
+	 * @return A view of _values, null if one of them is not a Number
+	 */
+	static DoubleSet view( List<?> _values ) {
+		for ( Object value : _values ) {
+			if ( !( value instanceof Number ) )
+				return null;
+		}
+		return new DoubleSet( _values );
+	}
+
+	boolean contains( Number _value ) {
+		boolean isLong = isLong( _value );
+		long key = isLong ? longValue( _value ) : Double.doubleToLongBits( _value.doubleValue() );
+		if ( values != null ) {
+			for ( Object value : values ) {
+				Number number = (Number) value;
+				if ( isLong( number ) == isLong && ( isLong ? longValue( number ) : Double.doubleToLongBits( number.doubleValue() ) ) == key )
+					return true;
+			}
+			return false;
+		}
+
+		if ( isLong )
+			return ( key == EMPTY_LONG ) ? hasEmptyLong : find( longs, longMask, longShift, key, EMPTY_LONG ) >= 0;
+		return find( doubles, doubleMask, doubleShift, key, EMPTY ) >= 0;
+	}
+
+	/**
+	 * Only called by of(), EMPTY_LONG itself is recorded in hasEmptyLong before construction.
+	 */
+	private void addLong( long _value ) {
+		if ( _value != EMPTY_LONG )
+			longs[-1 - find( longs, longMask, longShift, _value, EMPTY_LONG )] = _value;
+	}
+
+	private void addDouble( long _bits ) {
+		doubles[-1 - find( doubles, doubleMask, doubleShift, _bits, EMPTY )] = _bits;
+	}
+
+	/**
+	 * @return The slot of _key, -1 - the free slot for it if it is not in _table
+	 */
+	private static int find( long[] _table, int _mask, int _shift, long _key, long _empty ) {
+		for ( int i = (int) ( ( _key * 0x9E3779B97F4A7C15L ) >>> _shift );; i = ( i + 1 ) & _mask ) {
+			long key = _table[i];
+			if ( key == _key )
+				return i;
+			if ( key == _empty )
+				return -1 - i;
+		}
+	}
+
+	/**
+	 * @return Whether _value is a whole number in the range of a long, which is kept exactly
+	 */
+	private static boolean isLong( Number _value ) {
+		if ( _value instanceof Integer || _value instanceof Long || _value instanceof Short || _value instanceof Byte )
+			return true;
+		if ( _value instanceof BigInteger )
+			return ( (BigInteger) _value ).bitLength() < 64;
+		double value = _value.doubleValue();
+		return value >= -TWO_POW_63 && value < TWO_POW_63 && value == Math.rint( value );
+	}
+
+	/**
+	 * @param _value A Number isLong() is true for
+	 */
+	private static long longValue( Number _value ) {
+		if ( _value instanceof Integer || _value instanceof Long || _value instanceof Short || _value instanceof Byte || _value instanceof BigInteger )
+			return _value.longValue();
+		return (long) _value.doubleValue();
+	}
+
+}
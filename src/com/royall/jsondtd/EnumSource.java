@@ -0,0 +1,45 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.Collection;
+
+/**
+ * Values of an enum list that change while the validator is in use, such as the ids of active
+ * tenants. A string type references the source by name with the key JSONValidator.KEY_ENUM_SOURCE,
+ * once it was added with JSONValidator.addEnumSource().
+ * 
+ * The validator keeps the values of the last load() and calls load() again in the background once
+ * they are older than the time to live of the source. Validation never waits for load().
+ */
+public interface EnumSource {
+
+	/**
+	 * @return The current values, the strings a string type accepts
+	 * @throws Exception If the values cannot be loaded, the values of the last load() are kept
+	 */
+	public Collection<?> load() throws Exception;
+
+}
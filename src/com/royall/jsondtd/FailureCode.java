@@ -0,0 +1,237 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+/**
+ * The reasons a json value can fail validation. Each code knows how to render the arguments
+ * recorded with a ValidationFailure into the classic fail message.
+ */
+public enum FailureCode {
+
+	NULL_VALUE {
+
+		@Override
+		String render( Object[] _args ) {
+			return " null value disallowed";
+		}
+	},
+	/** Arguments: expected type, found class */
+	WRONG_TYPE {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Expected Type " + _args[0] + " Found Type " + className( _args[1] );
+		}
+	},
+	/** Arguments: found class */
+	NOT_A_LIST {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Expected " + java.util.List.class.getName() + " found " + className( _args[0] );
+		}
+	},
+	/** Arguments: found class */
+	NOT_NULL {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Expected null value Found Type " + className( _args[0] );
+		}
+	},
+	/** Arguments: expected classes, found class name */
+	WRONG_CLASS {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Expected Class (" + _args[0] + ") found Class (" + _args[1] + ")";
+		}
+	},
+	EMPTY_STRING {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Empty String was found but not allowed";
+		}
+	},
+	/** Arguments: value */
+	NOT_IN_ENUM {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Item " + _args[0] + " was not found in " + JSONValidator.KEY_ENUM + " list";
+		}
+	},
+	/** Arguments: value */
+	IN_NOT_ENUM {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Item " + _args[0] + " was found in " + JSONValidator.KEY_NOT_ENUM + " list";
+		}
+	},
+	/** Arguments: value, allowlist name */
+	NOT_IN_ALLOWLIST {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Item " + _args[0] + " was not found in " + JSONValidator.KEY_ALLOWLIST + " " + _args[1];
+		}
+	},
+	/** Arguments: value, enum source name */
+	NOT_IN_ENUM_SOURCE {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Item " + _args[0] + " was not found in " + JSONValidator.KEY_ENUM_SOURCE + " " + _args[1];
+		}
+	},
+	/** Arguments: value, regex */
+	REGEX_MISMATCH {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Json String '" + _args[0] + "' did not match regex pattern " + _args[1];
+		}
+	},
+	/** Arguments: value, regex, step limit */
+	REGEX_TOO_COSTLY {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Json String '" + _args[0] + "' could not be matched against regex pattern " + _args[1] + " within " + _args[2] + " steps";
+		}
+	},
+	/** Arguments: value, date pattern */
+	DATE_UNPARSEABLE {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Failed to parse String " + _args[0] + " as Date of pattern ( " + _args[1] + " ) ";
+		}
+	},
+	/** Arguments: bound, date */
+	DATE_NOT_AFTER {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Expected Date to be after " + _args[0] + " but was " + _args[1];
+		}
+	},
+	/** Arguments: bound, date */
+	DATE_NOT_BEFORE {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Expected Date to be before " + _args[0] + " but was " + _args[1];
+		}
+	},
+	/** Arguments: min, value */
+	NUMBER_BELOW_MIN {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Expected number to be greater than or equal to " + _args[0] + " but was " + _args[1];
+		}
+	},
+	/** Arguments: max, value */
+	NUMBER_ABOVE_MAX {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Expected number to be less than or equal to " + _args[0] + " but was " + _args[1];
+		}
+	},
+	/** Arguments: min, size */
+	ARRAY_TOO_SHORT {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Min Array Length " + _args[0] + " Actual " + _args[1];
+		}
+	},
+	/** Arguments: max, size */
+	ARRAY_TOO_LONG {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Max Array Length " + _args[0] + " Actual " + _args[1];
+		}
+	},
+	/** Arguments: field */
+	REQUIRED_FIELD_MISSING {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Required field " + _args[0] + " was not found";
+		}
+	},
+	/** Arguments: field */
+	ERROR_ON_FIELD {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Error on field " + _args[0] + " was found";
+		}
+	},
+	NULL_KEY {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Null key in struct is not allowed.";
+		}
+	},
+	/** Arguments: field */
+	UNEXPECTED_FIELD {
+
+		@Override
+		String render( Object[] _args ) {
+			return " Unexpected field '" + _args[0] + "' was found.";
+		}
+	},
+	/** Nested failures are the alternatives of the failure */
+	NO_PATTERN_MATCHED {
+
+		@Override
+		String render( Object[] _args ) {
+			return " None of the possible field patterns validated Nested Failures:";
+		}
+	},
+	/** Nested failures are the alternatives of the failure */
+	NO_DEFINITION_MATCHED {
+
+		@Override
+		String render( Object[] _args ) {
+			return " None of the possible field definitions validated Nested Failures:";
+		}
+	};
+
+	abstract String render( Object[] _args );
+
+	private static String className( Object _class ) {
+		return ( (Class<?>) _class ).getName();
+	}
+
+}
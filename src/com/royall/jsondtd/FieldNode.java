@@ -0,0 +1,257 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.Map;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+/**
+ * One field of a struct pattern: its req/err_on conditions, defaults and definition(s). The
+ * wildcard field of a pattern is compiled the same way, only its definitions are used.
+ */
+final class FieldNode {
+
+	private final String name;
+
+	private final boolean req, errOn;
+	private final Condition reqCondition, errOnCondition;
+
+	private final boolean hasDefault, hasDefaultItem;
+	private final Object defaultValue, defaultItem;
+
+	private final SchemaNode[] definitions;
+	private final boolean[] removeEmpty;
+	private final boolean definitionList;
+
+	// Lenient compilation only - each raised at the point the interpreter used to find it
+	private final PrototypeException fieldError, reqError, errOnError, defaultItemError, definitionError;
+
+	// See SchemaNode.getConditionReach, as seen from the struct holding the field
+	private final int conditionReach;
+
+	FieldNode( String _name, PrototypeException _fieldError ) {
+		this( _name, _fieldError, false, null, null, false, null, null, false, null, false, null, null, null, null, false, null );
+	}
+
+	FieldNode( String _name, PrototypeException _fieldError, boolean _req, Condition _reqCondition, PrototypeException _reqError, boolean _errOn, Condition _errOnCondition, PrototypeException _errOnError, boolean _hasDefault, Object _defaultValue, boolean _hasDefaultItem, Object _defaultItem, PrototypeException _defaultItemError, SchemaNode[] _definitions, boolean[] _removeEmpty, boolean _definitionList, PrototypeException _definitionError ) {
+		name = _name;
+		fieldError = _fieldError;
+		req = _req;
+		reqCondition = _reqCondition;
+		reqError = _reqError;
+		errOn = _errOn;
+		errOnCondition = _errOnCondition;
+		errOnError = _errOnError;
+		hasDefault = _hasDefault;
+		defaultValue = _defaultValue;
+		hasDefaultItem = _hasDefaultItem;
+		defaultItem = _defaultItem;
+		defaultItemError = _defaultItemError;
+		definitions = _definitions;
+		removeEmpty = _removeEmpty;
+		definitionList = _definitionList;
+		definitionError = _definitionError;
+
+		int reach = SchemaNode.NO_CONDITIONS;
+		if ( _reqCondition != null )
+			reach = Math.max( reach, _reqCondition.getReach() );
+		if ( _errOnCondition != null )
+			reach = Math.max( reach, _errOnCondition.getReach() );
+		if ( _definitions != null ) {
+			for ( SchemaNode definition : _definitions )
+				reach = Math.max( reach, SchemaNode.parentReach( definition ) );
+		}
+		conditionReach = reach;
+	}
+
+	int getConditionReach() {
+		return conditionReach;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	SchemaNode[] getDefinitions() {
+		return definitions;
+	}
+
+	/**
+	 * Evaluates req, err_on and defaults for this field and validates its value if present.
+	 * 
+	 * @param _conditionResults Results of the shared conditions of the fields of _struct, see
+	 *          Condition.Pool. Null if they are not shared
+	 * @param _ancestorResults Same for the conditions on its ancestors
+	 * @param _testBuild Output the modified value is added to, null if no output is built
+	 */
+	boolean validate( ValidationContext _ctx, JSONBlock _struct, byte[] _conditionResults, byte[] _ancestorResults, StructOutput _testBuild ) throws PrototypeException {
+		if ( fieldError != null )
+			throw fieldError;
+
+		// Get Req value
+		if ( reqError != null )
+			throw reqError;
+		boolean req = ( reqCondition != null ) ? reqCondition.evaluate( _struct, _conditionResults, _ancestorResults ) : this.req;
+
+		// Get Err_On Value
+		if ( errOnError != null )
+			throw errOnError;
+		boolean errOn = ( errOnCondition != null ) ? errOnCondition.evaluate( _struct, _conditionResults, _ancestorResults ) : this.errOn;
+
+		// Evaluate JSON with Req & err_on...
+		Map<?, ?> jsonMap = (Map<?, ?>) _struct.getBlock();
+		boolean containsKey = jsonMap.containsKey( name );
+		if ( !containsKey && req ) {
+			return _ctx.fail( FailureCode.REQUIRED_FIELD_MISSING, name );
+		} else if ( containsKey && errOn ) {
+			return _ctx.fail( FailureCode.ERROR_ON_FIELD, name );
+		} else if ( !containsKey ) {
+			// Enter default if field was not required and not present.
+			putDefault( _ctx, _testBuild );
+		} else {
+			// Here we Actually validate the field
+			return validateValue( _ctx, _struct, name, jsonMap.get( name ), _testBuild );
+		}
+		return true;
+	}
+
+	/**
+	 * Streaming counterpart of validate for a field found in the json, _tokens is at its value. Only
+	 * used for fields without conditions.
+	 */
+	boolean validateStream( ValidationContext _ctx, JSONTokenizer _tokens, JSONBlock _struct, StructOutput _testBuild ) throws PrototypeException, JSONValidatorException {
+		checkPrototype();
+		if ( errOn )
+			return _ctx.fail( FailureCode.ERROR_ON_FIELD, name );
+		return validateStreamValue( _ctx, _tokens, _struct, name, _testBuild );
+	}
+
+	/**
+	 * Streaming counterpart of validate for a field that was not in the json.
+	 */
+	boolean validateStreamMissing( ValidationContext _ctx, StructOutput _testBuild ) throws PrototypeException {
+		checkPrototype();
+		if ( req )
+			return _ctx.fail( FailureCode.REQUIRED_FIELD_MISSING, name );
+		putDefault( _ctx, _testBuild );
+		return true;
+	}
+
+	/**
+	 * Streaming counterpart of validateValue. A list of definitions needs the value to try each of
+	 * them, so the value is read completely in that case.
+	 */
+	boolean validateStreamValue( ValidationContext _ctx, JSONTokenizer _tokens, JSONBlock _struct, Object _field, StructOutput _testBuild ) throws PrototypeException, JSONValidatorException {
+		if ( definitionError != null )
+			throw definitionError;
+
+		if ( definitionList )
+			return validateValue( _ctx, _struct, _field, _tokens.readValue(), _testBuild );
+
+		if ( !definitions[0].validateStream( _ctx, _tokens, _struct ) )
+			return _ctx.failAtField( _field );
+
+		if ( _testBuild != null ) {
+			Object value = _ctx.output;
+			if ( isBlockAllowed( value, removeEmpty[0] ) )
+				_testBuild.put( _field, value );
+		}
+		return true;
+	}
+
+	private void checkPrototype() throws PrototypeException {
+		if ( fieldError != null )
+			throw fieldError;
+		if ( reqError != null )
+			throw reqError;
+		if ( errOnError != null )
+			throw errOnError;
+	}
+
+	private void putDefault( ValidationContext _ctx, StructOutput _testBuild ) throws PrototypeException {
+		if ( hasDefault ) {
+			if ( _testBuild != null )
+				_testBuild.put( name, defaultValue );
+		} else if ( hasDefaultItem ) {
+			if ( defaultItemError != null )
+				throw defaultItemError;
+			Map<String, Object> defaultItems = _ctx.getDefaultItems();
+			if ( !defaultItems.containsKey( defaultItem ) )
+				throw new PrototypeException( JSONValidator.KEY_DEFAULT_ITEM + " " + defaultItem.toString() + " was not found. Please add to fieldItems." );
+			if ( _testBuild != null )
+				_testBuild.put( name, defaultItems.get( defaultItem ) );
+		}
+	}
+
+	/**
+	 * Validates a value against the definition(s) of this field and adds the result to _testBuild.
+	 */
+	boolean validateValue( ValidationContext _ctx, JSONBlock _struct, Object _field, Object _jsonValue, StructOutput _testBuild ) throws PrototypeException {
+		if ( definitionError != null )
+			throw definitionError;
+
+		if ( !definitionList )
+			return validateDefinition( _ctx, 0, _struct, _field, _jsonValue, _testBuild );
+
+		ValidationFailure[] subFailures = new ValidationFailure[definitions.length];
+		int mark = _ctx.stageMark();
+		for ( int i = 0; i < definitions.length; i++ ) {
+			if ( validateDefinition( _ctx, i, _struct, _field, _jsonValue, _testBuild ) )
+				return true;
+			_ctx.rollback( mark );
+
+			// Store the failure in the case that we have looped back to here.
+			subFailures[i] = _ctx.takeFailure();
+		}
+
+		// None of the attempts worked
+		return _ctx.failAlternatives( FailureCode.NO_DEFINITION_MATCHED, subFailures, _struct.getDepth() );
+	}
+
+	private boolean validateDefinition( ValidationContext _ctx, int _i, JSONBlock _struct, Object _field, Object _jsonValue, StructOutput _testBuild ) throws PrototypeException {
+		if ( !definitions[_i].validate( _ctx, _jsonValue, _struct ) )
+			return _ctx.failAtField( _field );
+
+		if ( _testBuild != null ) {
+			Object value = _ctx.output;
+			if ( isBlockAllowed( value, removeEmpty[_i] ) )
+				_testBuild.put( _field, value );
+		}
+		return true;
+	}
+
+	/**
+	 * @param _removeEmpty Whether empty Strings are removed, either by the removekeyswhenvalueempty
+	 *          option or the remove_empty key of the definition
+	 */
+	static boolean isBlockAllowed( Object _testBuild, boolean _removeEmpty ) {
+		if ( _removeEmpty )
+			return !( _testBuild instanceof String && ( (String) _testBuild ).trim().isEmpty() );
+		return true;
+	}
+
+}
@@ -0,0 +1,239 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+/**
+ * One possible field pattern of a struct, i.e. one map of the prototype's fields list.
+ */
+final class FieldsNode {
+
+	private final FieldNode[] fields;
+	private final Set<?> prototypeKeys;
+
+	// Index of each field by name, to look up fields as they are streamed
+	private final Map<String, Integer> fieldIndex;
+
+	// Wildcard is indicated by a "*" field - the wildcard field will force any unspecified fields
+	// to conform to the validation given.
+	private final boolean hasWildcard;
+	private final FieldNode wildcard;
+
+	private final boolean errorOnUnspecifiedKeys, removeUnspecifiedKeys, removeKeysWhenValueEmpty;
+
+	// Comparisons of the conditions of the fields
+	private final Condition.Pool conditions;
+
+	// Lenient compilation only - raised after all other fields validated
+	private final PrototypeException wildcardError;
+
+	FieldsNode( FieldNode[] _fields, Set<?> _prototypeKeys, boolean _hasWildcard, FieldNode _wildcard, PrototypeException _wildcardError, boolean _errorOnUnspecifiedKeys, boolean _removeUnspecifiedKeys, boolean _removeKeysWhenValueEmpty, Condition.Pool _conditions ) {
+		fields = _fields;
+		prototypeKeys = _prototypeKeys;
+		hasWildcard = _hasWildcard;
+		wildcard = _wildcard;
+		wildcardError = _wildcardError;
+		errorOnUnspecifiedKeys = _errorOnUnspecifiedKeys;
+		removeUnspecifiedKeys = _removeUnspecifiedKeys;
+		removeKeysWhenValueEmpty = _removeKeysWhenValueEmpty;
+		conditions = _conditions;
+
+		fieldIndex = new HashMap<String, Integer>();
+		for ( int i = 0; i < _fields.length; i++ ) {
+			if ( _fields[i].getName() != null )
+				fieldIndex.put( _fields[i].getName(), i );
+		}
+	}
+
+	FieldNode[] getFields() {
+		return fields;
+	}
+
+	FieldNode getWildcard() {
+		return wildcard;
+	}
+
+	/**
+	 * @return See SchemaNode.getConditionReach
+	 */
+	int getConditionReach() {
+		int reach = ( wildcard == null ) ? SchemaNode.NO_CONDITIONS : wildcard.getConditionReach();
+		for ( FieldNode field : fields )
+			reach = Math.max( reach, field.getConditionReach() );
+		return reach;
+	}
+
+	boolean validate( ValidationContext _ctx, JSONBlock _struct, StructOutput _testBuild ) throws PrototypeException {
+
+		Map<?, ?> jsonMap = (Map<?, ?>) _struct.getBlock();
+
+		// The json does not change while its fields are validated, so neither do the conditions
+		byte[] conditionResults = conditions.newResults();
+		byte[] ancestorResults = conditions.ancestorResults( _struct );
+
+		if ( _ctx.parallelThreshold > 0 && jsonMap.size() >= _ctx.parallelThreshold && wildcardError == null ) {
+			// Fields and wildcard keys only read the json, so they can be validated side by side
+			if ( !validateParallel( _ctx, _struct, jsonMap, conditionResults, ancestorResults, _testBuild ) )
+				return false;
+		} else {
+			// Cycle through all of the fields...
+			for ( FieldNode field : fields ) {
+				if ( !field.validate( _ctx, _struct, conditionResults, ancestorResults, _testBuild ) )
+					return false;
+			}
+
+			// If wildcard was present evaluate other fields
+			if ( hasWildcard ) {
+				if ( wildcardError != null )
+					throw wildcardError;
+
+				// Loop only through the fields we have not yet examined.
+				for ( Map.Entry<?, ?> entry : jsonMap.entrySet() ) {
+					Object jsonField = entry.getKey();
+					if ( prototypeKeys.contains( jsonField ) )
+						continue;
+
+					// Error on null unless we are removing unspecified keys
+					if ( jsonField == null )
+						return _ctx.fail( FailureCode.NULL_KEY );
+
+					if ( !wildcard.validateValue( _ctx, _struct, jsonField.toString(), entry.getValue(), _testBuild ) )
+						return false;
+				}
+			}
+		}
+
+		// Without a wildcard clear other fields if removeUnspecifiedkeys set
+		if ( hasWildcard ) {
+			return true;
+		} else if ( errorOnUnspecifiedKeys ) {
+
+			// Confirm that there were no unspecified keys - this only happens if there was no wildcard
+			for ( Object jsonField : jsonMap.keySet() ) {
+				if ( !prototypeKeys.contains( jsonField ) )
+					return _ctx.fail( FailureCode.UNEXPECTED_FIELD, jsonField );
+			}
+		} else if ( !removeUnspecifiedKeys && _testBuild != null ) {
+
+			// Add the unspecified keys
+			_testBuild.putUnspecified( removeKeysWhenValueEmpty );
+		}
+
+		return true;
+	}
+
+	/**
+	 * Validates the fields and then the keys for the wildcard as fork-join subtasks, with the same
+	 * outcome as validating them one after another.
+	 */
+	private boolean validateParallel( ValidationContext _ctx, final JSONBlock _struct, Map<?, ?> _jsonMap, final byte[] _conditionResults, final byte[] _ancestorResults, StructOutput _testBuild ) throws PrototypeException {
+		final Map.Entry<?, ?>[] wildcardEntries;
+		if ( hasWildcard ) {
+			List<Map.Entry<?, ?>> entries = new ArrayList<Map.Entry<?, ?>>();
+			for ( Map.Entry<?, ?> entry : _jsonMap.entrySet() ) {
+				if ( !prototypeKeys.contains( entry.getKey() ) )
+					entries.add( entry );
+			}
+			wildcardEntries = entries.toArray( new Map.Entry<?, ?>[entries.size()] );
+		} else
+			wildcardEntries = new Map.Entry<?, ?>[0];
+
+		ParallelValidation parallel = new ParallelValidation( _ctx, true ) {
+
+			@Override
+			boolean validate( ValidationContext _fieldCtx, StructOutput _fieldBuild, int _index ) throws PrototypeException {
+				if ( _index < fields.length )
+					return fields[_index].validate( _fieldCtx, _struct, _conditionResults, _ancestorResults, _fieldBuild );
+
+				Map.Entry<?, ?> entry = wildcardEntries[_index - fields.length];
+				if ( entry.getKey() == null )
+					return _fieldCtx.fail( FailureCode.NULL_KEY );
+				return wildcard.validateValue( _fieldCtx, _struct, entry.getKey().toString(), entry.getValue(), _fieldBuild );
+			}
+		};
+		if ( parallel.run( fields.length + wildcardEntries.length ) >= 0 )
+			return false;
+		if ( _testBuild != null )
+			parallel.putFields( _testBuild );
+		return true;
+	}
+
+	/**
+	 * Streaming counterpart of validate, _tokens is just past the start of the struct. Fields are
+	 * validated in the order they appear in the json. Values of unspecified keys are not looked into:
+	 * they are skipped, or read with readRaw() when they are kept in the output.
+	 */
+	boolean validateStream( ValidationContext _ctx, JSONTokenizer _tokens, JSONBlock _struct, StructOutput _testBuild ) throws PrototypeException, JSONValidatorException {
+		boolean[] found = new boolean[fields.length];
+		boolean keepUnspecified = _testBuild != null && !hasWildcard && !errorOnUnspecifiedKeys && !removeUnspecifiedKeys;
+
+		while ( _tokens.next() == JSONTokenizer.Token.FIELD_NAME ) {
+			String jsonField = _tokens.getString();
+			Integer i = fieldIndex.get( jsonField );
+			if ( i != null ) {
+				found[i] = true;
+				if ( !fields[i].validateStream( _ctx, _tokens, _struct, _testBuild ) )
+					return false;
+
+				// A value the field left out comes back with the unspecified keys, as in validate
+				if ( keepUnspecified && !_testBuild.contains( jsonField ) && FieldNode.isBlockAllowed( _ctx.output, removeKeysWhenValueEmpty ) )
+					_testBuild.put( jsonField, _ctx.output );
+			} else if ( prototypeKeys.contains( jsonField ) ) {
+				_tokens.skipValue();
+			} else if ( hasWildcard ) {
+				if ( wildcardError != null )
+					throw wildcardError;
+				if ( !wildcard.validateStreamValue( _ctx, _tokens, _struct, jsonField, _testBuild ) )
+					return false;
+			} else if ( errorOnUnspecifiedKeys ) {
+				return _ctx.fail( FailureCode.UNEXPECTED_FIELD, jsonField );
+			} else if ( keepUnspecified ) {
+				Object value = _tokens.readRaw();
+				if ( FieldNode.isBlockAllowed( value, removeKeysWhenValueEmpty ) )
+					_testBuild.put( jsonField, value );
+			} else {
+				_tokens.skipValue();
+			}
+		}
+
+		for ( int i = 0; i < fields.length; i++ ) {
+			if ( !found[i] && !fields[i].validateStreamMissing( _ctx, _testBuild ) )
+				return false;
+		}
+
+		if ( hasWildcard && wildcardError != null )
+			throw wildcardError;
+		return true;
+	}
+
+}
@@ -0,0 +1,260 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parser of the fixed width ISO-8601 form of a date pattern, such as yyyy-MM-dd'T'HH:mm:ss.SSSZ,
+ * that reads the digits straight from the text and computes the epoch millis arithmetically.
+ * Nothing is allocated unless the default time zone has daylight saving time.
+ *
+ * Only text of exactly the shape of the pattern, that SimpleDateFormat reads as the same instant,
+ * is parsed here. Everything else, like a month without its leading zero, a year before the
+ * Gregorian calendar of SimpleDateFormat or a time at a daylight saving time transition, is left to
+ * the SimpleDateFormat of the DateParser, which also decides whether it is a date at all.
+ */
+final class IsoDate {
+
+	/** Returned by parse() for text that is not of the shape of the pattern. */
+	static final long NO_MATCH = Long.MIN_VALUE;
+
+	// Days from 0000-01-01 to 1970-01-01
+	private static final long DAYS_0000_TO_1970 = 719528;
+
+	// SimpleDateFormat takes earlier dates in the Julian calendar
+	private static final int FIRST_GREGORIAN_YEAR = 1583;
+
+	private static final Pattern ISO_PATTERN = Pattern.compile( "yyyy-MM-dd(?:('T'| )HH:mm(:ss(\\.SSS)?)?(Z|X{1,3}|'Z')?)?" );
+
+	private static final int NO_OFFSET = 0, RFC_822 = 1, ISO_HOURS = 2, ISO_BASIC = 3, ISO_EXTENDED = 4;
+
+	private final char separator;
+	private final boolean hasTime, hasSeconds, hasMillis, literalZ;
+	private final int offsetStyle;
+	private final int length;
+
+	// Used when the text has no offset
+	private final ZoneRules rules;
+	private final long fixedOffsetSeconds;
+	private final boolean fixedOffset;
+
+	private IsoDate( char _separator, boolean _hasTime, boolean _hasSeconds, boolean _hasMillis, boolean _literalZ, int _offsetStyle, ZoneId _zone ) {
+		separator = _separator;
+		hasTime = _hasTime;
+		hasSeconds = _hasSeconds;
+		hasMillis = _hasMillis;
+		literalZ = _literalZ;
+		offsetStyle = _offsetStyle;
+		length = 10 + ( _hasTime ? 6 : 0 ) + ( _hasSeconds ? 3 : 0 ) + ( _hasMillis ? 4 : 0 ) + ( _literalZ ? 1 : 0 );
+		rules = _zone.getRules();
+		fixedOffset = rules.isFixedOffset();
+		fixedOffsetSeconds = fixedOffset ? rules.getOffset( Instant.EPOCH ).getTotalSeconds() : 0;
+	}
+
+	/**
+	 * @param _pattern SimpleDateFormat pattern
+	 * @param _zone Time zone of dates without an offset
+	 * @return The parser of the pattern, null if the pattern is not an ISO-8601 pattern it knows
+	 */
+	static IsoDate forPattern( String _pattern, ZoneId _zone ) {
+		Matcher matcher = ISO_PATTERN.matcher( _pattern );
+		if ( !matcher.matches() )
+			return null;
+
+		boolean hasTime = matcher.group( 1 ) != null;
+		char separator = hasTime ? ( ( matcher.group( 1 ).length() == 1 ) ? ' ' : 'T' ) : 0;
+		String offset = matcher.group( 4 );
+		// A quoted 'Z' is only a letter, the date is still in the default time zone
+		boolean literalZ = "'Z'".equals( offset );
+		int offsetStyle;
+		if ( offset == null || literalZ )
+			offsetStyle = NO_OFFSET;
+		else if ( offset.equals( "Z" ) )
+			offsetStyle = RFC_822;
+		else
+			offsetStyle = ISO_HOURS + offset.length() - 1;
+		return new IsoDate( separator, hasTime, matcher.group( 2 ) != null, matcher.group( 3 ) != null, literalZ, offsetStyle, _zone );
+	}
+
+	/**
+	 * @return Milliseconds since the epoch, NO_MATCH if _text is not of the shape of the pattern or
+	 *         not a valid date
+	 */
+	long parse( CharSequence _text ) {
+		int from = 0;
+		int to = _text.length();
+		while ( from < to && _text.charAt( from ) <= ' ' )
+			from++;
+		while ( to > from && _text.charAt( to - 1 ) <= ' ' )
+			to--;
+		if ( to - from < length )
+			return NO_MATCH;
+
+		int year = digits( _text, from, 4 );
+		int month = digits( _text, from + 5, 2 );
+		int day = digits( _text, from + 8, 2 );
+		if ( year < FIRST_GREGORIAN_YEAR || month < 1 || month > 12 || day < 1 || day > lengthOfMonth( year, month ) || _text.charAt( from + 4 ) != '-' || _text.charAt( from + 7 ) != '-' )
+			return NO_MATCH;
+
+		int hour = 0, minute = 0, second = 0, millis = 0;
+		int i = from + 10;
+		if ( hasTime ) {
+			if ( _text.charAt( i ) != separator || _text.charAt( i + 3 ) != ':' )
+				return NO_MATCH;
+			hour = digits( _text, i + 1, 2 );
+			minute = digits( _text, i + 4, 2 );
+			i += 6;
+			if ( hasSeconds ) {
+				if ( _text.charAt( i ) != ':' )
+					return NO_MATCH;
+				second = digits( _text, i + 1, 2 );
+				i += 3;
+			}
+			if ( hasMillis ) {
+				if ( _text.charAt( i ) != '.' )
+					return NO_MATCH;
+				millis = digits( _text, i + 1, 3 );
+				i += 4;
+			}
+			if ( hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0 )
+				return NO_MATCH;
+		}
+
+		long seconds = ( epochDay( year, month, day ) * 86400 ) + hour * 3600 + minute * 60 + second;
+		if ( offsetStyle == NO_OFFSET ) {
+			if ( literalZ && _text.charAt( i++ ) != 'Z' )
+				return NO_MATCH;
+			if ( i != to )
+				return NO_MATCH;
+			if ( !fixedOffset ) {
+				// SimpleDateFormat rejects a time in a gap and reads one in an overlap as standard time
+				LocalDateTime local = LocalDateTime.of( year, month, day, hour, minute, second );
+				if ( rules.getTransition( local ) != null )
+					return NO_MATCH;
+				return ( seconds - rules.getOffset( local ).getTotalSeconds() ) * 1000 + millis;
+			}
+			return ( seconds - fixedOffsetSeconds ) * 1000 + millis;
+		}
+
+		int offset = offset( _text, i, to );
+		if ( offset == Integer.MIN_VALUE )
+			return NO_MATCH;
+		return ( seconds - offset ) * 1000 + millis;
+	}
+
+	/**
+	 * @param _i Start of the offset
+	 * @param _to End of the text, where the offset has to end
+	 * @return The offset in seconds, Integer.MIN_VALUE if it is not of the style of the pattern
+	 */
+	private int offset( CharSequence _text, int _i, int _to ) {
+		int length = _to - _i;
+		if ( length == 1 && _text.charAt( _i ) == 'Z' && offsetStyle != RFC_822 )
+			return 0;
+
+		boolean colon;
+		if ( offsetStyle == ISO_HOURS && length == 3 )
+			colon = false;
+		else if ( offsetStyle == ISO_EXTENDED && length == 6 )
+			colon = true;
+		else if ( ( offsetStyle == RFC_822 || offsetStyle == ISO_BASIC ) && length == 5 )
+			colon = false;
+		else
+			return Integer.MIN_VALUE;
+
+		char sign = _text.charAt( _i );
+		if ( sign != '+' && sign != '-' )
+			return Integer.MIN_VALUE;
+		int hours = digits( _text, _i + 1, 2 );
+		int minutes = 0;
+		if ( length > 3 ) {
+			if ( colon && _text.charAt( _i + 3 ) != ':' )
+				return Integer.MIN_VALUE;
+			minutes = digits( _text, _i + ( colon ? 4 : 3 ), 2 );
+		}
+		if ( hours < 0 || hours > 18 || minutes < 0 || minutes > 59 )
+			return Integer.MIN_VALUE;
+		int offset = hours * 3600 + minutes * 60;
+		if ( offset > ZoneOffset.MAX.getTotalSeconds() )
+			return Integer.MIN_VALUE;
+		return ( sign == '-' ) ? -offset : offset;
+	}
+
+	/**
+	 * @return The value of _count decimal digits at _i, -1 if one of them is not a digit
+	 */
+	private static int digits( CharSequence _text, int _i, int _count ) {
+		int value = 0;
+		for ( int i = _i; i < _i + _count; i++ ) {
+			int digit = _text.charAt( i ) - '0';
+			if ( digit < 0 || digit > 9 )
+				return -1;
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static int lengthOfMonth( int _year, int _month ) {
+		switch ( _month ) {
+			case 2:
+				return isLeapYear( _year ) ? 29 : 28;
+			case 4:
+			case 6:
+			case 9:
+			case 11:
+				return 30;
+			default:
+				return 31;
+		}
+	}
+
+	private static boolean isLeapYear( int _year ) {
+		return ( _year & 3 ) == 0 && ( _year % 100 != 0 || _year % 400 == 0 );
+	}
+
+	/**
+	 * @return Days since 1970-01-01 of a date in the proleptic Gregorian calendar, for years 0 to
+	 *         9999
+	 */
+	private static long epochDay( int _year, int _month, int _day ) {
+		long total = 365L * _year + ( _year + 3 ) / 4 - ( _year + 99 ) / 100 + ( _year + 399 ) / 400;
+		total += ( 367 * _month - 362 ) / 12;
+		total += _day - 1;
+		if ( _month > 2 ) {
+			total--;
+			if ( !isLeapYear( _year ) )
+				total--;
+		}
+		return total - DAYS_0000_TO_1970;
+	}
+
+}
@@ -29,6 +29,11 @@ public class JSONBlock {
 	private JSONBlock parent = null;
 	
 	private Object block;
+
+	private int depth = 0;
+
+	// Results of conditions on the ancestors of the structs in this list, see Condition.Pool
+	private Condition.Results conditionResults;
 	
 	public JSONBlock() {
 		block = null;
@@ -41,10 +46,13 @@ public class JSONBlock {
 	public JSONBlock(Object _block, JSONBlock _parent) {
 		this(_block);
 		parent = _parent;
+		if (parent != null)
+			depth = parent.depth + 1;
 	}
 	
 	public void putBlock(Object _o) {
 		block = _o;
+		conditionResults = null;
 	}
 	
 	public Object getBlock() {
@@ -56,9 +64,14 @@ public class JSONBlock {
 	}
 	
 	public int getDepth() {
-		if (parent != null)
-			return (parent.getDepth()) + 1;
-		else
-			return 0;
+		return depth;
+	}
+
+	Condition.Results getConditionResults() {
+		return conditionResults;
+	}
+
+	void setConditionResults(Condition.Results _conditionResults) {
+		conditionResults = _conditionResults;
 	}
 }
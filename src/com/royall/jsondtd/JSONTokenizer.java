@@ -0,0 +1,194 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+
+/**
+ * Pull tokenizer for json text. Only the state of the open containers is kept, so memory grows with
+ * the nesting depth of the json and not with its size.
+ *
+ * Objects are read as HashMaps, arrays as ArrayLists, integral numbers as Integer, Long or
+ * BigInteger depending on their size and all other numbers as Double.
+ */
+abstract class JSONTokenizer {
+
+	enum Token {
+		START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, FIELD_NAME, STRING, NUMBER, TRUE, FALSE, NULL, END
+	}
+
+	// What is expected next within the innermost open container
+	static final byte ROOT = 0, ROOT_DONE = 1, ARRAY_FIRST = 2, ARRAY_NEXT = 3, OBJECT_FIRST = 4, OBJECT_NEXT = 5, OBJECT_VALUE = 6;
+
+	byte[] states = new byte[32];
+	int depth = 0;
+
+	private Token peeked = null;
+
+	/**
+	 * @return The next token, END once the json was read completely
+	 */
+	Token next() throws JSONValidatorException {
+		if ( peeked != null ) {
+			Token token = peeked;
+			peeked = null;
+			return token;
+		}
+		return readToken();
+	}
+
+	/**
+	 * @return The next token without consuming it
+	 */
+	Token peek() throws JSONValidatorException {
+		if ( peeked == null )
+			peeked = readToken();
+		return peeked;
+	}
+
+	/**
+	 * @return Text of the last FIELD_NAME or STRING token
+	 */
+	abstract String getString() throws JSONValidatorException;
+
+	/**
+	 * @return Value of the last NUMBER token
+	 */
+	abstract Number getNumber() throws JSONValidatorException;
+
+	abstract Token readToken() throws JSONValidatorException;
+
+	/**
+	 * @return Exception for malformed json at the current position
+	 */
+	abstract JSONValidatorException syntax( String _message );
+
+	/**
+	 * Reads the next value completely, building Maps and Lists for objects and arrays.
+	 */
+	Object readValue() throws JSONValidatorException {
+		switch ( next() ) {
+			case START_OBJECT:
+				Map<String, Object> map = new HashMap<String, Object>();
+				while ( next() == Token.FIELD_NAME ) {
+					String field = getString();
+					map.put( field, readValue() );
+				}
+				return map;
+			case START_ARRAY:
+				List<Object> list = new ArrayList<Object>();
+				while ( peek() != Token.END_ARRAY )
+					list.add( readValue() );
+				next();
+				return list;
+			case STRING:
+				return getString();
+			case NUMBER:
+				return getNumber();
+			case TRUE:
+				return Boolean.TRUE;
+			case FALSE:
+				return Boolean.FALSE;
+			case NULL:
+				return null;
+			default:
+				throw syntax( "Expected a value" );
+		}
+	}
+
+	/**
+	 * Reads the next value for output that nothing looks into. By default this is readValue(),
+	 * tokenizers that can refer to the json text return containers as RawJson instead.
+	 */
+	Object readRaw() throws JSONValidatorException {
+		return readValue();
+	}
+
+	/**
+	 * Reads past the next value without keeping it.
+	 */
+	void skipValue() throws JSONValidatorException {
+		Token token = next();
+		if ( token != Token.START_OBJECT && token != Token.START_ARRAY )
+			return;
+		int level = 1;
+		while ( level > 0 ) {
+			token = next();
+			if ( token == Token.START_OBJECT || token == Token.START_ARRAY )
+				level++;
+			else if ( token == Token.END_OBJECT || token == Token.END_ARRAY )
+				level--;
+		}
+	}
+
+	/**
+	 * Confirms that nothing but whitespace follows the json.
+	 */
+	void finish() throws JSONValidatorException {
+		if ( next() != Token.END )
+			throw syntax( "Expected the end of the json" );
+	}
+
+	void open( byte _state ) {
+		if ( ++depth == states.length ) {
+			byte[] grown = new byte[depth * 2];
+			System.arraycopy( states, 0, grown, 0, depth );
+			states = grown;
+		}
+		states[depth] = _state;
+	}
+
+	Token close( Token _token ) {
+		depth--;
+		return _token;
+	}
+
+	/**
+	 * @param _digits Text of a number that follows the json grammar
+	 */
+	static Number toNumber( String _digits, boolean _integral ) {
+		if ( !_integral )
+			return Double.valueOf( _digits );
+		if ( _digits.length() < 19 )
+			return toNumber( Long.parseLong( _digits ) );
+		BigInteger value = new BigInteger( _digits );
+		if ( value.bitLength() < 64 )
+			return Long.valueOf( value.longValue() );
+		return value;
+	}
+
+	static Number toNumber( long _value ) {
+		if ( _value >= Integer.MIN_VALUE && _value <= Integer.MAX_VALUE )
+			return Integer.valueOf( (int) _value );
+		return Long.valueOf( _value );
+	}
+
+}
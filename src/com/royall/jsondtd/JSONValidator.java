@@ -24,24 +24,27 @@
  */
 package com.royall.jsondtd;
 
-import java.lang.reflect.Method;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import com.royall.jsondtd.exceptions.JSONValidatorException;
 import com.royall.jsondtd.exceptions.PrototypeException;
-import com.royall.jsondtd.util.DateUtil;
 
 public class JSONValidator {
 
-	private String failMessage = null;
-	private Object returnJson = null;
+	private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+	private ValidationResult lastResult = null;
 
 	public final static String KEY_TYPE = "type";
 	public final static String KEY_CLASS = "class";
@@ -56,12 +59,15 @@ public class JSONValidator {
 	public final static String KEY_STRING_ERR_ON_EMPTY = "err_on_empty";
 	public final static String KEY_STRING_REMOVE_EMPTY = "remove_empty";
 	public final static String KEY_REGEX = "regex";
+	public final static String KEY_ALLOWLIST = "allowlist";
+	public final static String KEY_ENUM_SOURCE = "enumsource";
 	public final static String KEY_FIELDS = "fields";
 	public final static String KEY_FIELD_DEFINITION = "definition";
 	public final static String KEY_FIELDS_MIN = "min";
 	public final static String KEY_FIELDS_MAX = "max";
 	public final static String KEY_DATE_MUST_BE_AFTER = "after";
 	public final static String KEY_DATE_MUST_BE_BEFORE = "before";
+	public final static String KEY_DATE_PATTERN = "pattern";
 	public final static String KEY_NUM_MIN = "min";
 	public final static String KEY_NUM_MAX = "max";
 	public final static String KEY_ERR_ON = "err_on";
@@ -70,12 +76,25 @@ public class JSONValidator {
 	public final static String KEY_ARRAY_MAX = "max";
 	public final static String KEY_WILDCARD_FIELD = "*";
 
-	private final boolean errorOnUnspecifiedKeys, removeUnspecifiedKeys, removeKeysWhenValueEmpty;
+	private final boolean errorOnUnspecifiedKeys, removeUnspecifiedKeys, removeKeysWhenValueEmpty, checkOnly, copyOnWrite, inPlace;
+
+	private final int parallelThreshold;
+
+	private final int regexStepLimit;
 	
-	private final SimpleDateFormat dateFormat;
+	private final DateParser dateParser;
+
+	// Parsers of the date patterns and compiled regexes of prototypes, so that prototypes passed to
+	// validate() each time do not compile them again
+	private final BoundedCache<DateParser> dateParsers = new BoundedCache<DateParser>( 64 );
+	private final BoundedCache<Regex> regexes = new BoundedCache<Regex>( 512 );
 
 	private Map<String, Map<String, ?>> customTypes = new HashMap<String, Map<String, ?>>();
 
+	private Map<String, Allowlist> allowlists = new HashMap<String, Allowlist>();
+
+	private Map<String, RefreshingEnum> enumSources = new HashMap<String, RefreshingEnum>();
+
 	// Custom HashMap will return a current date if getting the key "now"
 	private Map<String, Object> defaultItems = new HashMap<String, Object>() {
 
@@ -108,7 +127,12 @@ public class JSONValidator {
 	 * 	erroronunspecifiedkeys - Default: false - The json will be considered invalid if any keys are present in a struct that were not specified in the prototype
 	 * 	removeunspecifiedkeys - Default: false - The modified json will have any keys present that were not specified in the prototype removed
 	 *  removekeyswhenvalueempty - Default: false - Keys with empty values will be removed from the modified json. 
-	 *  datepattern - Default: Java default SimpleDateFormat - datemask to be used for converting Strings to Dates
+	 *  datepattern - Default: Java default SimpleDateFormat - datemask to be used for converting Strings to Dates, parsed as a non-lenient SimpleDateFormat would. A date type can set its own with the key "pattern", a pattern or a List of them
+	 *  checkonly - Default: false - Only check the json, no modified json is built and getReturnJson() returns null
+	 *  copyonwrite - Default: false - Maps and Lists of the json that the prototype does not change are part of the modified json as they are, instead of being copied
+	 *  inplace - Default: false - Defaults and removed keys are written to the json itself, which is also the modified json. Nothing is changed unless the json validates
+	 *  parallelthreshold - Default: 0 - Lists and structs with at least this many items are validated as fork-join subtasks, 0 to never do so. Custom classes and normalizers have to be thread safe then
+	 *  regexsteplimit - Default: 0 - Most characters the regex engine may read to match a string against a regex, a string that takes more fails validation. 0 for no limit
 	 */
 	public JSONValidator( Map<String, ?> _options ) {
 		if ( _options == null )
@@ -118,18 +142,23 @@ public class JSONValidator {
 		Object removeUnspecifiedKeys = _options.get( ValidationOptions.RemoveUnspecifiedKeys );
 		Object removeKeysWhenValueEmpty = _options.get( ValidationOptions.RemoveKeysWhenValueEmpty );
 		Object datePattern = _options.get( ValidationOptions.DatePattern );
+		Object checkOnly = _options.get( ValidationOptions.CheckOnly );
+		Object copyOnWrite = _options.get( ValidationOptions.CopyOnWrite );
+		Object inPlace = _options.get( ValidationOptions.InPlace );
+		Object parallelThreshold = _options.get( ValidationOptions.ParallelThreshold );
+		Object regexStepLimit = _options.get( ValidationOptions.RegexStepLimit );
 
 		this.errorOnUnspecifiedKeys = ( errorOnUnspecifiedKeys instanceof Boolean ) && ( (Boolean) errorOnUnspecifiedKeys );
 		this.removeUnspecifiedKeys = ( removeUnspecifiedKeys instanceof Boolean ) && ( (Boolean) removeUnspecifiedKeys );
 		this.removeKeysWhenValueEmpty = ( removeKeysWhenValueEmpty instanceof Boolean ) && ( (Boolean) removeKeysWhenValueEmpty );
+		this.checkOnly = ( checkOnly instanceof Boolean ) && ( (Boolean) checkOnly );
+		this.copyOnWrite = ( copyOnWrite instanceof Boolean ) && ( (Boolean) copyOnWrite );
+		this.inPlace = ( inPlace instanceof Boolean ) && ( (Boolean) inPlace );
+		this.parallelThreshold = ( parallelThreshold instanceof Number ) ? Math.max( ( (Number) parallelThreshold ).intValue(), 0 ) : 0;
+		this.regexStepLimit = ( regexStepLimit instanceof Number ) ? Math.max( ( (Number) regexStepLimit ).intValue(), 0 ) : 0;
 		String datePatternString = ( datePattern != null ) ? datePattern.toString() : null;
 		try {
-			if ( datePatternString != null )
-				this.dateFormat = new SimpleDateFormat( datePatternString );
-			else
-				this.dateFormat = new SimpleDateFormat();
-
-			this.dateFormat.setLenient( false );
+			this.dateParser = DateParser.create( datePatternString );
 		} catch ( IllegalArgumentException e ) {
 			throw new IllegalArgumentException( "Illegal " + ValidationOptions.DatePattern + ": " + e.getMessage() );
 		}
@@ -191,13 +220,56 @@ public class JSONValidator {
 		return new HashMap<String, Object>( this.customTypes );
 	}
 
+	/**
+	 * Allowlists can be referenced by a string type in the prototype with the
+	 * JSONValidator.KEY_ALLOWLIST key.
+	 * 
+	 * @param _name The name the prototype references the allowlist by
+	 * @param _allowlist The allowlist, see Allowlist.map() and Allowlist.offHeap()
+	 */
+	public void addAllowlist( String _name, Allowlist _allowlist ) {
+		allowlists.put( _name, _allowlist );
+	}
+
+	/**
+	 * Enum sources can be referenced by a string type in the prototype with the
+	 * JSONValidator.KEY_ENUM_SOURCE key. The values are loaded once here and again in the background
+	 * on a shared pool of daemon threads once they are older than _timeToLive.
+	 * 
+	 * @param _name The name the prototype references the source by
+	 * @param _source The source of the values
+	 * @param _timeToLive How long the values are used before they are loaded again
+	 * @param _unit The unit of _timeToLive
+	 * @throws JSONValidatorException If the source fails to load
+	 */
+	public void addEnumSource( String _name, EnumSource _source, long _timeToLive, TimeUnit _unit ) throws JSONValidatorException {
+		addEnumSource( _name, _source, _timeToLive, _unit, null );
+	}
+
+	/**
+	 * Enum sources can be referenced by a string type in the prototype with the
+	 * JSONValidator.KEY_ENUM_SOURCE key. The values are loaded once here and again by _executor once
+	 * they are older than _timeToLive.
+	 * 
+	 * @param _name The name the prototype references the source by
+	 * @param _source The source of the values
+	 * @param _timeToLive How long the values are used before they are loaded again
+	 * @param _unit The unit of _timeToLive
+	 * @param _executor Runs the reloads
+	 * @throws JSONValidatorException If the source fails to load
+	 */
+	public void addEnumSource( String _name, EnumSource _source, long _timeToLive, TimeUnit _unit, Executor _executor ) throws JSONValidatorException {
+		enumSources.put( _name, new RefreshingEnum( _name, _source, _unit.toNanos( _timeToLive ), _executor ) );
+	}
+
 	/**
 	 * Returns the fail message for the last validation test. Null if validation passed.
 	 * 
 	 * @return Validation fail message, or null if passed.
 	 */
 	public String getFailMessage() {
-		return failMessage;
+		ValidationResult result = lastResult;
+		return ( result == null ) ? null : result.getFailMessage();
 	}
 
 	/**
@@ -206,7 +278,29 @@ public class JSONValidator {
 	 * @return The json modified by changes defined within the prototype
 	 */
 	public Object getReturnJson() {
-		return returnJson;
+		ValidationResult result = lastResult;
+		return ( result == null ) ? null : result.getReturnJson();
+	}
+
+	/**
+	 * Checks the prototype once and compiles it into an immutable CompiledSchema that can be validated
+	 * against any number of times, from any number of threads.
+	 * 
+	 * The options of this validator and the custom types, allowlists and enum sources added so far
+	 * are captured by the schema. The schema sees the values an enum source loads later on.
+	 * 
+	 * @param _prototype The deserialized prototype/definition
+	 * @return The compiled prototype
+	 * @throws PrototypeException On invalid Prototype
+	 */
+	public CompiledSchema compile( Map<String, ?> _prototype ) throws PrototypeException {
+		if ( _prototype == null )
+			throw new PrototypeException( "_prototype cannot be null" );
+		return newCompiler( true ).compile( _prototype );
+	}
+
+	private SchemaCompiler newCompiler( boolean _strict ) {
+		return new SchemaCompiler( _strict, errorOnUnspecifiedKeys, removeUnspecifiedKeys, removeKeysWhenValueEmpty, dateParser, dateParsers, regexes, regexStepLimit, new HashMap<String, Map<String, ?>>( customTypes ), new HashMap<String, Allowlist>( allowlists ), new HashMap<String, RefreshingEnum>( enumSources ) );
 	}
 
 	/**
@@ -221,7 +315,12 @@ public class JSONValidator {
 	 * This method is thread safe in that multiple threads can call this method on the instance 
 	 * and expect correct true/false return indicating whether the json is valid. 
 	 * However, the getFailMessage() and getReturnJson() calls will only reflect 
-	 * the results of the last thread to complete the validate() method.
+	 * the results of the last thread to complete the validate() method. Use validateWithResult()
+	 * to get the fail message and modified json of a call from any thread.
+	 * 
+	 * The prototype is compiled on every call, errors in the prototype are only reported once the
+	 * json reaches them. Use compile() and validate(Object, CompiledSchema) to validate many documents
+	 * against the same prototype.
 	 * 
 	 * @param _json The deserialized JSON to validated. This object will not be modified by the validate() method.
 	 * @param _prototype The deserialized prototype/definition
@@ -231,716 +330,287 @@ public class JSONValidator {
 	public boolean validate( Object _json, Map<String, ?> _prototype ) throws JSONValidatorException, PrototypeException {
 
 		// Reset fail message
-		failMessage = null;
-		returnJson = null;
-
-		JSONBlock testBuild = new JSONBlock();
-		try {
-			boolean result = validateBlock( new JSONBlock( _json ), _prototype, testBuild );
-			returnJson = testBuild.getBlock();
-			return result;
-		} catch ( PrototypeException e ) {
-			throw e;
-		} catch ( Exception e ) {
-			throw new JSONValidatorException( e.getMessage(), e );
-		}
-
-	}
+		lastResult = null;
 
-	// Main Block Handler that will be called for Document and every SubDocument
-	private boolean validateBlock( JSONBlock _json, Map<?, ?> _prototype, JSONBlock _testBuild ) throws PrototypeException {
-		if ( _prototype.get( KEY_CLASS ) != null ) {
-			return handleClass( _json, _prototype, _testBuild );
-		} else if ( _prototype.get( KEY_TYPE ) != null ) {
-			return handleType( _json, _prototype, _testBuild );
-		} else if ( _prototype.get( KEY_CUSTOM ) != null ) {
-			return handleCustom( _json, _prototype, _testBuild );
-		} else
-			throw new PrototypeException( "'" + KEY_TYPE + "' or '" + KEY_CLASS + "' is required for each level in prototype." );
+		return keepResult( validateWithResult( _json, _prototype ) );
 	}
 
-	private boolean handleClass( JSONBlock _json, Map<?, ?> _prototype, JSONBlock _testBuild ) throws PrototypeException {
-		String classExpectedValue = _prototype.get( KEY_CLASS ).toString();
-
-		String classFound;
-		Object json;
-		if ( ( json = _json.getBlock() ) == null ) {
-			classFound = "null";
-		} else {
-			classFound = json.getClass().getName();
-		}
-
-		// Check for valid class
-		List<String> classExpectedList = Arrays.asList( classExpectedValue.split( "\\s*,\\s*" ) );
-		boolean classCompare = false;
-		for ( String classExpected : classExpectedList ) {
-			if ( checkClass( classExpected, classFound ) )
-				classCompare = true;
-		}
-		if ( !classCompare ) {
-			failMessage = " Expected Class (" + classExpectedValue + ") found Class (" + classFound + ")";
-			return false;
-		}
-
-		// Evaluate Type
-		if ( _prototype.get( KEY_TYPE ) != null ) {
-			// Normalize
-			Object normalize = _prototype.get( KEY_NORMALIZE );
-			Class<?> c = null;
-			Object instance = null;
-			if ( normalize != null ) {
-
-				try {
-					if ( normalize instanceof Class )
-						c = (Class<?>)normalize;
-					else
-						c = Class.forName( normalize.toString() );
-					Method m = c.getDeclaredMethod( KEY_NORMALIZE, Object.class );
-					instance = Class.forName( normalize.toString() ).newInstance();
-					json = m.invoke( instance, json );
-				} catch ( Exception e ) {
-					throw new PrototypeException( "Failed to invoke " + normalize.toString() + "." + KEY_NORMALIZE + "(Object _jsonValue) due to " + e.getClass().getName() + ": " + e.getMessage(), e );
-				}
-			}
-
-			// Evaluate the normalized Object by the type property
-			boolean typeResult = handleType( new JSONBlock( json, _json.getParent() ), _prototype, _testBuild );
-			if ( !typeResult )
-				return typeResult;
-
-			// Now denormalize and save
-			Object denormalize = _prototype.get( KEY_DENORMALIZE );
-			if ( denormalize != null && !( denormalize instanceof Boolean ) )
-				throw new PrototypeException( "Key " + KEY_DENORMALIZE + " should be a boolean." );
-			if ( normalize != null && denormalize instanceof Boolean && (Boolean) denormalize ) {
-				try {
-					Method m = c.getDeclaredMethod( KEY_DENORMALIZE, Object.class );
-					json = m.invoke( instance, _testBuild.getBlock() );
-				} catch ( Exception e ) {
-					throw new PrototypeException( "Failed to invoke " + normalize.toString() + "." + KEY_DENORMALIZE + "(Object _jsonValue) due to " + e.getClass().getName() + ": " + e.getMessage(), e );
-				}
-			} else {
-				json = _testBuild.getBlock();
-			}
-		}
-
-		_testBuild.putBlock( json );
-
-		return true;
-	}
-
-	private boolean handleType( JSONBlock _json, Map<?, ?> _prototype, JSONBlock _testBuild ) throws PrototypeException {
-		String type = _prototype.get( KEY_TYPE ).toString();
-		if ( type.equalsIgnoreCase( "string" ) )
-			return handleStringType( _json.getBlock(), _prototype, _testBuild );
-		else if ( type.equalsIgnoreCase( "number" ) || type.equalsIgnoreCase( "numeric" ) )
-			return handleNumberType( _json.getBlock(), _prototype, _testBuild );
-		else if ( type.equalsIgnoreCase( "boolean" ) || type.equalsIgnoreCase( "bool" ) )
-			return handleBooleanType( _json.getBlock(), _prototype, _testBuild );
-		else if ( type.equalsIgnoreCase( "simple" ) )
-			return handleSimpleType( _json.getBlock(), _prototype, _testBuild );
-		else if ( type.equalsIgnoreCase( "struct" ) )
-			return handleStructType( _json, _prototype, _testBuild );
-		else if ( type.equalsIgnoreCase( "array" ) || type.equalsIgnoreCase( "list" ) )
-			return handleArrayType( _json, _prototype, _testBuild );
-		else if ( type.equalsIgnoreCase( "date" ) )
-			return handleDateType( _json.getBlock(), _prototype, _testBuild );
-		else if ( type.equalsIgnoreCase( "null" ) )
-			return handleNullType( _json.getBlock(), _prototype, _testBuild );
-		else if ( type.equalsIgnoreCase( "any" ) )
-			return handleAnyType( _json.getBlock(), _prototype, _testBuild );
-		else
-			throw new PrototypeException( "Type '" + type + "' was not recognized" ); // type not
-																																								// recognized
-	}
-
-	private boolean handleCustom( JSONBlock _json, Map<?, ?> _prototype, JSONBlock _testBuild ) throws PrototypeException {
-		String customType = _prototype.get( KEY_CUSTOM ).toString();
-
-		if ( customTypes.get( customType ) instanceof Map )
-			return handleType( _json, (Map<?, ?>) customTypes.get( customType ), _testBuild );
-		else
-			throw new PrototypeException( "Custom type '" + customType + "' has not been defined." );
-	}
-
-	private boolean handleArrayType( JSONBlock _json, Map<?, ?> _prototype, JSONBlock _testBuild ) throws PrototypeException {
-		if ( !checkNull( _json.getBlock(), false ) )
-			return false;
-
-		if ( !( _json.getBlock() instanceof List ) ) {
-			failMessage = " Expected " + List.class.getName() + " found " + _json.getBlock().getClass().getName();
-			return false;
-		}
-		// expected list...
-
-		List<?> jsonList = (List<?>) _json.getBlock();
-
-		// Min elements in array
-		if ( _prototype.containsKey( KEY_ARRAY_MIN ) ) {
-			Object o = _prototype.get( KEY_ARRAY_MIN );
-			if ( o != null ) {
-				if ( !( o instanceof Integer ) )
-					throw new PrototypeException( "Array min must be an Integer" );
-				int min = (Integer) o;
-				if ( jsonList.size() < min ) {
-					failMessage = " Min Array Length " + min + " Actual " + jsonList.size();
-					return false;
-				}
-			}
-		}
-
-		// Max elements in array
-		if ( _prototype.containsKey( KEY_ARRAY_MAX ) ) {
-			Object o = _prototype.get( KEY_ARRAY_MAX );
-			if ( o != null ) {
-				if ( !( o instanceof Integer ) )
-					throw new PrototypeException( "Array max must be an Integer" );
-				int max = (Integer) o;
-				if ( jsonList.size() > max ) {
-					failMessage = " Max Array Length " + max + " Actual " + jsonList.size();
-					return false;
-				}
-			}
-		}
-
-		// Get children map
-		Object childrenObject = _prototype.get( KEY_CHILDREN );
-		if ( childrenObject == null )
-			throw new PrototypeException( "'" + KEY_CHILDREN + "' key required for Type List" );
-		if ( !( childrenObject instanceof Map ) )
-			throw new PrototypeException( "'" + KEY_CHILDREN + "' key of type: list must be a Map" );
-		Map<?, ?> childrenMap = (Map<?, ?>) childrenObject;
-
-		List<Object> testBuildList = new ArrayList<Object>();
-
-		int i = 0;
-		for ( Object jsonObject : jsonList ) {
-			JSONBlock testBuild = new JSONBlock();
-			if ( !validateBlock( new JSONBlock( jsonObject, _json ), childrenMap, testBuild ) ) {
-				failMessage = "[" + i + "]" + failMessage;
-				return false;
-			} else {
-				testBuildList.add( testBuild.getBlock() );
-			}
-			i++;
-		}
+	/**
+	 * Validates the parsed json against a prototype compiled by compile().
+	 * 
+	 * Behaves like validate(Object, Map): the json is not modified, the cause of a failure is
+	 * available from getFailMessage() and the modified json from getReturnJson().
+	 * 
+	 * @param _json The deserialized JSON to validated. This object will not be modified by the validate() method.
+	 * @param _schema The compiled prototype
+	 * @return true if the json is valid as per the prototype definition
+	 * @throws PrototypeException On invalid Prototype
+	 */
+	public boolean validate( Object _json, CompiledSchema _schema ) throws JSONValidatorException, PrototypeException {
 
-		_testBuild.putBlock( testBuildList );
+		// Reset fail message
+		lastResult = null;
 
-		return true;
+		return keepResult( validateWithResult( _json, _schema ) );
 	}
 
-	private boolean handleStructType( JSONBlock _json, Map<?, ?> _prototype, JSONBlock _testBuild ) throws PrototypeException {
-		if ( !checkNull( _json.getBlock(), false ) )
-			return false;
-
-		if ( !( _json.getBlock() instanceof Map ) ) {
-			failMessage = " Expected Type " + Map.class.getName() + " Found Type " + _json.getBlock().getClass().getName();
-			return false;
-		}
-		// expected map etc...
-
-		// Get Fields array
-		Object fieldsObject = _prototype.get( KEY_FIELDS );
-
-		// fields is required
-		if ( fieldsObject == null )
-			throw new PrototypeException( "'" + KEY_FIELDS + "' key required for Type struct" );
-
-		if ( !( fieldsObject instanceof List ) && !( fieldsObject instanceof Map ) )
-			throw new PrototypeException( "Fields key of type: Struct must be a List or Map" );
-
-		if ( fieldsObject instanceof Map ) {
-			Map<String, Object> testBuild = new HashMap<String, Object>();
-			if ( handleFields( _json, (Map<?, ?>) fieldsObject, testBuild ) ) {
-				_testBuild.putBlock( testBuild );
-				return true;
-			} else {
-				return false;
-			}
-		}
-
-		List<?> fields = (List<?>) fieldsObject;
-		if ( fields.isEmpty() )
-			throw new PrototypeException( "Cannot have empty fields array in prototype" );
-
-		if ( fields.size() == 1 ) {
-			Map<String, Object> testBuild = new HashMap<String, Object>();
-			if ( handleFields( _json, (Map<?, ?>) fields.get( 0 ), testBuild ) ) {
-				_testBuild.putBlock( testBuild );
-				return true;
-			} else {
-				return false;
-			}
-		}
-
-		// Check each possible fit
-		List<String> subFailures = new ArrayList<String>();
-		Iterator<?> fieldIT = fields.iterator();
-		while ( fieldIT.hasNext() ) {
-
-			Object fit = fieldIT.next();
-			if ( fit instanceof Map ) {
-				Map<String, Object> testBuild = new HashMap<String, Object>();
-				if ( handleFields( _json, (Map<?, ?>) fit, testBuild ) ) {
-					_testBuild.putBlock( testBuild );
-					return true;
-				}
-			}
-
-			// Store fail message in the case that we have looped back to here.
-			subFailures.add( failMessage );
-			failMessage = null;
-		}
-
-		// None of the attempts worked
-		failMessage = " None of the possible field patterns validated Nested Failures:";
-		String tab = "";
-		for ( int i = 0; i < _json.getDepth(); i++ )
-			tab += "-";
-		for ( String subFailure : subFailures )
-			failMessage += "\n" + tab + subFailure;
-		return false;
-
-	}
-
-	private boolean handleFields( JSONBlock _json, Map<?, ?> _prototype, Map<String, Object> _testBuild ) throws PrototypeException {
-
-		Map<?, ?> jsonMap = (Map<?, ?>) _json.getBlock();
-
-		// Wildcard is indicated by a "*" field - the wildcard field will force any unspecified fields
-		// to conform to the validation given.
-		boolean containsWildCard = false;
-
-		// Cycle through all of the fields...
-		Set<?> prototypeKeys = _prototype.keySet();
-		Iterator<?> keyIT = prototypeKeys.iterator();
-		while ( keyIT.hasNext() ) {
-			String field = (String) keyIT.next();
-			if ( field == null )
-				throw new PrototypeException( "Prototype contained null key" );
-
-			// If wildcard we will examine later.
-			if ( field.equalsIgnoreCase( KEY_WILDCARD_FIELD ) ) {
-				containsWildCard = true;
-				continue;
-			}
-
-			Object o = _prototype.get( field );
-			if ( !( o instanceof Map ) )
-				throw new PrototypeException( "Fieldmap for " + field + " in prototype was not a map" );
-			Map<?, ?> fieldMap = (Map<?, ?>) o;
-
-			// Get Req value
-			boolean req = false;
-			if ( fieldMap.containsKey( KEY_REQ ) ) {
-				Object o1 = fieldMap.get( KEY_REQ );
-				if ( o1 instanceof Boolean )
-					req = (Boolean) o1;
-				else if ( o1 instanceof Map )
-					req = new ConditionEvaluator().evaluate( (Map<?, ?>) o1, _json );
-				else
-					throw new PrototypeException( KEY_REQ + " can only be boolean or struct." );
-			} else
-				req = false;
-
-			// Get Err_On Value
-			boolean err_on;
-			if ( fieldMap.containsKey( KEY_ERR_ON ) ) {
-				Object o2 = fieldMap.get( KEY_ERR_ON );
-				if ( o2 instanceof Boolean )
-					err_on = (Boolean) o2;
-				else if ( o2 instanceof Map )
-					err_on = new ConditionEvaluator().evaluate( (Map<?, ?>) o2, _json );
-				else
-					throw new PrototypeException( KEY_ERR_ON + " can only be boolean or struct." );
-			} else
-				err_on = false;
-
-			// Evaluate JSON with Req & err_on...
-			boolean containsKey = jsonMap.containsKey( field );
-			if ( !containsKey && req ) {
-				failMessage = " Required field " + field + " was not found";
-				return false;
-			} else if ( containsKey && err_on ) {
-				failMessage = " Error on field " + field + " was found";
-				return false;
-			} else if ( !containsKey && !req && ( fieldMap.containsKey( KEY_DEFAULT ) || fieldMap.containsKey( KEY_DEFAULT_ITEM ) ) ) {
-				// Enter default if field was not required and not present.
-				if ( fieldMap.containsKey( KEY_DEFAULT ) ) {
-					_testBuild.put( field, fieldMap.get( KEY_DEFAULT ) );
-				} else {
-					// Default Item...
-					Object defaultItem = fieldMap.get( KEY_DEFAULT_ITEM );
-					if ( defaultItem == null )
-						throw new PrototypeException( KEY_DEFAULT_ITEM + " cannot be null" );
-					if ( !defaultItems.containsKey( defaultItem ) )
-						throw new PrototypeException( KEY_DEFAULT_ITEM + " " + defaultItem.toString() + " was not found. Please add to fieldItems." );
-					_testBuild.put( field, defaultItems.get( defaultItem ) );
-				}
-			} else if ( containsKey ) {
-				// Get actual field
-				Object jsonValue = jsonMap.get( field );
-
-				// Here we Actually validate the field
-
-				// if( !fieldMap.containsKey(KEY_FIELD_DEFINITION) ) {
-				// if( !handleField(new JSONBlock(jsonValue, _json), field, fieldMap, _testBuild) )
-				// return false;
-				// } else {
-				Object definitionObject = fieldMap.get( KEY_FIELD_DEFINITION );
-				if ( !handleFieldDefinition( _json, field, jsonValue, definitionObject, _testBuild ) )
-					return false;
-				// }
-			}
-		}
-
-		// If wildcard was present evaluate other fields, otherwise clear other fields if
-		// removeUnspecifiedkeys set
-		if ( containsWildCard ) {
-			Object o = _prototype.get( KEY_WILDCARD_FIELD );
-			if ( !( o instanceof Map ) )
-				throw new PrototypeException( "Fieldmap for " + KEY_WILDCARD_FIELD + " in prototype was not a map" );
-			Map<?, ?> wildCardMap = (Map<?, ?>) o;
-
-			// Loop only through the fields we have not yet examined.
-			Set<?> jsonKeys = jsonMap.keySet();
-			Iterator<?> jsonIT = jsonKeys.iterator();
-			while ( jsonIT.hasNext() ) {
-				Object jsonField = jsonIT.next();
-				if ( _prototype.containsKey( jsonField ) )
-					continue;
-
-				// Error on null unless we are removing unspecified keys
-				if ( jsonField == null ) {
-					failMessage = " Null key in struct is not allowed.";
-					return false;
-				}
-
-				// Get the field value.
-				Object jsonValue = jsonMap.get( jsonField );
-
-				// Here we actually validate the field.
-				// if( !wildCardMap.containsKey(KEY_FIELD_DEFINITION) ) {
-				// if( !handleField(new JSONBlock(jsonValue, _json), jsonField.toString(), wildCardMap,
-				// _testBuild) )
-				// return false;
-				// } else {
-				Object definitionObject = wildCardMap.get( KEY_FIELD_DEFINITION );
-				if ( !handleFieldDefinition( _json, jsonField.toString(), jsonValue, definitionObject, _testBuild ) )
-					return false;
-				// }
-			}
-		} else if ( errorOnUnspecifiedKeys ) {
-
-			// Confirm that there were no unspecified keys - this only happens if there was no wildcard
-			Set<?> jsonKeys = jsonMap.keySet();
-			Iterator<?> jsonIT = jsonKeys.iterator();
-			while ( jsonIT.hasNext() ) {
-				Object jsonField = jsonIT.next();
-				if ( !prototypeKeys.contains( jsonField ) ) {
-					failMessage = " Unexpected field '" + jsonField + "' was found.";
-					return false;
-				}
-			}
-		} else if ( !removeUnspecifiedKeys ) {
-
-			// Add the unspecified keys
-			Set<?> jsonKeys = jsonMap.keySet();
-			Iterator<?> jsonIT = jsonKeys.iterator();
-			while ( jsonIT.hasNext() ) {
-				Object jsonField = jsonIT.next();
-				if ( !_testBuild.containsKey( jsonField ) && isBlockAllowed( jsonMap.get( jsonField ), new Boolean( false ) ) )
-					_testBuild.put( (String) jsonField, jsonMap.get( jsonField ) );
-			}
-		}
-
-		return true;
-	}
-
-	private boolean handleFieldDefinition( JSONBlock _json, String _field, Object _jsonValue, Object _definitionObject, Map<String, Object> _testBuild ) throws PrototypeException {
-		if ( _definitionObject instanceof List ) {
-			List<?> definitionList = (List<?>) _definitionObject;
-			if ( definitionList.isEmpty() )
-				throw new PrototypeException( "Key " + KEY_FIELD_DEFINITION + " cannot be an empty list." );
-
-			List<String> subFailures = new ArrayList<String>();
-			for ( Object definition : definitionList ) {
-				if ( !( definition instanceof Map ) )
-					throw new PrototypeException( "Key " + KEY_FIELD_DEFINITION + " must be either a Map or List<Map>." );
-				Map<?, ?> definitionMap = (Map<?, ?>) definition;
-
-				if ( handleField( new JSONBlock( _jsonValue, _json ), _field, definitionMap, _testBuild ) )
-					return true;
-
-				// Store fail message in the case that we have looped back to here.
-				subFailures.add( failMessage );
-				failMessage = null;
-			}
-
-			// None of the attempts worked
-			failMessage = " None of the possible field definitions validated Nested Failures:";
-			String tab = "";
-			for ( int i = 0; i < _json.getDepth(); i++ )
-				tab += "-";
-			for ( String subFailure : subFailures )
-				failMessage += "\n" + tab + subFailure;
-			return false;
-
-		} else if ( _definitionObject instanceof Map ) {
-			Map<?, ?> definitionMap = (Map<?, ?>) _definitionObject;
-
-			return handleField( new JSONBlock( _jsonValue, _json ), _field, definitionMap, _testBuild );
-		} else if ( _definitionObject == null ) {
-			throw new PrototypeException( "Key " + KEY_FIELD_DEFINITION + " is required for fields." );
-		} else {
-			throw new PrototypeException( "Key " + KEY_FIELD_DEFINITION + " must be of a List or Map." );
-		}
+	/**
+	 * Same as validate(Object, Map), but the outcome is returned instead of being kept on the
+	 * validator. getFailMessage() and getReturnJson() are not affected by this method.
+	 * 
+	 * @param _json The deserialized JSON to validated. This object will not be modified by the validate() method.
+	 * @param _prototype The deserialized prototype/definition
+	 * @return The outcome of this validation
+	 * @throws PrototypeException On invalid Prototype
+	 */
+	public ValidationResult validateWithResult( Object _json, Map<String, ?> _prototype ) throws JSONValidatorException, PrototypeException {
+		if ( _prototype == null )
+			throw new PrototypeException( "_prototype cannot be null" );
+		return validateWithResult( _json, newCompiler( false ).compile( _prototype ) );
 	}
 
-	private boolean handleField( JSONBlock _json, String _field, Map<?, ?> _fieldDefinition, Map<String, Object> _testBuild ) throws PrototypeException {
-		JSONBlock testBuild = new JSONBlock();
-		if ( !validateBlock( _json, _fieldDefinition, testBuild ) ) {
-			failMessage = "." + _field + failMessage;
-			return false;
-		} else {
-			if ( isBlockAllowed( testBuild.getBlock(), _fieldDefinition.get( KEY_STRING_REMOVE_EMPTY ) ) )
-				_testBuild.put( _field, testBuild.getBlock() );
-			return true;
-		}
+	/**
+	 * Same as validate(Object, CompiledSchema), but the outcome is returned instead of being kept on
+	 * the validator.
+	 * 
+	 * A single validator and CompiledSchema can serve any number of threads through this method, as
+	 * long as no default items or custom types are added while validating.
+	 * 
+	 * @param _json The deserialized JSON to validated. This object will not be modified by the validate() method.
+	 * @param _schema The compiled prototype
+	 * @return The outcome of this validation
+	 * @throws PrototypeException On invalid Prototype
+	 */
+	public ValidationResult validateWithResult( Object _json, CompiledSchema _schema ) throws JSONValidatorException, PrototypeException {
+		return validateWithResult( _json, _schema, !checkOnly );
 	}
 
-	private boolean handleStringType( Object _json, Map<?, ?> _prototype, JSONBlock _testBuild ) throws PrototypeException {
-
-		List<?> enumValues = null;
-		if ( _prototype.containsKey( KEY_ENUM ) ) {
-			Object enumObject = _prototype.get( KEY_ENUM );
-			if ( !( enumObject instanceof List ) )
-				throw new PrototypeException( KEY_ENUM + " list must be a list." );
-			enumValues = (List<?>) enumObject;
-		}
-
-		List<?> notEnumValues = null;
-		if ( _prototype.containsKey( KEY_NOT_ENUM ) ) {
-			Object enumObject = _prototype.get( KEY_NOT_ENUM );
-			if ( !( enumObject instanceof List ) )
-				throw new PrototypeException( KEY_NOT_ENUM + " list must be a list." );
-			notEnumValues = (List<?>) enumObject;
-		}
-
-		if ( !checkNull( _json, false ) )
-			return false;
-
-		if ( !( _json instanceof String ) ) {
-			failMessage = " Expected Type " + String.class.getName() + " Found Type " + _json.getClass().getName();
-			return false;
-		}
-
-		// Is empty String Allowed?
-		Object o;
-		if ( _prototype.containsKey( KEY_STRING_ERR_ON_EMPTY ) && ( o = _prototype.get( KEY_STRING_ERR_ON_EMPTY ) ) instanceof Boolean ) {
-			if ( (Boolean) o ) {
-				if ( ( (String) _json ).trim().isEmpty() ) {
-					failMessage = " Empty String was found but not allowed";
-					return false;
-				}
-			}
-		}
-
-		if ( enumValues != null && !enumValues.contains( _json ) ) {
-			failMessage = " Item " + _json + " was not found in " + KEY_ENUM + " list";
-			return false;
-		}
-
-		if ( notEnumValues != null && notEnumValues.contains( _json ) ) {
-			failMessage = " Item " + _json + " was found in " + KEY_NOT_ENUM + " list";
-			return false;
-		}
-
-		Object regexObject = _prototype.get( KEY_REGEX );
-		if ( regexObject instanceof String ) {
-			String regexString = (String) regexObject;
-			if ( !( (String) _json ).matches( regexString ) ) {
-				failMessage = " Json String '" + _json + "' did not match regex pattern " + regexString;
-				return false;
-			}
-		}
-
-		_testBuild.putBlock( _json );
-
-		return true;
+	/**
+	 * Validates a batch of documents in parallel, like validateWithResult(Object, Map) validates each
+	 * of them. The prototype is compiled once for the whole batch.
+	 * 
+	 * @param _documents The deserialized documents to validate
+	 * @param _prototype The deserialized prototype/definition
+	 * @return The outcome of each document in the order of _documents
+	 * @throws PrototypeException On invalid Prototype
+	 */
+	public BatchResult validateAll( Iterable<?> _documents, Map<String, ?> _prototype ) throws JSONValidatorException, PrototypeException {
+		if ( _prototype == null )
+			throw new PrototypeException( "_prototype cannot be null" );
+		return validateAll( _documents, newCompiler( false ).compile( _prototype ) );
 	}
 
-	private boolean handleDateType( Object _json, Map<?, ?> _prototype, JSONBlock _testBuild ) throws PrototypeException {
-		if ( !checkNull( _json, false ) )
-			return false;
-
-		java.util.Date date = null;
-		if ( !( _json instanceof java.util.Date ) ) {
-			if ( _json instanceof String ) {
-				if ( ( date = DateUtil.parseDate( _json.toString(), dateFormat ) ) == null ) {
-					failMessage = " Failed to parse String " + _json.toString() + " as Date of pattern ( " + dateFormat.toPattern() + " ) ";
-					return false;
-				}
-			} else {
-				failMessage = " Expected Type " + java.util.Date.class.getName() + " or " + String.class.getName() + " Found Type " + _json.getClass().getName();
-				return false;
-			}
-		} else {
-			date = (java.util.Date) _json;
-		}
-
-		// Validate before & after
-		if ( _prototype.containsKey( KEY_DATE_MUST_BE_AFTER ) ) {
-			Object after = _prototype.get( KEY_DATE_MUST_BE_AFTER );
-			if ( !( after instanceof java.util.Date ) && !( after instanceof String ) )
-				throw new PrototypeException( KEY_DATE_MUST_BE_AFTER + " must be instance of java.util.Date or String." );
-			if ( after instanceof String ) {
-				after = DateUtil.parseDate( after.toString(), dateFormat );
-				if ( after == null ) {
-					String msg = "Failed to parse prototype " + KEY_DATE_MUST_BE_AFTER + " String " + _prototype.get( KEY_DATE_MUST_BE_AFTER ).toString() + " as Date of pattern ( " + dateFormat.toPattern() + " ) ";
-					throw new PrototypeException( msg );
-				}
-			}
-			if ( !( (java.util.Date) after ).before( date ) ) {
-				failMessage = " Expected Date to be after " + after.toString() + " but was " + date;
-				return false;
-			}
-		}
-		if ( _prototype.containsKey( KEY_DATE_MUST_BE_BEFORE ) ) {
-			Object before = _prototype.get( KEY_DATE_MUST_BE_BEFORE );
-			if ( !( before instanceof java.util.Date ) && !( before instanceof String ) )
-				throw new PrototypeException( KEY_DATE_MUST_BE_BEFORE + " must be instance of java.util.Date or String." );
-			if ( before instanceof String ) {
-				before = DateUtil.parseDate( before.toString(), dateFormat );
-				if ( before == null ) {
-					String msg = "Failed to parse prototype " + KEY_DATE_MUST_BE_BEFORE + " String " + _prototype.get( KEY_DATE_MUST_BE_BEFORE ).toString() + " as Date of pattern ( " + dateFormat.toPattern() + " ) ";
-					throw new PrototypeException( msg );
-				}
-			}
-			if ( !( (java.util.Date) before ).after( date ) ) {
-				failMessage = " Expected Date to be before " + before.toString() + " but was " + date;
-				return false;
-			}
-		}
-
-		_testBuild.putBlock( _json );
-		return true;
+	/**
+	 * Same as validateAll(Iterable, Map) for a prototype compiled by compile(), on the common
+	 * ForkJoinPool.
+	 */
+	public BatchResult validateAll( Iterable<?> _documents, CompiledSchema _schema ) throws JSONValidatorException, PrototypeException {
+		return validateAll( _documents.spliterator(), _schema, ForkJoinPool.commonPool() );
 	}
 
-	private boolean handleNumberType( Object _json, Map<?, ?> _prototype, JSONBlock _testBuild ) throws PrototypeException {
-		if ( !checkNull( _json, false ) )
-			return false;
-
-		if ( !( _json instanceof Number ) ) {
-			failMessage = " Expected Type " + Number.class.getName() + " Found Type " + _json.getClass().getName();
-			return false;
-		}
+	/**
+	 * Same as validateAll(Iterable, CompiledSchema), validating on _pool.
+	 */
+	public BatchResult validateAll( Iterable<?> _documents, CompiledSchema _schema, ForkJoinPool _pool ) throws JSONValidatorException, PrototypeException {
+		return validateAll( _documents.spliterator(), _schema, _pool );
+	}
 
-		if ( _prototype.containsKey( KEY_NUM_MIN ) ) {
-			if ( !( _prototype.get( KEY_NUM_MIN ) instanceof Number ) ) {
-				throw new PrototypeException( KEY_NUM_MIN + " must be instance of Number." );
-			}
-			Number o = (Number) _prototype.get( KEY_NUM_MIN );
-			if ( ( (Number) _json ).doubleValue() < o.doubleValue() ) {
-				failMessage = " Expected number to be greater than or equal to " + o.doubleValue() + " but was " + ( (Number) _json ).doubleValue();
-				return false;
-			}
-		}
-		if ( _prototype.containsKey( KEY_NUM_MAX ) ) {
-			if ( !( _prototype.get( KEY_NUM_MAX ) instanceof Number ) ) {
-				throw new PrototypeException( KEY_NUM_MAX + " must be instance of Number." );
-			}
-			Number o = (Number) _prototype.get( KEY_NUM_MAX );
-			if ( ( (Number) _json ).doubleValue() > o.doubleValue() ) {
-				failMessage = " Expected number to be less than or equal to " + o.doubleValue() + " but was " + ( (Number) _json ).doubleValue();
-				return false;
-			}
-		}
+	/**
+	 * Same as validateAll(Iterable, CompiledSchema, ForkJoinPool) for the documents of a
+	 * Spliterator. The work is divided by splitting _documents, so a Spliterator that splits evenly,
+	 * such as one of an ArrayList, spreads the documents best.
+	 * 
+	 * If validating a document throws, the exception of the first such document is thrown once the
+	 * others were validated.
+	 */
+	public BatchResult validateAll( Spliterator<?> _documents, CompiledSchema _schema, ForkJoinPool _pool ) throws JSONValidatorException, PrototypeException {
+		return BatchValidation.validate( this, _schema, _documents, _pool, !checkOnly );
+	}
 
-		_testBuild.putBlock( _json );
+	/**
+	 * Checks the json against the prototype without building the modified json, whatever the
+	 * checkonly option is. Every rule of the prototype is applied, but no Map or List is copied and no
+	 * defaults are inserted. getFailMessage() and getReturnJson() are not affected by this method.
+	 * 
+	 * @param _json The deserialized JSON to validated. This object will not be modified by the check() method.
+	 * @param _prototype The deserialized prototype/definition
+	 * @return The outcome of this validation, its return json is always null
+	 * @throws PrototypeException On invalid Prototype
+	 */
+	public ValidationResult check( Object _json, Map<String, ?> _prototype ) throws JSONValidatorException, PrototypeException {
+		if ( _prototype == null )
+			throw new PrototypeException( "_prototype cannot be null" );
+		return check( _json, newCompiler( false ).compile( _prototype ) );
+	}
 
-		return true;
+	/**
+	 * Same as check(Object, Map) for a prototype compiled by compile().
+	 * 
+	 * @param _json The deserialized JSON to validated. This object will not be modified by the check() method.
+	 * @param _schema The compiled prototype
+	 * @return The outcome of this validation, its return json is always null
+	 * @throws PrototypeException On invalid Prototype
+	 */
+	public ValidationResult check( Object _json, CompiledSchema _schema ) throws JSONValidatorException, PrototypeException {
+		return validateWithResult( _json, _schema, false );
 	}
 
-	private boolean handleBooleanType( Object _json, Map<?, ?> _prototype, JSONBlock _testBuild ) throws PrototypeException {
-		if ( !checkNull( _json, false ) )
-			return false;
+	/**
+	 * Checks json text as it is read, without building the json in memory first. Memory use grows
+	 * with the nesting depth of the json rather than its size, and reading stops at the first
+	 * violation.
+	 * 
+	 * Fields are validated in the order they appear in the text, so with several violations the one
+	 * reported may differ from validate(). Structs whose fields have req or err_on conditions, or
+	 * several field patterns, and field definition lists are read completely before they are
+	 * validated. Like check(), no modified json is built. The reader is not closed.
+	 * 
+	 * @param _json Reader of the json text
+	 * @param _schema The compiled prototype
+	 * @return The outcome of this validation, its return json is always null
+	 * @throws JSONValidatorException On malformed json or if reading fails
+	 * @throws PrototypeException On invalid Prototype
+	 */
+	public ValidationResult validateStream( Reader _json, CompiledSchema _schema ) throws JSONValidatorException, PrototypeException {
+		return validateStream( new ReaderTokenizer( _json ), _schema, false );
+	}
 
-		if ( !( _json instanceof Boolean ) ) {
-			failMessage = " Expected Type " + Boolean.class.getName() + " Found Type " + _json.getClass().getName();
-			return false;
-		}
+	/**
+	 * Same as validateStream(Reader, CompiledSchema) for UTF-8 encoded json text.
+	 */
+	public ValidationResult validateStream( InputStream _json, CompiledSchema _schema ) throws JSONValidatorException, PrototypeException {
+		return validateStream( new InputStreamReader( _json, UTF_8 ), _schema );
+	}
 
-		_testBuild.putBlock( _json );
+	/**
+	 * Same as validateStream(Reader, CompiledSchema) for UTF-8 encoded json bytes. The bytes are
+	 * indexed first, then only the strings and numbers that a rule of the prototype looks at are
+	 * decoded, and content the prototype does not look into is skipped without being tokenized.
+	 */
+	public ValidationResult validateStream( byte[] _json, CompiledSchema _schema ) throws JSONValidatorException, PrototypeException {
+		return validateStream( new ByteTokenizer( _json, 0, _json.length ), _schema, false );
+	}
 
-		return true;
+	/**
+	 * Same as validateStream(byte[], CompiledSchema) for the bytes between position and limit of
+	 * _json. A buffer backed by an array is read in place, other buffers are copied once. The position
+	 * of the buffer is not changed.
+	 */
+	public ValidationResult validateStream( ByteBuffer _json, CompiledSchema _schema ) throws JSONValidatorException, PrototypeException {
+		return validateStream( ByteTokenizer.create( _json ), _schema, false );
 	}
 
-	private boolean handleSimpleType( Object _json, Map<?, ?> _prototype, JSONBlock _testBuild ) throws PrototypeException {
-		if ( !checkNull( _json, false ) )
-			return false;
+	/**
+	 * Same as validateStream(byte[], CompiledSchema) for the bytes from _start to _end of _json.
+	 */
+	ValidationResult validateStream( byte[] _json, int _start, int _end, CompiledSchema _schema ) throws JSONValidatorException, PrototypeException {
+		return validateStream( new ByteTokenizer( _json, _start, _end ), _schema, false );
+	}
 
-		if ( !( _json instanceof String ) && !( _json instanceof Number ) && !( _json instanceof Boolean ) ) {
-			failMessage = " Expected Type Simple(" + String.class.getName() + "|" + Number.class.getName() + "|" + Boolean.class.getName() + ") Found Type " + _json.getClass().getName();
-			return false;
+	/**
+	 * Checks a file of newline delimited json, one json value per line, like validateStream() checks
+	 * each line. The file is memory mapped in chunks that are validated in parallel, on a pool with
+	 * one thread per processor that is shut down afterwards. Blank lines are skipped.
+	 * 
+	 * @param _file UTF-8 encoded newline delimited json, of any size
+	 * @param _schema The compiled prototype
+	 * @return The failed lines with their line number and offset, and counts over all lines. A line
+	 *         with malformed json is a failed line as well.
+	 * @throws JSONValidatorException If reading the file fails
+	 * @throws PrototypeException On invalid Prototype
+	 */
+	public NDJSONResult validateLines( File _file, CompiledSchema _schema ) throws JSONValidatorException, PrototypeException {
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			return validateLines( _file, _schema, pool );
+		} finally {
+			pool.shutdown();
 		}
+	}
 
-		_testBuild.putBlock( _json );
+	/**
+	 * Same as validateLines(File, CompiledSchema), validating on _pool.
+	 */
+	public NDJSONResult validateLines( File _file, CompiledSchema _schema, ForkJoinPool _pool ) throws JSONValidatorException, PrototypeException {
+		return NDJSONFile.validate( this, _schema, _file, _pool, NDJSONFile.chunkSize( _file.length(), _pool ) );
+	}
 
-		return true;
+	/**
+	 * Parses UTF-8 json bytes and validates them in one pass, guided by the prototype. The return
+	 * json of the result is the modified json, the same as validate() builds, except for the values
+	 * the prototype does not look into:
+	 * 
+	 * Values of unspecified keys are skipped without being decoded when they are removed, objects and
+	 * arrays among them that are kept are returned as RawJson. The same goes for objects and arrays
+	 * typed any. Structs and lists with req or err_on conditions below them are read completely.
+	 * 
+	 * As with validateStream(), fields are validated in the order they appear in the json.
+	 * 
+	 * @param _json UTF-8 encoded json, RawJson values of the result refer to it
+	 * @param _schema The compiled prototype
+	 * @return The outcome of this validation
+	 * @throws JSONValidatorException On malformed json
+	 * @throws PrototypeException On invalid Prototype
+	 */
+	public ValidationResult parse( byte[] _json, CompiledSchema _schema ) throws JSONValidatorException, PrototypeException {
+		return validateStream( new ByteTokenizer( _json, 0, _json.length ), _schema, true );
 	}
 
-	private boolean handleAnyType( Object block, Map<?, ?> _prototype, JSONBlock _testBuild ) {
-		_testBuild.putBlock( block );
-		return true;
+	/**
+	 * Same as parse(byte[], CompiledSchema) for the bytes between position and limit of _json. A
+	 * buffer that is not backed by an array is copied once. The position of the buffer is not
+	 * changed.
+	 */
+	public ValidationResult parse( ByteBuffer _json, CompiledSchema _schema ) throws JSONValidatorException, PrototypeException {
+		return validateStream( ByteTokenizer.create( _json ), _schema, true );
 	}
 
-	private boolean handleNullType( Object _json, Map<?, ?> _prototype, JSONBlock _testBuild ) throws PrototypeException {
-		if ( _json != null ) {
-			failMessage = " Expected null value Found Type " + _json.getClass().getName();
-			return false;
+	private ValidationResult validateStream( JSONTokenizer _tokens, CompiledSchema _schema, boolean _buildOutput ) throws JSONValidatorException, PrototypeException {
+		ValidationContext ctx = new ValidationContext( defaultItems, _buildOutput, false, false, 0 );
+		try {
+			if ( !_schema.getRoot().validateStream( ctx, _tokens, null ) )
+				return new ValidationResult( false, ctx.failure, null );
+			_tokens.finish();
+			return new ValidationResult( true, null, _buildOutput ? ctx.output : null );
+		} catch ( PrototypeException e ) {
+			throw e;
+		} catch ( JSONValidatorException e ) {
+			throw e;
+		} catch ( Exception e ) {
+			throw new JSONValidatorException( e.getMessage(), e );
 		}
+	}
 
-		_testBuild.putBlock( null );
+	private ValidationResult validateWithResult( Object _json, CompiledSchema _schema, boolean _buildOutput ) throws JSONValidatorException, PrototypeException {
+		return validateWithResult( newContext( _buildOutput ), _json, _schema );
+	}
 
-		return true;
+	ValidationContext newContext( boolean _buildOutput ) {
+		return new ValidationContext( defaultItems, _buildOutput, copyOnWrite, inPlace, parallelThreshold );
 	}
 
 	/**
-	 * Compare classes. If they are not equal and the expected class name is a package-less class then
-	 * compare as java.util. and java.lang.
-	 * 
-	 * @param _classExpected
-	 * @param _classFound
-	 * @return
+	 * Validates with _ctx, which may have been used for an earlier validation.
 	 */
-	private boolean checkClass( String _classExpected, String _classFound ) {
-		if ( _classFound.equals( _classExpected ) )
-			return true;
-		if ( _classExpected.indexOf( "." ) == -1 ) {
-			if ( _classFound.equals( "java.util." + _classExpected ) || _classFound.equals( "java.lang." + _classExpected ) )
-				return true;
-		}
-		return false;
-	}
-
-	private boolean isBlockAllowed( Object _testBuild, Object _removeEmpty ) {
-		boolean bool = true;
-		if ( removeKeysWhenValueEmpty || ( _removeEmpty instanceof Boolean && (Boolean) _removeEmpty ) ) {
-			if ( _testBuild instanceof String && ( (String) _testBuild ).trim().isEmpty() ) {
-				bool = false;
-			}
+	ValidationResult validateWithResult( ValidationContext _ctx, Object _json, CompiledSchema _schema ) throws JSONValidatorException, PrototypeException {
+		_ctx.reset();
+		try {
+			if ( _schema.getRoot().validate( _ctx, _json, null ) ) {
+				if ( _ctx.inPlace )
+					_ctx.applyStaged();
+				return new ValidationResult( true, null, _ctx.buildOutput ? _ctx.output : null );
+			} else
+				return new ValidationResult( false, _ctx.failure, null );
+		} catch ( PrototypeException e ) {
+			throw e;
+		} catch ( Exception e ) {
+			throw new JSONValidatorException( e.getMessage(), e );
 		}
-		return bool;
 	}
 
-	private boolean checkNull( Object _json, boolean _nullAllowed ) {
-		if ( _json == null && !_nullAllowed ) {
-			failMessage = " null value disallowed";
-			return false;
-		}
-		return true;
+	private boolean keepResult( ValidationResult _result ) {
+		lastResult = _result;
+		return _result.isValid();
 	}
 
 }
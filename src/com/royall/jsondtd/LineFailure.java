@@ -0,0 +1,90 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+/**
+ * A line of a newline delimited json file that did not validate, or was not valid json at all.
+ */
+public final class LineFailure {
+
+	private final long line, offset;
+	private final ValidationFailure failure;
+	private final String malformed;
+
+	LineFailure( long _line, long _offset, ValidationFailure _failure, String _malformed ) {
+		line = _line;
+		offset = _offset;
+		failure = _failure;
+		malformed = _malformed;
+	}
+
+	/**
+	 * @return Number of the line in the file, starting at 1
+	 */
+	public long getLine() {
+		return line;
+	}
+
+	/**
+	 * @return Position of the first byte of the line in the file
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return Why the line failed validation, null if it was malformed json
+	 */
+	public ValidationFailure getFailure() {
+		return failure;
+	}
+
+	/**
+	 * @return Whether the line was not valid json, see getFailMessage() for the reason
+	 */
+	public boolean isMalformed() {
+		return failure == null;
+	}
+
+	/**
+	 * @return The fail message of the validation, or the reason the json was malformed
+	 */
+	public String getFailMessage() {
+		return ( failure == null ) ? malformed : failure.getMessage();
+	}
+
+	/**
+	 * @return This failure at line _line, for failures that were numbered within a part of the file
+	 */
+	LineFailure atLine( long _line ) {
+		return new LineFailure( _line, offset, failure, malformed );
+	}
+
+	@Override
+	public String toString() {
+		return "line " + line + ":" + getFailMessage();
+	}
+
+}
@@ -0,0 +1,131 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Allowlist of a memory mapped file of sorted lines. The lines have no index, the binary search
+ * jumps to a byte and looks for the start and end of the line around it.
+ */
+final class MappedAllowlist extends Allowlist {
+
+	private final ByteBuffer entries;
+
+	// End of the last entry, without the final line break
+	private final int end;
+
+	private final long size;
+	private final BloomFilter bloom;
+
+	MappedAllowlist( File _file, double _falsePositiveRate ) throws IOException {
+		RandomAccessFile file = new RandomAccessFile( _file, "r" );
+		try {
+			long length = file.length();
+			if ( length > Integer.MAX_VALUE )
+				throw new IOException( "Allowlist " + _file + " is larger than 2GB." );
+			// The mapping stays valid once the file is closed
+			entries = file.getChannel().map( FileChannel.MapMode.READ_ONLY, 0, length );
+		} finally {
+			file.close();
+		}
+
+		int end = entries.limit();
+		if ( end > 0 && entries.get( end - 1 ) == '\n' )
+			end--;
+		this.end = end;
+
+		long size = 0;
+		if ( entries.limit() > 0 ) {
+			int start = 0, previousStart = -1, previousEnd = -1;
+			for ( int i = 0; i <= end; i++ ) {
+				if ( i < end && entries.get( i ) != '\n' )
+					continue;
+				if ( previousStart >= 0 && Utf8.compare( entries, previousStart, previousEnd, start, i ) >= 0 )
+					throw new IOException( "Allowlist " + _file + " is not sorted or has a duplicate at line " + ( size + 1 ) + "." );
+				size++;
+				previousStart = start;
+				previousEnd = i;
+				start = i + 1;
+			}
+		}
+		this.size = size;
+
+		if ( _falsePositiveRate > 0 ) {
+			bloom = new BloomFilter( size, _falsePositiveRate );
+			for ( int start = 0, i = 0; size > 0 && i <= end; i++ ) {
+				if ( i == end || entries.get( i ) == '\n' ) {
+					bloom.add( Utf8.hash( entries, start, i ) );
+					start = i + 1;
+				}
+			}
+		} else
+			bloom = null;
+	}
+
+	@Override
+	public boolean contains( CharSequence _value ) {
+		if ( size == 0 )
+			return false;
+		if ( bloom != null && !bloom.mightContain( Utf8.hash( _value ) ) )
+			return false;
+
+		// The entries from the start of the line at low to the end of the line at high
+		int low = 0;
+		int high = end;
+		while ( true ) {
+			int middle = ( low + high ) >>> 1;
+			int start = middle;
+			while ( start > low && entries.get( start - 1 ) != '\n' )
+				start--;
+			int stop = middle;
+			while ( stop < high && entries.get( stop ) != '\n' )
+				stop++;
+
+			int comparison = Utf8.compare( _value, entries, start, stop );
+			if ( comparison == 0 )
+				return true;
+			if ( comparison < 0 ) {
+				if ( start == low )
+					return false;
+				high = start - 1;
+			} else {
+				if ( stop == high )
+					return false;
+				low = stop + 1;
+			}
+		}
+	}
+
+	@Override
+	public long size() {
+		return size;
+	}
+
+}
@@ -0,0 +1,263 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+/**
+ * Validates a file of newline delimited json in parallel. The file is split into chunks that end
+ * at a newline, and each chunk is mapped and validated line by line by a task of its own. Lines are
+ * numbered within their chunk first and renumbered once the line counts of all chunks are known.
+ */
+final class NDJSONFile {
+
+	// A chunk is mapped as one MappedByteBuffer, which holds at most 2GB
+	static final long MAX_CHUNK = 1L << 30;
+	private static final long MIN_CHUNK = 1L << 18;
+
+	// Chunks per worker, so workers that finish early can take over the rest
+	private static final int CHUNKS_PER_WORKER = 4;
+
+	private static final int BLOCK = 1 << 16;
+
+	private final JSONValidator validator;
+	private final CompiledSchema schema;
+	private final FileChannel channel;
+
+	private NDJSONFile( JSONValidator _validator, CompiledSchema _schema, FileChannel _channel ) {
+		validator = _validator;
+		schema = _schema;
+		channel = _channel;
+	}
+
+	/**
+	 * @return The chunk size for a file of _size bytes validated on _pool
+	 */
+	static long chunkSize( long _size, ForkJoinPool _pool ) {
+		long chunkSize = _size / ( (long) _pool.getParallelism() * CHUNKS_PER_WORKER );
+		return Math.min( Math.max( chunkSize, MIN_CHUNK ), MAX_CHUNK );
+	}
+
+	/**
+	 * @param _chunkSize Size of the chunks the file is split into, the chunks are extended to the
+	 *          next newline
+	 */
+	static NDJSONResult validate( JSONValidator _validator, CompiledSchema _schema, File _file, ForkJoinPool _pool, long _chunkSize ) throws JSONValidatorException, PrototypeException {
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile( _file, "r" );
+			NDJSONFile ndjson = new NDJSONFile( _validator, _schema, file.getChannel() );
+			long[] bounds = ndjson.split( _chunkSize );
+
+			final Chunk[] chunks = new Chunk[bounds.length - 1];
+			for ( int i = 0; i < chunks.length; i++ )
+				chunks[i] = ndjson.new Chunk( bounds[i], bounds[i + 1] );
+			_pool.invoke( new RecursiveAction() {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					invokeAll( chunks );
+				}
+			} );
+
+			long lines = 0, valid = 0;
+			List<LineFailure> failures = new ArrayList<LineFailure>();
+			for ( Chunk chunk : chunks ) {
+				if ( chunk.error instanceof PrototypeException )
+					throw (PrototypeException) chunk.error;
+				if ( chunk.error != null )
+					throw failedToRead( chunk.error );
+				for ( LineFailure failure : chunk.failures )
+					failures.add( failure.atLine( lines + failure.getLine() ) );
+				lines += chunk.lines;
+				valid += chunk.valid;
+			}
+			return new NDJSONResult( lines, valid, failures );
+		} catch ( IOException e ) {
+			throw failedToRead( e );
+		} finally {
+			if ( file != null ) {
+				try {
+					file.close();
+				} catch ( IOException e ) {
+					// Only read from
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return Start of each chunk followed by the size of the file
+	 */
+	private long[] split( long _chunkSize ) throws IOException, JSONValidatorException {
+		long size = channel.size();
+		List<Long> bounds = new ArrayList<Long>();
+		bounds.add( 0L );
+
+		ByteBuffer probe = ByteBuffer.allocate( 4096 );
+		long start = 0;
+		while ( start < size ) {
+			long end = ( size - start <= _chunkSize ) ? size : lineEnd( start + _chunkSize, size, probe );
+			if ( end - start > Integer.MAX_VALUE )
+				throw new JSONValidatorException( "Line at offset " + start + " or after is longer than " + Integer.MAX_VALUE + " bytes" );
+			bounds.add( end );
+			start = end;
+		}
+
+		long[] result = new long[bounds.size()];
+		for ( int i = 0; i < result.length; i++ )
+			result[i] = bounds.get( i );
+		return result;
+	}
+
+	/**
+	 * @return Position after the first newline at or after _from - 1, or _size if there is none
+	 */
+	private long lineEnd( long _from, long _size, ByteBuffer _probe ) throws IOException {
+		long position = _from - 1;
+		while ( position < _size ) {
+			_probe.clear();
+			int read = channel.read( _probe, position );
+			if ( read <= 0 )
+				break;
+			for ( int i = 0; i < read; i++ ) {
+				if ( _probe.get( i ) == '\n' )
+					return position + i + 1;
+			}
+			position += read;
+		}
+		return _size;
+	}
+
+	private static JSONValidatorException failedToRead( Exception _e ) {
+		if ( _e instanceof JSONValidatorException )
+			return (JSONValidatorException) _e;
+		return new JSONValidatorException( "Failed to read json due to " + _e.getClass().getName() + ": " + _e.getMessage(), _e );
+	}
+
+	/**
+	 * The lines from start to end of the file. The mapped bytes are copied a block at a time, so
+	 * each line is one slice of a byte array for the ByteTokenizer.
+	 */
+	private final class Chunk extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long start, end;
+
+		// Results, read once the task completed. Lines of failures are numbered within the chunk.
+		long lines = 0, valid = 0;
+		final List<LineFailure> failures = new ArrayList<LineFailure>();
+		Exception error = null;
+
+		Chunk( long _start, long _end ) {
+			start = _start;
+			end = _end;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				read();
+			} catch ( Exception e ) {
+				error = e;
+			}
+		}
+
+		private void read() throws IOException, PrototypeException {
+			int length = (int) ( end - start );
+			MappedByteBuffer map = channel.map( FileChannel.MapMode.READ_ONLY, start, length );
+
+			byte[] buffer = new byte[Math.min( length, BLOCK )];
+			long bufferOffset = start;
+			int filled = 0, lineStart = 0, scan = 0;
+			for ( ;; ) {
+				int newline = scan;
+				while ( newline < filled && buffer[newline] != '\n' )
+					newline++;
+				if ( newline < filled ) {
+					line( buffer, lineStart, newline, bufferOffset + lineStart );
+					lineStart = scan = newline + 1;
+					continue;
+				}
+
+				if ( !map.hasRemaining() ) {
+					if ( lineStart < filled )
+						line( buffer, lineStart, filled, bufferOffset + lineStart );
+					return;
+				}
+
+				// Keep the line read so far and fill up the buffer
+				if ( lineStart > 0 ) {
+					System.arraycopy( buffer, lineStart, buffer, 0, filled - lineStart );
+					filled -= lineStart;
+					bufferOffset += lineStart;
+					lineStart = 0;
+				}
+				if ( filled == buffer.length )
+					buffer = Arrays.copyOf( buffer, (int) Math.min( 2L * buffer.length, length ) );
+				scan = filled;
+				int read = Math.min( buffer.length - filled, map.remaining() );
+				map.get( buffer, filled, read );
+				filled += read;
+			}
+		}
+
+		private void line( byte[] _buffer, int _from, int _to, long _offset ) throws PrototypeException {
+			lines++;
+			int i = _from;
+			while ( i < _to && ( _buffer[i] == ' ' || _buffer[i] == '\t' || _buffer[i] == '\r' ) )
+				i++;
+			if ( i == _to )
+				return;
+
+			try {
+				ValidationResult result = validator.validateStream( _buffer, _from, _to, schema );
+				if ( result.isValid() )
+					valid++;
+				else
+					failures.add( new LineFailure( lines, _offset, result.getFailure(), null ) );
+			} catch ( JSONValidatorException e ) {
+				failures.add( new LineFailure( lines, _offset, null, e.getMessage() ) );
+			}
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of validating a file of newline delimited json: the failed lines and counts over all
+ * lines. Blank lines are counted as lines but neither as valid nor as invalid.
+ */
+public final class NDJSONResult {
+
+	private final long lineCount, validCount;
+	private final List<LineFailure> failures;
+
+	NDJSONResult( long _lineCount, long _validCount, List<LineFailure> _failures ) {
+		lineCount = _lineCount;
+		validCount = _validCount;
+		failures = Collections.unmodifiableList( _failures );
+	}
+
+	/**
+	 * @return true if every line that is not blank is valid
+	 */
+	public boolean isValid() {
+		return failures.isEmpty();
+	}
+
+	public long getLineCount() {
+		return lineCount;
+	}
+
+	public long getValidCount() {
+		return validCount;
+	}
+
+	/**
+	 * @return Count of the lines that failed validation or were malformed
+	 */
+	public long getInvalidCount() {
+		return failures.size();
+	}
+
+	/**
+	 * @return The lines that failed, in the order of the file
+	 */
+	public List<LineFailure> getFailures() {
+		return failures;
+	}
+
+	@Override
+	public String toString() {
+		return validCount + " of " + lineCount + " lines valid, " + failures.size() + " invalid";
+	}
+
+}
@@ -0,0 +1,98 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+final class NumberNode extends SchemaNode {
+
+	private final boolean hasMin, hasMax;
+	private final double min, max;
+
+	private final DoubleSet enumValues, notEnumValues;
+
+	// Lenient compilation only - raised once a number reaches the bound, enum errors on entry
+	private final PrototypeException minError, maxError, enumError;
+
+	NumberNode( boolean _hasMin, double _min, PrototypeException _minError, boolean _hasMax, double _max, PrototypeException _maxError, DoubleSet _enumValues, DoubleSet _notEnumValues, PrototypeException _enumError ) {
+		hasMin = _hasMin;
+		min = _min;
+		minError = _minError;
+		hasMax = _hasMax;
+		max = _max;
+		maxError = _maxError;
+		enumValues = _enumValues;
+		notEnumValues = _notEnumValues;
+		enumError = _enumError;
+	}
+
+	/**
+	 * A number without bounds or enum lists is not parsed at all, unless it is part of the output.
+	 */
+	@Override
+	boolean validateStream( ValidationContext _ctx, JSONTokenizer _tokens, JSONBlock _parent ) throws PrototypeException, JSONValidatorException {
+		if ( hasMin || hasMax || enumValues != null || notEnumValues != null || enumError != null || _ctx.buildOutput || _tokens.peek() != JSONTokenizer.Token.NUMBER )
+			return super.validateStream( _ctx, _tokens, _parent );
+		_tokens.next();
+		return true;
+	}
+
+	@Override
+	boolean validate( ValidationContext _ctx, Object _json, JSONBlock _parent ) throws PrototypeException {
+		if ( enumError != null )
+			throw enumError;
+
+		if ( !_ctx.checkNull( _json ) )
+			return false;
+
+		if ( !( _json instanceof Number ) )
+			return _ctx.fail( FailureCode.WRONG_TYPE, Number.class.getName(), _json.getClass() );
+
+		double value = ( (Number) _json ).doubleValue();
+		if ( hasMin ) {
+			if ( minError != null )
+				throw minError;
+			if ( value < min )
+				return _ctx.fail( FailureCode.NUMBER_BELOW_MIN, min, value );
+		}
+		if ( hasMax ) {
+			if ( maxError != null )
+				throw maxError;
+			if ( value > max )
+				return _ctx.fail( FailureCode.NUMBER_ABOVE_MAX, max, value );
+		}
+
+		if ( enumValues != null && !enumValues.contains( (Number) _json ) )
+			return _ctx.fail( FailureCode.NOT_IN_ENUM, _json );
+
+		if ( notEnumValues != null && notEnumValues.contains( (Number) _json ) )
+			return _ctx.fail( FailureCode.IN_NOT_ENUM, _json );
+
+		_ctx.output = _json;
+		return true;
+	}
+
+}
@@ -0,0 +1,132 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collection;
+
+/**
+ * Allowlist in an open addressing hash table outside of the heap. The entries are stored one after
+ * the other in UTF-8, each after its length. A slot of the table holds 32 bits of the hash of an
+ * entry, so that most other entries are skipped without comparing them, and where the entry starts.
+ */
+final class OffHeapAllowlist extends Allowlist {
+
+	static final int SLOT = 8;
+
+	// The table has up to four slots per entry, its size in bytes has to fit an int
+	static final int MAX_ENTRIES = 1 << 26;
+
+	private final ByteBuffer data;
+
+	// Per slot the upper half of the hash and the position of the entry in data plus 1, 0 if free
+	private final ByteBuffer slots;
+	private final int mask;
+
+	private final long size;
+	private final BloomFilter bloom;
+
+	OffHeapAllowlist( Collection<? extends CharSequence> _entries, double _falsePositiveRate ) {
+		if ( _entries.size() > MAX_ENTRIES )
+			throw new IllegalArgumentException( "An allowlist can have at most " + MAX_ENTRIES + " entries." );
+		long bytes = 0;
+		for ( CharSequence entry : _entries )
+			bytes += 4 + Utf8.length( entry );
+		if ( bytes > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "The entries of an allowlist must take less than 2GB in UTF-8." );
+
+		int capacity = capacity( _entries.size() );
+		mask = capacity - 1;
+		data = ByteBuffer.allocateDirect( (int) bytes ).order( ByteOrder.nativeOrder() );
+		slots = ByteBuffer.allocateDirect( tableBytes( capacity ) ).order( ByteOrder.nativeOrder() );
+		bloom = ( _falsePositiveRate > 0 ) ? new BloomFilter( _entries.size(), _falsePositiveRate ) : null;
+
+		long size = 0;
+		for ( CharSequence entry : _entries ) {
+			long hash = Utf8.hash( entry );
+			int slot = find( entry, hash );
+			if ( slots.getInt( slot + 4 ) != 0 )
+				continue;
+			slots.putInt( slot, (int) ( hash >>> 32 ) );
+			slots.putInt( slot + 4, data.position() + 1 );
+			data.putInt( Utf8.length( entry ) );
+			Utf8.put( entry, data );
+			if ( bloom != null )
+				bloom.add( hash );
+			size++;
+		}
+		this.size = size;
+	}
+
+	/**
+	 * @return Number of slots for _entries entries, a power of two at least twice as large
+	 */
+	static int capacity( int _entries ) {
+		return Integer.highestOneBit( Math.max( _entries, 1 ) * 2 - 1 ) * 2;
+	}
+
+	/**
+	 * @return Size of a table of _capacity slots in bytes
+	 */
+	static int tableBytes( int _capacity ) {
+		long bytes = (long) _capacity * SLOT;
+		if ( bytes > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "An allowlist can have at most " + MAX_ENTRIES + " entries." );
+		return (int) bytes;
+	}
+
+	@Override
+	public boolean contains( CharSequence _value ) {
+		long hash = Utf8.hash( _value );
+		if ( bloom != null && !bloom.mightContain( hash ) )
+			return false;
+		return slots.getInt( find( _value, hash ) + 4 ) != 0;
+	}
+
+	/**
+	 * @return Position of the slot of _value, a free slot if it is not an entry
+	 */
+	private int find( CharSequence _value, long _hash ) {
+		int tag = (int) ( _hash >>> 32 );
+		for ( int i = (int) _hash & mask;; i = ( i + 1 ) & mask ) {
+			int slot = i * SLOT;
+			int entry = slots.getInt( slot + 4 ) - 1;
+			if ( entry < 0 )
+				return slot;
+			if ( slots.getInt( slot ) == tag ) {
+				int start = entry + 4;
+				if ( Utf8.equals( _value, data, start, start + data.getInt( entry ) ) )
+					return slot;
+			}
+		}
+	}
+
+	@Override
+	public long size() {
+		return size;
+	}
+
+}
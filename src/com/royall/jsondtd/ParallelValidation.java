@@ -0,0 +1,149 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+/**
+ * Validates the items of a large list or struct as fork-join subtasks. Each leaf task validates a
+ * range of items in order, with a context forked from the one of the list or struct.
+ *
+ * The outcome is the one of validating the items one by one: the item with the lowest index that
+ * failed or threw decides. Items are only skipped once an item with a lower index is known to have
+ * failed, so every item before it has been validated. Changes staged by the leaves are added to
+ * the context once all items validated.
+ */
+abstract class ParallelValidation {
+
+	// Leaves per worker, so workers that finish early can take over the rest
+	private static final int LEAVES_PER_WORKER = 4;
+
+	private final ValidationContext ctx;
+	private final boolean collectFields;
+
+	// Lowest index that failed or threw so far
+	private final AtomicInteger lowest = new AtomicInteger( Integer.MAX_VALUE );
+
+	private Leaf[] leaves;
+
+	/**
+	 * @param _collectFields Whether each leaf collects the fields it puts in a StructOutput of its
+	 *          own, see putFields
+	 */
+	ParallelValidation( ValidationContext _ctx, boolean _collectFields ) {
+		ctx = _ctx;
+		collectFields = _collectFields;
+	}
+
+	/**
+	 * Validates item _index. On success the output is left in _ctx.output, on failure _ctx holds
+	 * the reason.
+	 * 
+	 * @param _testBuild Output of the leaf for the fields of a struct, null for a list or if no
+	 *          output is built
+	 */
+	abstract boolean validate( ValidationContext _ctx, StructOutput _testBuild, int _index ) throws PrototypeException;
+
+	/**
+	 * @return Index of the first item that failed, its failure is in the context, or -1 if all items
+	 *         validated
+	 * @throws PrototypeException If the first item that did not validate threw it
+	 */
+	final int run( int _size ) throws PrototypeException {
+		int parallelism = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool().getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+		int leafSize = Math.max( ( _size + parallelism * LEAVES_PER_WORKER - 1 ) / ( parallelism * LEAVES_PER_WORKER ), 1 );
+
+		leaves = new Leaf[( _size + leafSize - 1 ) / leafSize];
+		for ( int i = 0; i < leaves.length; i++ )
+			leaves[i] = new Leaf( i * leafSize, Math.min( ( i + 1 ) * leafSize, _size ) );
+		ForkJoinTask.invokeAll( leaves );
+
+		int failed = lowest.get();
+		if ( failed != Integer.MAX_VALUE ) {
+			Leaf leaf = leaves[failed / leafSize];
+			if ( leaf.error instanceof PrototypeException )
+				throw (PrototypeException) leaf.error;
+			if ( leaf.error != null )
+				throw (RuntimeException) leaf.error;
+			ctx.failure = leaf.ctx.failure;
+			return failed;
+		}
+
+		for ( Leaf leaf : leaves )
+			ctx.stageAll( leaf.ctx );
+		return -1;
+	}
+
+	/**
+	 * Puts the fields collected by the leaves into _testBuild, in the order of the items.
+	 */
+	final void putFields( StructOutput _testBuild ) {
+		for ( Leaf leaf : leaves )
+			_testBuild.putAll( leaf.testBuild );
+	}
+
+	private void failed( int _index ) {
+		int current;
+		while ( _index < ( current = lowest.get() ) && !lowest.compareAndSet( current, _index ) )
+			;
+	}
+
+	private final class Leaf extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to;
+		private final ValidationContext ctx = ParallelValidation.this.ctx.fork();
+		private final StructOutput testBuild = collectFields ? StructOutput.createDetached( ctx ) : null;
+		private Exception error = null;
+
+		Leaf( int _from, int _to ) {
+			from = _from;
+			to = _to;
+		}
+
+		@Override
+		protected void compute() {
+			for ( int i = from; i < to && i < lowest.get(); i++ ) {
+				try {
+					if ( validate( ctx, testBuild, i ) )
+						continue;
+				} catch ( PrototypeException e ) {
+					error = e;
+				} catch ( RuntimeException e ) {
+					error = e;
+				}
+				failed( i );
+				return;
+			}
+		}
+	}
+
+}
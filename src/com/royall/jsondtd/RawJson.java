@@ -0,0 +1,104 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+
+/**
+ * An object or array of json bytes that the prototype does not look into, as returned in the
+ * modified json of JSONValidator.parse(). Only the position of the value is kept, it is decoded
+ * when getValue() or toString() is called. The bytes are shared with the json that was parsed, so
+ * they must not be changed while the RawJson is in use.
+ */
+public final class RawJson {
+
+	private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+	private final byte[] json;
+	private final int start, end;
+
+	RawJson( byte[] _json, int _start, int _end ) {
+		json = _json;
+		start = _start;
+		end = _end;
+	}
+
+	/**
+	 * @return Length of the value in bytes
+	 */
+	public int length() {
+		return end - start;
+	}
+
+	/**
+	 * @return The UTF-8 bytes of the value, copied
+	 */
+	public byte[] getBytes() {
+		return Arrays.copyOfRange( json, start, end );
+	}
+
+	/**
+	 * @return The value read as HashMaps and ArrayLists, like the rest of a deserialized json
+	 * @throws JSONValidatorException Never for a RawJson returned by parse(), the bytes were checked
+	 *           when they were parsed
+	 */
+	public Object getValue() throws JSONValidatorException {
+		return new ByteTokenizer( json, start, end ).readValue();
+	}
+
+	@Override
+	public boolean equals( Object _o ) {
+		if ( !( _o instanceof RawJson ) )
+			return false;
+		RawJson other = (RawJson) _o;
+		if ( other.length() != length() )
+			return false;
+		for ( int i = 0; i < length(); i++ ) {
+			if ( json[start + i] != other.json[other.start + i] )
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for ( int i = start; i < end; i++ )
+			hash = 31 * hash + json[i];
+		return hash;
+	}
+
+	/**
+	 * @return The json text of the value
+	 */
+	@Override
+	public String toString() {
+		return new String( json, start, end - start, UTF_8 );
+	}
+
+}
@@ -0,0 +1,314 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+
+/**
+ * Tokenizer reading json text from a Reader, one buffer at a time.
+ */
+final class ReaderTokenizer extends JSONTokenizer {
+
+	private final Reader reader;
+	private final char[] buffer = new char[8192];
+	private int pos = 0, limit = 0;
+	private boolean eof = false;
+
+	// Position for error messages
+	private long offset = 0, lineStart = 0;
+	private int line = 1;
+
+	private final StringBuilder text = new StringBuilder();
+	private String string;
+	private Number number;
+
+	ReaderTokenizer( Reader _reader ) {
+		reader = _reader;
+	}
+
+	@Override
+	String getString() {
+		return string;
+	}
+
+	@Override
+	Number getNumber() {
+		return number;
+	}
+
+	@Override
+	Token readToken() throws JSONValidatorException {
+		int c = skipWhitespace();
+		switch ( states[depth] ) {
+			case ROOT_DONE:
+				if ( c != -1 )
+					throw syntax( "Unexpected character '" + (char) c + "' after the json" );
+				return Token.END;
+			case ROOT:
+				states[depth] = ROOT_DONE;
+				return value( c );
+			case ARRAY_FIRST:
+				if ( c == ']' )
+					return close( Token.END_ARRAY );
+				states[depth] = ARRAY_NEXT;
+				return value( c );
+			case ARRAY_NEXT:
+				if ( c == ']' )
+					return close( Token.END_ARRAY );
+				if ( c != ',' )
+					throw syntax( "Expected ',' or ']'" );
+				return value( skipWhitespace() );
+			case OBJECT_FIRST:
+				if ( c == '}' )
+					return close( Token.END_OBJECT );
+				return fieldName( c );
+			case OBJECT_NEXT:
+				if ( c == '}' )
+					return close( Token.END_OBJECT );
+				if ( c != ',' )
+					throw syntax( "Expected ',' or '}'" );
+				return fieldName( skipWhitespace() );
+			default:
+				states[depth] = OBJECT_NEXT;
+				return value( c );
+		}
+	}
+
+	private Token fieldName( int _c ) throws JSONValidatorException {
+		if ( _c != '"' )
+			throw syntax( "Expected a field name" );
+		string = readString();
+		if ( skipWhitespace() != ':' )
+			throw syntax( "Expected ':'" );
+		states[depth] = OBJECT_VALUE;
+		return Token.FIELD_NAME;
+	}
+
+	private Token value( int _c ) throws JSONValidatorException {
+		switch ( _c ) {
+			case '{':
+				open( OBJECT_FIRST );
+				return Token.START_OBJECT;
+			case '[':
+				open( ARRAY_FIRST );
+				return Token.START_ARRAY;
+			case '"':
+				string = readString();
+				return Token.STRING;
+			case 't':
+				expect( "rue" );
+				return Token.TRUE;
+			case 'f':
+				expect( "alse" );
+				return Token.FALSE;
+			case 'n':
+				expect( "ull" );
+				return Token.NULL;
+			case -1:
+				throw syntax( "Unexpected end of the json" );
+			default:
+				if ( _c == '-' || ( _c >= '0' && _c <= '9' ) ) {
+					number = readNumber( _c );
+					return Token.NUMBER;
+				}
+				throw syntax( "Unexpected character '" + (char) _c + "'" );
+		}
+	}
+
+	private String readString() throws JSONValidatorException {
+		text.setLength( 0 );
+		for ( ;; ) {
+			// Copy plain characters in runs
+			int start = pos;
+			while ( pos < limit ) {
+				char c = buffer[pos];
+				if ( c == '"' || c == '\\' || c < 0x20 )
+					break;
+				pos++;
+			}
+			text.append( buffer, start, pos - start );
+
+			int c = read( "Unterminated string" );
+			if ( c == '"' )
+				return text.toString();
+			if ( c < 0x20 )
+				throw syntax( "Unescaped control character in string" );
+			if ( c == '\\' )
+				text.append( readEscape() );
+			else
+				text.append( (char) c );
+		}
+	}
+
+	private char readEscape() throws JSONValidatorException {
+		int c = read( "Unterminated string" );
+		switch ( c ) {
+			case '"':
+			case '\\':
+			case '/':
+				return (char) c;
+			case 'b':
+				return '\b';
+			case 'f':
+				return '\f';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			case 'u':
+				int value = 0;
+				for ( int i = 0; i < 4; i++ ) {
+					int digit = Character.digit( read( "Unterminated string" ), 16 );
+					if ( digit < 0 )
+						throw syntax( "Invalid unicode escape" );
+					value = ( value << 4 ) | digit;
+				}
+				return (char) value;
+			default:
+				throw syntax( "Invalid escape character '" + (char) c + "'" );
+		}
+	}
+
+	private Number readNumber( int _c ) throws JSONValidatorException {
+		text.setLength( 0 );
+		int c = _c;
+		if ( c == '-' ) {
+			text.append( '-' );
+			c = read();
+		}
+
+		// Integer part
+		if ( c == '0' ) {
+			text.append( '0' );
+			c = read();
+		} else if ( c >= '1' && c <= '9' ) {
+			c = readDigits( c );
+		} else
+			throw syntax( "Invalid number" );
+
+		boolean integral = true;
+		if ( c == '.' ) {
+			integral = false;
+			text.append( '.' );
+			c = read();
+			if ( c < '0' || c > '9' )
+				throw syntax( "Invalid number" );
+			c = readDigits( c );
+		}
+		if ( c == 'e' || c == 'E' ) {
+			integral = false;
+			text.append( 'e' );
+			c = read();
+			if ( c == '+' || c == '-' ) {
+				text.append( (char) c );
+				c = read();
+			}
+			if ( c < '0' || c > '9' )
+				throw syntax( "Invalid number" );
+			c = readDigits( c );
+		}
+		unread( c );
+
+		return toNumber( text.toString(), integral );
+	}
+
+	/**
+	 * Appends _c and the digits following it.
+	 *
+	 * @return The first character after the digits
+	 */
+	private int readDigits( int _c ) throws JSONValidatorException {
+		int c = _c;
+		do {
+			text.append( (char) c );
+			c = read();
+		} while ( c >= '0' && c <= '9' );
+		return c;
+	}
+
+	private void expect( String _rest ) throws JSONValidatorException {
+		for ( int i = 0; i < _rest.length(); i++ ) {
+			if ( read() != _rest.charAt( i ) )
+				throw syntax( "Unexpected literal" );
+		}
+	}
+
+	private int skipWhitespace() throws JSONValidatorException {
+		for ( ;; ) {
+			int c = read();
+			if ( c == '\n' ) {
+				line++;
+				lineStart = offset + pos;
+			} else if ( c != ' ' && c != '\t' && c != '\r' )
+				return c;
+		}
+	}
+
+	private int read( String _eofMessage ) throws JSONValidatorException {
+		int c = read();
+		if ( c == -1 )
+			throw syntax( _eofMessage );
+		return c;
+	}
+
+	private int read() throws JSONValidatorException {
+		if ( pos == limit ) {
+			if ( eof )
+				return -1;
+			try {
+				offset += limit;
+				pos = 0;
+				limit = Math.max( reader.read( buffer ), 0 );
+			} catch ( IOException e ) {
+				throw new JSONValidatorException( "Failed to read json due to " + e.getClass().getName() + ": " + e.getMessage(), e );
+			}
+			if ( limit == 0 ) {
+				eof = true;
+				return -1;
+			}
+		}
+		return buffer[pos++];
+	}
+
+	/**
+	 * Steps back over the last character read, unless the end of the json was reached.
+	 */
+	private void unread( int _c ) {
+		if ( _c != -1 )
+			pos--;
+	}
+
+	@Override
+	JSONValidatorException syntax( String _message ) {
+		long position = offset + pos;
+		return new JSONValidatorException( "Malformed json at line " + line + " column " + ( position - lineStart ) + ": " + _message );
+	}
+
+}
@@ -0,0 +1,125 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+
+/**
+ * The values of an EnumSource as an immutable set that is replaced as a whole when the source is
+ * loaded again. A lookup reads the current set without locking. The first lookup after the time to
+ * live hands the reload to the executor and goes on with the set it has, so at most one reload runs
+ * at a time and validation never waits for one.
+ */
+final class RefreshingEnum {
+
+	// Reloads of sources added without an executor, on daemon threads so they never keep the JVM up
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool( new ThreadFactory() {
+
+		@Override
+		public Thread newThread( Runnable _runnable ) {
+			Thread thread = new Thread( _runnable, "jsondtd-enumsource" );
+			thread.setDaemon( true );
+			return thread;
+		}
+	} );
+
+	private final String name;
+	private final EnumSource source;
+	private final long timeToLive;
+	private final Executor executor;
+
+	private volatile Set<Object> values;
+
+	// System.nanoTime() once the values are older than the time to live
+	private volatile long expires;
+
+	private final AtomicBoolean reloading = new AtomicBoolean();
+
+	private final Runnable reload = new Runnable() {
+
+		@Override
+		public void run() {
+			try {
+				values = load( source );
+			} catch ( Exception e ) {
+				// Keep the values and try again once they expire again
+			} finally {
+				expires = System.nanoTime() + timeToLive;
+				reloading.set( false );
+			}
+		}
+	};
+
+	/**
+	 * Loads the values of the source for the first time.
+	 * 
+	 * @param _timeToLive Nanoseconds until the values are loaded again
+	 * @param _executor Runs the reloads, null for a shared pool of daemon threads
+	 * @throws JSONValidatorException If the source fails to load
+	 */
+	RefreshingEnum( String _name, EnumSource _source, long _timeToLive, Executor _executor ) throws JSONValidatorException {
+		name = _name;
+		source = _source;
+		timeToLive = _timeToLive;
+		executor = ( _executor != null ) ? _executor : DEFAULT_EXECUTOR;
+		try {
+			values = load( _source );
+		} catch ( Exception e ) {
+			throw new JSONValidatorException( "Enum source " + _name + " failed to load: " + e.getMessage(), e );
+		}
+		expires = System.nanoTime() + _timeToLive;
+	}
+
+	private static Set<Object> load( EnumSource _source ) throws Exception {
+		return Collections.unmodifiableSet( new HashSet<Object>( _source.load() ) );
+	}
+
+	String getName() {
+		return name;
+	}
+
+	boolean contains( Object _value ) {
+		Set<Object> current = values;
+		if ( System.nanoTime() - expires >= 0 && reloading.compareAndSet( false, true ) ) {
+			try {
+				executor.execute( reload );
+			} catch ( RuntimeException e ) {
+				// A rejected reload is tried again on a later lookup
+				reloading.set( false );
+			}
+		}
+		return current.contains( _value );
+	}
+
+}
@@ -0,0 +1,443 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled regex of a string type, with the literal text any match must contain. A string that
+ * does not start with the literal prefix, end with the literal suffix or contain the literals in
+ * between, in order, is rejected with startsWith(), endsWith() and indexOf() before the regex engine
+ * runs.
+ *
+ * The literals are only taken from the top level of the regex, outside of groups and character
+ * classes, and none are taken from a regex with alternatives or inline flags.
+ *
+ * A match can be given a budget of steps, the characters the regex engine reads, so that a regex
+ * that backtracks a lot cannot keep a thread busy for minutes.
+ */
+final class Regex {
+
+	/** Results of match() */
+	static final int MATCH = 0, MISMATCH = 1, TOO_COSTLY = 2;
+
+	private static final String[] NO_LITERALS = new String[0];
+
+	private final Pattern pattern;
+
+	// In order of the regex, the first may be anchored at the start, the last at the end
+	private final String[] literals;
+	private final boolean prefix, suffix;
+
+	private final boolean nestedQuantifiers;
+
+	private Regex( Pattern _pattern, String[] _literals, boolean _prefix, boolean _suffix ) {
+		pattern = _pattern;
+		literals = _literals;
+		prefix = _prefix;
+		suffix = _suffix;
+		nestedQuantifiers = hasNestedQuantifiers( _pattern.pattern() );
+	}
+
+	/**
+	 * @throws java.util.regex.PatternSyntaxException If _regex is not a valid regex
+	 */
+	static Regex compile( String _regex ) {
+		Pattern pattern = Pattern.compile( _regex );
+		Literals literals = new Literals();
+		if ( !extractLiterals( _regex, literals ) )
+			return new Regex( pattern, NO_LITERALS, false, false );
+		return new Regex( pattern, literals.runs.toArray( new String[literals.runs.size()] ), literals.prefix, literals.suffix );
+	}
+
+	String pattern() {
+		return pattern.pattern();
+	}
+
+	/**
+	 * @return Whether a repeated group of the regex contains a repeated part, such as (a+)+, which can
+	 *         make the regex engine try exponentially many ways to match a string
+	 */
+	boolean hasNestedQuantifiers() {
+		return nestedQuantifiers;
+	}
+
+	/**
+	 * @return Whether all of _string matches the regex
+	 */
+	boolean matches( String _string ) {
+		return match( _string, 0 ) == MATCH;
+	}
+
+	/**
+	 * @param _stepLimit Most characters the regex engine may read, 0 for no limit
+	 * @return MATCH if all of _string matches the regex, MISMATCH if not, TOO_COSTLY if the regex
+	 *         engine did not decide within _stepLimit steps
+	 */
+	int match( String _string, int _stepLimit ) {
+		if ( !mayMatch( _string ) )
+			return MISMATCH;
+		if ( _stepLimit <= 0 )
+			return pattern.matcher( _string ).matches() ? MATCH : MISMATCH;
+		try {
+			return pattern.matcher( new CountingCharSequence( _string, _stepLimit ) ).matches() ? MATCH : MISMATCH;
+		} catch ( StepLimitExceeded e ) {
+			return TOO_COSTLY;
+		}
+	}
+
+	/**
+	 * @return False if _string lacks one of the literals, true if it may match
+	 */
+	boolean mayMatch( String _string ) {
+		int from = 0;
+		int last = literals.length - 1;
+		for ( int i = 0; i <= last; i++ ) {
+			String literal = literals[i];
+			if ( i == 0 && prefix ) {
+				if ( !_string.startsWith( literal ) )
+					return false;
+				from = literal.length();
+				if ( i == last && suffix )
+					return _string.length() == from;
+			} else if ( i == last && suffix ) {
+				return _string.length() - literal.length() >= from && _string.endsWith( literal );
+			} else {
+				int found = _string.indexOf( literal, from );
+				if ( found < 0 )
+					return false;
+				from = found + literal.length();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Collects the runs of literal characters that every match contains in order.
+	 * 
+	 * @return False if nothing can be said about the literals of the regex
+	 */
+	private static boolean extractLiterals( String _regex, Literals _literals ) {
+		int i = 0;
+		int end = _regex.length();
+		if ( end > 0 && _regex.charAt( 0 ) == '^' )
+			i++;
+		if ( end > i && _regex.charAt( end - 1 ) == '$' && !escaped( _regex, end - 1 ) )
+			end--;
+
+		while ( i < end ) {
+			char c = _regex.charAt( i );
+			switch ( c ) {
+				case '|':
+					return false;
+				case '\\':
+					if ( i + 1 >= end )
+						return false;
+					char escape = _regex.charAt( i + 1 );
+					i += 2;
+					if ( !Character.isLetterOrDigit( escape ) ) {
+						_literals.append( escape );
+					} else if ( escape == 'p' || escape == 'P' ) {
+						// A unicode class such as \p{L} or \pL
+						if ( i >= end )
+							return false;
+						if ( _regex.charAt( i ) != '{' )
+							i++;
+						else if ( ( i = _regex.indexOf( '}', i ) + 1 ) == 0 )
+							return false;
+						_literals.split();
+					} else if ( "dDwWsShHvVbBAGZzR".indexOf( escape ) >= 0 ) {
+						_literals.split();
+					} else {
+						// Quoting, backreferences and escapes of characters by number or name
+						return false;
+					}
+					break;
+				case '[':
+					if ( ( i = skipClass( _regex, i, end ) ) < 0 )
+						return false;
+					_literals.split();
+					break;
+				case '(':
+					// Inline flags change how the rest of the regex matches
+					if ( i + 2 < end && _regex.charAt( i + 1 ) == '?' && ":<=!>".indexOf( _regex.charAt( i + 2 ) ) < 0 )
+						return false;
+					if ( ( i = skipGroup( _regex, i, end ) ) < 0 )
+						return false;
+					_literals.split();
+					break;
+				case '*':
+				case '?':
+				case '{':
+					// The character before is optional or repeated an unknown number of times
+					_literals.dropLast();
+					_literals.split();
+					if ( c == '{' && ( i = _regex.indexOf( '}', i ) ) < 0 )
+						return false;
+					i++;
+					break;
+				case '+':
+				case '.':
+				case '^':
+				case '$':
+					_literals.split();
+					i++;
+					break;
+				case ')':
+				case ']':
+				case '}':
+					return false;
+				default:
+					_literals.append( c );
+					i++;
+			}
+		}
+		_literals.finish();
+		return true;
+	}
+
+	/**
+	 * @return Position after the character class at _i, -1 if it does not end
+	 */
+	private static int skipClass( String _regex, int _i, int _end ) {
+		int depth = 0;
+		int i = _i;
+		while ( i < _end ) {
+			char c = _regex.charAt( i );
+			if ( c == '\\' ) {
+				i += 2;
+				continue;
+			}
+			if ( c == '[' )
+				depth++;
+			else if ( c == ']' && i > _i + 1 && !( i == _i + 2 && _regex.charAt( _i + 1 ) == '^' ) ) {
+				if ( --depth == 0 )
+					return i + 1;
+			}
+			i++;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return Position after the group at _i, -1 if it does not end
+	 */
+	private static int skipGroup( String _regex, int _i, int _end ) {
+		int depth = 0;
+		int i = _i;
+		while ( i < _end ) {
+			char c = _regex.charAt( i );
+			if ( c == '\\' ) {
+				i += 2;
+				continue;
+			}
+			if ( c == '[' ) {
+				if ( ( i = skipClass( _regex, i, _end ) ) < 0 )
+					return -1;
+				continue;
+			}
+			if ( c == '(' )
+				depth++;
+			else if ( c == ')' && --depth == 0 )
+				return i + 1;
+			i++;
+		}
+		return -1;
+	}
+
+	private static boolean hasNestedQuantifiers( String _regex ) {
+		// For each open group whether it contains a quantifier
+		boolean[] quantified = new boolean[_regex.length() + 1];
+		int depth = 0;
+		int end = _regex.length();
+		boolean afterQuantifiedGroup = false;
+		for ( int i = 0; i < end; i++ ) {
+			char c = _regex.charAt( i );
+			boolean repeatsQuantifiedGroup = afterQuantifiedGroup;
+			afterQuantifiedGroup = false;
+			switch ( c ) {
+				case '\\':
+					if ( ++i >= end )
+						return false;
+					char escape = _regex.charAt( i );
+					if ( escape == 'Q' ) {
+						if ( ( i = _regex.indexOf( "\\E", i ) ) < 0 )
+							return false;
+						i++;
+					} else if ( "pPxN".indexOf( escape ) >= 0 && i + 1 < end && _regex.charAt( i + 1 ) == '{' ) {
+						if ( ( i = _regex.indexOf( '}', i ) ) < 0 )
+							return false;
+					}
+					break;
+				case '[':
+					if ( ( i = skipClass( _regex, i, end ) - 1 ) < 0 )
+						return false;
+					break;
+				case '(':
+					quantified[++depth] = false;
+					break;
+				case ')':
+					if ( depth > 0 ) {
+						afterQuantifiedGroup = quantified[depth];
+						depth--;
+						quantified[depth] |= afterQuantifiedGroup;
+					}
+					break;
+				case '*':
+				case '+':
+				case '{':
+					if ( repeatsQuantifiedGroup )
+						return true;
+					quantified[depth] = true;
+					if ( c == '{' && ( i = _regex.indexOf( '}', i ) ) < 0 )
+						return false;
+					// Lazy and possessive quantifiers
+					if ( i + 1 < end && ( _regex.charAt( i + 1 ) == '?' || _regex.charAt( i + 1 ) == '+' ) )
+						i++;
+					break;
+				default:
+			}
+		}
+		return false;
+	}
+
+	private static boolean escaped( String _regex, int _i ) {
+		int backslashes = 0;
+		for ( int i = _i - 1; i >= 0 && _regex.charAt( i ) == '\\'; i-- )
+			backslashes++;
+		return ( backslashes & 1 ) == 1;
+	}
+
+	/**
+	 * Runs of literal characters found so far.
+	 */
+	private static final class Literals {
+
+		final List<String> runs = new ArrayList<String>();
+		final StringBuilder run = new StringBuilder();
+
+		// Whether something that is not a literal came before the current run
+		boolean split;
+
+		// Whether the first run starts every match and the last run ends it
+		boolean prefix, suffix;
+
+		void append( char _c ) {
+			run.append( _c );
+		}
+
+		void dropLast() {
+			int length = run.length();
+			if ( length > 0 )
+				length--;
+			if ( length > 0 && Character.isHighSurrogate( run.charAt( length - 1 ) ) )
+				length--;
+			run.setLength( length );
+		}
+
+		/**
+		 * Ends the current run, something that is not a literal follows.
+		 */
+		void split() {
+			addRun();
+			split = true;
+		}
+
+		/**
+		 * Ends the last run at the end of the regex.
+		 */
+		void finish() {
+			if ( run.length() > 0 ) {
+				addRun();
+				suffix = true;
+			}
+		}
+
+		private void addRun() {
+			if ( run.length() == 0 )
+				return;
+			if ( runs.isEmpty() && !split )
+				prefix = true;
+			runs.add( run.toString() );
+			run.setLength( 0 );
+		}
+
+	}
+
+	/**
+	 * The string matched with a budget of steps, each character the regex engine reads is one.
+	 */
+	private static final class CountingCharSequence implements CharSequence {
+
+		private final String string;
+		private int steps;
+
+		CountingCharSequence( String _string, int _steps ) {
+			string = _string;
+			steps = _steps;
+		}
+
+		@Override
+		public char charAt( int _index ) {
+			if ( --steps < 0 )
+				throw StepLimitExceeded.INSTANCE;
+			return string.charAt( _index );
+		}
+
+		@Override
+		public int length() {
+			return string.length();
+		}
+
+		@Override
+		public CharSequence subSequence( int _start, int _end ) {
+			return string.subSequence( _start, _end );
+		}
+
+		@Override
+		public String toString() {
+			return string;
+		}
+
+	}
+
+	/**
+	 * Thrown out of the regex engine once the budget of steps is used up.
+	 */
+	private static final class StepLimitExceeded extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		static final StepLimitExceeded INSTANCE = new StepLimitExceeded();
+
+		private StepLimitExceeded() {
+			super( "Regex step limit exceeded", null, false, false );
+		}
+
+	}
+
+}
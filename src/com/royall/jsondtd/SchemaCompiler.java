@@ -0,0 +1,655 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
+
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+import static com.royall.jsondtd.JSONValidator.*;
+
+/**
+ * Turns a prototype Map into a tree of SchemaNodes.
+ *
+ * A strict compiler throws the first PrototypeException it finds. A lenient compiler keeps the
+ * exception in the node instead and the node raises it once json reaches that part of the
+ * prototype, which is how JSONValidator.validate(Object, Map) has always reported prototype errors.
+ */
+final class SchemaCompiler {
+
+	private final boolean strict;
+
+	private final boolean errorOnUnspecifiedKeys, removeUnspecifiedKeys, removeKeysWhenValueEmpty;
+	private final DatePatterns datePatterns;
+	private final BoundedCache<DateParser> dateParsers;
+	private final BoundedCache<Regex> regexes;
+	private final int regexStepLimit;
+	private final Map<String, Map<String, ?>> customTypes;
+	private final Map<String, Allowlist> allowlists;
+	private final Map<String, RefreshingEnum> enumSources;
+
+	// Things that are allowed in a prototype but probably not meant, in the order they were found
+	private final Set<String> warnings = new LinkedHashSet<String>();
+
+	// Custom types compiled so far, shared by every reference to the same type
+	private final Map<String, CustomNode> compiledCustomTypes = new HashMap<String, CustomNode>();
+
+	SchemaCompiler( boolean _strict, boolean _errorOnUnspecifiedKeys, boolean _removeUnspecifiedKeys, boolean _removeKeysWhenValueEmpty, DateParser _dateParser, BoundedCache<DateParser> _dateParsers, BoundedCache<Regex> _regexes, int _regexStepLimit, Map<String, Map<String, ?>> _customTypes, Map<String, Allowlist> _allowlists, Map<String, RefreshingEnum> _enumSources ) {
+		strict = _strict;
+		errorOnUnspecifiedKeys = _errorOnUnspecifiedKeys;
+		removeUnspecifiedKeys = _removeUnspecifiedKeys;
+		removeKeysWhenValueEmpty = _removeKeysWhenValueEmpty;
+		datePatterns = new DatePatterns( _dateParser );
+		dateParsers = _dateParsers;
+		regexes = _regexes;
+		regexStepLimit = _regexStepLimit;
+		customTypes = _customTypes;
+		allowlists = _allowlists;
+		enumSources = _enumSources;
+	}
+
+	CompiledSchema compile( Map<?, ?> _prototype ) throws PrototypeException {
+		SchemaNode root = compileBlock( _prototype );
+		return new CompiledSchema( root, new ArrayList<String>( warnings ) );
+	}
+
+	/**
+	 * A strict compiler throws the error right away, a lenient one hands it back to be stored in the
+	 * node.
+	 */
+	private PrototypeException defer( PrototypeException _e ) throws PrototypeException {
+		if ( strict )
+			throw _e;
+		return _e;
+	}
+
+	private PrototypeException defer( String _message ) throws PrototypeException {
+		return defer( new PrototypeException( _message ) );
+	}
+
+	// Main Block compiler that will be called for Document and every SubDocument
+	private SchemaNode compileBlock( Map<?, ?> _prototype ) throws PrototypeException {
+		if ( _prototype.get( KEY_CLASS ) != null ) {
+			return compileClass( _prototype );
+		} else if ( _prototype.get( KEY_TYPE ) != null ) {
+			return compileType( _prototype );
+		} else if ( _prototype.get( KEY_CUSTOM ) != null ) {
+			return compileCustom( _prototype );
+		} else
+			return new ErrorNode( defer( "'" + KEY_TYPE + "' or '" + KEY_CLASS + "' is required for each level in prototype." ) );
+	}
+
+	private SchemaNode compileClass( Map<?, ?> _prototype ) throws PrototypeException {
+		String classExpectedValue = _prototype.get( KEY_CLASS ).toString();
+
+		if ( _prototype.get( KEY_TYPE ) == null )
+			return new ClassNode( classExpectedValue, null, null, null, null, null, null, null );
+
+		SchemaNode type = compileType( _prototype );
+
+		Object normalize = _prototype.get( KEY_NORMALIZE );
+		String normalizeName = null;
+		Constructor<?> normalizer = null;
+		Method normalizeMethod = null;
+		PrototypeException normalizeError = null;
+		Class<?> c = null;
+		if ( normalize != null ) {
+			normalizeName = normalize.toString();
+			try {
+				if ( normalize instanceof Class )
+					c = (Class<?>) normalize;
+				else
+					c = Class.forName( normalizeName );
+				normalizeMethod = c.getDeclaredMethod( KEY_NORMALIZE, Object.class );
+				normalizer = c.getDeclaredConstructor();
+			} catch ( Exception e ) {
+				normalizeError = defer( new PrototypeException( "Failed to invoke " + normalizeName + "." + KEY_NORMALIZE + "(Object _jsonValue) due to " + e.getClass().getName() + ": " + e.getMessage(), e ) );
+			}
+		}
+
+		Object denormalize = _prototype.get( KEY_DENORMALIZE );
+		Method denormalizeMethod = null;
+		PrototypeException denormalizeError = null;
+		if ( denormalize != null && !( denormalize instanceof Boolean ) ) {
+			denormalizeError = defer( "Key " + KEY_DENORMALIZE + " should be a boolean." );
+		} else if ( c != null && normalizeError == null && denormalize != null && (Boolean) denormalize ) {
+			try {
+				denormalizeMethod = c.getDeclaredMethod( KEY_DENORMALIZE, Object.class );
+			} catch ( Exception e ) {
+				denormalizeError = defer( new PrototypeException( "Failed to invoke " + normalizeName + "." + KEY_DENORMALIZE + "(Object _jsonValue) due to " + e.getClass().getName() + ": " + e.getMessage(), e ) );
+			}
+		}
+
+		return new ClassNode( classExpectedValue, type, normalizeName, normalizer, normalizeMethod, normalizeError, denormalizeMethod, denormalizeError );
+	}
+
+	private SchemaNode compileType( Map<?, ?> _prototype ) throws PrototypeException {
+		String type = _prototype.get( KEY_TYPE ).toString();
+		if ( type.equalsIgnoreCase( "string" ) )
+			return compileStringType( _prototype );
+		else if ( type.equalsIgnoreCase( "number" ) || type.equalsIgnoreCase( "numeric" ) )
+			return compileNumberType( _prototype );
+		else if ( type.equalsIgnoreCase( "boolean" ) || type.equalsIgnoreCase( "bool" ) )
+			return compileBooleanType( _prototype );
+		else if ( type.equalsIgnoreCase( "simple" ) )
+			return new SimpleNode();
+		else if ( type.equalsIgnoreCase( "struct" ) )
+			return compileStructType( _prototype );
+		else if ( type.equalsIgnoreCase( "array" ) || type.equalsIgnoreCase( "list" ) )
+			return compileArrayType( _prototype );
+		else if ( type.equalsIgnoreCase( "date" ) )
+			return compileDateType( _prototype );
+		else if ( type.equalsIgnoreCase( "null" ) )
+			return new NullNode();
+		else if ( type.equalsIgnoreCase( "any" ) )
+			return new AnyNode();
+		else
+			return new ErrorNode( defer( "Type '" + type + "' was not recognized" ) );
+	}
+
+	private SchemaNode compileCustom( Map<?, ?> _prototype ) throws PrototypeException {
+		String customType = _prototype.get( KEY_CUSTOM ).toString();
+
+		CustomNode node = compiledCustomTypes.get( customType );
+		if ( node != null )
+			return node;
+
+		Map<String, ?> customPrototype = customTypes.get( customType );
+		if ( customPrototype == null )
+			return new ErrorNode( defer( "Custom type '" + customType + "' has not been defined." ) );
+		if ( customPrototype.get( KEY_TYPE ) == null )
+			return new ErrorNode( defer( "'" + KEY_TYPE + "' is required for custom type '" + customType + "'." ) );
+
+		// Register before compiling so the type may reference itself
+		node = new CustomNode();
+		compiledCustomTypes.put( customType, node );
+		node.bind( compileType( customPrototype ) );
+		return node;
+	}
+
+	private SchemaNode compileArrayType( Map<?, ?> _prototype ) throws PrototypeException {
+
+		// Min elements in array
+		boolean hasMin = false;
+		int min = 0;
+		PrototypeException minError = null;
+		Object o = _prototype.get( KEY_ARRAY_MIN );
+		if ( o != null ) {
+			hasMin = true;
+			if ( o instanceof Integer )
+				min = (Integer) o;
+			else
+				minError = defer( "Array min must be an Integer" );
+		}
+
+		// Max elements in array
+		boolean hasMax = false;
+		int max = 0;
+		PrototypeException maxError = null;
+		o = _prototype.get( KEY_ARRAY_MAX );
+		if ( o != null ) {
+			hasMax = true;
+			if ( o instanceof Integer )
+				max = (Integer) o;
+			else
+				maxError = defer( "Array max must be an Integer" );
+		}
+
+		// Get children map
+		SchemaNode children = null;
+		PrototypeException childrenError = null;
+		Object childrenObject = _prototype.get( KEY_CHILDREN );
+		if ( childrenObject == null )
+			childrenError = defer( "'" + KEY_CHILDREN + "' key required for Type List" );
+		else if ( !( childrenObject instanceof Map ) )
+			childrenError = defer( "'" + KEY_CHILDREN + "' key of type: list must be a Map" );
+		else
+			children = compileBlock( (Map<?, ?>) childrenObject );
+
+		return new ArrayNode( hasMin, min, minError, hasMax, max, maxError, children, childrenError );
+	}
+
+	private SchemaNode compileStructType( Map<?, ?> _prototype ) throws PrototypeException {
+
+		// Get Fields array
+		Object fieldsObject = _prototype.get( KEY_FIELDS );
+
+		// fields is required
+		if ( fieldsObject == null )
+			return new StructNode( null, defer( "'" + KEY_FIELDS + "' key required for Type struct" ) );
+
+		if ( fieldsObject instanceof Map )
+			return new StructNode( new FieldsNode[] { compileFields( (Map<?, ?>) fieldsObject ) }, null );
+
+		if ( !( fieldsObject instanceof List ) )
+			return new StructNode( null, defer( "Fields key of type: Struct must be a List or Map" ) );
+
+		List<?> fields = (List<?>) fieldsObject;
+		if ( fields.isEmpty() )
+			return new StructNode( null, defer( "Cannot have empty fields array in prototype" ) );
+
+		if ( fields.size() == 1 && !( fields.get( 0 ) instanceof Map ) )
+			return new StructNode( null, defer( "Fields key of type: Struct must contain Maps" ) );
+
+		// With several possible fits a non Map entry simply never validates
+		FieldsNode[] patterns = new FieldsNode[fields.size()];
+		for ( int i = 0; i < patterns.length; i++ ) {
+			Object fit = fields.get( i );
+			if ( fit instanceof Map )
+				patterns[i] = compileFields( (Map<?, ?>) fit );
+		}
+		return new StructNode( patterns, null );
+	}
+
+	private FieldsNode compileFields( Map<?, ?> _prototype ) throws PrototypeException {
+
+		List<FieldNode> fields = new ArrayList<FieldNode>( _prototype.size() );
+		boolean hasWildcard = false;
+		FieldNode wildcard = null;
+		PrototypeException wildcardError = null;
+
+		// Identical conditions of the fields are evaluated once per struct
+		Condition.Pool conditions = new Condition.Pool();
+
+		for ( Map.Entry<?, ?> entry : _prototype.entrySet() ) {
+			Object key = entry.getKey();
+			if ( key == null ) {
+				fields.add( new FieldNode( null, defer( "Prototype contained null key" ) ) );
+				continue;
+			}
+			if ( !( key instanceof String ) ) {
+				fields.add( new FieldNode( null, defer( "Keys for Struct must be a String in prototype" ) ) );
+				continue;
+			}
+			String field = (String) key;
+
+			// The wildcard only uses its definition, after all other fields were examined
+			if ( field.equalsIgnoreCase( KEY_WILDCARD_FIELD ) ) {
+				hasWildcard = true;
+				if ( entry.getValue() instanceof Map )
+					wildcard = compileField( field, (Map<?, ?>) entry.getValue(), conditions );
+				else
+					wildcardError = defer( "Fieldmap for " + KEY_WILDCARD_FIELD + " in prototype was not a map" );
+				continue;
+			}
+
+			if ( entry.getValue() instanceof Map )
+				fields.add( compileField( field, (Map<?, ?>) entry.getValue(), conditions ) );
+			else
+				fields.add( new FieldNode( field, defer( "Fieldmap for " + field + " in prototype was not a map" ) ) );
+		}
+
+		return new FieldsNode( fields.toArray( new FieldNode[fields.size()] ), new HashSet<Object>( _prototype.keySet() ), hasWildcard, wildcard, wildcardError, errorOnUnspecifiedKeys, removeUnspecifiedKeys, removeKeysWhenValueEmpty, conditions );
+	}
+
+	private FieldNode compileField( String _field, Map<?, ?> _fieldMap, Condition.Pool _conditions ) throws PrototypeException {
+
+		// Req value
+		boolean req = false;
+		Condition reqCondition = null;
+		PrototypeException reqError = null;
+		if ( _fieldMap.containsKey( KEY_REQ ) ) {
+			Object o = _fieldMap.get( KEY_REQ );
+			if ( o instanceof Boolean )
+				req = (Boolean) o;
+			else if ( o instanceof Map )
+				reqCondition = Condition.compile( (Map<?, ?>) o, _conditions );
+			else
+				reqError = defer( KEY_REQ + " can only be boolean or struct." );
+		}
+
+		// Err_On value
+		boolean errOn = false;
+		Condition errOnCondition = null;
+		PrototypeException errOnError = null;
+		if ( _fieldMap.containsKey( KEY_ERR_ON ) ) {
+			Object o = _fieldMap.get( KEY_ERR_ON );
+			if ( o instanceof Boolean )
+				errOn = (Boolean) o;
+			else if ( o instanceof Map )
+				errOnCondition = Condition.compile( (Map<?, ?>) o, _conditions );
+			else
+				errOnError = defer( KEY_ERR_ON + " can only be boolean or struct." );
+		}
+
+		// Defaults
+		boolean hasDefault = _fieldMap.containsKey( KEY_DEFAULT );
+		Object defaultValue = _fieldMap.get( KEY_DEFAULT );
+		boolean hasDefaultItem = !hasDefault && _fieldMap.containsKey( KEY_DEFAULT_ITEM );
+		Object defaultItem = _fieldMap.get( KEY_DEFAULT_ITEM );
+		PrototypeException defaultItemError = null;
+		if ( hasDefaultItem && defaultItem == null )
+			defaultItemError = defer( KEY_DEFAULT_ITEM + " cannot be null" );
+
+		// Definition(s)
+		SchemaNode[] definitions = null;
+		boolean[] removeEmpty = null;
+		boolean definitionList = false;
+		PrototypeException definitionError = null;
+		Object definitionObject = _fieldMap.get( KEY_FIELD_DEFINITION );
+		if ( definitionObject instanceof List ) {
+			List<?> definitionsFound = (List<?>) definitionObject;
+			if ( definitionsFound.isEmpty() ) {
+				definitionError = defer( "Key " + KEY_FIELD_DEFINITION + " cannot be an empty list." );
+			} else {
+				definitionList = true;
+				definitions = new SchemaNode[definitionsFound.size()];
+				removeEmpty = new boolean[definitions.length];
+				for ( int i = 0; i < definitions.length; i++ ) {
+					Object definition = definitionsFound.get( i );
+					if ( definition instanceof Map ) {
+						definitions[i] = compileBlock( (Map<?, ?>) definition );
+						removeEmpty[i] = isRemoveEmpty( (Map<?, ?>) definition );
+					} else {
+						definitions[i] = new ErrorNode( defer( "Key " + KEY_FIELD_DEFINITION + " must be either a Map or List<Map>." ) );
+					}
+				}
+			}
+		} else if ( definitionObject instanceof Map ) {
+			definitions = new SchemaNode[] { compileBlock( (Map<?, ?>) definitionObject ) };
+			removeEmpty = new boolean[] { isRemoveEmpty( (Map<?, ?>) definitionObject ) };
+		} else if ( definitionObject == null ) {
+			definitionError = defer( "Key " + KEY_FIELD_DEFINITION + " is required for fields." );
+		} else {
+			definitionError = defer( "Key " + KEY_FIELD_DEFINITION + " must be of a List or Map." );
+		}
+
+		return new FieldNode( _field, null, req, reqCondition, reqError, errOn, errOnCondition, errOnError, hasDefault, defaultValue, hasDefaultItem, defaultItem, defaultItemError, definitions, removeEmpty, definitionList, definitionError );
+	}
+
+	private boolean isRemoveEmpty( Map<?, ?> _definition ) {
+		Object removeEmpty = _definition.get( KEY_STRING_REMOVE_EMPTY );
+		return removeKeysWhenValueEmpty || ( removeEmpty instanceof Boolean && (Boolean) removeEmpty );
+	}
+
+	private SchemaNode compileStringType( Map<?, ?> _prototype ) throws PrototypeException {
+		PrototypeException enumError = null;
+
+		Collection<?> enumValues = null;
+		if ( _prototype.containsKey( KEY_ENUM ) ) {
+			Object enumObject = _prototype.get( KEY_ENUM );
+			if ( enumObject instanceof List )
+				enumValues = enumValues( (List<?>) enumObject );
+			else
+				enumError = defer( KEY_ENUM + " list must be a list." );
+		}
+
+		Collection<?> notEnumValues = null;
+		if ( _prototype.containsKey( KEY_NOT_ENUM ) ) {
+			Object enumObject = _prototype.get( KEY_NOT_ENUM );
+			if ( enumObject instanceof List )
+				notEnumValues = enumValues( (List<?>) enumObject );
+			else if ( enumError == null )
+				enumError = defer( KEY_NOT_ENUM + " list must be a list." );
+		}
+
+		String allowlistName = null;
+		Allowlist allowlist = null;
+		if ( _prototype.containsKey( KEY_ALLOWLIST ) ) {
+			Object allowlistObject = _prototype.get( KEY_ALLOWLIST );
+			if ( !( allowlistObject instanceof String ) ) {
+				if ( enumError == null )
+					enumError = defer( KEY_ALLOWLIST + " must be the name of an allowlist." );
+			} else if ( ( allowlist = allowlists.get( allowlistObject ) ) == null ) {
+				if ( enumError == null )
+					enumError = defer( KEY_ALLOWLIST + " '" + allowlistObject + "' was not added to the validator." );
+			} else
+				allowlistName = (String) allowlistObject;
+		}
+
+		RefreshingEnum enumSource = null;
+		if ( _prototype.containsKey( KEY_ENUM_SOURCE ) ) {
+			Object sourceObject = _prototype.get( KEY_ENUM_SOURCE );
+			if ( !( sourceObject instanceof String ) ) {
+				if ( enumError == null )
+					enumError = defer( KEY_ENUM_SOURCE + " must be the name of an enum source." );
+			} else if ( ( enumSource = enumSources.get( sourceObject ) ) == null && enumError == null )
+				enumError = defer( KEY_ENUM_SOURCE + " '" + sourceObject + "' was not added to the validator." );
+		}
+
+		// Is empty String Allowed?
+		Object o = _prototype.get( KEY_STRING_ERR_ON_EMPTY );
+		boolean errOnEmpty = o instanceof Boolean && (Boolean) o;
+
+		Regex regex = null;
+		PrototypeException regexError = null;
+		Object regexObject = _prototype.get( KEY_REGEX );
+		if ( regexObject instanceof String ) {
+			try {
+				regex = regex( (String) regexObject );
+				if ( regex.hasNestedQuantifiers() )
+					warnings.add( KEY_REGEX + " " + regex.pattern() + " repeats a part that is repeated itself, matching it can take exponential time." );
+			} catch ( PatternSyntaxException e ) {
+				regexError = defer( new PrototypeException( e.getMessage(), e ) );
+			}
+		}
+
+		return new StringNode( enumValues, notEnumValues, allowlistName, allowlist, enumSource, enumError, errOnEmpty, regex, regexStepLimit, regexError );
+	}
+
+	private SchemaNode compileNumberType( Map<?, ?> _prototype ) throws PrototypeException {
+		boolean hasMin = _prototype.containsKey( KEY_NUM_MIN );
+		double min = 0;
+		PrototypeException minError = null;
+		if ( hasMin ) {
+			Object o = _prototype.get( KEY_NUM_MIN );
+			if ( o instanceof Number )
+				min = ( (Number) o ).doubleValue();
+			else
+				minError = defer( KEY_NUM_MIN + " must be instance of Number." );
+		}
+
+		boolean hasMax = _prototype.containsKey( KEY_NUM_MAX );
+		double max = 0;
+		PrototypeException maxError = null;
+		if ( hasMax ) {
+			Object o = _prototype.get( KEY_NUM_MAX );
+			if ( o instanceof Number )
+				max = ( (Number) o ).doubleValue();
+			else
+				maxError = defer( KEY_NUM_MAX + " must be instance of Number." );
+		}
+
+		PrototypeException enumError = null;
+
+		DoubleSet enumValues = null;
+		if ( _prototype.containsKey( KEY_ENUM ) ) {
+			Object enumObject = _prototype.get( KEY_ENUM );
+			if ( !( enumObject instanceof List ) )
+				enumError = defer( KEY_ENUM + " list must be a list." );
+			else if ( ( enumValues = numberEnumValues( (List<?>) enumObject ) ) == null )
+				enumError = defer( KEY_ENUM + " list of a number must only hold Numbers." );
+		}
+
+		DoubleSet notEnumValues = null;
+		if ( _prototype.containsKey( KEY_NOT_ENUM ) ) {
+			Object enumObject = _prototype.get( KEY_NOT_ENUM );
+			if ( !( enumObject instanceof List ) ) {
+				if ( enumError == null )
+					enumError = defer( KEY_NOT_ENUM + " list must be a list." );
+			} else if ( ( notEnumValues = numberEnumValues( (List<?>) enumObject ) ) == null && enumError == null )
+				enumError = defer( KEY_NOT_ENUM + " list of a number must only hold Numbers." );
+		}
+
+		return new NumberNode( hasMin, min, minError, hasMax, max, maxError, enumValues, notEnumValues, enumError );
+	}
+
+	/**
+	 * A compiled schema hashes the values of an enum list. A prototype compiled for a single
+	 * validation looks them up in the list itself, hashing them would cost more than the lookups save.
+	 */
+	private Collection<?> enumValues( List<?> _values ) {
+		return strict ? new HashSet<Object>( _values ) : _values;
+	}
+
+	/**
+	 * @return The set of the numbers of _values like enumValues(), null if one of them is not a
+	 *         Number
+	 */
+	private DoubleSet numberEnumValues( List<?> _values ) {
+		return strict ? DoubleSet.of( _values ) : DoubleSet.view( _values );
+	}
+
+	private SchemaNode compileBooleanType( Map<?, ?> _prototype ) throws PrototypeException {
+		PrototypeException enumError = null;
+
+		// Which of the two values are in the enum list and which in the not list
+		boolean enumTrue = true, enumFalse = true, notTrue = false, notFalse = false;
+		if ( _prototype.containsKey( KEY_ENUM ) ) {
+			Object enumObject = _prototype.get( KEY_ENUM );
+			if ( !( enumObject instanceof List ) )
+				enumError = defer( KEY_ENUM + " list must be a list." );
+			else if ( !onlyBooleans( (List<?>) enumObject ) )
+				enumError = defer( KEY_ENUM + " list of a boolean must only hold Booleans." );
+			else {
+				enumTrue = ( (List<?>) enumObject ).contains( Boolean.TRUE );
+				enumFalse = ( (List<?>) enumObject ).contains( Boolean.FALSE );
+			}
+		}
+
+		if ( _prototype.containsKey( KEY_NOT_ENUM ) ) {
+			Object enumObject = _prototype.get( KEY_NOT_ENUM );
+			if ( !( enumObject instanceof List ) ) {
+				if ( enumError == null )
+					enumError = defer( KEY_NOT_ENUM + " list must be a list." );
+			} else if ( !onlyBooleans( (List<?>) enumObject ) ) {
+				if ( enumError == null )
+					enumError = defer( KEY_NOT_ENUM + " list of a boolean must only hold Booleans." );
+			} else {
+				notTrue = ( (List<?>) enumObject ).contains( Boolean.TRUE );
+				notFalse = ( (List<?>) enumObject ).contains( Boolean.FALSE );
+			}
+		}
+
+		return new BooleanNode( enumTrue, enumFalse, notTrue, notFalse, enumError );
+	}
+
+	private static boolean onlyBooleans( List<?> _values ) {
+		for ( Object value : _values ) {
+			if ( !( value instanceof Boolean ) )
+				return false;
+		}
+		return true;
+	}
+
+	private SchemaNode compileDateType( Map<?, ?> _prototype ) throws PrototypeException {
+		DatePatterns patterns = datePatterns;
+		PrototypeException patternError = null;
+		if ( _prototype.containsKey( KEY_DATE_PATTERN ) ) {
+			Object o = _prototype.get( KEY_DATE_PATTERN );
+			List<?> list = ( o instanceof List ) ? (List<?>) o : Collections.singletonList( o );
+			DateParser[] parsers = new DateParser[list.size()];
+			for ( int i = 0; i < parsers.length && patternError == null; i++ ) {
+				Object pattern = list.get( i );
+				if ( !( pattern instanceof String ) ) {
+					patternError = defer( KEY_DATE_PATTERN + " must be a String or a List of Strings." );
+					continue;
+				}
+				try {
+					parsers[i] = dateParser( (String) pattern );
+				} catch ( IllegalArgumentException e ) {
+					patternError = defer( new PrototypeException( "Illegal " + KEY_DATE_PATTERN + " " + pattern + ": " + e.getMessage(), e ) );
+				}
+			}
+			if ( parsers.length == 0 )
+				patternError = defer( KEY_DATE_PATTERN + " cannot be an empty list." );
+			if ( patternError == null )
+				patterns = new DatePatterns( parsers );
+		}
+
+		boolean hasAfter = _prototype.containsKey( KEY_DATE_MUST_BE_AFTER );
+		long after = 0;
+		PrototypeException afterError = null;
+		if ( hasAfter ) {
+			Object o = _prototype.get( KEY_DATE_MUST_BE_AFTER );
+			if ( ( after = toMillis( o, patterns ) ) == DateParser.UNPARSEABLE )
+				afterError = defer( dateBoundError( KEY_DATE_MUST_BE_AFTER, o, patterns ) );
+		}
+
+		boolean hasBefore = _prototype.containsKey( KEY_DATE_MUST_BE_BEFORE );
+		long before = 0;
+		PrototypeException beforeError = null;
+		if ( hasBefore ) {
+			Object o = _prototype.get( KEY_DATE_MUST_BE_BEFORE );
+			if ( ( before = toMillis( o, patterns ) ) == DateParser.UNPARSEABLE )
+				beforeError = defer( dateBoundError( KEY_DATE_MUST_BE_BEFORE, o, patterns ) );
+		}
+
+		return new DateNode( patterns, patternError, hasAfter, after, afterError, hasBefore, before, beforeError );
+	}
+
+	/**
+	 * @return The bound in milliseconds since the epoch, DateParser.UNPARSEABLE if it is not a date
+	 */
+	private long toMillis( Object _bound, DatePatterns _patterns ) {
+		if ( _bound instanceof Date )
+			return ( (Date) _bound ).getTime();
+		if ( _bound instanceof String )
+			return _patterns.parse( (String) _bound );
+		return DateParser.UNPARSEABLE;
+	}
+
+	private String dateBoundError( String _key, Object _bound, DatePatterns _patterns ) {
+		if ( !( _bound instanceof String ) )
+			return _key + " must be instance of java.util.Date or String.";
+		return "Failed to parse prototype " + _key + " String " + _bound + " as Date of pattern ( " + _patterns.getDescription() + " ) ";
+	}
+
+	/**
+	 * @return The parser of _pattern, shared by all prototypes of the JSONValidator so its cache is
+	 *         too
+	 * @throws IllegalArgumentException If the pattern is invalid
+	 */
+	private DateParser dateParser( String _pattern ) {
+		DateParser parser = dateParsers.get( _pattern );
+		if ( parser == null )
+			parser = dateParsers.put( _pattern, DateParser.create( _pattern ) );
+		return parser;
+	}
+
+	/**
+	 * @return The compiled _regex, shared by all prototypes of the JSONValidator
+	 * @throws PatternSyntaxException If the regex is invalid
+	 */
+	private Regex regex( String _regex ) {
+		Regex regex = regexes.get( _regex );
+		if ( regex == null )
+			regex = regexes.put( _regex, Regex.compile( _regex ) );
+		return regex;
+	}
+
+}
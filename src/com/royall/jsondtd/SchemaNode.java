@@ -0,0 +1,80 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+/**
+ * A single level of a compiled prototype. Nodes are built once by the SchemaCompiler and are
+ * immutable afterwards, so one node tree can be shared by any number of threads.
+ */
+abstract class SchemaNode {
+
+	/** Condition reach of a node without conditions, see getConditionReach. */
+	static final int NO_CONDITIONS = -1;
+
+	/**
+	 * Validates one value of the json against this node. On success the (possibly modified) value is
+	 * left in _ctx.output, on failure _ctx holds the reason.
+	 *
+	 * @param _ctx State of the current validation call
+	 * @param _json The value to validate
+	 * @param _parent Block of the struct or list holding _json, null for the document root
+	 * @return true if the value conforms to this node
+	 * @throws PrototypeException On an invalid prototype that was compiled leniently
+	 */
+	abstract boolean validate( ValidationContext _ctx, Object _json, JSONBlock _parent ) throws PrototypeException;
+
+	/**
+	 * Validates the next value of _tokens against this node. By default the value is read completely
+	 * and validated like a json tree, containers override this to validate their content as it is
+	 * read, when they can.
+	 *
+	 * @param _parent Block of the struct or list holding the value. Blocks of streamed containers
+	 *          hold no json.
+	 * @throws JSONValidatorException On malformed json
+	 */
+	boolean validateStream( ValidationContext _ctx, JSONTokenizer _tokens, JSONBlock _parent ) throws PrototypeException, JSONValidatorException {
+		return validate( _ctx, _tokens.readValue(), _parent );
+	}
+
+	/**
+	 * @return How many levels above the block of its own value the conditions within this node look,
+	 *         0 for its own block, NO_CONDITIONS if there are none. A container whose reach is not
+	 *         NO_CONDITIONS has to be read completely before it can be validated.
+	 */
+	int getConditionReach() {
+		return NO_CONDITIONS;
+	}
+
+	/**
+	 * @return The reach of _child as seen from the block holding its value
+	 */
+	static int parentReach( SchemaNode _child ) {
+		return ( _child == null ) ? NO_CONDITIONS : Math.max( _child.getConditionReach() - 1, NO_CONDITIONS );
+	}
+
+}
@@ -0,0 +1,43 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+final class SimpleNode extends SchemaNode {
+
+	private static final String SIMPLE = "Simple(" + String.class.getName() + "|" + Number.class.getName() + "|" + Boolean.class.getName() + ")";
+
+	@Override
+	boolean validate( ValidationContext _ctx, Object _json, JSONBlock _parent ) {
+		if ( !_ctx.checkNull( _json ) )
+			return false;
+
+		if ( !( _json instanceof String ) && !( _json instanceof Number ) && !( _json instanceof Boolean ) )
+			return _ctx.fail( FailureCode.WRONG_TYPE, SIMPLE, _json.getClass() );
+
+		_ctx.output = _json;
+		return true;
+	}
+
+}
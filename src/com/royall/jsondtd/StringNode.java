@@ -0,0 +1,117 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.Collection;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+final class StringNode extends SchemaNode {
+
+	private final Collection<?> enumValues, notEnumValues;
+	private final String allowlistName;
+	private final Allowlist allowlist;
+	private final RefreshingEnum enumSource;
+	private final boolean errOnEmpty;
+	private final Regex regex;
+	private final int regexStepLimit;
+
+	// Lenient compilation only - enum errors are raised on entry, regex errors when a string reaches
+	// the regex
+	private final PrototypeException enumError, regexError;
+
+	// Whether any rule looks at the content of the string
+	private final boolean checksContent;
+
+	StringNode( Collection<?> _enumValues, Collection<?> _notEnumValues, String _allowlistName, Allowlist _allowlist, RefreshingEnum _enumSource, PrototypeException _enumError, boolean _errOnEmpty, Regex _regex, int _regexStepLimit, PrototypeException _regexError ) {
+		enumValues = _enumValues;
+		notEnumValues = _notEnumValues;
+		allowlistName = _allowlistName;
+		allowlist = _allowlist;
+		enumSource = _enumSource;
+		enumError = _enumError;
+		errOnEmpty = _errOnEmpty;
+		regex = _regex;
+		regexStepLimit = _regexStepLimit;
+		regexError = _regexError;
+		checksContent = _enumValues != null || _notEnumValues != null || _allowlist != null || _enumSource != null || _errOnEmpty || _regex != null || _regexError != null;
+	}
+
+	/**
+	 * A string no rule looks into is not decoded at all, unless it is part of the output.
+	 */
+	@Override
+	boolean validateStream( ValidationContext _ctx, JSONTokenizer _tokens, JSONBlock _parent ) throws PrototypeException, JSONValidatorException {
+		if ( checksContent || enumError != null || _ctx.buildOutput || _tokens.peek() != JSONTokenizer.Token.STRING )
+			return super.validateStream( _ctx, _tokens, _parent );
+		_tokens.next();
+		return true;
+	}
+
+	@Override
+	boolean validate( ValidationContext _ctx, Object _json, JSONBlock _parent ) throws PrototypeException {
+		if ( enumError != null )
+			throw enumError;
+
+		if ( !_ctx.checkNull( _json ) )
+			return false;
+
+		if ( !( _json instanceof String ) )
+			return _ctx.fail( FailureCode.WRONG_TYPE, String.class.getName(), _json.getClass() );
+
+		String string = (String) _json;
+
+		// Is empty String Allowed?
+		if ( errOnEmpty && string.trim().isEmpty() )
+			return _ctx.fail( FailureCode.EMPTY_STRING );
+
+		if ( enumValues != null && !enumValues.contains( string ) )
+			return _ctx.fail( FailureCode.NOT_IN_ENUM, string );
+
+		if ( notEnumValues != null && notEnumValues.contains( string ) )
+			return _ctx.fail( FailureCode.IN_NOT_ENUM, string );
+
+		if ( allowlist != null && !allowlist.contains( string ) )
+			return _ctx.fail( FailureCode.NOT_IN_ALLOWLIST, string, allowlistName );
+
+		if ( enumSource != null && !enumSource.contains( string ) )
+			return _ctx.fail( FailureCode.NOT_IN_ENUM_SOURCE, string, enumSource.getName() );
+
+		if ( regexError != null )
+			throw regexError;
+		if ( regex != null ) {
+			int match = regex.match( string, regexStepLimit );
+			if ( match == Regex.MISMATCH )
+				return _ctx.fail( FailureCode.REGEX_MISMATCH, string, regex.pattern() );
+			if ( match == Regex.TOO_COSTLY )
+				return _ctx.fail( FailureCode.REGEX_TOO_COSTLY, string, regex.pattern(), regexStepLimit );
+		}
+
+		_ctx.output = _json;
+		return true;
+	}
+
+}
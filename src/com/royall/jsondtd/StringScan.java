@@ -0,0 +1,55 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+/**
+ * Skips the plain content of json strings many bytes at a time. The StructuralIndex uses the
+ * jdk.incubator.vector implementation in VectorStringScan when the JVM runs with that module, and
+ * its own SWAR scan otherwise.
+ */
+abstract class StringScan {
+
+	/**
+	 * @param _i Position within a string
+	 * @return The first position from _i on that holds a quote, a backslash or a control character,
+	 *         or a position near _end where fewer bytes are left than the scan reads at once
+	 */
+	abstract int skipPlain( byte[] _json, int _i, int _end );
+
+	/**
+	 * @return The vector scan, null if it was not built or the JVM does not have
+	 *         jdk.incubator.vector
+	 */
+	static StringScan vector() {
+		try {
+			return (StringScan) Class.forName( "com.royall.jsondtd.VectorStringScan" ).getDeclaredConstructor().newInstance();
+		} catch ( Exception e ) {
+			return null;
+		} catch ( LinkageError e ) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,128 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.Map;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+final class StructNode extends SchemaNode {
+
+	// Possible field patterns, entries are null for fields list items that were not a Map
+	private final FieldsNode[] patterns;
+	private final boolean multiplePatterns;
+
+	// Lenient compilation only - raised once a Map reaches the fields
+	private final PrototypeException fieldsError;
+
+	private final int conditionReach;
+
+	// A single pattern without conditions on the struct or above can be validated as it is read
+	private final boolean streamable;
+
+	StructNode( FieldsNode[] _patterns, PrototypeException _fieldsError ) {
+		patterns = _patterns;
+		multiplePatterns = _patterns != null && _patterns.length > 1;
+		fieldsError = _fieldsError;
+
+		int reach = NO_CONDITIONS;
+		if ( _patterns != null ) {
+			for ( FieldsNode pattern : _patterns ) {
+				if ( pattern != null )
+					reach = Math.max( reach, pattern.getConditionReach() );
+			}
+		}
+		conditionReach = reach;
+		streamable = _patterns != null && !multiplePatterns && _patterns[0] != null && reach == NO_CONDITIONS;
+	}
+
+	@Override
+	int getConditionReach() {
+		return conditionReach;
+	}
+
+	FieldsNode[] getPatterns() {
+		return patterns;
+	}
+
+	@Override
+	boolean validate( ValidationContext _ctx, Object _json, JSONBlock _parent ) throws PrototypeException {
+		if ( !_ctx.checkNull( _json ) )
+			return false;
+
+		if ( !( _json instanceof Map ) )
+			return _ctx.fail( FailureCode.WRONG_TYPE, Map.class.getName(), _json.getClass() );
+
+		if ( fieldsError != null )
+			throw fieldsError;
+
+		JSONBlock block = new JSONBlock( _json, _parent );
+
+		if ( !multiplePatterns )
+			return validatePattern( _ctx, patterns[0], block );
+
+		// Check each possible fit
+		ValidationFailure[] subFailures = new ValidationFailure[patterns.length];
+		int mark = _ctx.stageMark();
+		for ( int i = 0; i < patterns.length; i++ ) {
+			if ( patterns[i] != null && validatePattern( _ctx, patterns[i], block ) )
+				return true;
+			_ctx.rollback( mark );
+
+			// Store the failure in the case that we have looped back to here.
+			subFailures[i] = _ctx.takeFailure();
+		}
+
+		// None of the attempts worked
+		return _ctx.failAlternatives( FailureCode.NO_PATTERN_MATCHED, subFailures, block.getDepth() );
+	}
+
+	@Override
+	boolean validateStream( ValidationContext _ctx, JSONTokenizer _tokens, JSONBlock _parent ) throws PrototypeException, JSONValidatorException {
+		if ( !streamable || _tokens.peek() != JSONTokenizer.Token.START_OBJECT )
+			return super.validateStream( _ctx, _tokens, _parent );
+
+		_tokens.next();
+		StructOutput testBuild = StructOutput.createDetached( _ctx );
+		if ( !patterns[0].validateStream( _ctx, _tokens, new JSONBlock( null, _parent ), testBuild ) )
+			return false;
+		if ( testBuild != null )
+			_ctx.output = testBuild.result();
+		return true;
+	}
+
+	private boolean validatePattern( ValidationContext _ctx, FieldsNode _pattern, JSONBlock _block ) throws PrototypeException {
+		StructOutput testBuild = StructOutput.create( _ctx, (Map<?, ?>) _block.getBlock() );
+		boolean valid = _pattern.validate( _ctx, _block, testBuild );
+		if ( testBuild != null ) {
+			if ( valid )
+				_ctx.output = testBuild.result();
+			testBuild.release();
+		}
+		return valid;
+	}
+
+}
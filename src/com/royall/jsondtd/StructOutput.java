@@ -0,0 +1,201 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The modified json built for one struct.
+ *
+ * Normally every field is copied into a new Map. With copy-on-write the fields that come back
+ * unchanged are only remembered (on the key stack of the context), and the source Map itself is
+ * the result unless a default was inserted, a key removed or a value replaced. In place the
+ * source is always the result and those changes are staged on the context instead.
+ */
+final class StructOutput {
+
+	private final ValidationContext ctx;
+	private final Map<?, ?> source;
+	private Map<Object, Object> copy;
+
+	// Copy-on-write: first slot of this struct on the key stack
+	private final int base;
+	private boolean complete = false;
+
+	// In place: keys put that were not in the source, and whether unspecified keys are kept
+	private int added = 0;
+	private boolean unspecified = false;
+	private boolean unspecifiedRemoveEmpty;
+
+	private StructOutput( ValidationContext _ctx, Map<?, ?> _source, Map<Object, Object> _copy ) {
+		ctx = _ctx;
+		source = _source;
+		copy = _copy;
+		base = ( _ctx == null ) ? 0 : _ctx.keyTop;
+	}
+
+	/**
+	 * @return The output for _source as configured by _ctx, null if no output is built
+	 */
+	static StructOutput create( ValidationContext _ctx, Map<?, ?> _source ) {
+		if ( !_ctx.buildOutput )
+			return null;
+		if ( _ctx.copyOnWrite )
+			return new StructOutput( _ctx, _source, null );
+		return new StructOutput( null, _source, new HashMap<Object, Object>() );
+	}
+
+	/**
+	 * @return An output without a source Map to share, null if no output is built. The fields are
+	 *         always put into a new Map. Used for structs that are validated as they are read, and
+	 *         to collect fields validated in parallel.
+	 */
+	static StructOutput createDetached( ValidationContext _ctx ) {
+		if ( !_ctx.buildOutput )
+			return null;
+		return new StructOutput( null, null, new HashMap<Object, Object>() );
+	}
+
+	void put( Object _key, Object _value ) {
+		if ( copy == null ) {
+			if ( _value == source.get( _key ) && ( _value != null || source.containsKey( _key ) ) ) {
+				ctx.pushKey( _key );
+				return;
+			}
+			if ( ctx.inPlace ) {
+				if ( !source.containsKey( _key ) )
+					added++;
+				ctx.pushKey( _key );
+				ctx.stagePut( source, _key, _value );
+				return;
+			}
+			materialize();
+		}
+		copy.put( _key, _value );
+	}
+
+	/**
+	 * Puts every field of a detached output.
+	 */
+	void putAll( StructOutput _fields ) {
+		for ( Map.Entry<Object, Object> entry : _fields.copy.entrySet() )
+			put( entry.getKey(), entry.getValue() );
+	}
+
+	/**
+	 * @return Whether _key was put, only for detached outputs
+	 */
+	boolean contains( Object _key ) {
+		return copy.containsKey( _key );
+	}
+
+	/**
+	 * Adds the keys of the source that are not in the output yet, unless their value is empty and
+	 * _removeEmpty is set.
+	 */
+	void putUnspecified( boolean _removeEmpty ) {
+		if ( copy == null ) {
+			// Every key in the output so far is unchanged, so the output is the source as long as no
+			// key has to be left out.
+			boolean allAllowed = true;
+			for ( Object value : source.values() ) {
+				if ( !FieldNode.isBlockAllowed( value, _removeEmpty ) ) {
+					allAllowed = false;
+					break;
+				}
+			}
+			if ( allAllowed ) {
+				complete = true;
+				return;
+			}
+			if ( ctx.inPlace ) {
+				unspecified = true;
+				unspecifiedRemoveEmpty = _removeEmpty;
+				return;
+			}
+			materialize();
+		}
+		for ( Map.Entry<?, ?> entry : source.entrySet() ) {
+			Object jsonField = entry.getKey();
+			if ( !copy.containsKey( jsonField ) && FieldNode.isBlockAllowed( entry.getValue(), _removeEmpty ) )
+				copy.put( jsonField, entry.getValue() );
+		}
+	}
+
+	/**
+	 * @return The modified json for the struct
+	 */
+	Object result() {
+		if ( ctx != null && ctx.inPlace ) {
+			if ( !complete )
+				stageRemovals();
+			return source;
+		}
+		if ( copy == null ) {
+			if ( complete || ctx.keyTop - base == source.size() )
+				return source;
+			materialize();
+		}
+		return copy;
+	}
+
+	/**
+	 * Releases the keys this output kept on the key stack.
+	 */
+	void release() {
+		if ( ctx != null )
+			ctx.keyTop = base;
+	}
+
+	/**
+	 * Stages the removal of the source keys that did not make it into the output.
+	 */
+	private void stageRemovals() {
+		if ( !unspecified && ctx.keyTop - base - added == source.size() )
+			return;
+
+		Set<Object> kept = new HashSet<Object>();
+		for ( int i = base; i < ctx.keyTop; i++ )
+			kept.add( ctx.keyStack[i] );
+		for ( Map.Entry<?, ?> entry : source.entrySet() ) {
+			if ( kept.contains( entry.getKey() ) )
+				continue;
+			if ( !unspecified || !FieldNode.isBlockAllowed( entry.getValue(), unspecifiedRemoveEmpty ) )
+				ctx.stageRemove( source, entry.getKey() );
+		}
+	}
+
+	private void materialize() {
+		copy = new HashMap<Object, Object>();
+		Object[] keys = ctx.keyStack;
+		for ( int i = base; i < ctx.keyTop; i++ )
+			copy.put( keys[i], source.get( keys[i] ) );
+		ctx.keyTop = base;
+	}
+
+}
@@ -0,0 +1,221 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+
+/**
+ * Positions of the structural characters of UTF-8 json: brackets, colons and commas outside of
+ * strings, and the opening and closing quote of every string.
+ *
+ * String content is scanned eight bytes at a time, testing every byte of a long for a quote, a
+ * backslash or a control character at once. When the JVM runs with jdk.incubator.vector, long runs
+ * of string content are first skipped a whole vector at a time by VectorStringScan.
+ */
+final class StructuralIndex {
+
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGHS = 0x8080808080808080L;
+	private static final long QUOTES = ONES * '"';
+	private static final long BACKSLASHES = ONES * '\\';
+	private static final long SPACES = ONES * 0x20;
+
+	// Null without jdk.incubator.vector
+	private static final StringScan VECTOR_SCAN = StringScan.vector();
+
+	private static final byte OTHER = 0, OPEN = 1, CLOSE = 2, SEPARATOR = 3, QUOTE = 4;
+	private static final byte[] CLASSES = new byte[256];
+	static {
+		CLASSES['{'] = OPEN;
+		CLASSES['['] = OPEN;
+		CLASSES['}'] = CLOSE;
+		CLASSES[']'] = CLOSE;
+		CLASSES[':'] = SEPARATOR;
+		CLASSES[','] = SEPARATOR;
+		CLASSES['"'] = QUOTE;
+	}
+
+	/** Byte position of each entry. */
+	final int[] positions;
+
+	final int count;
+
+	private StructuralIndex( int[] _positions, int _count ) {
+		positions = _positions;
+		count = _count;
+	}
+
+	/**
+	 * Indexes the bytes from _start to _end of _json. Brackets that do not match and broken strings
+	 * are reported here, the rest of the grammar is left to the tokenizer.
+	 */
+	static StructuralIndex build( byte[] _json, int _start, int _end ) throws JSONValidatorException {
+		ByteBuffer words = ByteBuffer.wrap( _json ).order( ByteOrder.LITTLE_ENDIAN );
+
+		int[] positions = new int[Math.max( 16, ( _end - _start ) >>> 3 )];
+		int count = 0;
+
+		int[] open = new int[32];
+		int depth = 0;
+
+		int i = _start;
+		while ( i < _end ) {
+			int c = _json[i] & 0xff;
+			byte type = CLASSES[c];
+			if ( type == OTHER ) {
+				i++;
+				continue;
+			}
+
+			if ( count + 2 > positions.length ) {
+				int[] grown = new int[positions.length * 2];
+				System.arraycopy( positions, 0, grown, 0, count );
+				positions = grown;
+			}
+
+			if ( type == QUOTE ) {
+				positions[count++] = i;
+				i = scanString( _json, words, _start, i + 1, _end );
+				positions[count++] = i++;
+				continue;
+			}
+
+			if ( type == OPEN ) {
+				if ( depth == open.length ) {
+					int[] grown = new int[depth * 2];
+					System.arraycopy( open, 0, grown, 0, depth );
+					open = grown;
+				}
+				open[depth++] = count;
+			} else if ( type == CLOSE ) {
+				if ( depth == 0 )
+					throw syntax( _json, _start, i, "Unexpected '" + (char) c + "'" );
+				int opening = open[--depth];
+				if ( ( _json[positions[opening]] == '{' ) != ( c == '}' ) )
+					throw syntax( _json, _start, i, "Unexpected '" + (char) c + "'" );
+			}
+			positions[count++] = i++;
+		}
+
+		if ( depth > 0 )
+			throw syntax( _json, _start, _end, "Unexpected end of the json" );
+		return new StructuralIndex( positions, count );
+	}
+
+	/**
+	 * @param _words _json in little endian order, for reading eight bytes at once
+	 * @param _i First byte of the string content
+	 * @return Position of the closing quote
+	 */
+	private static int scanString( byte[] _json, ByteBuffer _words, int _start, int _i, int _end ) throws JSONValidatorException {
+		int i = _i;
+		for ( ;; ) {
+			if ( VECTOR_SCAN != null )
+				i = VECTOR_SCAN.skipPlain( _json, i, _end );
+
+			// Skip eight plain bytes at a time
+			while ( i + 8 <= _end ) {
+				long word = _words.getLong( i );
+				long found = hasZero( word ^ QUOTES ) | hasZero( word ^ BACKSLASHES ) | ( ( word - SPACES ) & ~word & HIGHS );
+				if ( found != 0 ) {
+					i += Long.numberOfTrailingZeros( found ) >>> 3;
+					break;
+				}
+				i += 8;
+			}
+			if ( i >= _end )
+				throw syntax( _json, _start, _end, "Unterminated string" );
+
+			int c = _json[i] & 0xff;
+			if ( c == '"' )
+				return i;
+			if ( c == '\\' ) {
+				i = checkEscape( _json, _start, i + 1, _end );
+				continue;
+			}
+			if ( c < 0x20 )
+				throw syntax( _json, _start, i, "Unescaped control character in string" );
+			i++;
+		}
+	}
+
+	/**
+	 * @param _i Position of the character after the backslash
+	 * @return Position after the escape
+	 */
+	private static int checkEscape( byte[] _json, int _start, int _i, int _end ) throws JSONValidatorException {
+		if ( _i >= _end )
+			throw syntax( _json, _start, _end, "Unterminated string" );
+		switch ( _json[_i] ) {
+			case '"':
+			case '\\':
+			case '/':
+			case 'b':
+			case 'f':
+			case 'n':
+			case 'r':
+			case 't':
+				return _i + 1;
+			case 'u':
+				if ( _i + 5 > _end )
+					throw syntax( _json, _start, _end, "Unterminated string" );
+				for ( int i = _i + 1; i < _i + 5; i++ ) {
+					if ( Character.digit( _json[i], 16 ) < 0 )
+						throw syntax( _json, _start, i, "Invalid unicode escape" );
+				}
+				return _i + 5;
+			default:
+				throw syntax( _json, _start, _i, "Invalid escape character '" + (char) _json[_i] + "'" );
+		}
+	}
+
+	/**
+	 * @return The high bit set in every zero byte of _word. Only the lowest one is exact, which is
+	 *         all the scan needs.
+	 */
+	private static long hasZero( long _word ) {
+		return ( _word - ONES ) & ~_word & HIGHS;
+	}
+
+	/**
+	 * @param _start Start of the json, where line and column counting begins
+	 * @param _position Position of the error
+	 */
+	static JSONValidatorException syntax( byte[] _json, int _start, int _position, String _message ) {
+		int line = 1;
+		int lineStart = _start;
+		for ( int i = _start; i < _position; i++ ) {
+			if ( _json[i] == '\n' ) {
+				line++;
+				lineStart = i + 1;
+			}
+		}
+		return new JSONValidatorException( "Malformed json at line " + line + " column " + ( _position - lineStart + 1 ) + ": " + _message );
+	}
+
+}
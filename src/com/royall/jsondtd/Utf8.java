@@ -0,0 +1,183 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compares and hashes strings against UTF-8 bytes held in a ByteBuffer, encoding the characters as
+ * it goes instead of into a byte array. A lone surrogate is encoded as '?', like String.getBytes()
+ * does.
+ */
+final class Utf8 {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private Utf8() {
+	}
+
+	/**
+	 * @return Length of _value in UTF-8
+	 */
+	static int length( CharSequence _value ) {
+		int length = 0;
+		int count = _value.length();
+		for ( int i = 0; i < count; i++ ) {
+			int codePoint = codePointAt( _value, i, count );
+			if ( codePoint > 0xffff )
+				i++;
+			length += length( codePoint );
+		}
+		return length;
+	}
+
+	/**
+	 * Puts _value in UTF-8 at the position of _buffer.
+	 */
+	static void put( CharSequence _value, ByteBuffer _buffer ) {
+		int count = _value.length();
+		for ( int i = 0; i < count; i++ ) {
+			int codePoint = codePointAt( _value, i, count );
+			if ( codePoint > 0xffff )
+				i++;
+			for ( int j = 0, length = length( codePoint ); j < length; j++ )
+				_buffer.put( byteOf( codePoint, length, j ) );
+		}
+	}
+
+	/**
+	 * @return Hash of the UTF-8 bytes of _value, the same as hash() of those bytes
+	 */
+	static long hash( CharSequence _value ) {
+		long hash = FNV_OFFSET;
+		int count = _value.length();
+		for ( int i = 0; i < count; i++ ) {
+			int codePoint = codePointAt( _value, i, count );
+			if ( codePoint > 0xffff )
+				i++;
+			for ( int j = 0, length = length( codePoint ); j < length; j++ )
+				hash = ( hash ^ ( byteOf( codePoint, length, j ) & 0xff ) ) * FNV_PRIME;
+		}
+		return mix( hash );
+	}
+
+	/**
+	 * @return Hash of the bytes of _buffer from _start to _end
+	 */
+	static long hash( ByteBuffer _buffer, int _start, int _end ) {
+		long hash = FNV_OFFSET;
+		for ( int i = _start; i < _end; i++ )
+			hash = ( hash ^ ( _buffer.get( i ) & 0xff ) ) * FNV_PRIME;
+		return mix( hash );
+	}
+
+	/**
+	 * Compares the UTF-8 bytes of _value with the bytes of _buffer from _start to _end, unsigned byte
+	 * by byte, which is also the order of the code points.
+	 *
+	 * @return Less than 0, 0 or more than 0 if _value is before, equal to or after the bytes
+	 */
+	static int compare( CharSequence _value, ByteBuffer _buffer, int _start, int _end ) {
+		int at = _start;
+		int count = _value.length();
+		for ( int i = 0; i < count; i++ ) {
+			int codePoint = codePointAt( _value, i, count );
+			if ( codePoint > 0xffff )
+				i++;
+			for ( int j = 0, length = length( codePoint ); j < length; j++ ) {
+				if ( at == _end )
+					return 1;
+				int difference = ( byteOf( codePoint, length, j ) & 0xff ) - ( _buffer.get( at++ ) & 0xff );
+				if ( difference != 0 )
+					return difference;
+			}
+		}
+		return ( at == _end ) ? 0 : -1;
+	}
+
+	/**
+	 * @return Whether the bytes of _buffer from _start to _end are _value in UTF-8
+	 */
+	static boolean equals( CharSequence _value, ByteBuffer _buffer, int _start, int _end ) {
+		return compare( _value, _buffer, _start, _end ) == 0;
+	}
+
+	/**
+	 * Compares the bytes of _buffer from _start to _end with those from _otherStart to _otherEnd.
+	 */
+	static int compare( ByteBuffer _buffer, int _start, int _end, int _otherStart, int _otherEnd ) {
+		int length = Math.min( _end - _start, _otherEnd - _otherStart );
+		for ( int i = 0; i < length; i++ ) {
+			int difference = ( _buffer.get( _start + i ) & 0xff ) - ( _buffer.get( _otherStart + i ) & 0xff );
+			if ( difference != 0 )
+				return difference;
+		}
+		return ( _end - _start ) - ( _otherEnd - _otherStart );
+	}
+
+	private static int codePointAt( CharSequence _value, int _i, int _count ) {
+		char c = _value.charAt( _i );
+		if ( !Character.isSurrogate( c ) )
+			return c;
+		if ( Character.isHighSurrogate( c ) && _i + 1 < _count && Character.isLowSurrogate( _value.charAt( _i + 1 ) ) )
+			return Character.toCodePoint( c, _value.charAt( _i + 1 ) );
+		return '?';
+	}
+
+	private static int length( int _codePoint ) {
+		if ( _codePoint < 0x80 )
+			return 1;
+		if ( _codePoint < 0x800 )
+			return 2;
+		if ( _codePoint < 0x10000 )
+			return 3;
+		return 4;
+	}
+
+	/**
+	 * @return Byte _j of the _length bytes of _codePoint in UTF-8
+	 */
+	private static byte byteOf( int _codePoint, int _length, int _j ) {
+		if ( _length == 1 )
+			return (byte) _codePoint;
+		int shift = 6 * ( _length - 1 - _j );
+		if ( _j == 0 )
+			return (byte) ( ( 0xff00 >> _length ) | ( _codePoint >> shift ) );
+		return (byte) ( 0x80 | ( ( _codePoint >> shift ) & 0x3f ) );
+	}
+
+	// Spreads the bits of the FNV hash, so that both halves can be used as hashes of their own
+	private static long mix( long _hash ) {
+		long hash = _hash;
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+}
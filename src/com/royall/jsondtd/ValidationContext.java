@@ -0,0 +1,212 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per call state for a validation run over a CompiledSchema. Nodes of the schema are immutable, so
+ * everything that changes while a document is walked lives here.
+ */
+final class ValidationContext {
+
+	private final Map<String, Object> defaultItems;
+
+	/** When false only the rules are checked and no modified json is built. */
+	final boolean buildOutput;
+
+	/** Unchanged parts of the json are returned as they are instead of being copied. */
+	final boolean copyOnWrite;
+
+	/** Changes are staged and applied to the json itself once it validated. */
+	final boolean inPlace;
+
+	/** Lists and structs with at least this many items are validated in parallel, 0 if never. */
+	final int parallelThreshold;
+
+	// In place mode: staged changes as triples of container, key or index, and value
+	private static final Object REMOVE = new Object();
+	private Object[] staged = null;
+	private int stagedTop = 0;
+
+	// Keys of struct fields that are unchanged so far, see StructOutput
+	Object[] keyStack = null;
+	int keyTop = 0;
+
+	/** Output of the last node that validated successfully. */
+	Object output = null;
+
+	/** Reason of the last failure, null while everything validated. */
+	ValidationFailure failure = null;
+
+	ValidationContext( Map<String, Object> _defaultItems, boolean _buildOutput, boolean _copyOnWrite, boolean _inPlace, int _parallelThreshold ) {
+		defaultItems = _defaultItems;
+		buildOutput = _buildOutput;
+		inPlace = _buildOutput && _inPlace;
+		copyOnWrite = _buildOutput && ( _copyOnWrite || _inPlace );
+		parallelThreshold = _parallelThreshold;
+	}
+
+	/**
+	 * @return A context with the same settings, for a subtask validating in parallel
+	 */
+	ValidationContext fork() {
+		return new ValidationContext( defaultItems, buildOutput, copyOnWrite, inPlace, parallelThreshold );
+	}
+
+	/**
+	 * Clears what is left of an earlier validation, so the context and its stacks can be reused.
+	 */
+	void reset() {
+		rollback( 0 );
+		keyTop = 0;
+		output = null;
+		failure = null;
+	}
+
+	void pushKey( Object _key ) {
+		if ( keyStack == null )
+			keyStack = new Object[32];
+		else if ( keyTop == keyStack.length ) {
+			Object[] grown = new Object[keyTop * 2];
+			System.arraycopy( keyStack, 0, grown, 0, keyTop );
+			keyStack = grown;
+		}
+		keyStack[keyTop++] = _key;
+	}
+
+	/**
+	 * Stages _value to be put at _key of a Map, or set at index _key of a List.
+	 */
+	void stagePut( Object _container, Object _key, Object _value ) {
+		stage( _container, _key, _value );
+	}
+
+	void stageRemove( Map<?, ?> _container, Object _key ) {
+		stage( _container, _key, REMOVE );
+	}
+
+	/**
+	 * @return Mark to roll back to when the alternative that is tried next fails
+	 */
+	int stageMark() {
+		return stagedTop;
+	}
+
+	void rollback( int _mark ) {
+		while ( stagedTop > _mark )
+			staged[--stagedTop] = null;
+	}
+
+	/**
+	 * Applies the staged changes in the order they were made.
+	 */
+	@SuppressWarnings( "unchecked" )
+	void applyStaged() {
+		for ( int i = 0; i < stagedTop; i += 3 ) {
+			Object container = staged[i];
+			Object value = staged[i + 2];
+			if ( container instanceof List )
+				( (List<Object>) container ).set( (Integer) staged[i + 1], value );
+			else if ( value == REMOVE )
+				( (Map<?, ?>) container ).remove( staged[i + 1] );
+			else
+				( (Map<Object, Object>) container ).put( staged[i + 1], value );
+		}
+		rollback( 0 );
+	}
+
+	/**
+	 * Stages the changes staged on _other after the ones staged here.
+	 */
+	void stageAll( ValidationContext _other ) {
+		for ( int i = 0; i < _other.stagedTop; i += 3 )
+			stage( _other.staged[i], _other.staged[i + 1], _other.staged[i + 2] );
+	}
+
+	private void stage( Object _container, Object _key, Object _value ) {
+		if ( staged == null )
+			staged = new Object[48];
+		else if ( stagedTop == staged.length ) {
+			Object[] grown = new Object[stagedTop * 2];
+			System.arraycopy( staged, 0, grown, 0, stagedTop );
+			staged = grown;
+		}
+		staged[stagedTop++] = _container;
+		staged[stagedTop++] = _key;
+		staged[stagedTop++] = _value;
+	}
+
+	Map<String, Object> getDefaultItems() {
+		return defaultItems;
+	}
+
+	boolean fail( FailureCode _code, Object... _args ) {
+		failure = new ValidationFailure( _code, _args, null, 0 );
+		return false;
+	}
+
+	/**
+	 * Fails with the failures of every alternative that was tried.
+	 * 
+	 * @param _depth Depth of the struct the alternatives were tried on, used to indent them
+	 */
+	boolean failAlternatives( FailureCode _code, ValidationFailure[] _alternatives, int _depth ) {
+		failure = new ValidationFailure( _code, null, _alternatives, _depth );
+		return false;
+	}
+
+	/**
+	 * Records that the last failure happened within the value of _field.
+	 */
+	boolean failAtField( Object _field ) {
+		failure.addField( _field );
+		return false;
+	}
+
+	/**
+	 * Records that the last failure happened within item _index of a list.
+	 */
+	boolean failAtIndex( int _index ) {
+		failure.addIndex( _index );
+		return false;
+	}
+
+	/**
+	 * Takes the last failure, e.g. to keep it while trying the next alternative.
+	 */
+	ValidationFailure takeFailure() {
+		ValidationFailure taken = failure;
+		failure = null;
+		return taken;
+	}
+
+	boolean checkNull( Object _json ) {
+		if ( _json == null )
+			return fail( FailureCode.NULL_VALUE );
+		return true;
+	}
+}
@@ -0,0 +1,138 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+/**
+ * Why a json value failed validation and where it was found. Only the code, its arguments and the
+ * path segments are recorded while validating; the message is rendered the first time it is asked
+ * for. Failures of alternatives that were tried and rejected are therefore almost free.
+ */
+public final class ValidationFailure {
+
+	private final FailureCode code;
+	private final Object[] args;
+
+	// Failures of each alternative tried, null entries for alternatives that were not a Map
+	private final ValidationFailure[] alternatives;
+	private final int depth;
+
+	// Field names (String) and list indexes (Integer), innermost first
+	private Object[] path = null;
+	private int pathLength = 0;
+
+	private String message = null;
+
+	ValidationFailure( FailureCode _code, Object[] _args, ValidationFailure[] _alternatives, int _depth ) {
+		code = _code;
+		args = _args;
+		alternatives = _alternatives;
+		depth = _depth;
+	}
+
+	void addField( Object _field ) {
+		addSegment( _field );
+	}
+
+	void addIndex( int _index ) {
+		addSegment( Integer.valueOf( _index ) );
+	}
+
+	private void addSegment( Object _segment ) {
+		if ( path == null )
+			path = new Object[4];
+		else if ( pathLength == path.length ) {
+			Object[] grown = new Object[pathLength * 2];
+			System.arraycopy( path, 0, grown, 0, pathLength );
+			path = grown;
+		}
+		path[pathLength++] = _segment;
+	}
+
+	public FailureCode getCode() {
+		return code;
+	}
+
+	/**
+	 * @return Failures of the rejected alternatives for NO_PATTERN_MATCHED and NO_DEFINITION_MATCHED,
+	 *         otherwise an empty array.
+	 */
+	public ValidationFailure[] getAlternatives() {
+		return ( alternatives == null ) ? new ValidationFailure[0] : alternatives.clone();
+	}
+
+	/**
+	 * @return Path from the validated value to the failing value, e.g. ".key1[2].key2"
+	 */
+	public String getPath() {
+		StringBuilder sb = new StringBuilder();
+		appendPath( sb );
+		return sb.toString();
+	}
+
+	/**
+	 * @return The fail message, as returned by JSONValidator.getFailMessage()
+	 */
+	public String getMessage() {
+		String message = this.message;
+		if ( message == null ) {
+			StringBuilder sb = new StringBuilder();
+			appendMessage( sb );
+			this.message = message = sb.toString();
+		}
+		return message;
+	}
+
+	private void appendPath( StringBuilder _sb ) {
+		for ( int i = pathLength - 1; i >= 0; i-- ) {
+			Object segment = path[i];
+			if ( segment instanceof Integer )
+				_sb.append( '[' ).append( segment ).append( ']' );
+			else
+				_sb.append( '.' ).append( segment );
+		}
+	}
+
+	private void appendMessage( StringBuilder _sb ) {
+		appendPath( _sb );
+		_sb.append( code.render( args ) );
+		if ( alternatives != null ) {
+			for ( ValidationFailure alternative : alternatives ) {
+				_sb.append( '\n' );
+				for ( int i = 0; i < depth; i++ )
+					_sb.append( '-' );
+				if ( alternative == null )
+					_sb.append( "null" );
+				else
+					alternative.appendMessage( _sb );
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getMessage();
+	}
+
+}
@@ -30,5 +30,10 @@ public class ValidationOptions {
 	public static final String RemoveUnspecifiedKeys = "removeunspecifiedkeys";
 	public static final String RemoveKeysWhenValueEmpty = "removekeyswhenvalueempty";
 	public static final String DatePattern = "datepattern";
+	public static final String CheckOnly = "checkonly";
+	public static final String CopyOnWrite = "copyonwrite";
+	public static final String InPlace = "inplace";
+	public static final String ParallelThreshold = "parallelthreshold";
+	public static final String RegexStepLimit = "regexsteplimit";
 
 }
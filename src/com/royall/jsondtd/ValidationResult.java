@@ -0,0 +1,77 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+/**
+ * Outcome of a single validation. Unlike getFailMessage() and getReturnJson() on the
+ * JSONValidator, a ValidationResult belongs to one validate call and is safe to hand to other
+ * threads.
+ */
+public final class ValidationResult {
+
+	private final boolean valid;
+	private final ValidationFailure failure;
+	private final Object returnJson;
+
+	ValidationResult( boolean _valid, ValidationFailure _failure, Object _returnJson ) {
+		valid = _valid;
+		failure = _failure;
+		returnJson = _returnJson;
+	}
+
+	/**
+	 * @return true if the json is valid as per the prototype definition
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * @return Validation fail message, or null if passed. The message is rendered on first use.
+	 */
+	public String getFailMessage() {
+		return ( failure == null ) ? null : failure.getMessage();
+	}
+
+	/**
+	 * @return The structured cause of the failure, or null if passed.
+	 */
+	public ValidationFailure getFailure() {
+		return failure;
+	}
+
+	/**
+	 * @return The json modified by changes defined within the prototype, null if validation failed.
+	 */
+	public Object getReturnJson() {
+		return returnJson;
+	}
+
+	@Override
+	public String toString() {
+		return valid ? "valid" : "invalid:" + getFailMessage();
+	}
+
+}
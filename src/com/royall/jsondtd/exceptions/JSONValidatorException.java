@@ -37,6 +37,7 @@ public class JSONValidatorException extends Exception {
 	
 	public JSONValidatorException(String _message) {
 		super(_message);
+		message = _message;
 	}
 	
 	public JSONValidatorException(Exception _e) {
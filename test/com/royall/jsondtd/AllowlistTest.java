@@ -0,0 +1,322 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class AllowlistTest {
+
+	private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+	// Entries in the order of their UTF-8 bytes, as LC_ALL=C sort sorts them
+	private static final Comparator<String> BYTE_ORDER = new Comparator<String>() {
+
+		@Override
+		public int compare( String _a, String _b ) {
+			byte[] a = _a.getBytes( UTF_8 );
+			byte[] b = _b.getBytes( UTF_8 );
+			for ( int i = 0; i < Math.min( a.length, b.length ); i++ ) {
+				if ( a[i] != b[i] )
+					return ( a[i] & 0xff ) - ( b[i] & 0xff );
+			}
+			return a.length - b.length;
+		}
+	};
+
+	private static Map allowlistPrototype( final Object _allowlist ) {
+		return new HashMap() {
+
+			{
+				put( JSONValidator.KEY_TYPE, "struct" );
+				put( JSONValidator.KEY_FIELDS, new HashMap() {
+
+					{
+						put( "sku", new HashMap() {
+
+							{
+								put( JSONValidator.KEY_REQ, true );
+								put( JSONValidator.KEY_FIELD_DEFINITION, new HashMap() {
+
+									{
+										put( JSONValidator.KEY_TYPE, "string" );
+										put( JSONValidator.KEY_ALLOWLIST, _allowlist );
+									}
+								} );
+							}
+						} );
+					}
+				} );
+			}
+		};
+	}
+
+	private File file;
+
+	@Before
+	public void before() throws Exception {
+		file = File.createTempFile( "allowlist", ".txt" );
+	}
+
+	@After
+	public void after() {
+		file.delete();
+	}
+
+	private void write( List<String> _lines, boolean _finalLineBreak ) throws IOException {
+		OutputStream out = new FileOutputStream( file );
+		try {
+			for ( int i = 0; i < _lines.size(); i++ ) {
+				out.write( _lines.get( i ).getBytes( UTF_8 ) );
+				if ( _finalLineBreak || i < _lines.size() - 1 )
+					out.write( '\n' );
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static List<String> skus( int _count ) {
+		List<String> skus = new ArrayList<String>();
+		for ( int i = 0; i < _count; i++ )
+			skus.add( "SKU-" + ( i * 3 ) );
+		// Not only ASCII
+		skus.add( "\u00e9t\u00e9" );
+		skus.add( "\u65e5\u672c" );
+		skus.add( "\ud83d\ude00" );
+		return skus;
+	}
+
+	private static String randomString( Random _random ) {
+		StringBuilder string = new StringBuilder();
+		int length = _random.nextInt( 6 );
+		for ( int i = 0; i < length; i++ ) {
+			switch ( _random.nextInt( 5 ) ) {
+				case 0:
+					string.append( (char) ( 0x80 + _random.nextInt( 0x780 ) ) );
+					break;
+				case 1:
+					string.append( (char) ( 0x800 + _random.nextInt( 0xd000 ) ) );
+					break;
+				case 2:
+					string.appendCodePoint( 0x10000 + _random.nextInt( 0x10000 ) );
+					break;
+				case 3:
+					// A lone surrogate
+					string.append( (char) ( 0xd800 + _random.nextInt( 0x800 ) ) );
+					break;
+				default:
+					string.append( (char) _random.nextInt( 0x80 ) );
+			}
+		}
+		return string.toString();
+	}
+
+	@Test
+	public void testUtf8() {
+		Random random = new Random( 3 );
+		for ( int i = 0; i < 20000; i++ ) {
+			String a = randomString( random );
+			String b = randomString( random );
+			byte[] bytes = a.getBytes( UTF_8 );
+			assertEquals( a, bytes.length, Utf8.length( a ) );
+
+			ByteBuffer buffer = ByteBuffer.allocate( bytes.length + b.getBytes( UTF_8 ).length );
+			Utf8.put( a, buffer );
+			assertTrue( a, Arrays.equals( bytes, Arrays.copyOf( buffer.array(), bytes.length ) ) );
+			assertEquals( a, Utf8.hash( buffer, 0, bytes.length ), Utf8.hash( a ) );
+
+			Utf8.put( b, buffer );
+			assertEquals( a + " " + b, Integer.signum( BYTE_ORDER.compare( b, a ) ), Integer.signum( Utf8.compare( b, buffer, 0, bytes.length ) ) );
+		}
+	}
+
+	@Test
+	public void testOffHeap() {
+		List<String> skus = skus( 100000 );
+		for ( double falsePositiveRate : new double[] { 0, 0.01 } ) {
+			// Duplicates are kept once
+			List<String> entries = new ArrayList<String>( skus );
+			entries.addAll( skus.subList( 0, 10 ) );
+			Allowlist allowlist = Allowlist.offHeap( entries, falsePositiveRate );
+			assertEquals( skus.size(), allowlist.size() );
+			for ( String sku : skus )
+				assertTrue( sku, allowlist.contains( sku ) );
+			for ( int i = 0; i < 300000; i++ )
+				assertEquals( i % 3 == 0, allowlist.contains( "SKU-" + i ) );
+			assertFalse( allowlist.contains( "" ) );
+			assertFalse( allowlist.contains( "\u00e9t" ) );
+		}
+
+		Allowlist empty = Allowlist.offHeap( Collections.<String> emptyList() );
+		assertEquals( 0, empty.size() );
+		assertFalse( empty.contains( "" ) );
+		assertTrue( Allowlist.offHeap( Arrays.asList( "" ) ).contains( "" ) );
+	}
+
+	/**
+	 * The table of the largest allowed allowlist fits a direct buffer, a larger allowlist is rejected
+	 * before anything is allocated.
+	 */
+	@Test
+	public void testOffHeapLimit() {
+		int capacity = OffHeapAllowlist.capacity( OffHeapAllowlist.MAX_ENTRIES );
+		assertEquals( 1 << 27, capacity );
+		assertEquals( 1 << 30, OffHeapAllowlist.tableBytes( capacity ) );
+		try {
+			OffHeapAllowlist.tableBytes( OffHeapAllowlist.capacity( OffHeapAllowlist.MAX_ENTRIES + 1 ) );
+			fail( "The table of too many entries was accepted." );
+		} catch ( IllegalArgumentException e ) {
+		}
+
+		List<String> tooMany = new ArrayList<String>() {
+
+			@Override
+			public int size() {
+				return OffHeapAllowlist.MAX_ENTRIES + 1;
+			}
+		};
+		try {
+			Allowlist.offHeap( tooMany );
+			fail( "An allowlist of too many entries was accepted." );
+		} catch ( IllegalArgumentException e ) {
+			assertEquals( "An allowlist can have at most " + OffHeapAllowlist.MAX_ENTRIES + " entries.", e.getMessage() );
+		}
+	}
+
+	@Test
+	public void testMapped() throws Exception {
+		List<String> skus = skus( 100000 );
+		Collections.sort( skus, BYTE_ORDER );
+		for ( boolean finalLineBreak : new boolean[] { false, true } ) {
+			write( skus, finalLineBreak );
+			for ( double falsePositiveRate : new double[] { 0, 0.01 } ) {
+				Allowlist allowlist = Allowlist.map( file, falsePositiveRate );
+				assertEquals( skus.size(), allowlist.size() );
+				for ( String sku : skus )
+					assertTrue( sku, allowlist.contains( sku ) );
+				for ( int i = 0; i < 300000; i++ )
+					assertEquals( i % 3 == 0, allowlist.contains( "SKU-" + i ) );
+				assertFalse( allowlist.contains( "" ) );
+				assertFalse( allowlist.contains( "A" ) );
+				assertFalse( allowlist.contains( "\uffff" ) );
+				assertFalse( allowlist.contains( "SKU-" ) );
+			}
+		}
+
+		// An empty first entry and a single entry
+		write( Arrays.asList( "", "a" ), false );
+		assertTrue( Allowlist.map( file ).contains( "" ) );
+		assertTrue( Allowlist.map( file ).contains( "a" ) );
+		assertFalse( Allowlist.map( file ).contains( "b" ) );
+		write( Arrays.asList( "only" ), true );
+		assertTrue( Allowlist.map( file ).contains( "only" ) );
+		assertFalse( Allowlist.map( file ).contains( "on" ) );
+
+		write( Collections.<String> emptyList(), false );
+		assertEquals( 0, Allowlist.map( file ).size() );
+		assertFalse( Allowlist.map( file ).contains( "" ) );
+	}
+
+	@Test
+	public void testUnsortedFile() throws Exception {
+		write( Arrays.asList( "a", "c", "b" ), true );
+		try {
+			Allowlist.map( file );
+			fail( "Expected IOException" );
+		} catch ( IOException e ) {
+			assertTrue( e.getMessage(), e.getMessage().endsWith( "is not sorted or has a duplicate at line 3." ) );
+		}
+		write( Arrays.asList( "a", "a" ), true );
+		try {
+			Allowlist.map( file );
+			fail( "Expected IOException" );
+		} catch ( IOException e ) {
+			assertTrue( e.getMessage(), e.getMessage().endsWith( "at line 2." ) );
+		}
+	}
+
+	@Test
+	public void testValidate() throws Exception {
+		write( Arrays.asList( "SKU-1", "SKU-2" ), true );
+		JSONValidator jv = new JSONValidator();
+		jv.addAllowlist( "skus", Allowlist.map( file, 0.01 ) );
+		CompiledSchema schema = jv.compile( allowlistPrototype( "skus" ) );
+
+		assertTrue( jv.validate( new HashMap() {
+
+			{
+				put( "sku", "SKU-2" );
+			}
+		}, schema ) );
+		assertFalse( jv.validate( new HashMap() {
+
+			{
+				put( "sku", "SKU-3" );
+			}
+		}, schema ) );
+		assertTrue( jv.getFailMessage(), jv.getFailMessage().contains( "Item SKU-3 was not found in allowlist skus" ) );
+		assertFalse( jv.parse( "{\"sku\": \"SKU-3\"}".getBytes( "UTF-8" ), schema ).isValid() );
+		assertTrue( jv.parse( "{\"sku\": \"SKU-1\"}".getBytes( "UTF-8" ), schema ).isValid() );
+
+		try {
+			jv.compile( allowlistPrototype( "accounts" ) );
+			fail( "Expected PrototypeException" );
+		} catch ( PrototypeException e ) {
+			assertEquals( "allowlist 'accounts' was not added to the validator.", e.getMessage() );
+		}
+		try {
+			jv.compile( allowlistPrototype( Arrays.asList( "SKU-1" ) ) );
+			fail( "Expected PrototypeException" );
+		} catch ( PrototypeException e ) {
+			assertEquals( "allowlist must be the name of an allowlist.", e.getMessage() );
+		}
+	}
+
+}
@@ -0,0 +1,165 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class BatchTest {
+
+	private final Map prototype = new HashMap() {
+
+		{
+			put( JSONValidator.KEY_TYPE, "struct" );
+			put( JSONValidator.KEY_FIELDS, new HashMap() {
+
+				{
+					put( "id", new HashMap() {
+
+						{
+							put( JSONValidator.KEY_REQ, true );
+							put( JSONValidator.KEY_FIELD_DEFINITION, new HashMap() {
+
+								{
+									put( JSONValidator.KEY_TYPE, "number" );
+									put( JSONValidator.KEY_NUM_MIN, 1 );
+								}
+							} );
+						}
+					} );
+					put( "state", new HashMap() {
+
+						{
+							put( JSONValidator.KEY_DEFAULT, "new" );
+							put( JSONValidator.KEY_FIELD_DEFINITION, new HashMap() {
+
+								{
+									put( JSONValidator.KEY_TYPE, "string" );
+								}
+							} );
+						}
+					} );
+				}
+			} );
+		}
+	};
+
+	private final List documents = new ArrayList();
+
+	private ForkJoinPool pool;
+
+	@Before
+	public void before() {
+		for ( int i = 0; i < 1000; i++ ) {
+			Map document = new HashMap();
+			document.put( "id", i % 5 );
+			document.put( "other", i );
+			documents.add( document );
+		}
+		pool = new ForkJoinPool( 4 );
+	}
+
+	@After
+	public void after() {
+		pool.shutdown();
+	}
+
+	/**
+	 * The results are those of validating the documents one by one, in the same order.
+	 */
+	@Test
+	public void testInputOrder() throws Exception {
+		Map options = new HashMap();
+		options.put( ValidationOptions.RemoveUnspecifiedKeys, true );
+		JSONValidator jv = new JSONValidator( options );
+		CompiledSchema schema = jv.compile( prototype );
+
+		BatchResult result = jv.validateAll( documents, schema, pool );
+		assertFalse( result.isValid() );
+		assertEquals( 1000, result.size() );
+		assertEquals( 800, result.getValidCount() );
+
+		BitSet valid = result.getValid();
+		for ( int i = 0; i < documents.size(); i++ ) {
+			ValidationResult expected = jv.validateWithResult( documents.get( i ), schema );
+			assertEquals( expected.isValid(), valid.get( i ) );
+			assertEquals( expected.getFailMessage(), result.get( i ).getFailMessage() );
+			assertEquals( expected.getReturnJson(), result.get( i ).getReturnJson() );
+		}
+		assertEquals( "new", ( (Map) result.get( 1 ).getReturnJson() ).get( "state" ) );
+	}
+
+	/**
+	 * Documents of an Iterable that does not know its size are validated in order as well.
+	 */
+	@Test
+	public void testIterable() throws Exception {
+		JSONValidator jv = new JSONValidator();
+		BatchResult result = jv.validateAll( new Iterable() {
+
+			@Override
+			public Iterator iterator() {
+				return documents.iterator();
+			}
+		}, prototype );
+
+		assertEquals( 1000, result.size() );
+		for ( int i = 0; i < documents.size(); i++ )
+			assertEquals( i % 5 != 0, result.get( i ).isValid() );
+		assertEquals( ".id Expected number to be greater than or equal to 1.0 but was 0.0", result.get( 995 ).getFailMessage() );
+	}
+
+	@Test
+	public void testPrototypeException() throws Exception {
+		Map fields = (Map) prototype.get( JSONValidator.KEY_FIELDS );
+		( (Map) ( (Map) fields.get( "state" ) ).get( JSONValidator.KEY_FIELD_DEFINITION ) ).put( JSONValidator.KEY_TYPE, "array" );
+		( (Map) documents.get( 601 ) ).put( "state", new ArrayList() );
+
+		try {
+			new JSONValidator().validateAll( documents, prototype );
+			fail( "A PrototypeException was expected to be thrown but never was." );
+		} catch ( PrototypeException e ) {
+			assertEquals( "'children' key required for Type List", e.getMessage() );
+		}
+		assertTrue( new JSONValidator().validateAll( documents.subList( 1, 5 ), prototype ).isValid() );
+	}
+}
@@ -0,0 +1,215 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class CompiledSchemaTest {
+
+	private static final String TYPE = JSONValidator.KEY_TYPE;
+
+	private static final String FIELDS = JSONValidator.KEY_FIELDS;
+
+	private static final String DEFINITION = JSONValidator.KEY_FIELD_DEFINITION;
+
+	private static final String REQUIRED = JSONValidator.KEY_REQ;
+
+	private static final String CHILDREN = JSONValidator.KEY_CHILDREN;
+
+	private JSONValidator jv;
+
+	@Before
+	public void before() {
+		jv = new JSONValidator();
+	}
+
+	/**
+	 * A compiled schema validates many documents the same way the prototype does.
+	 */
+	@Test
+	public void testCompiledSchemaReuse() throws Exception {
+		Map prototype = createKey( "key1", new HashMap() {
+
+			{
+				put( REQUIRED, true );
+				put( DEFINITION, new HashMap() {
+
+					{
+						put( TYPE, "number" );
+						put( JSONValidator.KEY_NUM_MIN, 1 );
+					}
+				} );
+			}
+		} );
+
+		CompiledSchema schema = jv.compile( prototype );
+
+		assertTrue( jv.validate( createJson( "key1", 2 ), schema ) );
+		assertEquals( createJson( "key1", 2 ), jv.getReturnJson() );
+
+		assertFalse( jv.validate( createJson( "key1", 0 ), schema ) );
+		assertEquals( ".key1 Expected number to be greater than or equal to 1.0 but was 0.0", jv.getFailMessage() );
+
+		assertFalse( jv.validate( createJson( "key2", 2 ), schema ) );
+		assertEquals( " Required field key1 was not found", jv.getFailMessage() );
+	}
+
+	/**
+	 * Compiling reports prototype errors even if no json would reach them.
+	 */
+	@Test
+	public void testCompileRejectsInvalidPrototype() throws Exception {
+		Map prototype = createKey( "key1", new HashMap() {
+
+			{
+				put( DEFINITION, new HashMap() {
+
+					{
+						put( TYPE, "array" );
+					}
+				} );
+			}
+		} );
+
+		// The interpreter only finds the error once a list is found
+		assertTrue( jv.validate( createJson( "key2", "value" ), prototype ) );
+
+		try {
+			jv.compile( prototype );
+			fail( "A PrototypeException was expected to be thrown but never was." );
+		} catch ( PrototypeException e ) {
+			assertEquals( "'children' key required for Type List", e.getMessage() );
+		}
+	}
+
+	/**
+	 * Custom types are bound when compiling and may reference themselves.
+	 */
+	@Test
+	public void testRecursiveCustomType() throws Exception {
+		jv.addCustomType( "node", new HashMap() {
+
+			{
+				put( TYPE, "struct" );
+				put( FIELDS, new HashMap() {
+
+					{
+						put( "name", new HashMap() {
+
+							{
+								put( REQUIRED, true );
+								put( DEFINITION, new HashMap() {
+
+									{
+										put( TYPE, "string" );
+									}
+								} );
+							}
+						} );
+						put( "children", new HashMap() {
+
+							{
+								put( DEFINITION, new HashMap() {
+
+									{
+										put( TYPE, "array" );
+										put( CHILDREN, new HashMap() {
+
+											{
+												put( JSONValidator.KEY_CUSTOM, "node" );
+											}
+										} );
+									}
+								} );
+							}
+						} );
+					}
+				} );
+			}
+		} );
+
+		CompiledSchema schema = jv.compile( new HashMap() {
+
+			{
+				put( JSONValidator.KEY_CUSTOM, "node" );
+			}
+		} );
+
+		final Map leaf = createJson( "name", "leaf" );
+		final Map badLeaf = createJson( "name", 1 );
+		Map tree = createJson( "name", "root" );
+		tree.put( "children", new ArrayList() {
+
+			{
+				add( leaf );
+			}
+		} );
+		assertTrue( jv.validate( tree, schema ) );
+
+		( (ArrayList) tree.get( "children" ) ).add( badLeaf );
+		assertFalse( jv.validate( tree, schema ) );
+		assertEquals( ".children[1].name Expected Type java.lang.String Found Type java.lang.Integer", jv.getFailMessage() );
+	}
+
+	private Map createJson( String _key, Object _value ) {
+		Map json = new HashMap();
+		json.put( _key, _value );
+		return json;
+	}
+
+	private Map createKey( final String _key, final Map _value ) {
+
+		return new HashMap() {
+
+			{
+				put( TYPE, "struct" );
+				put( FIELDS, new ArrayList() {
+
+					{
+						add( new HashMap() {
+
+							{
+								put( _key, _value );
+							}
+						} );
+					}
+				} );
+			}
+		};
+	}
+}
@@ -32,6 +32,7 @@ import static org.junit.Assert.fail;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.junit.BeforeClass;
@@ -554,6 +555,60 @@ public class ConditionEvaluatorTest {
 		validateResult( ERROR, "Dynamic conditions for key2 went beyond root", json, prototype );
 	}
 
+	/**
+	 * eqi with the case of the constant folded at compile time matches like String.equalsIgnoreCase.
+	 */
+	@Test
+	public void testCaseFolding() throws Exception {
+		String[] values = { "value", "VALUE", "vAlUe", "valu", "values", "", "Stra\u00dfe", "STRASSE", "\u0130stanbul", "istanbul", "\u0131STANBUL", "\u00ff", "\u0178", "K", "\u212a", "k", "\ud801\udc00", "\ud801\udc28", "?" };
+		for ( final String constant : values ) {
+			Condition condition = Condition.compile( new HashMap() {
+				{
+					put( "eqi&key1", constant );
+				}
+			} );
+			for ( final String value : values ) {
+				JSONBlock json = new JSONBlock( new HashMap() {
+					{
+						put( KEY_1, value );
+					}
+				} );
+				assertEquals( constant + " eqi " + value, constant.equalsIgnoreCase( value ), condition.evaluate( json, null, null ) );
+			}
+		}
+	}
+
+	/**
+	 * A condition the prototype gets wrong only raises its error once it is evaluated.
+	 */
+	@Test
+	public void testLazyErrors() {
+		Object json = new HashMap() {
+			{
+				put( "key2", "value2" );
+			}
+		};
+		Map prototype = createKey( "key1", new HashMap() {
+			{
+				put( TYPE, STRING );
+				put( REQUIRED, new HashMap() {
+					{
+						put( "and", new LinkedHashMap() {
+							{
+								put( "eq&key2", "other" );
+								put( "gt&key2", "not a number" );
+							}
+						} );
+					}
+				} );
+			}
+		} );
+		validateResult( FALSE, null, json, prototype );
+
+		( (Map) json ).put( "key2", "other" );
+		validateResult( ERROR, "Dynamic condition must be a Number when using comparisons 'gt', 'gte', 'lt', and 'lte'", json, prototype );
+	}
+
 	/**
 	 * Validates the test results. This method is backwards, if you put in true it
 	 * will assert false. This is only useful for how this class is testing the
@@ -0,0 +1,304 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class ConditionSharingTest {
+
+	/**
+	 * Json struct that counts how often each key is looked up.
+	 */
+	private static class CountingMap extends HashMap {
+
+		final Map<Object, Integer> lookups = new HashMap<Object, Integer>();
+
+		CountingMap( Object... _keysAndValues ) {
+			for ( int i = 0; i < _keysAndValues.length; i += 2 )
+				put( _keysAndValues[i], _keysAndValues[i + 1] );
+		}
+
+		@Override
+		public Object get( Object _key ) {
+			count( _key );
+			return super.get( _key );
+		}
+
+		@Override
+		public boolean containsKey( Object _key ) {
+			count( _key );
+			return super.containsKey( _key );
+		}
+
+		private void count( Object _key ) {
+			Integer count = lookups.get( _key );
+			lookups.put( _key, ( count == null ) ? 1 : count + 1 );
+		}
+
+		int lookups( Object _key ) {
+			Integer count = lookups.get( _key );
+			return ( count == null ) ? 0 : count;
+		}
+	}
+
+	private static Map field( final Object _req ) {
+		return new HashMap() {
+
+			{
+				put( JSONValidator.KEY_REQ, _req );
+				put( JSONValidator.KEY_FIELD_DEFINITION, new HashMap() {
+
+					{
+						put( JSONValidator.KEY_TYPE, "string" );
+					}
+				} );
+			}
+		};
+	}
+
+	private static Map struct( final Map _fields ) {
+		return new HashMap() {
+
+			{
+				put( JSONValidator.KEY_TYPE, "struct" );
+				put( JSONValidator.KEY_FIELDS, _fields );
+			}
+		};
+	}
+
+	/**
+	 * Twenty fields required on the same condition: it is evaluated once per struct.
+	 */
+	private static Map sharedPrototype() {
+		Map fields = new HashMap();
+		for ( int i = 0; i < 20; i++ ) {
+			fields.put( "f" + i, field( new HashMap() {
+
+				{
+					put( "eq&status", "active" );
+				}
+			} ) );
+		}
+		return struct( fields );
+	}
+
+	@Test
+	public void testShared() throws Exception {
+		JSONValidator jv = new JSONValidator();
+		CountingMap json = new CountingMap( "status", "inactive" );
+		assertTrue( jv.validate( json, sharedPrototype() ) );
+		assertEquals( 1, json.lookups( "status" ) );
+
+		json = new CountingMap( "status", "active" );
+		for ( int i = 0; i < 20; i++ )
+			json.put( "f" + i, "x" );
+		assertTrue( jv.validate( json, sharedPrototype() ) );
+		assertEquals( 1, json.lookups( "status" ) );
+	}
+
+	/**
+	 * Results are kept for one struct only, not for the next one of a list.
+	 */
+	@Test
+	public void testPerStruct() throws Exception {
+		final Map prototype = sharedPrototype();
+		Map listPrototype = new HashMap() {
+
+			{
+				put( JSONValidator.KEY_TYPE, "list" );
+				put( JSONValidator.KEY_CHILDREN, prototype );
+			}
+		};
+
+		JSONValidator jv = new JSONValidator();
+		CountingMap active = new CountingMap( "status", "active" );
+		for ( int i = 0; i < 20; i++ )
+			active.put( "f" + i, "x" );
+		assertTrue( jv.validate( new ArrayList( Arrays.asList( active, new CountingMap( "status", "inactive" ) ) ), listPrototype ) );
+		assertFalse( jv.validate( new ArrayList( Arrays.asList( new CountingMap( "status", "inactive" ), new CountingMap( "status", "active" ) ) ), listPrototype ) );
+	}
+
+	/**
+	 * Line items of an order whose sku is required depending on the mode of the order.
+	 */
+	private static Map orderPrototype() {
+		Map item = struct( new HashMap() {
+
+			{
+				put( "sku", field( new HashMap() {
+
+					{
+						put( "eq^^&mode", "strict" );
+					}
+				} ) );
+			}
+		} );
+		final Map items = new HashMap();
+		items.put( JSONValidator.KEY_TYPE, "list" );
+		items.put( JSONValidator.KEY_CHILDREN, item );
+		return struct( new HashMap() {
+
+			{
+				put( "items", new HashMap() {
+
+					{
+						put( JSONValidator.KEY_REQ, true );
+						put( JSONValidator.KEY_FIELD_DEFINITION, items );
+					}
+				} );
+			}
+		} );
+	}
+
+	private static List items( int _count, boolean _withSku ) {
+		List items = new ArrayList();
+		for ( int i = 0; i < _count; i++ )
+			items.add( _withSku ? new CountingMap( "sku", "S" + i ) : new CountingMap() );
+		return items;
+	}
+
+	/**
+	 * A condition on the order is evaluated once for all of its items.
+	 */
+	@Test
+	public void testHoisted() throws Exception {
+		JSONValidator jv = new JSONValidator();
+		CountingMap order = new CountingMap( "mode", "loose", "items", items( 100, false ) );
+		assertTrue( jv.validate( order, orderPrototype() ) );
+		assertEquals( 1, order.lookups( "mode" ) );
+
+		order = new CountingMap( "mode", "strict", "items", items( 100, true ) );
+		assertTrue( jv.validate( order, orderPrototype() ) );
+		assertEquals( 1, order.lookups( "mode" ) );
+
+		List missing = items( 100, true );
+		missing.set( 99, new CountingMap() );
+		assertFalse( jv.validate( new CountingMap( "mode", "strict", "items", missing ), orderPrototype() ) );
+	}
+
+	/**
+	 * Each list has results of its own, also when its items are validated in parallel.
+	 */
+	@Test
+	public void testHoistedPerList() throws Exception {
+		final Map order = orderPrototype();
+		Map orders = new HashMap() {
+
+			{
+				put( JSONValidator.KEY_TYPE, "list" );
+				put( JSONValidator.KEY_CHILDREN, order );
+			}
+		};
+
+		Map options = new HashMap();
+		options.put( ValidationOptions.ParallelThreshold, 10 );
+		for ( JSONValidator jv : new JSONValidator[] { new JSONValidator(), new JSONValidator( options ) } ) {
+			List loose = Arrays.asList( new CountingMap( "mode", "loose", "items", items( 50, false ) ), new CountingMap( "mode", "strict", "items", items( 50, true ) ) );
+			assertTrue( jv.validate( new ArrayList( loose ), orders ) );
+			List strict = Arrays.asList( new CountingMap( "mode", "strict", "items", items( 50, true ) ), new CountingMap( "mode", "strict", "items", items( 50, false ) ) );
+			assertFalse( jv.validate( new ArrayList( strict ), orders ) );
+		}
+	}
+
+	/**
+	 * A key presence check decides an and group before the comparison written ahead of it.
+	 */
+	@Test
+	public void testCheapestFirst() throws Exception {
+		Map fields = new HashMap() {
+
+			{
+				put( "value", field( new HashMap() {
+
+					{
+						put( "and", new LinkedHashMap() {
+
+							{
+								put( "eqi&name", "Jane" );
+								put( "ex&id", true );
+							}
+						} );
+					}
+				} ) );
+			}
+		};
+
+		JSONValidator jv = new JSONValidator();
+		CountingMap json = new CountingMap( "name", "JANE" );
+		assertTrue( jv.validate( json, struct( fields ) ) );
+		assertEquals( 0, json.lookups( "name" ) );
+
+		json = new CountingMap( "name", "JANE", "id", "1" );
+		assertFalse( jv.validate( json, struct( fields ) ) );
+		assertEquals( 1, json.lookups( "name" ) );
+	}
+
+	/**
+	 * A condition that fails is not moved behind, or ahead of, the ones around it.
+	 */
+	@Test
+	public void testFailingOrderKept() throws Exception {
+		Map fields = new HashMap() {
+
+			{
+				put( "value", field( new HashMap() {
+
+					{
+						put( "and", new LinkedHashMap() {
+
+							{
+								put( "gt&name", "Jane" );
+								put( "ex&id", true );
+							}
+						} );
+					}
+				} ) );
+			}
+		};
+
+		try {
+			new JSONValidator().validate( new CountingMap( "name", "Jane" ), struct( fields ) );
+			fail( "The gt condition was skipped." );
+		} catch ( PrototypeException e ) {
+			assertEquals( "Dynamic condition must be a Number when using comparisons 'gt', 'gte', 'lt', and 'lte'", e.getMessage() );
+		}
+	}
+
+}
@@ -0,0 +1,161 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class CopyOnWriteTest {
+
+	private static final String TYPE = JSONValidator.KEY_TYPE;
+
+	private static final String FIELDS = JSONValidator.KEY_FIELDS;
+
+	private static final String DEFINITION = JSONValidator.KEY_FIELD_DEFINITION;
+
+	private final Map item = new HashMap() {
+
+		{
+			put( TYPE, "struct" );
+			put( FIELDS, new HashMap() {
+
+				{
+					put( "name", new HashMap() {
+
+						{
+							put( DEFINITION, new HashMap() {
+
+								{
+									put( TYPE, "string" );
+								}
+							} );
+						}
+					} );
+					put( "state", new HashMap() {
+
+						{
+							put( JSONValidator.KEY_DEFAULT, "new" );
+							put( DEFINITION, new HashMap() {
+
+								{
+									put( TYPE, "string" );
+								}
+							} );
+						}
+					} );
+				}
+			} );
+		}
+	};
+
+	private final Map prototype = new HashMap() {
+
+		{
+			put( TYPE, "array" );
+			put( JSONValidator.KEY_CHILDREN, item );
+		}
+	};
+
+	private JSONValidator jv;
+
+	@Before
+	public void before() {
+		jv = new JSONValidator( new HashMap<String, Object>() {
+
+			{
+				put( ValidationOptions.CopyOnWrite, true );
+			}
+		} );
+	}
+
+	@Test
+	public void testUnchangedJsonIsReturned() throws Exception {
+		List json = new ArrayList();
+		json.add( createItem( "a", "done" ) );
+		json.add( createItem( "b", "new" ) );
+
+		assertTrue( jv.validate( json, prototype ) );
+		assertSame( json, jv.getReturnJson() );
+	}
+
+	/**
+	 * Only the path to a changed value is copied, the other items are shared with the input.
+	 */
+	@Test
+	public void testOnlyChangedPathIsCopied() throws Exception {
+		Map unchanged = createItem( "a", "done" );
+		Map changed = createItem( "b", null );
+		changed.remove( "state" );
+		List json = new ArrayList();
+		json.add( unchanged );
+		json.add( changed );
+
+		assertTrue( jv.validate( json, prototype ) );
+		List returned = (List) jv.getReturnJson();
+		assertNotSame( json, returned );
+		assertSame( unchanged, returned.get( 0 ) );
+		assertNotSame( changed, returned.get( 1 ) );
+		assertEquals( createItem( "b", "new" ), returned.get( 1 ) );
+		assertEquals( 1, changed.size() );
+	}
+
+	@Test
+	public void testRemovedKeyCopiesStruct() throws Exception {
+		jv = new JSONValidator( new HashMap<String, Object>() {
+
+			{
+				put( ValidationOptions.CopyOnWrite, true );
+				put( ValidationOptions.RemoveUnspecifiedKeys, true );
+			}
+		} );
+
+		Map json = createItem( "a", "done" );
+		assertTrue( jv.validate( json, item ) );
+		assertSame( json, jv.getReturnJson() );
+
+		json.put( "extra", 1 );
+		assertTrue( jv.validate( json, item ) );
+		assertEquals( createItem( "a", "done" ), jv.getReturnJson() );
+		assertEquals( 3, json.size() );
+	}
+
+	private Map createItem( String _name, String _state ) {
+		Map json = new HashMap();
+		json.put( "name", _name );
+		json.put( "state", _state );
+		return json;
+	}
+}
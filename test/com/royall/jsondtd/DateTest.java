@@ -0,0 +1,397 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.royall.jsondtd.exceptions.PrototypeException;
+import com.royall.jsondtd.util.DateUtil;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class DateTest {
+
+	private static Map datePrototype( final String _after, final String _before ) {
+		return new HashMap() {
+
+			{
+				put( JSONValidator.KEY_TYPE, "struct" );
+				put( JSONValidator.KEY_FIELDS, new HashMap() {
+
+					{
+						put( "created", new HashMap() {
+
+							{
+								put( JSONValidator.KEY_REQ, true );
+								put( JSONValidator.KEY_FIELD_DEFINITION, new HashMap() {
+
+									{
+										put( JSONValidator.KEY_TYPE, "date" );
+										put( JSONValidator.KEY_DATE_MUST_BE_AFTER, _after );
+										put( JSONValidator.KEY_DATE_MUST_BE_BEFORE, _before );
+									}
+								} );
+							}
+						} );
+					}
+				} );
+			}
+		};
+	}
+
+	private static JSONValidator validator( String _pattern ) {
+		Map options = new HashMap();
+		options.put( ValidationOptions.DatePattern, _pattern );
+		return new JSONValidator( options );
+	}
+
+	/**
+	 * Strings parse as a non-lenient SimpleDateFormat of the pattern parses them.
+	 */
+	@Test
+	public void testSimpleDateFormatParity() {
+		String[] patterns = { "yyyy-MM-dd", "yyyyMMdd", "MM/dd/yyyy", "yyyy-MM-dd'T'HH:mm:ss.SSSZ", "dd MMM yyyy HH:mm" };
+		String[] dates = { "2013-05-24", "2013-5-4", "2013-02-30", " 2013-05-24 ", "2013-05-24x", "20130524", "2013524", "5/24/2013", "13/24/2013", "2013-05-24T10:11:12.345+0200", "24 May 2013 10:11", "24 May 2013 25:00", "" };
+		assertParity( patterns, dates );
+	}
+
+	/**
+	 * Twelve hour clocks, years of any length, zone names and offsets, month names, week dates,
+	 * Julian dates and times at daylight saving time transitions parse as in SimpleDateFormat.
+	 */
+	@Test
+	public void testSimpleDateFormatParityInZone() {
+		String[] patterns = { null, "yyyy-MM-dd hh:mm", "yyyy-MM-dd HH:mm", "MM/dd/yy", "yyyy-MM-dd HH:mm Z", "yyyy-MM-dd HH:mm z", "dd MMM yyyy", "dd MMMM yyyy", "yyyy-ww", "yyyy-MM-dd", "yyyy-MM-dd'T'HH:mm:ssXXX" };
+		String[] dates = { "2024-01-01 05:30", "2024-01-01 13:30", "01/02/2024", "01/02/24", "1/2/2024, 3:04 PM", "1/2/24, 3:04 PM", "2024-01-01 05:30 GMT+01:00", "2024-01-01 05:30 PST", "2024-07-01 05:30 PDT", "2024-01-01 05:30 -0800", "2024-01-01 05:30 +01:00", "02 Jan 2024", "02 January 2024", "2024-10", "0000-01-01", "1500-01-01", "1582-10-10",
+				"2024-03-10 02:30", "2024-11-03 01:30", "2024-03-10T02:30:00", "2024-11-03T01:30:00-04:00", "2024-11-03T01:30:00-05" };
+		TimeZone zone = TimeZone.getDefault();
+		try {
+			TimeZone.setDefault( TimeZone.getTimeZone( "America/New_York" ) );
+			assertParity( patterns, dates );
+		} finally {
+			TimeZone.setDefault( zone );
+		}
+	}
+
+	/**
+	 * Parses every date with every pattern, both with a non-lenient SimpleDateFormat and a
+	 * DateParser.
+	 */
+	private static void assertParity( String[] _patterns, String[] _dates ) {
+		for ( String pattern : _patterns ) {
+			SimpleDateFormat format = ( pattern != null ) ? new SimpleDateFormat( pattern ) : new SimpleDateFormat();
+			format.setLenient( false );
+			DateParser parser = DateParser.create( pattern );
+			for ( String date : _dates ) {
+				Date expected = DateUtil.parseDate( date, format );
+				long parsed = parser.parse( date );
+				assertEquals( pattern + " " + date, ( expected != null ) ? expected.getTime() : DateParser.UNPARSEABLE, parsed );
+				// Again from the cache
+				assertEquals( parsed, parser.parse( date ) );
+			}
+		}
+	}
+
+	/**
+	 * ISO-8601 patterns parse the fixed width form in IsoDate and agree with SimpleDateFormat, text
+	 * of another shape is left to the formatter.
+	 */
+	@Test
+	public void testIsoDates() {
+		String[][] cases = { { "yyyy-MM-dd'T'HH:mm:ss.SSSZ", "2013-05-24T10:11:12.345+0200", "2013-05-24T10:11:12.345-1030", " 2013-05-24T23:59:59.999+0000 " }, { "yyyy-MM-dd'T'HH:mm:ssXXX", "2013-05-24T10:11:12+02:00", "2013-05-24T10:11:12Z", "2012-02-29T00:00:00-05:30" }, { "yyyy-MM-dd'T'HH:mm:ss'Z'", "2013-05-24T10:11:12Z" }, { "yyyy-MM-dd HH:mm", "2013-05-24 10:11" }, { "yyyy-MM-dd", "2013-05-24", "2000-02-29", "1970-01-01" } };
+		for ( String[] dates : cases ) {
+			SimpleDateFormat format = new SimpleDateFormat( dates[0] );
+			format.setLenient( false );
+			IsoDate iso = IsoDate.forPattern( dates[0], ZoneId.systemDefault() );
+			for ( int i = 1; i < dates.length; i++ )
+				assertEquals( dates[0] + " " + dates[i], DateUtil.parseDate( dates[i], format ).getTime(), iso.parse( dates[i] ) );
+		}
+
+		IsoDate iso = IsoDate.forPattern( "yyyy-MM-dd", ZoneId.systemDefault() );
+		assertEquals( IsoDate.NO_MATCH, iso.parse( "2013-5-24" ) );
+		assertEquals( IsoDate.NO_MATCH, iso.parse( "2013-02-29" ) );
+		assertEquals( IsoDate.NO_MATCH, iso.parse( "2013-05-24T" ) );
+		assertEquals( IsoDate.NO_MATCH, iso.parse( "1582-10-15" ) );
+		assertEquals( IsoDate.NO_MATCH, iso.parse( "0000-01-01" ) );
+		assertEquals( DateParser.create( "yyyy-MM-dd" ).parse( "2013-05-24" ), DateParser.create( "yyyy-MM-dd" ).parse( "2013-5-24" ) );
+
+		iso = IsoDate.forPattern( "yyyy-MM-dd'T'HH:mm:ssXXX", ZoneId.systemDefault() );
+		assertEquals( IsoDate.NO_MATCH, iso.parse( "2013-05-24T24:00:00Z" ) );
+		assertEquals( IsoDate.NO_MATCH, iso.parse( "2013-05-24T10:11:12+0200" ) );
+		assertEquals( IsoDate.NO_MATCH, iso.parse( "2013-05-24T10:11:12+19:00" ) );
+		assertEquals( IsoDate.NO_MATCH, IsoDate.forPattern( "yyyy-MM-dd'T'HH:mm:ssX", ZoneId.systemDefault() ).parse( "2013-05-24T10:11:12+0200" ) );
+
+		iso = IsoDate.forPattern( "yyyy-MM-dd HH:mm", ZoneId.of( "America/New_York" ) );
+		assertEquals( IsoDate.NO_MATCH, iso.parse( "2024-03-10 02:30" ) );
+		assertEquals( IsoDate.NO_MATCH, iso.parse( "2024-11-03 01:30" ) );
+		assertEquals( ZonedDateTime.of( 2024, 7, 1, 5, 30, 0, 0, ZoneId.of( "America/New_York" ) ).toInstant().toEpochMilli(), iso.parse( "2024-07-01 05:30" ) );
+
+		assertEquals( null, IsoDate.forPattern( "MM/dd/yyyy", ZoneId.systemDefault() ) );
+	}
+
+	/**
+	 * Two digit years are within 80 years before and 20 years after now. Other years are taken as
+	 * they are, before 1582-10-15 in the Julian calendar, as in SimpleDateFormat.
+	 */
+	@Test
+	public void testYears() throws Exception {
+		DateParser parser = DateParser.create( "yy-MM-dd" );
+		assertEquals( DateParser.create( "yyyy-MM-dd" ).parse( "2013-05-24" ), parser.parse( "13-05-24" ) );
+		assertEquals( DateParser.create( "yyyy-MM-dd" ).parse( "2013-05-24" ), parser.parse( "2013-05-24" ) );
+		assertEquals( new SimpleDateFormat( "yyyy-MM-dd" ).parse( "0013-05-24" ).getTime(), DateParser.create( "yyyy-MM-dd" ).parse( "13-05-24" ) );
+		assertEquals( DateParser.UNPARSEABLE, DateParser.create( "yyyy-MM-dd" ).parse( "0000-01-01" ) );
+	}
+
+	@Test
+	public void testDefaultPattern() {
+		SimpleDateFormat format = new SimpleDateFormat();
+		DateParser parser = DateParser.create( null );
+		assertEquals( format.toPattern(), parser.getPattern() );
+		String date = format.format( new Date( 1369390260000L ) );
+		assertEquals( 1369390260000L, parser.parse( date ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testIllegalPattern() {
+		validator( "yyyy-MM-dd'T" );
+	}
+
+	/**
+	 * Bounds are exclusive, and are given as String or Date.
+	 */
+	@Test
+	public void testBounds() throws Exception {
+		JSONValidator jv = validator( "yyyy-MM-dd" );
+		CompiledSchema schema = jv.compile( datePrototype( "2013-05-01", "2013-06-01" ) );
+
+		Map json = new HashMap();
+		json.put( "created", "2013-05-24" );
+		assertTrue( jv.validate( json, schema ) );
+
+		json.put( "created", "2013-05-01" );
+		ValidationResult result = jv.validateWithResult( json, schema );
+		assertFalse( result.isValid() );
+		assertEquals( FailureCode.DATE_NOT_AFTER, result.getFailure().getCode() );
+
+		json.put( "created", DateUtil.parseDate( "2013-06-01", new SimpleDateFormat( "yyyy-MM-dd" ) ) );
+		result = jv.validateWithResult( json, schema );
+		assertFalse( result.isValid() );
+		assertEquals( FailureCode.DATE_NOT_BEFORE, result.getFailure().getCode() );
+
+		json.put( "created", "2013-13-01" );
+		result = jv.validateWithResult( json, schema );
+		assertFalse( result.isValid() );
+		assertEquals( FailureCode.DATE_UNPARSEABLE, result.getFailure().getCode() );
+	}
+
+	/**
+	 * java.time values and Longs of epoch millis are dates without being formatted and parsed.
+	 */
+	@Test
+	public void testTemporalValues() throws Exception {
+		JSONValidator jv = validator( "yyyy-MM-dd" );
+		CompiledSchema schema = jv.compile( datePrototype( "2013-05-01", "2013-06-01" ) );
+		long may24 = DateParser.create( "yyyy-MM-dd" ).parse( "2013-05-24" );
+		Instant instant = Instant.ofEpochMilli( may24 );
+
+		Object[] valid = { Long.valueOf( may24 ), instant, OffsetDateTime.ofInstant( instant, ZoneOffset.ofHours( 5 ) ), ZonedDateTime.ofInstant( instant, ZoneId.of( "Asia/Tokyo" ) ), LocalDate.of( 2013, 5, 24 ), LocalDateTime.of( 2013, 5, 24, 13, 30 ) };
+		for ( Object date : valid ) {
+			Map json = new HashMap();
+			json.put( "created", date );
+			ValidationResult result = jv.validateWithResult( json, schema );
+			assertTrue( date.toString(), result.isValid() );
+			assertSame( date, ( (Map) result.getReturnJson() ).get( "created" ) );
+		}
+
+		Object[] late = { Long.valueOf( may24 + 8 * 86400000L ), instant.plusSeconds( 8 * 86400 ), LocalDate.of( 2013, 6, 1 ) };
+		for ( Object date : late ) {
+			Map json = new HashMap();
+			json.put( "created", date );
+			ValidationResult result = jv.validateWithResult( json, schema );
+			assertFalse( date.toString(), result.isValid() );
+			assertEquals( FailureCode.DATE_NOT_BEFORE, result.getFailure().getCode() );
+		}
+
+		Object[] wrongType = { Integer.valueOf( 1 ), LocalTime.NOON, Double.valueOf( may24 ) };
+		for ( Object date : wrongType ) {
+			Map json = new HashMap();
+			json.put( "created", date );
+			ValidationResult result = jv.validateWithResult( json, schema );
+			assertFalse( date.toString(), result.isValid() );
+			assertEquals( FailureCode.WRONG_TYPE, result.getFailure().getCode() );
+		}
+	}
+
+	/**
+	 * Each date of a mix of formats has the shape of exactly one of the patterns.
+	 */
+	@Test
+	public void testShapes() {
+		DateParser iso = DateParser.create( "yyyy-MM-dd'T'HH:mm:ss.SSSZ" );
+		DateParser day = DateParser.create( "yyyy-MM-dd" );
+		DateParser us = DateParser.create( "MM/dd/yyyy" );
+		DateParser named = DateParser.create( "dd MMM yyyy hh:mm a z" );
+
+		assertTrue( iso.matchesShape( "2013-05-24T10:11:12.345+0200" ) );
+		assertTrue( day.matchesShape( "2013-5-24" ) );
+		assertTrue( us.matchesShape( " 05/24/2013 " ) );
+		assertTrue( named.matchesShape( "24 May 2013 10:11 PM GMT+01:00" ) );
+		assertTrue( named.matchesShape( "24 May 2013 10:11 PM -0800" ) );
+
+		assertFalse( iso.matchesShape( "2013-05-24" ) );
+		assertFalse( iso.matchesShape( "2013-05-24T10:11:12.345" ) );
+		assertFalse( day.matchesShape( "2013-05-24T10:11:12.345+0200" ) );
+		assertFalse( day.matchesShape( "05/24/2013" ) );
+		assertFalse( us.matchesShape( "2013-05-24" ) );
+		assertFalse( named.matchesShape( "24 05 2013 10:11 PM GMT" ) );
+
+		// Shapes do not check values
+		assertTrue( us.matchesShape( "99/99/2013" ) );
+	}
+
+	/**
+	 * A date field of several patterns takes a date of any of them, also for its bounds.
+	 */
+	@Test
+	public void testFieldPatterns() throws Exception {
+		JSONValidator jv = validator( "yyyy-MM-dd" );
+		Map prototype = datePrototype( "05/01/2013", "2013-06-01T00:00:00.000+0000" );
+		Map definition = (Map) ( (Map) ( (Map) prototype.get( JSONValidator.KEY_FIELDS ) ).get( "created" ) ).get( JSONValidator.KEY_FIELD_DEFINITION );
+		definition.put( JSONValidator.KEY_DATE_PATTERN, new ArrayList() {
+
+			{
+				add( "yyyy-MM-dd'T'HH:mm:ss.SSSZ" );
+				add( "MM/dd/yyyy" );
+				add( "dd/MM/yyyy" );
+			}
+		} );
+		CompiledSchema schema = jv.compile( prototype );
+
+		String[] valid = { "2013-05-24T10:11:12.345+0200", "05/24/2013", "24/05/2013" };
+		for ( String date : valid ) {
+			Map json = new HashMap();
+			json.put( "created", date );
+			assertTrue( date, jv.validate( json, schema ) );
+		}
+
+		// The datepattern of the validator is not one of the patterns of the field
+		String[] invalid = { "2013-05-24", "24/24/2013" };
+		for ( String date : invalid ) {
+			Map json = new HashMap();
+			json.put( "created", date );
+			ValidationResult result = jv.validateWithResult( json, schema );
+			assertFalse( date, result.isValid() );
+			assertEquals( FailureCode.DATE_UNPARSEABLE, result.getFailure().getCode() );
+			assertTrue( result.getFailMessage(), result.getFailMessage().contains( "yyyy-MM-dd'T'HH:mm:ss.SSSZ, MM/dd/yyyy or dd/MM/yyyy" ) );
+		}
+
+		Map json = new HashMap();
+		json.put( "created", "30/04/2013" );
+		assertEquals( FailureCode.DATE_NOT_AFTER, jv.validateWithResult( json, schema ).getFailure().getCode() );
+
+		definition.put( JSONValidator.KEY_DATE_PATTERN, "dd.MM.yyyy" );
+		definition.remove( JSONValidator.KEY_DATE_MUST_BE_AFTER );
+		definition.remove( JSONValidator.KEY_DATE_MUST_BE_BEFORE );
+		json.put( "created", "24.05.2013" );
+		assertTrue( jv.validate( json, prototype ) );
+	}
+
+	@Test
+	public void testIllegalFieldPattern() throws Exception {
+		JSONValidator jv = validator( "yyyy-MM-dd" );
+		Map prototype = datePrototype( "2013-05-01", "2013-06-01" );
+		Map definition = (Map) ( (Map) ( (Map) prototype.get( JSONValidator.KEY_FIELDS ) ).get( "created" ) ).get( JSONValidator.KEY_FIELD_DEFINITION );
+		Map json = new HashMap();
+		json.put( "created", "2013-05-24" );
+
+		Object[] illegal = { "yyyy-MM-dd'T", 5, new ArrayList() };
+		for ( Object pattern : illegal ) {
+			definition.put( JSONValidator.KEY_DATE_PATTERN, pattern );
+			try {
+				jv.compile( prototype );
+				fail( "Compiled pattern " + pattern );
+			} catch ( PrototypeException e ) {
+				assertTrue( e.getMessage(), e.getMessage().contains( JSONValidator.KEY_DATE_PATTERN ) );
+			}
+			try {
+				jv.validate( json, prototype );
+				fail( "Validated pattern " + pattern );
+			} catch ( PrototypeException e ) {
+				assertTrue( e.getMessage(), e.getMessage().contains( JSONValidator.KEY_DATE_PATTERN ) );
+			}
+		}
+	}
+
+	/**
+	 * One validator parses dates from many threads at once, more distinct dates than the cache
+	 * holds.
+	 */
+	@Test
+	public void testConcurrentValidation() throws Exception {
+		JSONValidator jv = validator( "yyyy-MM-dd HH:mm:ss" );
+		CompiledSchema schema = jv.compile( datePrototype( "2000-01-01 00:00:00", "2020-01-01 00:00:00" ) );
+
+		List documents = new ArrayList();
+		for ( int i = 0; i < 20000; i++ ) {
+			Map document = new HashMap();
+			// Every seventh date lies after the before bound
+			int year = ( i % 7 == 0 ) ? 2021 : 2000 + i % 19;
+			document.put( "created", String.format( "%d-%02d-%02d %02d:%02d:%02d", year, i % 12 + 1, i % 28 + 1, i % 24, i % 60, i % 59 ) );
+			documents.add( document );
+		}
+
+		ForkJoinPool pool = new ForkJoinPool( 8 );
+		try {
+			BatchResult result = jv.validateAll( documents, schema, pool );
+			for ( int i = 0; i < documents.size(); i++ )
+				assertEquals( "document " + i, i % 7 != 0, result.get( i ).isValid() );
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,211 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class EnumSourceTest {
+
+	private static final Map prototype = new HashMap() {
+
+		{
+			put( JSONValidator.KEY_TYPE, "struct" );
+			put( JSONValidator.KEY_FIELDS, new HashMap() {
+
+				{
+					put( "tenant", new HashMap() {
+
+						{
+							put( JSONValidator.KEY_REQ, true );
+							put( JSONValidator.KEY_FIELD_DEFINITION, new HashMap() {
+
+								{
+									put( JSONValidator.KEY_TYPE, "string" );
+									put( JSONValidator.KEY_ENUM_SOURCE, "tenants" );
+								}
+							} );
+						}
+					} );
+				}
+			} );
+		}
+	};
+
+	// Runs reloads right away on the thread of the lookup
+	private static final Executor DIRECT = new Executor() {
+
+		@Override
+		public void execute( Runnable _command ) {
+			_command.run();
+		}
+	};
+
+	/**
+	 * Returns the tenants it was given last, or fails if there are none.
+	 */
+	private static class Tenants implements EnumSource {
+
+		volatile List<String> tenants;
+		volatile int loads = 0;
+
+		Tenants( String... _tenants ) {
+			tenants = Arrays.asList( _tenants );
+		}
+
+		@Override
+		public Collection<?> load() throws Exception {
+			loads++;
+			if ( tenants == null )
+				throw new Exception( "database is down" );
+			return tenants;
+		}
+	}
+
+	private JSONValidator jv;
+
+	@Before
+	public void before() {
+		jv = new JSONValidator();
+	}
+
+	private boolean validate( final String _tenant, CompiledSchema _schema ) throws Exception {
+		return jv.validate( new HashMap() {
+
+			{
+				put( "tenant", _tenant );
+			}
+		}, _schema );
+	}
+
+	@Test
+	public void testSnapshot() throws Exception {
+		Tenants tenants = new Tenants( "acme", "globex" );
+		jv.addEnumSource( "tenants", tenants, 1, TimeUnit.DAYS );
+		CompiledSchema schema = jv.compile( prototype );
+
+		assertTrue( validate( "acme", schema ) );
+		assertFalse( validate( "initech", schema ) );
+		assertEquals( " Item initech was not found in enumsource tenants", jv.getFailMessage().substring( jv.getFailMessage().indexOf( ' ' ) ) );
+
+		// Not loaded again before the time to live is over
+		tenants.tenants = Arrays.asList( "initech" );
+		assertFalse( validate( "initech", schema ) );
+		assertEquals( 1, tenants.loads );
+	}
+
+	@Test
+	public void testRefresh() throws Exception {
+		Tenants tenants = new Tenants( "acme" );
+		jv.addEnumSource( "tenants", tenants, 0, TimeUnit.NANOSECONDS, DIRECT );
+		CompiledSchema schema = jv.compile( prototype );
+
+		tenants.tenants = Arrays.asList( "initech" );
+		// The lookup that starts the reload still sees the values it started with
+		assertFalse( validate( "initech", schema ) );
+		assertTrue( validate( "initech", schema ) );
+		assertFalse( validate( "acme", schema ) );
+
+		// A failed reload keeps the values
+		tenants.tenants = null;
+		int loads = tenants.loads;
+		assertTrue( validate( "initech", schema ) );
+		assertTrue( validate( "initech", schema ) );
+		assertTrue( tenants.loads > loads );
+	}
+
+	@Test
+	public void testReloadsDoNotBlock() throws Exception {
+		final List<Runnable> pending = new ArrayList<Runnable>();
+		Executor later = new Executor() {
+
+			@Override
+			public void execute( Runnable _command ) {
+				pending.add( _command );
+			}
+		};
+		Tenants tenants = new Tenants( "acme" );
+		jv.addEnumSource( "tenants", tenants, 0, TimeUnit.NANOSECONDS, later );
+		CompiledSchema schema = jv.compile( prototype );
+
+		tenants.tenants = Arrays.asList( "initech" );
+		for ( int i = 0; i < 100; i++ )
+			assertTrue( validate( "acme", schema ) );
+		// Only one reload at a time
+		assertEquals( 1, pending.size() );
+
+		pending.remove( 0 ).run();
+		assertTrue( validate( "initech", schema ) );
+	}
+
+	@Test( timeout = 10000 )
+	public void testBackgroundRefresh() throws Exception {
+		Tenants tenants = new Tenants( "acme" );
+		jv.addEnumSource( "tenants", tenants, 1, TimeUnit.MILLISECONDS );
+		CompiledSchema schema = jv.compile( prototype );
+
+		tenants.tenants = Arrays.asList( "initech" );
+		while ( !validate( "initech", schema ) )
+			Thread.sleep( 1 );
+	}
+
+	@Test
+	public void testErrors() throws Exception {
+		try {
+			Tenants down = new Tenants();
+			down.tenants = null;
+			jv.addEnumSource( "tenants", down, 1, TimeUnit.MINUTES );
+			fail( "Expected JSONValidatorException" );
+		} catch ( JSONValidatorException e ) {
+			assertEquals( "Enum source tenants failed to load: database is down", e.getMessage() );
+		}
+
+		try {
+			jv.compile( prototype );
+			fail( "Expected PrototypeException" );
+		} catch ( PrototypeException e ) {
+			assertEquals( "enumsource 'tenants' was not added to the validator.", e.getMessage() );
+		}
+	}
+
+}
@@ -0,0 +1,253 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.royall.jsondtd.exceptions.PrototypeException;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class EnumTest {
+
+	private static Map enumPrototype( final String _type, final Object _enum, final Object _not ) {
+		return new HashMap() {
+
+			{
+				put( JSONValidator.KEY_TYPE, "struct" );
+				put( JSONValidator.KEY_FIELDS, new HashMap() {
+
+					{
+						put( "value", new HashMap() {
+
+							{
+								put( JSONValidator.KEY_REQ, true );
+								put( JSONValidator.KEY_FIELD_DEFINITION, new HashMap() {
+
+									{
+										put( JSONValidator.KEY_TYPE, _type );
+										if ( _enum != null )
+											put( JSONValidator.KEY_ENUM, _enum );
+										if ( _not != null )
+											put( JSONValidator.KEY_NOT_ENUM, _not );
+									}
+								} );
+							}
+						} );
+					}
+				} );
+			}
+		};
+	}
+
+	private static Map json( final Object _value ) {
+		return new HashMap() {
+
+			{
+				put( "value", _value );
+			}
+		};
+	}
+
+	@Test
+	public void testStrings() throws Exception {
+		List<String> countries = new ArrayList<String>();
+		for ( int i = 0; i < 5000; i++ )
+			countries.add( "C" + i );
+		JSONValidator jv = new JSONValidator();
+		CompiledSchema schema = jv.compile( enumPrototype( "string", countries, Arrays.asList( "C17" ) ) );
+
+		assertTrue( jv.validate( json( "C0" ), schema ) );
+		assertTrue( jv.validate( json( "C4999" ), schema ) );
+		assertFalse( jv.validate( json( "C5000" ), schema ) );
+		assertTrue( jv.getFailMessage(), jv.getFailMessage().contains( "Item C5000 was not found in enum list" ) );
+		assertFalse( jv.validate( json( "C17" ), schema ) );
+		assertTrue( jv.getFailMessage(), jv.getFailMessage().contains( "Item C17 was found in not list" ) );
+	}
+
+	@Test
+	public void testNumbers() throws Exception {
+		JSONValidator jv = new JSONValidator();
+		CompiledSchema schema = jv.compile( enumPrototype( "number", Arrays.asList( 1, 2.5, 0, 10000000000L, new BigDecimal( "7" ) ), Arrays.asList( 2.5 ) ) );
+
+		// Numbers are compared by value, whatever their class
+		assertTrue( jv.validate( json( 1 ), schema ) );
+		assertTrue( jv.validate( json( 1.0 ), schema ) );
+		assertTrue( jv.validate( json( 1L ), schema ) );
+		assertTrue( jv.validate( json( -0.0 ), schema ) );
+		assertTrue( jv.validate( json( 10000000000.0 ), schema ) );
+		assertTrue( jv.validate( json( 7 ), schema ) );
+		assertFalse( jv.validate( json( 3 ), schema ) );
+		assertTrue( jv.getFailMessage(), jv.getFailMessage().contains( "Item 3 was not found in enum list" ) );
+		assertFalse( jv.validate( json( 2.5f ), schema ) );
+		assertTrue( jv.getFailMessage(), jv.getFailMessage().contains( "Item 2.5 was found in not list" ) );
+		assertFalse( jv.validate( json( "1" ), schema ) );
+
+		// Parsed numbers
+		assertTrue( jv.parse( "{\"value\": 1.0}".getBytes( "UTF-8" ), schema ).isValid() );
+		assertFalse( jv.parse( "{\"value\": 1.5}".getBytes( "UTF-8" ), schema ).isValid() );
+
+		// Many numbers
+		List<Integer> codes = new ArrayList<Integer>();
+		for ( int i = 0; i < 10000; i += 3 )
+			codes.add( i );
+		schema = jv.compile( enumPrototype( "number", codes, null ) );
+		for ( int i = 0; i < 10000; i++ )
+			assertEquals( Integer.toString( i ), i % 3 == 0, jv.validate( json( i ), schema ) );
+	}
+
+	/**
+	 * Whole numbers are compared exactly, also above 2^53 where longs share a double value.
+	 */
+	@Test
+	public void testLargeLongs() throws Exception {
+		JSONValidator jv = new JSONValidator();
+		List values = Arrays.asList( 9007199254740993L, Long.MIN_VALUE, Long.MAX_VALUE, 9007199254740994.0 );
+		Map prototype = enumPrototype( "number", values, Arrays.asList( 9007199254740995L ) );
+		CompiledSchema schema = jv.compile( prototype );
+		for ( Object validated : new Object[] { schema, prototype } ) {
+			assertTrue( validate( jv, 9007199254740993L, validated ) );
+			assertFalse( validate( jv, 9007199254740992L, validated ) );
+			assertFalse( validate( jv, 9007199254740992.0, validated ) );
+			assertTrue( validate( jv, Long.MIN_VALUE, validated ) );
+			assertFalse( validate( jv, Long.MIN_VALUE + 1, validated ) );
+			assertTrue( validate( jv, Long.MAX_VALUE, validated ) );
+			assertFalse( validate( jv, Long.MAX_VALUE - 1, validated ) );
+			assertFalse( validate( jv, 0x1p63, validated ) );
+			assertTrue( validate( jv, 9007199254740994L, validated ) );
+			assertTrue( validate( jv, new BigInteger( "9007199254740993" ), validated ) );
+		}
+		assertTrue( jv.parse( "{\"value\": 9007199254740993}".getBytes( "UTF-8" ), schema ).isValid() );
+		assertFalse( jv.parse( "{\"value\": 9007199254740992}".getBytes( "UTF-8" ), schema ).isValid() );
+		assertFalse( jv.parse( "{\"value\": 9007199254740992.0}".getBytes( "UTF-8" ), schema ).isValid() );
+
+		// The not list is compared exactly too
+		schema = jv.compile( enumPrototype( "number", null, Arrays.asList( 9007199254740993L ) ) );
+		assertTrue( jv.validate( json( 9007199254740992L ), schema ) );
+		assertFalse( jv.validate( json( 9007199254740993L ), schema ) );
+	}
+
+	private static boolean validate( JSONValidator _jv, Object _value, Object _validated ) throws Exception {
+		if ( _validated instanceof CompiledSchema )
+			return _jv.validate( json( _value ), (CompiledSchema) _validated );
+		return _jv.validate( json( _value ), (Map) _validated );
+	}
+
+	/**
+	 * A prototype that is not compiled first looks values up in its lists, a list changed between
+	 * validations is seen by the next one.
+	 */
+	@Test
+	public void testUncompiled() throws Exception {
+		JSONValidator jv = new JSONValidator();
+		List countries = new ArrayList( Arrays.asList( "US", "CA" ) );
+		Map prototype = enumPrototype( "string", countries, Arrays.asList( "CA" ) );
+		assertTrue( jv.validate( json( "US" ), prototype ) );
+		assertFalse( jv.validate( json( "CA" ), prototype ) );
+		assertFalse( jv.validate( json( "MX" ), prototype ) );
+		countries.add( "MX" );
+		assertTrue( jv.validate( json( "MX" ), prototype ) );
+
+		List codes = new ArrayList( Arrays.asList( 1, 2.5, 0, 10000000000L ) );
+		prototype = enumPrototype( "number", codes, Arrays.asList( 2.5 ) );
+		assertTrue( jv.validate( json( 1.0 ), prototype ) );
+		assertTrue( jv.validate( json( -0.0 ), prototype ) );
+		assertTrue( jv.validate( json( 10000000000.0 ), prototype ) );
+		assertFalse( jv.validate( json( 2.5f ), prototype ) );
+		assertFalse( jv.validate( json( 3 ), prototype ) );
+		codes.add( 3L );
+		assertTrue( jv.validate( json( 3 ), prototype ) );
+
+		codes.add( "4" );
+		try {
+			jv.validate( json( 3 ), prototype );
+			fail( "A String in the enum list of a number was accepted." );
+		} catch ( PrototypeException e ) {
+			assertEquals( JSONValidator.KEY_ENUM + " list of a number must only hold Numbers.", e.getMessage() );
+		}
+	}
+
+	@Test
+	public void testBooleans() throws Exception {
+		JSONValidator jv = new JSONValidator();
+		CompiledSchema schema = jv.compile( enumPrototype( "boolean", Arrays.asList( true ), null ) );
+		assertTrue( jv.validate( json( true ), schema ) );
+		assertFalse( jv.validate( json( false ), schema ) );
+		assertTrue( jv.getFailMessage(), jv.getFailMessage().contains( "Item false was not found in enum list" ) );
+
+		schema = jv.compile( enumPrototype( "bool", null, Arrays.asList( true ) ) );
+		assertTrue( jv.validate( json( false ), schema ) );
+		assertFalse( jv.validate( json( true ), schema ) );
+		assertTrue( jv.getFailMessage(), jv.getFailMessage().contains( "Item true was found in not list" ) );
+
+		schema = jv.compile( enumPrototype( "boolean", null, null ) );
+		assertTrue( jv.validate( json( true ), schema ) );
+		assertTrue( jv.validate( json( false ), schema ) );
+	}
+
+	@Test
+	public void testIllegalEnums() throws Exception {
+		JSONValidator jv = new JSONValidator();
+		try {
+			jv.compile( enumPrototype( "number", Arrays.asList( 1, "2" ), null ) );
+			fail( "Expected PrototypeException" );
+		} catch ( PrototypeException e ) {
+			assertEquals( "enum list of a number must only hold Numbers.", e.getMessage() );
+		}
+		try {
+			jv.compile( enumPrototype( "boolean", null, Arrays.asList( "true" ) ) );
+			fail( "Expected PrototypeException" );
+		} catch ( PrototypeException e ) {
+			assertEquals( "not list of a boolean must only hold Booleans.", e.getMessage() );
+		}
+		try {
+			jv.compile( enumPrototype( "number", 1, null ) );
+			fail( "Expected PrototypeException" );
+		} catch ( PrototypeException e ) {
+			assertEquals( "enum list must be a list.", e.getMessage() );
+		}
+
+		// Prototypes passed to validate() report the error once json reaches the type
+		try {
+			jv.validate( json( 1 ), enumPrototype( "number", Arrays.asList( "1" ), null ) );
+			fail( "Expected PrototypeException" );
+		} catch ( PrototypeException e ) {
+			assertEquals( "enum list of a number must only hold Numbers.", e.getMessage() );
+		}
+	}
+
+}
@@ -0,0 +1,189 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class InPlaceTest {
+
+	private static final String TYPE = JSONValidator.KEY_TYPE;
+
+	private static final String FIELDS = JSONValidator.KEY_FIELDS;
+
+	private static final String DEFINITION = JSONValidator.KEY_FIELD_DEFINITION;
+
+	private final Map prototype = new HashMap() {
+
+		{
+			put( TYPE, "struct" );
+			put( FIELDS, new HashMap() {
+
+				{
+					put( "id", new HashMap() {
+
+						{
+							put( JSONValidator.KEY_REQ, true );
+							put( DEFINITION, new HashMap() {
+
+								{
+									put( TYPE, "number" );
+								}
+							} );
+						}
+					} );
+					put( "state", new HashMap() {
+
+						{
+							put( JSONValidator.KEY_DEFAULT, "new" );
+							put( DEFINITION, new HashMap() {
+
+								{
+									put( TYPE, "string" );
+								}
+							} );
+						}
+					} );
+				}
+			} );
+		}
+	};
+
+	private JSONValidator jv;
+
+	@Before
+	public void before() {
+		jv = new JSONValidator( new HashMap<String, Object>() {
+
+			{
+				put( ValidationOptions.InPlace, true );
+				put( ValidationOptions.RemoveUnspecifiedKeys, true );
+			}
+		} );
+	}
+
+	@Test
+	public void testChangesAreWrittenToJson() throws Exception {
+		Map json = new HashMap();
+		json.put( "id", 1 );
+		json.put( "extra", "value" );
+
+		assertTrue( jv.validate( json, prototype ) );
+		assertSame( json, jv.getReturnJson() );
+		assertEquals( 2, json.size() );
+		assertEquals( 1, json.get( "id" ) );
+		assertEquals( "new", json.get( "state" ) );
+	}
+
+	/**
+	 * Nothing is changed if the json fails, even if the failure comes after a default was found.
+	 */
+	@Test
+	public void testFailureLeavesJsonAlone() throws Exception {
+		final Map valid = new HashMap();
+		valid.put( "id", 1 );
+		valid.put( "extra", "value" );
+		final Map invalid = new HashMap();
+		invalid.put( "id", "1" );
+		List json = new ArrayList() {
+
+			{
+				add( valid );
+				add( invalid );
+			}
+		};
+
+		Map listPrototype = new HashMap();
+		listPrototype.put( TYPE, "array" );
+		listPrototype.put( JSONValidator.KEY_CHILDREN, prototype );
+
+		assertFalse( jv.validate( json, listPrototype ) );
+		assertEquals( 2, valid.size() );
+		assertEquals( "value", valid.get( "extra" ) );
+		assertEquals( 1, invalid.size() );
+	}
+
+	/**
+	 * Changes staged by a pattern that failed are dropped when the next pattern is tried.
+	 */
+	@Test
+	public void testFailedPatternIsRolledBack() throws Exception {
+		Map patterns = new HashMap();
+		patterns.put( TYPE, "struct" );
+		patterns.put( FIELDS, new ArrayList() {
+
+			{
+				add( new HashMap() {
+
+					{
+						put( "kind", new HashMap() {
+
+							{
+								put( JSONValidator.KEY_DEFAULT, "a" );
+								put( DEFINITION, new HashMap() {
+
+									{
+										put( TYPE, "string" );
+									}
+								} );
+							}
+						} );
+						put( "id", new HashMap() {
+
+							{
+								put( JSONValidator.KEY_REQ, true );
+								put( DEFINITION, new HashMap() {
+
+									{
+										put( TYPE, "string" );
+									}
+								} );
+							}
+						} );
+					}
+				} );
+				add( ( (Map) prototype.get( FIELDS ) ) );
+			}
+		} );
+
+		Map json = new HashMap();
+		json.put( "id", 1 );
+
+		assertTrue( jv.validate( json, patterns ) );
+		assertEquals( 2, json.size() );
+		assertEquals( "new", json.get( "state" ) );
+	}
+}
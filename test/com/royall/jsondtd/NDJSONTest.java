@@ -0,0 +1,168 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class NDJSONTest {
+
+	private final Map prototype = new HashMap() {
+
+		{
+			put( JSONValidator.KEY_TYPE, "struct" );
+			put( JSONValidator.KEY_FIELDS, new HashMap() {
+
+				{
+					put( "id", new HashMap() {
+
+						{
+							put( JSONValidator.KEY_REQ, true );
+							put( JSONValidator.KEY_FIELD_DEFINITION, new HashMap() {
+
+								{
+									put( JSONValidator.KEY_TYPE, "number" );
+									put( JSONValidator.KEY_NUM_MIN, 1 );
+								}
+							} );
+						}
+					} );
+				}
+			} );
+		}
+	};
+
+	private JSONValidator jv;
+
+	private CompiledSchema schema;
+
+	private File file;
+
+	private ForkJoinPool pool;
+
+	@Before
+	public void before() throws Exception {
+		jv = new JSONValidator();
+		schema = jv.compile( prototype );
+		file = File.createTempFile( "ndjson", ".json" );
+		pool = new ForkJoinPool( 4 );
+	}
+
+	@After
+	public void after() {
+		pool.shutdown();
+		file.delete();
+	}
+
+	@Test
+	public void testLines() throws Exception {
+		StringBuilder longLine = new StringBuilder( "{\"id\": 2, \"text\": \"" );
+		for ( int i = 0; i < 100000; i++ )
+			longLine.append( 'a' );
+		longLine.append( "\"}" );
+
+		String[] lines = { "{\"id\": 1}", "{\"id\": 0}", "", "{\"id\": ", "  \r", longLine.toString(), "{\"name\": \"x\"}\r", "{\"id\": 3}" };
+		StringBuilder json = new StringBuilder();
+		for ( int i = 0; i < lines.length; i++ )
+			json.append( lines[i] ).append( ( i < lines.length - 1 ) ? "\n" : "" );
+		write( json.toString() );
+
+		NDJSONResult result = jv.validateLines( file, schema, pool );
+		assertFalse( result.isValid() );
+		assertEquals( 8, result.getLineCount() );
+		assertEquals( 3, result.getValidCount() );
+		assertEquals( 3, result.getInvalidCount() );
+
+		List<LineFailure> failures = result.getFailures();
+		assertEquals( 2, failures.get( 0 ).getLine() );
+		assertEquals( 10, failures.get( 0 ).getOffset() );
+		assertEquals( ".id Expected number to be greater than or equal to 1.0 but was 0.0", failures.get( 0 ).getFailMessage() );
+		assertEquals( FailureCode.NUMBER_BELOW_MIN, failures.get( 0 ).getFailure().getCode() );
+
+		assertEquals( 4, failures.get( 1 ).getLine() );
+		assertEquals( 21, failures.get( 1 ).getOffset() );
+		assertTrue( failures.get( 1 ).isMalformed() );
+		assertNull( failures.get( 1 ).getFailure() );
+		assertEquals( "Malformed json at line 1 column 8: Unexpected end of the json", failures.get( 1 ).getFailMessage() );
+
+		assertEquals( 7, failures.get( 2 ).getLine() );
+		assertEquals( " Required field id was not found", failures.get( 2 ).getFailMessage() );
+	}
+
+	/**
+	 * However the file is split, the lines are numbered the same.
+	 */
+	@Test
+	public void testChunks() throws Exception {
+		StringBuilder json = new StringBuilder();
+		for ( int i = 0; i < 500; i++ )
+			json.append( "{\"id\": " ).append( i % 7 ).append( "}\n" );
+		write( json.toString() );
+
+		NDJSONResult expected = NDJSONFile.validate( jv, schema, file, pool, file.length() );
+		assertEquals( 500, expected.getLineCount() );
+		assertEquals( 72, expected.getInvalidCount() );
+
+		for ( long chunkSize : new long[] { 1, 10, 11, 1000 } ) {
+			NDJSONResult result = NDJSONFile.validate( jv, schema, file, pool, chunkSize );
+			assertEquals( expected.getLineCount(), result.getLineCount() );
+			assertEquals( expected.getValidCount(), result.getValidCount() );
+			for ( int i = 0; i < expected.getInvalidCount(); i++ ) {
+				assertEquals( expected.getFailures().get( i ).getLine(), result.getFailures().get( i ).getLine() );
+				assertEquals( expected.getFailures().get( i ).getOffset(), result.getFailures().get( i ).getOffset() );
+			}
+		}
+	}
+
+	@Test
+	public void testEmptyFile() throws Exception {
+		NDJSONResult result = jv.validateLines( file, schema );
+		assertTrue( result.isValid() );
+		assertEquals( 0, result.getLineCount() );
+	}
+
+	private void write( String _json ) throws Exception {
+		FileOutputStream out = new FileOutputStream( file );
+		try {
+			out.write( _json.getBytes( "UTF-8" ) );
+		} finally {
+			out.close();
+		}
+	}
+}
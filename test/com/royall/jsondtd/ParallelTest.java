@@ -0,0 +1,191 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class ParallelTest {
+
+	private final Map item = new HashMap() {
+
+		{
+			put( JSONValidator.KEY_TYPE, "struct" );
+			put( JSONValidator.KEY_FIELDS, new HashMap() {
+
+				{
+					put( "id", new HashMap() {
+
+						{
+							put( JSONValidator.KEY_REQ, true );
+							put( JSONValidator.KEY_FIELD_DEFINITION, new HashMap() {
+
+								{
+									put( JSONValidator.KEY_TYPE, "number" );
+									put( JSONValidator.KEY_NUM_MIN, 1 );
+								}
+							} );
+						}
+					} );
+					put( "state", new HashMap() {
+
+						{
+							put( JSONValidator.KEY_DEFAULT, "new" );
+							put( JSONValidator.KEY_FIELD_DEFINITION, new HashMap() {
+
+								{
+									put( JSONValidator.KEY_TYPE, "string" );
+								}
+							} );
+						}
+					} );
+				}
+			} );
+		}
+	};
+
+	private final Map prototype = new HashMap() {
+
+		{
+			put( JSONValidator.KEY_TYPE, "array" );
+			put( JSONValidator.KEY_CHILDREN, item );
+		}
+	};
+
+	/**
+	 * The output keeps the order of the list and the failure is the one at the lowest index.
+	 */
+	@Test
+	public void testList() throws Exception {
+		List json = new ArrayList();
+		for ( int i = 1; i <= 5000; i++ )
+			json.add( createItem( i ) );
+
+		JSONValidator jv = createValidator( ValidationOptions.RemoveUnspecifiedKeys );
+		ValidationResult result = jv.validateWithResult( json, prototype );
+		assertTrue( result.isValid() );
+		assertEquals( new JSONValidator( createOptions( ValidationOptions.RemoveUnspecifiedKeys, 0 ) ).validateWithResult( json, prototype ).getReturnJson(), result.getReturnJson() );
+
+		( (Map) json.get( 4000 ) ).put( "id", 0 );
+		( (Map) json.get( 1234 ) ).remove( "id" );
+		( (Map) json.get( 1235 ) ).put( "id", 0 );
+		for ( int i = 0; i < 10; i++ ) {
+			result = jv.validateWithResult( json, prototype );
+			assertFalse( result.isValid() );
+			assertEquals( "[1234] Required field id was not found", result.getFailMessage() );
+		}
+	}
+
+	/**
+	 * Wide structs validate their wildcard keys in parallel.
+	 */
+	@Test
+	public void testWildcard() throws Exception {
+		Map wildcardPrototype = new HashMap() {
+
+			{
+				put( JSONValidator.KEY_TYPE, "struct" );
+				put( JSONValidator.KEY_FIELDS, new HashMap() {
+
+					{
+						put( JSONValidator.KEY_WILDCARD_FIELD, new HashMap() {
+
+							{
+								put( JSONValidator.KEY_FIELD_DEFINITION, item );
+							}
+						} );
+					}
+				} );
+			}
+		};
+
+		Map json = new HashMap();
+		for ( int i = 1; i <= 3000; i++ )
+			json.put( "key" + i, createItem( i ) );
+
+		JSONValidator jv = createValidator( ValidationOptions.CopyOnWrite );
+		ValidationResult result = jv.validateWithResult( json, wildcardPrototype );
+		assertTrue( result.isValid() );
+		Map returnJson = (Map) result.getReturnJson();
+		assertNotSame( json, returnJson );
+		assertEquals( 3000, returnJson.size() );
+		assertEquals( "new", ( (Map) returnJson.get( "key17" ) ).get( "state" ) );
+
+		( (Map) json.get( "key17" ) ).put( "state", "done" );
+		( (Map) json.get( "key17" ) ).put( "id", "1" );
+		assertEquals( ".key17.id Expected Type java.lang.Number Found Type java.lang.String", jv.validateWithResult( json, wildcardPrototype ).getFailMessage() );
+	}
+
+	/**
+	 * In place, the defaults of every item are written once the whole list validated.
+	 */
+	@Test
+	public void testInPlace() throws Exception {
+		List json = new ArrayList();
+		for ( int i = 1; i <= 2000; i++ )
+			json.add( createItem( i ) );
+		( (Map) json.get( 1999 ) ).put( "id", 0 );
+
+		JSONValidator jv = createValidator( ValidationOptions.InPlace );
+		assertFalse( jv.validateWithResult( json, prototype ).isValid() );
+		assertFalse( ( (Map) json.get( 0 ) ).containsKey( "state" ) );
+
+		( (Map) json.get( 1999 ) ).put( "id", 1 );
+		ValidationResult result = jv.validateWithResult( json, prototype );
+		assertTrue( result.isValid() );
+		assertSame( json, result.getReturnJson() );
+		for ( Object item : json )
+			assertEquals( "new", ( (Map) item ).get( "state" ) );
+	}
+
+	private JSONValidator createValidator( String _option ) {
+		return new JSONValidator( createOptions( _option, 100 ) );
+	}
+
+	private Map createOptions( String _option, int _threshold ) {
+		Map options = new HashMap();
+		options.put( _option, true );
+		options.put( ValidationOptions.ParallelThreshold, _threshold );
+		return options;
+	}
+
+	private Map createItem( int _id ) {
+		Map item = new HashMap();
+		item.put( "id", _id );
+		item.put( "other", "value" );
+		return item;
+	}
+}
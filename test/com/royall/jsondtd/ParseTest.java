@@ -0,0 +1,249 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class ParseTest {
+
+	private static final String TYPE = JSONValidator.KEY_TYPE;
+
+	private static final String FIELDS = JSONValidator.KEY_FIELDS;
+
+	private static final String DEFINITION = JSONValidator.KEY_FIELD_DEFINITION;
+
+	private static final String REQUIRED = JSONValidator.KEY_REQ;
+
+	private final Map prototype = new HashMap() {
+
+		{
+			put( TYPE, "array" );
+			put( JSONValidator.KEY_CHILDREN, new HashMap() {
+
+				{
+					put( TYPE, "struct" );
+					put( FIELDS, new HashMap() {
+
+						{
+							put( "id", new HashMap() {
+
+								{
+									put( REQUIRED, true );
+									put( DEFINITION, new HashMap() {
+
+										{
+											put( TYPE, "number" );
+											put( JSONValidator.KEY_NUM_MIN, 1 );
+										}
+									} );
+								}
+							} );
+							put( "state", new HashMap() {
+
+								{
+									put( JSONValidator.KEY_DEFAULT, "new" );
+									put( DEFINITION, new HashMap() {
+
+										{
+											put( TYPE, "string" );
+											put( JSONValidator.KEY_STRING_REMOVE_EMPTY, true );
+										}
+									} );
+								}
+							} );
+							put( "blob", new HashMap() {
+
+								{
+									put( DEFINITION, new HashMap() {
+
+										{
+											put( TYPE, "any" );
+										}
+									} );
+								}
+							} );
+						}
+					} );
+				}
+			} );
+		}
+	};
+
+	private final String[] documents = { "[{\"id\": 1, \"state\": \"done\", \"blob\": {\"a\": [1, \"]\", {}]}, \"other\": [{\"b\": null}]}]", "[{\"id\": 2, \"blob\": \"text\", \"note\": \"\", \"other\": 1.5}, {\"id\": 3, \"state\": \" \"}]",
+			"[{\"id\": 4, \"other\": {}}, {\"id\": 0, \"blob\": [1]}]", "[{\"state\": \"done\"}]" };
+
+	private JSONValidator jv;
+
+	@Before
+	public void before() {
+		jv = new JSONValidator();
+	}
+
+	/**
+	 * Objects and arrays nothing looks into are kept as they are in the bytes.
+	 */
+	@Test
+	public void testRawValues() throws Exception {
+		ValidationResult result = jv.parse( documents[0].getBytes( "UTF-8" ), jv.compile( prototype ) );
+		assertTrue( result.isValid() );
+
+		Map item = (Map) ( (List) result.getReturnJson() ).get( 0 );
+		assertEquals( 1, item.get( "id" ) );
+		assertEquals( "done", item.get( "state" ) );
+		assertTrue( item.get( "blob" ) instanceof RawJson );
+		assertEquals( "{\"a\": [1, \"]\", {}]}", item.get( "blob" ).toString() );
+		assertEquals( "[{\"b\": null}]", item.get( "other" ).toString() );
+
+		List other = (List) ( (RawJson) item.get( "other" ) ).getValue();
+		assertTrue( ( (Map) other.get( 0 ) ).containsKey( "b" ) );
+	}
+
+	/**
+	 * Apart from the raw values parse() returns what validate() returns for the same json.
+	 */
+	@Test
+	public void testSameAsValidate() throws Exception {
+		String[] options = { ValidationOptions.RemoveUnspecifiedKeys, ValidationOptions.RemoveKeysWhenValueEmpty, ValidationOptions.ErrorOnUnspecifiedKeys };
+		for ( int i = 0; i <= options.length; i++ ) {
+			Map settings = new HashMap();
+			if ( i < options.length )
+				settings.put( options[i], true );
+			JSONValidator validator = new JSONValidator( settings );
+			CompiledSchema schema = validator.compile( prototype );
+
+			for ( String document : documents ) {
+				Object json = new ReaderTokenizer( new StringReader( document ) ).readValue();
+				ValidationResult expected = validator.validateWithResult( json, schema );
+				ValidationResult result = validator.parse( document.getBytes( "UTF-8" ), schema );
+
+				assertEquals( document, expected.isValid(), result.isValid() );
+				assertEquals( document, expected.getFailMessage(), result.getFailMessage() );
+				assertEquals( document, expected.getReturnJson(), readRaw( result.getReturnJson() ) );
+			}
+		}
+	}
+
+	/**
+	 * Unspecified keys that are removed are skipped.
+	 */
+	@Test
+	public void testUnspecifiedSkipped() throws Exception {
+		JSONValidator validator = new JSONValidator( new HashMap() {
+
+			{
+				put( ValidationOptions.RemoveUnspecifiedKeys, true );
+			}
+		} );
+		ValidationResult result = validator.parse( "[{\"other\": {\"a\": [1, {}]}, \"id\": 5}]".getBytes( "UTF-8" ), validator.compile( prototype ) );
+		assertTrue( result.isValid() );
+		assertEquals( new ArrayList() {
+
+			{
+				add( new HashMap() {
+
+					{
+						put( "id", 5 );
+						put( "state", "new" );
+					}
+				} );
+			}
+		}, result.getReturnJson() );
+
+		result = validator.parse( "[{\"id\": 0}]".getBytes( "UTF-8" ), validator.compile( prototype ) );
+		assertFalse( result.isValid() );
+		assertNull( result.getReturnJson() );
+	}
+
+	/**
+	 * Malformed json within values that are skipped or kept raw is rejected by parse() as by
+	 * validateStream().
+	 */
+	@Test
+	public void testMalformedSkipped() throws Exception {
+		String[] values = { "{\"a\": \"x\", \"b\": [1 2]}", "{\"b\": {\"k\" 1}}", "[tru]", "[1,,]", "{\"a\": 01}", "[1, }" };
+		Map settings = new HashMap();
+		settings.put( ValidationOptions.RemoveUnspecifiedKeys, true );
+		for ( JSONValidator validator : new JSONValidator[] { jv, new JSONValidator( settings ) } ) {
+			CompiledSchema schema = validator.compile( prototype );
+			for ( String value : values ) {
+				for ( String field : new String[] { "blob", "other" } ) {
+					String document = "[{\"id\": 1, \"" + field + "\": " + value + "}]";
+					try {
+						validator.validateStream( new StringReader( document ), schema );
+						fail( "validateStream() accepted " + document );
+					} catch ( JSONValidatorException e ) {
+					}
+					try {
+						validator.validateStream( document.getBytes( "UTF-8" ), schema );
+						fail( "validateStream() accepted " + document );
+					} catch ( JSONValidatorException e ) {
+					}
+					try {
+						validator.parse( document.getBytes( "UTF-8" ), schema );
+						fail( "parse() accepted " + document );
+					} catch ( JSONValidatorException e ) {
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return _json with each RawJson replaced by its value
+	 */
+	private Object readRaw( Object _json ) throws Exception {
+		if ( _json instanceof RawJson )
+			return ( (RawJson) _json ).getValue();
+		if ( _json instanceof List ) {
+			List list = new ArrayList();
+			for ( Object item : (List) _json )
+				list.add( readRaw( item ) );
+			return list;
+		}
+		if ( _json instanceof Map ) {
+			Map map = new HashMap();
+			for ( Map.Entry entry : ( (Map<?, ?>) _json ).entrySet() )
+				map.put( entry.getKey(), readRaw( entry.getValue() ) );
+			return map;
+		}
+		return _json;
+	}
+}
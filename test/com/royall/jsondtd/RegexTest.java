@@ -0,0 +1,251 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class RegexTest {
+
+	private static final String[] REGEXES = { "abc", "^abc$", "a.c", "ab*c", "ab+c", "a?bc", "[a-z]+@[a-z]+\\.com", "\\d{3}-\\d{4}", "foo(bar)?baz", "(foo|bar)baz", "x|y", "[]a]b", "[^]a]b", "a\\.b\\*c", "prefix-\\w+-suffix", "\\p{L}+x", "\\pLx", "ab{2,3}c", "ab{2}", "(?i)abc", "a(?=b)b", "a\\bb", "ISBN-[0-9]{3}", "[a-c]*abc[a-c]*", "a\\$", "\\Qa.b\\E", "a+b+c+", "ab\\\\c", "aa*", "..ab..ab..", "ab.*ab", "ab*?c", "a[b-c&&[^c]]+d" };
+
+	private static final String[] SEEDS = { "abc", "abbc", "ac", "bc", "foo@bar.com", "123-4567", "foobarbaz", "foobaz", "barbaz", "x", "y", "]b", "a.b*c", "prefix-abc-suffix", "Lx", "abbbc", "abb", "ABC", "ab", "a$", "a.b", "aabbcc", "ab\\c", "a", "aaa", "xxabxxabxx", "abab", "abbd" };
+
+	private static Map stringPrototype( final String _regex ) {
+		return new HashMap() {
+
+			{
+				put( JSONValidator.KEY_TYPE, "struct" );
+				put( JSONValidator.KEY_FIELDS, new HashMap() {
+
+					{
+						put( "code", new HashMap() {
+
+							{
+								put( JSONValidator.KEY_REQ, true );
+								put( JSONValidator.KEY_FIELD_DEFINITION, new HashMap() {
+
+									{
+										put( JSONValidator.KEY_TYPE, "string" );
+										put( JSONValidator.KEY_REGEX, _regex );
+									}
+								} );
+							}
+						} );
+					}
+				} );
+			}
+		};
+	}
+
+	/**
+	 * The literals may only reject strings the regex does not match.
+	 */
+	@Test
+	public void testMatchesLikePattern() {
+		Random random = new Random( 7 );
+		String alphabet = "abcxyzL.-@*$\\ABC0123[]";
+		List<String> strings = new ArrayList<String>();
+		for ( int i = 0; i < 2000; i++ ) {
+			StringBuilder string = new StringBuilder();
+			int length = random.nextInt( 12 );
+			for ( int j = 0; j < length; j++ )
+				string.append( alphabet.charAt( random.nextInt( alphabet.length() ) ) );
+			strings.add( string.toString() );
+		}
+		for ( String seed : SEEDS ) {
+			strings.add( seed );
+			for ( int i = 0; i < 50; i++ ) {
+				StringBuilder string = new StringBuilder( seed );
+				int at = random.nextInt( string.length() + 1 );
+				if ( at < string.length() && random.nextBoolean() )
+					string.deleteCharAt( at );
+				else
+					string.insert( at, alphabet.charAt( random.nextInt( alphabet.length() ) ) );
+				strings.add( string.toString() );
+			}
+		}
+
+		for ( String regex : REGEXES ) {
+			Pattern pattern = Pattern.compile( regex );
+			Regex compiled = Regex.compile( regex );
+			for ( String string : strings )
+				assertEquals( regex + " on " + string, pattern.matcher( string ).matches(), compiled.matches( string ) );
+		}
+	}
+
+	@Test
+	public void testLiterals() {
+		Regex regex = Regex.compile( "ISBN-[0-9]{3}" );
+		assertFalse( regex.mayMatch( "ISSN-123" ) );
+		assertTrue( regex.mayMatch( "ISBN-12x" ) );
+
+		regex = Regex.compile( "[a-z]+@[a-z]+\\.com" );
+		assertFalse( regex.mayMatch( "john.example.com" ) );
+		assertFalse( regex.mayMatch( "john@example.org" ) );
+		assertTrue( regex.mayMatch( "@.com" ) );
+
+		// The literals have to be in order and must not overlap
+		regex = Regex.compile( "ab.*ab" );
+		assertFalse( regex.mayMatch( "ab" ) );
+		assertFalse( regex.mayMatch( "aab" ) );
+		assertTrue( regex.mayMatch( "abab" ) );
+
+		// Optional characters are not required
+		regex = Regex.compile( "colou?r" );
+		assertTrue( regex.mayMatch( "color" ) );
+		assertTrue( regex.mayMatch( "colour" ) );
+
+		// Nothing is required from a regex with alternatives or inline flags
+		assertTrue( Regex.compile( "cat|dog" ).mayMatch( "" ) );
+		assertTrue( Regex.compile( "(?i)cat" ).mayMatch( "CAT" ) );
+	}
+
+	@Test
+	public void testCache() {
+		BoundedCache<Regex> cache = new BoundedCache<Regex>( 2 );
+		Regex first = Regex.compile( "a+" );
+		assertSame( first, cache.put( "a+", first ) );
+		// A regex compiled by another thread at the same time is not cached twice
+		assertSame( first, cache.put( "a+", Regex.compile( "a+" ) ) );
+		assertSame( first, cache.get( "a+" ) );
+
+		cache.put( "b+", Regex.compile( "b+" ) );
+		cache.put( "c+", Regex.compile( "c+" ) );
+		int cached = 0;
+		for ( String regex : new String[] { "a+", "b+", "c+" } ) {
+			if ( cache.get( regex ) != null )
+				cached++;
+		}
+		assertEquals( 2, cached );
+	}
+
+	@Test
+	public void testValidate() throws Exception {
+		JSONValidator validator = new JSONValidator();
+		// The prototype is compiled on each call, the regex only once
+		for ( int i = 0; i < 3; i++ ) {
+			assertTrue( validator.validate( new HashMap() {
+
+				{
+					put( "code", "ORD-12" );
+				}
+			}, stringPrototype( "ORD-\\d+" ) ) );
+			assertFalse( validator.validate( new HashMap() {
+
+				{
+					put( "code", "INV-12" );
+				}
+			}, stringPrototype( "ORD-\\d+" ) ) );
+			assertFalse( validator.validate( new HashMap() {
+
+				{
+					put( "code", "ORD-" );
+				}
+			}, stringPrototype( "ORD-\\d+" ) ) );
+		}
+	}
+
+	@Test
+	public void testNestedQuantifiers() {
+		assertTrue( Regex.compile( "(a+)+b" ).hasNestedQuantifiers() );
+		assertTrue( Regex.compile( "(\\d{3}-)*" ).hasNestedQuantifiers() );
+		assertTrue( Regex.compile( "(.*a){12}" ).hasNestedQuantifiers() );
+		assertTrue( Regex.compile( "((a)+)*" ).hasNestedQuantifiers() );
+		assertTrue( Regex.compile( "(?:\\w+\\s?)+$" ).hasNestedQuantifiers() );
+
+		assertFalse( Regex.compile( "a*b*c+" ).hasNestedQuantifiers() );
+		assertFalse( Regex.compile( "(a+)b+" ).hasNestedQuantifiers() );
+		assertFalse( Regex.compile( "(?:ab)+" ).hasNestedQuantifiers() );
+		assertFalse( Regex.compile( "((a)+)" ).hasNestedQuantifiers() );
+		assertFalse( Regex.compile( "(a+)?" ).hasNestedQuantifiers() );
+		assertFalse( Regex.compile( "[(a+)]+" ).hasNestedQuantifiers() );
+		assertFalse( Regex.compile( "\\(a+\\)+" ).hasNestedQuantifiers() );
+		assertFalse( Regex.compile( "(\\p{L})+" ).hasNestedQuantifiers() );
+	}
+
+	@Test
+	public void testWarnings() throws Exception {
+		JSONValidator validator = new JSONValidator();
+		assertTrue( validator.compile( stringPrototype( "ORD-\\d+" ) ).getWarnings().isEmpty() );
+
+		List<String> warnings = validator.compile( stringPrototype( "(\\w+\\s?)+" ) ).getWarnings();
+		assertEquals( 1, warnings.size() );
+		assertTrue( warnings.get( 0 ), warnings.get( 0 ).contains( "(\\w+\\s?)+" ) );
+	}
+
+	@Test( timeout = 10000 )
+	public void testStepLimit() throws Exception {
+		StringBuilder string = new StringBuilder();
+		for ( int i = 0; i < 40; i++ )
+			string.append( 'a' );
+		final String backtracking = string.append( '!' ).toString();
+
+		Map<String, Object> options = new HashMap<String, Object>();
+		options.put( ValidationOptions.RegexStepLimit, 100000 );
+		JSONValidator validator = new JSONValidator( options );
+		CompiledSchema schema = validator.compile( stringPrototype( "(.*a){12}" ) );
+
+		assertFalse( validator.validate( new HashMap() {
+
+			{
+				put( "code", backtracking );
+			}
+		}, schema ) );
+		assertTrue( validator.getFailMessage(), validator.getFailMessage().contains( "within 100000 steps" ) );
+
+		// Strings the regex decides on quickly are not affected
+		assertTrue( validator.validate( new HashMap() {
+
+			{
+				put( "code", "aaaaaaaaaaaa" );
+			}
+		}, schema ) );
+		assertFalse( validator.validate( new HashMap() {
+
+			{
+				put( "code", "b" );
+			}
+		}, schema ) );
+		assertTrue( validator.getFailMessage(), validator.getFailMessage().contains( "did not match" ) );
+
+		assertEquals( Regex.TOO_COSTLY, Regex.compile( "(.*a){12}" ).match( backtracking, 100000 ) );
+		assertEquals( Regex.MATCH, Regex.compile( "[a-z]+" ).match( "abcdef", 6 ) );
+		assertEquals( Regex.TOO_COSTLY, Regex.compile( "[a-z]+" ).match( "abcdef", 5 ) );
+	}
+
+}
@@ -0,0 +1,297 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.royall.jsondtd.exceptions.JSONValidatorException;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class StreamTest {
+
+	private static final String TYPE = JSONValidator.KEY_TYPE;
+
+	private static final String FIELDS = JSONValidator.KEY_FIELDS;
+
+	private static final String DEFINITION = JSONValidator.KEY_FIELD_DEFINITION;
+
+	private static final String REQUIRED = JSONValidator.KEY_REQ;
+
+	private final Map item = new HashMap() {
+
+		{
+			put( TYPE, "struct" );
+			put( FIELDS, new HashMap() {
+
+				{
+					put( "id", new HashMap() {
+
+						{
+							put( REQUIRED, true );
+							put( DEFINITION, new HashMap() {
+
+								{
+									put( TYPE, "number" );
+									put( JSONValidator.KEY_NUM_MIN, 1 );
+								}
+							} );
+						}
+					} );
+					put( "state", new HashMap() {
+
+						{
+							put( DEFINITION, new HashMap() {
+
+								{
+									put( TYPE, "string" );
+									put( JSONValidator.KEY_ENUM, new ArrayList() {
+
+										{
+											add( "new" );
+											add( "done" );
+										}
+									} );
+								}
+							} );
+						}
+					} );
+				}
+			} );
+		}
+	};
+
+	private final Map prototype = new HashMap() {
+
+		{
+			put( TYPE, "array" );
+			put( JSONValidator.KEY_CHILDREN, item );
+		}
+	};
+
+	private JSONValidator jv;
+
+	private CompiledSchema schema;
+
+	@Before
+	public void before() throws Exception {
+		jv = new JSONValidator();
+		schema = jv.compile( prototype );
+	}
+
+	@Test
+	public void testValidStream() throws Exception {
+		ValidationResult result = jv.validateStream( new StringReader( "[ {\"id\": 1, \"state\": \"new\", \"other\": {\"a\": [1, 2]}}, {\"id\": 2.5e1} ]" ), schema );
+		assertTrue( result.isValid() );
+		assertNull( result.getReturnJson() );
+
+		result = jv.validateStream( new ByteArrayInputStream( "[{\"id\": 3, \"state\": \"d\\u006fne\"}]".getBytes( "UTF-8" ) ), schema );
+		assertTrue( result.isValid() );
+	}
+
+	/**
+	 * Failures are reported with the same messages as for a json tree.
+	 */
+	@Test
+	public void testFailures() throws Exception {
+		ValidationResult result = jv.validateStream( new StringReader( "[{\"id\": 1}, {\"id\": 2, \"state\": \"old\"}]" ), schema );
+		assertFalse( result.isValid() );
+		assertEquals( "[1].state Item old was not found in enum list", result.getFailMessage() );
+
+		result = jv.validateStream( new StringReader( "[{\"id\": 1}, {\"state\": \"new\"}]" ), schema );
+		assertEquals( "[1] Required field id was not found", result.getFailMessage() );
+
+		result = jv.validateStream( new StringReader( "[{\"id\": \"1\"}]" ), schema );
+		assertEquals( "[0].id Expected Type java.lang.Number Found Type java.lang.String", result.getFailMessage() );
+	}
+
+	/**
+	 * Reading stops at the first violation.
+	 */
+	@Test
+	public void testFailFast() throws Exception {
+		final String head = "[{\"id\": 0}";
+		Reader json = new Reader() {
+
+			private int read = 0;
+
+			@Override
+			public int read( char[] _buffer, int _offset, int _length ) throws IOException {
+				if ( read >= head.length() )
+					throw new IOException( "Read past the violation" );
+				int length = Math.min( _length, head.length() - read );
+				head.getChars( read, read + length, _buffer, _offset );
+				read += length;
+				return length;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+
+		ValidationResult result = jv.validateStream( json, schema );
+		assertFalse( result.isValid() );
+		assertEquals( "[0].id Expected number to be greater than or equal to 1.0 but was 0.0", result.getFailMessage() );
+	}
+
+	/**
+	 * Structs with conditions are read completely and validated like a json tree.
+	 */
+	@Test
+	public void testConditions() throws Exception {
+		( (Map) ( (Map) item.get( FIELDS ) ).get( "state" ) ).put( REQUIRED, new HashMap() {
+
+			{
+				put( "gt&id", 10 );
+			}
+		} );
+		schema = jv.compile( prototype );
+
+		assertTrue( jv.validateStream( new StringReader( "[{\"id\": 1}]" ), schema ).isValid() );
+		ValidationResult result = jv.validateStream( new StringReader( "[{\"id\": 1}, {\"id\": 11}]" ), schema );
+		assertEquals( "[1] Required field state was not found", result.getFailMessage() );
+	}
+
+	@Test
+	public void testMalformedJson() throws Exception {
+		try {
+			jv.validateStream( new StringReader( "[{\"id\": 1}\n {\"id\": 2}]" ), schema );
+			fail( "A JSONValidatorException was expected to be thrown but never was." );
+		} catch ( JSONValidatorException e ) {
+			assertEquals( "Malformed json at line 2 column 2: Expected ',' or ']'", e.getMessage() );
+		}
+
+		try {
+			jv.validateStream( new StringReader( "[{\"id\": 1}] x" ), schema );
+			fail( "A JSONValidatorException was expected to be thrown but never was." );
+		} catch ( JSONValidatorException e ) {
+			assertEquals( "Malformed json at line 1 column 13: Unexpected character 'x' after the json", e.getMessage() );
+		}
+	}
+
+	/**
+	 * Json bytes validate the same way as json text, from arrays and from direct buffers.
+	 */
+	@Test
+	public void testBytes() throws Exception {
+		String[] documents = { "[ {\"id\": 1, \"state\": \"new\", \"other\": {\"a\": [1, \"]\", {}]}}, {\"id\": 2.5e1} ]", "[{\"id\": 3, \"state\": \"d\\u006fne\"}]", "[{\"id\": 1}, {\"id\": 2, \"state\": \"old\"}]",
+				"[{\"id\": 1}, {\"state\": \"n\u00e9w\"}]", "[{\"id\": -12345678901234567890}]", "[{\"id\": \"1\", \"state\": 1}]", "[{\"id\": 0}, {\"id\": 2}]" };
+
+		for ( String document : documents ) {
+			ValidationResult expected = jv.validateStream( new StringReader( document ), schema );
+			byte[] bytes = document.getBytes( "UTF-8" );
+
+			ValidationResult result = jv.validateStream( bytes, schema );
+			assertEquals( document, expected.isValid(), result.isValid() );
+			assertEquals( document, expected.getFailMessage(), result.getFailMessage() );
+
+			ByteBuffer direct = ByteBuffer.allocateDirect( bytes.length + 2 );
+			direct.put( (byte) ' ' ).put( bytes ).flip();
+			direct.position( 1 );
+			result = jv.validateStream( direct, schema );
+			assertEquals( document, expected.getFailMessage(), result.getFailMessage() );
+			assertEquals( 1, direct.position() );
+		}
+	}
+
+	@Test
+	public void testMalformedBytes() throws Exception {
+		String[] documents = { "[{\"id\": 1}\n {\"id\": 2}]", "[{\"id\": 1}] x", "[{\"id\": 1]", "[{\"id\": 01}]", "[{\"id\": tru}]", "[{\"id\": 1, \"state\": \"a\\x\"}]", "[{\"id\" 1}]" };
+		String[] messages = { "Malformed json at line 2 column 2: Expected ',' or ']'", "Malformed json at line 1 column 13: Unexpected character 'x' after the json", "Malformed json at line 1 column 10: Unexpected ']'",
+				"Malformed json at line 1 column 9: Invalid number", "Malformed json at line 1 column 9: Unexpected character 't'", "Malformed json at line 1 column 24: Invalid escape character 'x'", "Malformed json at line 1 column 8: Expected ':'" };
+
+		for ( int i = 0; i < documents.length; i++ ) {
+			try {
+				jv.validateStream( documents[i].getBytes( "UTF-8" ), schema );
+				fail( "A JSONValidatorException was expected to be thrown for " + documents[i] );
+			} catch ( JSONValidatorException e ) {
+				assertEquals( messages[i], e.getMessage() );
+			}
+		}
+	}
+
+	/**
+	 * The vector scan stops at the first quote, backslash or control character, or close to the end.
+	 * Only run when the JVM has jdk.incubator.vector.
+	 */
+	@Test
+	public void testVectorScan() throws Exception {
+		StringScan scan = StringScan.vector();
+		Assume.assumeNotNull( scan );
+
+		Random random = new Random( 8 );
+		byte[] special = { '"', '\\', 0, 0x1f, '\n' };
+		byte[] plain = { 'a', ' ', 0x20, 0x7f, (byte) 0x80, (byte) 0xc3, (byte) 0xff };
+		for ( int run = 0; run < 2000; run++ ) {
+			byte[] json = new byte[random.nextInt( 300 )];
+			for ( int i = 0; i < json.length; i++ )
+				json[i] = random.nextInt( 40 ) == 0 ? special[random.nextInt( special.length )] : plain[random.nextInt( plain.length )];
+			int from = ( json.length == 0 ) ? 0 : random.nextInt( json.length );
+
+			int next = from;
+			while ( next < json.length && !isSpecial( json[next] ) )
+				next++;
+			int skipped = scan.skipPlain( json, from, json.length );
+			assertTrue( skipped >= from && skipped <= next );
+			if ( skipped < next )
+				assertTrue( json.length - skipped < 128 );
+		}
+
+		// Long strings through the whole index
+		StringBuilder text = new StringBuilder();
+		for ( int i = 0; i < 500; i++ )
+			text.append( ( i % 97 == 0 ) ? "\\\"" : ( i % 89 == 0 ) ? "\u00e9" : "x" );
+		String document = "[{\"id\": 1, \"other\": \"" + text + "\"}]";
+		assertTrue( jv.validateStream( document.getBytes( "UTF-8" ), schema ).isValid() );
+		try {
+			jv.validateStream( ( "[{\"id\": 1, \"other\": \"" + text + "\t\"}]" ).getBytes( "UTF-8" ), schema );
+			fail( "A control character in a string was accepted." );
+		} catch ( JSONValidatorException e ) {
+			assertTrue( e.getMessage(), e.getMessage().endsWith( "Unescaped control character in string" ) );
+		}
+	}
+
+	private static boolean isSpecial( byte _b ) {
+		return _b == '"' || _b == '\\' || ( _b >= 0 && _b < 0x20 );
+	}
+}
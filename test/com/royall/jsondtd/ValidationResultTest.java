@@ -0,0 +1,235 @@
+/* 
+ *  Copyright (C) 2013 Royall & Company
+ *
+ *  JSON DTD is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  Free Software Foundation,version 3.
+ *  
+ *  JSON DTD is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with JSON DTD.  If not, see http://www.gnu.org/licenses/
+ *  
+ *  Additional permission under GNU GPL version 3 section 7
+ *  
+ *  If you modify this Program, or any covered work, by linking or combining 
+ *  it with any of the JARS listed in the README.txt (or a modified version of 
+ *  (that library), containing parts covered by the terms of that JAR, the 
+ *  licensors of this Program grant you additional permission to convey the 
+ *  resulting work. 
+ *  
+ */
+package com.royall.jsondtd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+@SuppressWarnings( { "unchecked", "rawtypes", "serial" } )
+public class ValidationResultTest {
+
+	private static final String TYPE = JSONValidator.KEY_TYPE;
+
+	private static final String FIELDS = JSONValidator.KEY_FIELDS;
+
+	private static final String DEFINITION = JSONValidator.KEY_FIELD_DEFINITION;
+
+	private final Map prototype = new HashMap() {
+
+		{
+			put( TYPE, "struct" );
+			put( FIELDS, new HashMap() {
+
+				{
+					put( "id", new HashMap() {
+
+						{
+							put( JSONValidator.KEY_REQ, true );
+							put( DEFINITION, new HashMap() {
+
+								{
+									put( TYPE, "number" );
+									put( JSONValidator.KEY_NUM_MAX, 1000 );
+								}
+							} );
+						}
+					} );
+					put( "state", new HashMap() {
+
+						{
+							put( JSONValidator.KEY_DEFAULT, "new" );
+							put( DEFINITION, new HashMap() {
+
+								{
+									put( TYPE, "string" );
+								}
+							} );
+						}
+					} );
+				}
+			} );
+		}
+	};
+
+	@Test
+	public void testResultDoesNotTouchValidator() throws Exception {
+		JSONValidator jv = new JSONValidator();
+
+		Map json = new HashMap();
+		json.put( "id", 1 );
+		ValidationResult result = jv.validateWithResult( json, prototype );
+		assertTrue( result.isValid() );
+		assertNull( result.getFailMessage() );
+		assertEquals( "new", ( (Map) result.getReturnJson() ).get( "state" ) );
+
+		json.put( "id", 1001 );
+		result = jv.validateWithResult( json, prototype );
+		assertFalse( result.isValid() );
+		assertEquals( ".id Expected number to be less than or equal to 1000.0 but was 1001.0", result.getFailMessage() );
+		assertNull( result.getReturnJson() );
+
+		assertNull( jv.getFailMessage() );
+		assertNull( jv.getReturnJson() );
+	}
+
+	/**
+	 * One validator and schema shared by many threads, every result matches its own document.
+	 */
+	@Test
+	public void testSharedValidator() throws Exception {
+		final JSONValidator jv = new JSONValidator();
+		final CompiledSchema schema = jv.compile( prototype );
+
+		ExecutorService executor = Executors.newFixedThreadPool( 4 );
+		try {
+			List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+			for ( int t = 0; t < 8; t++ ) {
+				futures.add( executor.submit( new Callable<Boolean>() {
+
+					@Override
+					public Boolean call() throws Exception {
+						for ( int i = 995; i < 2000; i++ ) {
+							Map json = new HashMap();
+							json.put( "id", i );
+							ValidationResult result = jv.validateWithResult( json, schema );
+							if ( result.isValid() != ( i <= 1000 ) )
+								return false;
+							if ( result.isValid() && !( (Map) result.getReturnJson() ).get( "id" ).equals( i ) )
+								return false;
+							if ( !result.isValid() && !result.getFailMessage().endsWith( "but was " + (double) i ) )
+								return false;
+						}
+						return true;
+					}
+				} ) );
+			}
+			for ( Future<Boolean> future : futures )
+				assertTrue( future.get() );
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Failures are kept as codes and path segments and rendered to the classic message on request.
+	 */
+	@Test
+	public void testStructuredFailure() throws Exception {
+		final Map number = new HashMap() {
+
+			{
+				put( DEFINITION, new HashMap() {
+
+					{
+						put( TYPE, "number" );
+					}
+				} );
+			}
+		};
+		Map alternatives = new HashMap() {
+
+			{
+				put( TYPE, "struct" );
+				put( FIELDS, new ArrayList() {
+
+					{
+						add( new HashMap() {
+
+							{
+								put( "a", number );
+							}
+						} );
+						add( new HashMap() {
+
+							{
+								put( "b", number );
+							}
+						} );
+					}
+				} );
+			}
+		};
+		Map prototype = new HashMap();
+		prototype.put( TYPE, "array" );
+		prototype.put( JSONValidator.KEY_CHILDREN, alternatives );
+
+		Map item = new HashMap();
+		item.put( "a", "1" );
+		item.put( "b", "2" );
+		List json = new ArrayList();
+		json.add( item );
+
+		ValidationResult result = new JSONValidator().validateWithResult( json, prototype );
+		assertFalse( result.isValid() );
+
+		ValidationFailure failure = result.getFailure();
+		assertEquals( FailureCode.NO_PATTERN_MATCHED, failure.getCode() );
+		assertEquals( "[0]", failure.getPath() );
+		assertEquals( 2, failure.getAlternatives().length );
+		assertEquals( FailureCode.WRONG_TYPE, failure.getAlternatives()[1].getCode() );
+		assertEquals( ".b", failure.getAlternatives()[1].getPath() );
+
+		assertEquals( "[0] None of the possible field patterns validated Nested Failures:\n" //
+				+ "-.a Expected Type java.lang.Number Found Type java.lang.String\n" //
+				+ "-.b Expected Type java.lang.Number Found Type java.lang.String", result.getFailMessage() );
+	}
+
+	@Test
+	public void testCheckOnly() throws Exception {
+		JSONValidator jv = new JSONValidator();
+
+		Map json = new HashMap();
+		json.put( "id", 1 );
+		ValidationResult result = jv.check( json, prototype );
+		assertTrue( result.isValid() );
+		assertNull( result.getReturnJson() );
+
+		json.put( "id", 1001 );
+		result = jv.check( json, jv.compile( prototype ) );
+		assertFalse( result.isValid() );
+		assertEquals( ".id Expected number to be less than or equal to 1000.0 but was 1001.0", result.getFailMessage() );
+
+		// Through the validator options
+		Map options = new HashMap();
+		options.put( ValidationOptions.CheckOnly, true );
+		jv = new JSONValidator( options );
+		json.put( "id", 1 );
+		assertTrue( jv.validate( json, prototype ) );
+		assertNull( jv.getReturnJson() );
+	}
+}